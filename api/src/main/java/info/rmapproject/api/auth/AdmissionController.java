@@ -0,0 +1,442 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.api.auth;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.HttpMethod;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import info.rmapproject.api.exception.ErrorCode;
+import info.rmapproject.api.exception.RMapApiException;
+import info.rmapproject.auth.model.ApiKey;
+
+/**
+ * Admits API requests within the limits of the client making them, so that one client cannot starve the others.
+ * Requests are divided by endpoint into separate {@link Pool pools} for reads, writes and heavy listings.  In each
+ * pool a client may make {@code requestsPerSecond} requests a second, in bursts of up to {@code burstSeconds} worth,
+ * and have {@code maxInFlight} requests in progress.  A request over either limit is rejected with
+ * {@code 429 Too Many Requests} and a {@code Retry-After}.
+ * <p>
+ * A client is identified by its API key when the request carries a valid key and secret, and otherwise by its
+ * address.  Behind a reverse proxy every request comes from the proxy, so the addresses of the proxies are listed in
+ * {@code trustedProxies}: the address of a request from a trusted proxy is taken from its {@code X-Forwarded-For}
+ * header, as the nearest address that is not itself a trusted proxy.  The limits of each pool are configured in {@code rmapapi.properties}; the {@code requestsPerSecond} and
+ * {@code maxInFlight} columns of an API key in the auth DB, when set, replace them for every pool of the key.  Key
+ * limits are re-read every {@code keyCacheMs}.
+ * </p>
+ * <p>
+ * A request holds a {@link Permit} from admission until its response is sent; a permit that has not been released
+ * after {@code maxHoldMs}, e.g. because the client went away, stops counting against the client.
+ * </p>
+ * <p>
+ * Thread safe.
+ * </p>
+ */
+public class AdmissionController {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AdmissionController.class);
+
+	/** The listing endpoints of the resources, statements and agents services */
+	private static final Pattern LISTING = Pattern.compile(
+			"^/(resources/[^/]+(/(events|agents|discos))?|stmts/[^/]+/[^/]+/[^/]+/(discos|agents)"
+			+ "|agents/[^/]+/(events|discos))/?$");
+
+	private static final String KEY_CLIENT = "key:";
+
+	private static final String ADDRESS_CLIENT = "address:";
+
+	/**
+	 * The classes of endpoint that are limited separately
+	 */
+	public enum Pool {
+		/** Requests that read a single object */
+		READ,
+		/** Requests that write to RMap */
+		WRITE,
+		/** Requests that list the objects related to a resource, statement or agent */
+		LISTING;
+
+		/**
+		 * @param method the HTTP method of a request
+		 * @param path the path of a request, relative to the API root, e.g. {@code /resources/{uri}/discos}
+		 * @return the pool of the request
+		 */
+		public static Pool of(String method, String path) {
+			if (!HttpMethod.GET.equals(method) && !HttpMethod.HEAD.equals(method)
+					&& !HttpMethod.OPTIONS.equals(method)) {
+				return WRITE;
+			}
+			return (path != null && LISTING.matcher(path).matches()) ? LISTING : READ;
+		}
+	}
+
+	private ApiUserService apiUserService;
+
+	private boolean enabled = false;
+
+	/** The addresses of the reverse proxies whose X-Forwarded-For headers are trusted */
+	private Set<String> trustedProxies = new HashSet<>();
+
+	/** Requests per second, by pool */
+	private final int[] requestsPerSecond = {20, 5, 2};
+
+	/** Maximum requests in progress, by pool */
+	private final int[] maxInFlight = {8, 4, 2};
+
+	private int burstSeconds = 5;
+
+	private long keyCacheMs = 60000;
+
+	private long maxHoldMs = 120000;
+
+	private int maxClients = 10000;
+
+	private final ConcurrentHashMap<String, Client> clients = new ConcurrentHashMap<>();
+
+	/**
+	 * Admits a request, or rejects it if its client is over the limits of its pool.
+	 *
+	 * @param accessKey the access key of the request, or null if it has none
+	 * @param secret the secret of the request, or null if it has none
+	 * @param remoteAddress the address of the client
+	 * @param pool the pool of the request
+	 * @return the permit, to be released when the response has been sent
+	 * @throws RMapApiException with {@link ErrorCode#ER_REQUEST_RATE_EXCEEDED} or
+	 * {@link ErrorCode#ER_TOO_MANY_CONCURRENT_REQUESTS}, and the seconds after which to retry as the
+	 * {@link RMapApiException#RETRY_AFTER} property, if the request is rejected
+	 */
+	public Permit admit(String accessKey, String secret, String remoteAddress, Pool pool) throws RMapApiException {
+		if (!enabled) {
+			return Permit.NONE;
+		}
+		long now = System.nanoTime();
+		Client client = clientFor(accessKey, secret, remoteAddress, now);
+		return client.buckets[pool.ordinal()].admit(client, pool, now);
+	}
+
+	private Client clientFor(String accessKey, String secret, String remoteAddress, long now)
+			throws RMapApiException {
+		if (clients.size() > maxClients) {
+			clients.values().removeIf(client -> client.isIdle(now));
+		}
+		if (accessKey != null && accessKey.length() > 0 && secret != null && secret.length() > 0) {
+			Client client = clients.get(KEY_CLIENT + accessKey);
+			if (client == null || !secret.equals(client.secret)
+					|| now - client.loadedNanos > TimeUnit.MILLISECONDS.toNanos(keyCacheMs)) {
+				ApiKey apiKey = apiUserService.getApiKey(accessKey, secret);
+				if (apiKey != null) {
+					int[] keyRequestsPerSecond = limits(apiKey.getRequestsPerSecond(), requestsPerSecond);
+					int[] keyMaxInFlight = limits(apiKey.getMaxInFlight(), maxInFlight);
+					client = clients.compute(KEY_CLIENT + accessKey, (name, existing) -> (existing == null)
+							? new Client(secret, keyRequestsPerSecond, keyMaxInFlight, now)
+							: existing.reload(secret, keyRequestsPerSecond, keyMaxInFlight, now));
+				}
+			}
+			if (client != null && secret.equals(client.secret)) {
+				return client;
+			}
+		}
+		return clients.computeIfAbsent(ADDRESS_CLIENT + remoteAddress,
+				name -> new Client(null, requestsPerSecond, maxInFlight, now));
+	}
+
+	/**
+	 * Answers the address of the client that made a request.  A request from a trusted proxy is attributed to the
+	 * nearest address in its X-Forwarded-For header that is not a trusted proxy, read from the right, since only the
+	 * addresses appended by trusted proxies can be relied on; other requests to their remote address.
+	 *
+	 * @param remoteAddress the remote address of the request
+	 * @param forwardedFor the X-Forwarded-For header of the request, or null if it has none
+	 * @return the address of the client
+	 */
+	public String clientAddress(String remoteAddress, String forwardedFor) {
+		if (forwardedFor == null || !trustedProxies.contains(remoteAddress)) {
+			return remoteAddress;
+		}
+		String address = remoteAddress;
+		String[] forwarded = forwardedFor.split(",");
+		for (int i = forwarded.length - 1; i >= 0 && trustedProxies.contains(address); i--) {
+			String next = forwarded[i].trim();
+			if (!next.isEmpty()) {
+				address = next;
+			}
+		}
+		return address;
+	}
+
+	private static int[] limits(Integer keyLimit, int[] defaults) {
+		if (keyLimit == null || keyLimit < 1) {
+			return defaults;
+		}
+		int[] limits = new int[defaults.length];
+		Arrays.fill(limits, keyLimit);
+		return limits;
+	}
+
+	/**
+	 * @return the number of clients whose limits are being tracked
+	 */
+	public int getClientCount() {
+		return clients.size();
+	}
+
+	@Autowired
+	public void setApiUserService(ApiUserService apiUserService) {
+		this.apiUserService = apiUserService;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @param trustedProxies the addresses of the reverse proxies whose X-Forwarded-For headers are trusted, separated
+	 * by commas; empty if the API is not behind a proxy
+	 */
+	public void setTrustedProxies(String trustedProxies) {
+		Set<String> proxies = new HashSet<>();
+		if (trustedProxies != null) {
+			for (String proxy : trustedProxies.split(",")) {
+				if (!proxy.trim().isEmpty()) {
+					proxies.add(proxy.trim());
+				}
+			}
+		}
+		this.trustedProxies = proxies;
+	}
+
+	public void setReadRequestsPerSecond(int requestsPerSecond) {
+		setLimit(this.requestsPerSecond, Pool.READ, requestsPerSecond, "Requests per second");
+	}
+
+	public void setReadMaxInFlight(int maxInFlight) {
+		setLimit(this.maxInFlight, Pool.READ, maxInFlight, "Max in flight");
+	}
+
+	public void setWriteRequestsPerSecond(int requestsPerSecond) {
+		setLimit(this.requestsPerSecond, Pool.WRITE, requestsPerSecond, "Requests per second");
+	}
+
+	public void setWriteMaxInFlight(int maxInFlight) {
+		setLimit(this.maxInFlight, Pool.WRITE, maxInFlight, "Max in flight");
+	}
+
+	public void setListingRequestsPerSecond(int requestsPerSecond) {
+		setLimit(this.requestsPerSecond, Pool.LISTING, requestsPerSecond, "Requests per second");
+	}
+
+	public void setListingMaxInFlight(int maxInFlight) {
+		setLimit(this.maxInFlight, Pool.LISTING, maxInFlight, "Max in flight");
+	}
+
+	private static void setLimit(int[] limits, Pool pool, int limit, String name) {
+		if (limit < 1) {
+			throw new IllegalArgumentException(name + " must be a positive integer.");
+		}
+		limits[pool.ordinal()] = limit;
+	}
+
+	/**
+	 * @return the number of seconds of requests a client may make at once, after making none
+	 */
+	public int getBurstSeconds() {
+		return burstSeconds;
+	}
+
+	public void setBurstSeconds(int burstSeconds) {
+		if (burstSeconds < 1) {
+			throw new IllegalArgumentException("Burst seconds must be a positive integer.");
+		}
+		this.burstSeconds = burstSeconds;
+	}
+
+	public long getKeyCacheMs() {
+		return keyCacheMs;
+	}
+
+	public void setKeyCacheMs(long keyCacheMs) {
+		if (keyCacheMs < 0) {
+			throw new IllegalArgumentException("Key cache ms must not be negative.");
+		}
+		this.keyCacheMs = keyCacheMs;
+	}
+
+	public long getMaxHoldMs() {
+		return maxHoldMs;
+	}
+
+	public void setMaxHoldMs(long maxHoldMs) {
+		if (maxHoldMs < 1) {
+			throw new IllegalArgumentException("Max hold ms must be a positive integer.");
+		}
+		this.maxHoldMs = maxHoldMs;
+	}
+
+	public int getMaxClients() {
+		return maxClients;
+	}
+
+	public void setMaxClients(int maxClients) {
+		if (maxClients < 1) {
+			throw new IllegalArgumentException("Max clients must be a positive integer.");
+		}
+		this.maxClients = maxClients;
+	}
+
+	/**
+	 * The admission of a request, which counts against its client until released.
+	 */
+	public static class Permit {
+
+		/** The permit of a request admitted while admission control is disabled */
+		static final Permit NONE = new Permit(null, Long.MAX_VALUE);
+
+		private final Bucket bucket;
+
+		private final long expiresNanos;
+
+		private final AtomicBoolean released = new AtomicBoolean(false);
+
+		private Permit(Bucket bucket, long expiresNanos) {
+			this.bucket = bucket;
+			this.expiresNanos = expiresNanos;
+		}
+
+		/**
+		 * Stops counting the request against its client.  Has no effect after the first call.
+		 */
+		public void release() {
+			if (bucket != null && released.compareAndSet(false, true)) {
+				bucket.release(this);
+			}
+		}
+
+		private boolean isExpired(long now) {
+			return now - expiresNanos > 0;
+		}
+	}
+
+	/**
+	 * The limits of a client, and its usage of each pool
+	 */
+	private class Client {
+
+		private volatile String secret;
+
+		private volatile int[] requestsPerSecond;
+
+		private volatile int[] maxInFlight;
+
+		private volatile long loadedNanos;
+
+		private final Bucket[] buckets = new Bucket[Pool.values().length];
+
+		Client(String secret, int[] requestsPerSecond, int[] maxInFlight, long now) {
+			for (int i = 0; i < buckets.length; i++) {
+				buckets[i] = new Bucket();
+			}
+			reload(secret, requestsPerSecond, maxInFlight, now);
+		}
+
+		Client reload(String secret, int[] requestsPerSecond, int[] maxInFlight, long now) {
+			this.secret = secret;
+			this.requestsPerSecond = requestsPerSecond;
+			this.maxInFlight = maxInFlight;
+			this.loadedNanos = now;
+			return this;
+		}
+
+		boolean isIdle(long now) {
+			for (Bucket bucket : buckets) {
+				if (!bucket.isIdle(now)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * The token bucket and requests in progress of a client in one pool
+	 */
+	private class Bucket {
+
+		private double tokens = -1;
+
+		private long refilledNanos;
+
+		private final Set<Permit> inFlight = new HashSet<>();
+
+		synchronized Permit admit(Client client, Pool pool, long now) throws RMapApiException {
+			int rate = client.requestsPerSecond[pool.ordinal()];
+			double capacity = (double) rate * burstSeconds;
+			if (tokens < 0) {
+				tokens = capacity;
+			} else {
+				tokens = Math.min(capacity, tokens + (now - refilledNanos) * rate / 1e9);
+			}
+			refilledNanos = now;
+
+			inFlight.removeIf(permit -> permit.isExpired(now));
+			if (inFlight.size() >= client.maxInFlight[pool.ordinal()]) {
+				LOG.debug("{} request rejected: {} requests in progress", pool, inFlight.size());
+				throw new RMapApiException(ErrorCode.ER_TOO_MANY_CONCURRENT_REQUESTS)
+						.set(RMapApiException.RETRY_AFTER, 1);
+			}
+			if (tokens < 1) {
+				long retryAfter = Math.max(1, (long) Math.ceil((1 - tokens) / rate));
+				LOG.debug("{} request rejected: rate of {} requests per second exceeded", pool, rate);
+				throw new RMapApiException(ErrorCode.ER_REQUEST_RATE_EXCEEDED)
+						.set(RMapApiException.RETRY_AFTER, retryAfter);
+			}
+			tokens -= 1;
+			Permit permit = new Permit(this, now + TimeUnit.MILLISECONDS.toNanos(maxHoldMs));
+			inFlight.add(permit);
+			return permit;
+		}
+
+		synchronized void release(Permit permit) {
+			inFlight.remove(permit);
+		}
+
+		/**
+		 * @return true if the bucket would be full and has no requests in progress, so may be discarded
+		 */
+		synchronized boolean isIdle(long now) {
+			inFlight.removeIf(permit -> permit.isExpired(now));
+			return inFlight.isEmpty() && (tokens < 0 || now - refilledNanos > TimeUnit.SECONDS.toNanos(burstSeconds));
+		}
+	}
+
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.api.auth;
+
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+
+/**
+ * Releases the {@link AdmissionController.Permit} of a request once its response, or fault, is being sent.  Applied
+ * to both the out and out fault chains, so that a request is counted against its client only while it is in progress.
+ *
+ * @see AuthenticationInterceptor
+ */
+public class AdmissionReleaseInterceptor extends AbstractPhaseInterceptor<Message> {
+
+	/**
+	 * Instantiates a new Admission Release Interceptor.
+	 */
+	public AdmissionReleaseInterceptor() {
+		super(Phase.SETUP);
+	}
+
+	@Override
+	public void handleMessage(Message message) {
+		release(message);
+	}
+
+	@Override
+	public void handleFault(Message message) {
+		release(message);
+	}
+
+	private static void release(Message message) {
+		if (message.getExchange() == null) {
+			return;
+		}
+		AdmissionController.Permit permit = message.getExchange().get(AdmissionController.Permit.class);
+		if (permit != null) {
+			permit.release();
+		}
+	}
+
+}
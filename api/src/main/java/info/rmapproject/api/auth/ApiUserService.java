@@ -20,6 +20,7 @@
 package info.rmapproject.api.auth;
 
 import info.rmapproject.api.exception.RMapApiException;
+import info.rmapproject.auth.model.ApiKey;
 import info.rmapproject.core.model.request.RequestEventDetails;
 
 import java.net.URI;
@@ -110,6 +111,16 @@ public interface ApiUserService {
 	 */
 	public void validateKey(String accessKey, String secret) throws RMapApiException;
 
+	/**
+	 * Retrieves the API key matching the key/secret combination, e.g. to read its request limits.
+	 *
+	 * @param accessKey the access key
+	 * @param secret the secret
+	 * @return the API key, or null if there is no matching key
+	 * @throws RMapApiException the RMap API Exception
+	 */
+	public ApiKey getApiKey(String accessKey, String secret) throws RMapApiException;
+
 	/**
 	 * This method prepares the current authenticated User to write to the RMap graph database.  
 	 * (1) A User may need an RMapAgent to be initialized if one does not already exist so that it can 
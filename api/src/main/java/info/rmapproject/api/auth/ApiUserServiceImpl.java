@@ -221,6 +221,19 @@ public class ApiUserServiceImpl implements ApiUserService {
 		}	
 	}
 
+    /* (non-Javadoc)
+	 * @see info.rmapproject.api.auth.ApiUserService#getApiKey(String, String)
+	 */
+	@Override
+	public ApiKey getApiKey(String accessKey, String secret) throws RMapApiException {
+		try {
+			return rmapAuthService.getApiKeyByKeySecret(accessKey, secret);
+		}
+		catch (RMapAuthException e) {
+			throw RMapApiException.wrap(e, ErrorCode.ER_INVALID_USER_TOKEN_PROVIDED);
+		}	
+	}
+
     /* (non-Javadoc)
 	 * @see info.rmapproject.api.auth.ApiUserServiceInt#getCurrentRequestEventDetails()
 	 */
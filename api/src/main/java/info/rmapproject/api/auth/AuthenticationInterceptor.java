@@ -23,6 +23,8 @@ import info.rmapproject.api.exception.ErrorCode;
 import info.rmapproject.api.exception.RMapApiException;
 import info.rmapproject.api.exception.RMapApiExceptionHandler;
 
+import java.util.Collections;
+
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.core.Response;
@@ -35,17 +37,23 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * Intercepts interactions with the API to authenticate the user and 
- * verify they are authorized to access the API.
+ * verify they are authorized to access the API, then admits the request
+ * within the limits of its client, when an {@link AdmissionController} is set.
  *
  * @author khanson
  */
 public class AuthenticationInterceptor extends AbstractPhaseInterceptor<Message> {
 
+	private static final String FORWARDED_FOR = "X-Forwarded-For";
+
 	/** The API User Service. */
 	private ApiUserService apiUserService;
 
 	private RMapApiExceptionHandler exceptionHandler;
 
+	/** Limits the requests of each client; may be null, in which case requests are not limited. */
+	private AdmissionController admissionController;
+
 	/**
 	 * Autowired from Spring configuration - sets ApiUserService class.
 	 *
@@ -96,6 +104,17 @@ public class AuthenticationInterceptor extends AbstractPhaseInterceptor<Message>
 				apiUserService.validateKey(accessKey, secret);
 	    	}
 	    	
+	    	if (admissionController != null) {
+	    		//reads need not be authenticated, but are limited by key when a key is provided
+	    		AuthorizationPolicy policy = message.get(AuthorizationPolicy.class);
+	    		AdmissionController.Permit permit = admissionController.admit(
+	    				(policy != null) ? policy.getUserName() : null, 
+	    				(policy != null) ? policy.getPassword() : null, 
+	    				admissionController.clientAddress(req.getRemoteAddr(), forwardedFor(req)), 
+	    				AdmissionController.Pool.of(method, req.getPathInfo()));
+	    		message.getExchange().put(AdmissionController.Permit.class, permit);
+	    	}
+	    	
 	    } catch (RMapApiException ex){ 
 	    	//generate a response to intercept default message
 	    	Response response = exceptionHandler.toResponse(ex);
@@ -104,6 +123,18 @@ public class AuthenticationInterceptor extends AbstractPhaseInterceptor<Message>
 		
     }
 
+    /**
+     * @param req the request
+     * @return the X-Forwarded-For headers of the request, joined by commas, or null if it has none
+     */
+    private static String forwardedFor(HttpServletRequest req) {
+    	if (req.getHeaders(FORWARDED_FOR) == null) {
+    		return null;
+    	}
+    	String forwardedFor = String.join(",", Collections.list(req.getHeaders(FORWARDED_FOR)));
+    	return forwardedFor.isEmpty() ? null : forwardedFor;
+    }
+
 	public RMapApiExceptionHandler getExceptionHandler() {
 		return exceptionHandler;
 	}
@@ -111,4 +142,12 @@ public class AuthenticationInterceptor extends AbstractPhaseInterceptor<Message>
 	public void setExceptionHandler(RMapApiExceptionHandler exceptionHandler) {
 		this.exceptionHandler = exceptionHandler;
 	}
+
+	public AdmissionController getAdmissionController() {
+		return admissionController;
+	}
+
+	public void setAdmissionController(AdmissionController admissionController) {
+		this.admissionController = admissionController;
+	}
 }
@@ -20,6 +20,7 @@
 package info.rmapproject.api.exception;
 
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.Response.StatusType;
 
 import info.rmapproject.api.utils.Constants;
 
@@ -171,6 +172,17 @@ public enum ErrorCode {
 	/** Error code for when requested Object is tombstoned. */
 	ER_OBJECT_TOMBSTONED (Status.GONE,4101006),
 	
+	//413**** Request Entity Too Large
+	/** Error code for when the RDF in the request has more statements or bytes than allowed. */
+	ER_RDF_TOO_LARGE (Status.REQUEST_ENTITY_TOO_LARGE,4131001),
+	
+	//429**** Too Many Requests
+	/** Error code for when a client makes requests faster than its request rate allows. */
+	ER_REQUEST_RATE_EXCEEDED (ExtendedStatus.TOO_MANY_REQUESTS,4291001),
+	
+	/** Error code for when a client has as many requests in progress as it is allowed. */
+	ER_TOO_MANY_CONCURRENT_REQUESTS (ExtendedStatus.TOO_MANY_REQUESTS,4291002),
+	
 	//500**** Internal Server Errors
 	//5001*** Internal Server Errors that probably originate in API code
 	/** Error code for when failed to initiate an API Response Manager. */
@@ -346,13 +358,23 @@ public enum ErrorCode {
 	ER_CORE_GENERIC_RMAP_EXCEPTION (Status.INTERNAL_SERVER_ERROR,5009000),
 	
 	/** Error code for when unknown system error. */
-	ER_UNKNOWN_SYSTEM_ERROR (Status.INTERNAL_SERVER_ERROR,5009001); 
+	ER_UNKNOWN_SYSTEM_ERROR (Status.INTERNAL_SERVER_ERROR,5009001),
+
+	//503**** Service Unavailable
+	/** Error code for when a request is rejected because too many requests are already being processed. */
+	ER_SERVER_BUSY (Status.SERVICE_UNAVAILABLE,5031001),
+
+	/** Error code for when a request takes longer than the time allowed to process it. */
+	ER_REQUEST_TIMED_OUT (Status.SERVICE_UNAVAILABLE,5031002),
+
+	/** Error code for when a triplestore query takes longer than the time allowed to it. */
+	ER_QUERY_TIMED_OUT (Status.SERVICE_UNAVAILABLE,5031003); 
 
 	/** Error code number. */
 	private final int number;
 	
 	/**  HTTP Response status. */
-	private final Status status;
+	private final StatusType status;
 	
 	/**
 	 * Message corresponding to error code.
@@ -366,7 +388,7 @@ public enum ErrorCode {
 	 * @param status the HTTP response status
 	 * @param number the error number
 	 */
-	private ErrorCode (Status status, int number) {
+	private ErrorCode (StatusType status, int number) {
 		this.number = number;
 		this.status = status;
 	}
@@ -385,7 +407,7 @@ public enum ErrorCode {
 	 *
 	 * @return the response status
 	 */
-	public Status getStatus()  {
+	public StatusType getStatus()  {
 		return status;
 	}
 	
@@ -420,7 +442,12 @@ public enum ErrorCode {
 	 */
 	private static String getDefaultText(ErrorCode errorCode){
 		String defaultText = "";
-		switch (errorCode.getStatus()) {
+		Status status = Status.fromStatusCode(errorCode.getStatus().getStatusCode());
+		if (status == null) {
+			//not a standard JAX-RS status, e.g. 429 Too Many Requests
+			return errorCode.getStatus().getReasonPhrase() + ". Please try again later.";
+		}
+		switch (status) {
 		case GONE:  defaultText = "The requested item has been deleted.";
         	break;
 		case NOT_FOUND:  defaultText = "The requested item cannot be found.";
@@ -429,6 +456,8 @@ public enum ErrorCode {
 			break;
 		case INTERNAL_SERVER_ERROR:  defaultText = "A system error occurred.";
     		break;
+		case SERVICE_UNAVAILABLE:  defaultText = "The service is temporarily unavailable. Please try again later.";
+			break;
         default: defaultText = "An error occurred.";
         	break;	
 		}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.api.exception;
+
+import javax.ws.rs.core.Response.Status.Family;
+import javax.ws.rs.core.Response.StatusType;
+
+/**
+ * HTTP response statuses used by the RMap API that are not defined by {@link javax.ws.rs.core.Response.Status}.
+ */
+public enum ExtendedStatus implements StatusType {
+
+	/** 429 Too Many Requests, see <a href="https://tools.ietf.org/html/rfc6585#section-4">RFC 6585</a> */
+	TOO_MANY_REQUESTS (429, "Too Many Requests");
+
+	private final int code;
+
+	private final String reason;
+
+	private ExtendedStatus(int code, String reason) {
+		this.code = code;
+		this.reason = reason;
+	}
+
+	@Override
+	public int getStatusCode() {
+		return code;
+	}
+
+	@Override
+	public Family getFamily() {
+		return Family.familyOf(code);
+	}
+
+	@Override
+	public String getReasonPhrase() {
+		return reason;
+	}
+
+}
@@ -34,6 +34,9 @@ public class RMapApiException extends Exception {
     /** The Constant serialVersionUID. */
     private static final long serialVersionUID = 1L;
 
+    /** The property holding the number of seconds after which a rejected request may be retried. */
+    public static final String RETRY_AFTER = "retryAfter";
+
     /**
      * Wrap generic exception with API exception
      *
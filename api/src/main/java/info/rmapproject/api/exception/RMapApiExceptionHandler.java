@@ -22,7 +22,9 @@ package info.rmapproject.api.exception;
 import java.net.URI;
 
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.Response.StatusType;
 import javax.ws.rs.ext.ExceptionMapper;
 import javax.ws.rs.ext.Provider;
 
@@ -31,6 +33,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import info.rmapproject.api.utils.PathUtils;
+import info.rmapproject.core.exception.RMapQueryTimeoutException;
+import info.rmapproject.core.exception.RMapRequestTooLargeException;
 
 /**
  * Converts RMap Transform API exceptions to HTTP responses.
@@ -58,11 +62,19 @@ public class RMapApiExceptionHandler implements ExceptionMapper<RMapApiException
     	//to build up the error message
     	StringBuilder errMsg = new StringBuilder();
     	
-    	Status errType = null;
+    	StatusType errType = null;
     	String exMsg = null;
     	String rmapApiMsg = null;
     	
     	ErrorCode errorCode = exception.getErrorCode();
+    	//a query timeout is reported as such, whichever layer wrapped it
+    	if (ExceptionUtils.indexOfType(exception, RMapQueryTimeoutException.class) >= 0) {
+    		errorCode = ErrorCode.ER_QUERY_TIMED_OUT;
+    	}
+    	//as is RDF rejected for its size, which the response managers treat as a bad argument
+    	if (ExceptionUtils.indexOfType(exception, RMapRequestTooLargeException.class) >= 0) {
+    		errorCode = ErrorCode.ER_RDF_TOO_LARGE;
+    	}
     	if (errorCode != null){
 	    	errType = errorCode.getStatus();
 	    	rmapApiMsg = errorCode.getMessage();
@@ -116,7 +128,12 @@ public class RMapApiExceptionHandler implements ExceptionMapper<RMapApiException
 
     	if (response==null){
     		//no redirect URL
-    		response = Response.status(errType).type("text/plain").entity(errMsg.toString()).build(); 
+    		Response.ResponseBuilder builder = Response.status(errType).type("text/plain").entity(errMsg.toString());
+    		Object retryAfter = exception.get(RMapApiException.RETRY_AFTER);
+    		if (retryAfter != null) {
+    			builder.header(HttpHeaders.RETRY_AFTER, retryAfter);
+    		}
+    		response = builder.build(); 
     	}
 	
     	LOG.error(errMsg.toString(), exception);
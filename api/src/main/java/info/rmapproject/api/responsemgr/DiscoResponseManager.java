@@ -20,8 +20,12 @@
 package info.rmapproject.api.responsemgr;
 
 
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
@@ -33,8 +37,10 @@ import java.util.Map;
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Link;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,19 +58,26 @@ import info.rmapproject.api.utils.HttpHeaderDateUtils;
 import info.rmapproject.api.utils.HttpLinkBuilder;
 import info.rmapproject.api.utils.HttpTypeMediator;
 import info.rmapproject.api.utils.LinkRels;
+import info.rmapproject.api.utils.PATCH;
 import info.rmapproject.api.utils.URIListHandler;
 import info.rmapproject.core.exception.RMapDefectiveArgumentException;
 import info.rmapproject.core.exception.RMapDeletedObjectException;
 import info.rmapproject.core.exception.RMapDiSCONotFoundException;
+import info.rmapproject.core.exception.RMapDuplicateDiSCOException;
 import info.rmapproject.core.exception.RMapException;
 import info.rmapproject.core.exception.RMapInactiveVersionException;
 import info.rmapproject.core.exception.RMapNotLatestVersionException;
 import info.rmapproject.core.exception.RMapObjectNotFoundException;
 import info.rmapproject.core.exception.RMapTombstonedObjectException;
+import info.rmapproject.core.model.RMapDelta;
+import info.rmapproject.core.model.RMapIri;
 import info.rmapproject.core.model.RMapStatus;
 import info.rmapproject.core.model.disco.RMapDiSCO;
 import info.rmapproject.core.model.event.RMapEvent;
 import info.rmapproject.core.model.event.RMapEventCreation;
+import info.rmapproject.core.model.event.RMapEventDerivation;
+import info.rmapproject.core.model.event.RMapEventUpdate;
+import info.rmapproject.core.model.request.DiSCOCreateResult;
 import info.rmapproject.core.model.request.RequestEventDetails;
 import info.rmapproject.core.rdfhandler.RDFHandler;
 import info.rmapproject.core.rdfhandler.RDFType;
@@ -128,7 +141,7 @@ public class DiscoResponseManager extends ResponseManager {
 		try {				
 			response = Response.status(Response.Status.OK)
 					.entity("{\"description\":\"" + pathUtils.getDocumentationPath() + "\"}")
-					.allow(HttpMethod.HEAD, HttpMethod.OPTIONS,HttpMethod.GET,HttpMethod.POST,HttpMethod.DELETE)
+					.allow(HttpMethod.HEAD, HttpMethod.OPTIONS,HttpMethod.GET,HttpMethod.POST,PATCH.PATCH,HttpMethod.DELETE)
 					.link(pathUtils.getDocumentationPath(),LinkRels.DC_DESCRIPTION)
 					.build();
 			
@@ -156,7 +169,7 @@ public class DiscoResponseManager extends ResponseManager {
 		Response response = null;
 		try {				
 			response = Response.status(Response.Status.OK)
-					.allow(HttpMethod.HEAD, HttpMethod.OPTIONS,HttpMethod.GET,HttpMethod.POST,HttpMethod.DELETE)
+					.allow(HttpMethod.HEAD, HttpMethod.OPTIONS,HttpMethod.GET,HttpMethod.POST,PATCH.PATCH,HttpMethod.DELETE)
 					.link(pathUtils.getDocumentationPath(),LinkRels.DC_DESCRIPTION)
 					.build();
 			
@@ -440,7 +453,20 @@ public class DiscoResponseManager extends ResponseManager {
 			//Retrieve agent to associate with Event
 			RequestEventDetails reqEventDetails = apiUserService.getCurrentRequestEventDetails();
 			
-			RMapEventCreation discoEvent = (RMapEventCreation)rmapService.createDiSCO(rmapDisco, reqEventDetails);
+			RMapEventCreation discoEvent = null;
+			try {
+				discoEvent = (RMapEventCreation)rmapService.createDiSCO(rmapDisco, reqEventDetails);
+			} catch (RMapDuplicateDiSCOException ex) {
+				//the user has already created this DiSCO - point them to it instead of creating a duplicate
+				String sDiscoURI = ex.getDiscoId().toString();
+				LOG.debug("DiSCO create request (id={}) duplicates DiSCO {}", discoRdf.hashCode(), sDiscoURI);
+				response = Response.status(Response.Status.SEE_OTHER)
+							.entity(sDiscoURI)
+							.location(new URI(pathUtils.makeDiscoUrl(sDiscoURI)))
+							.build();
+				reqSuccessful = true;
+				return response;
+			}
 			if (discoEvent == null) {
 				throw new RMapApiException(ErrorCode.ER_CORE_CREATEDISCO_NOT_COMPLETED);
 			} 
@@ -491,6 +517,109 @@ public class DiscoResponseManager extends ResponseManager {
 	}
 
 
+	/**
+	 * Creates new RMap:DiSCOs from valid client-provided RDF describing several DiSCOs, one per graph.  The RDF is
+	 * parsed and every DiSCO validated before any is created, so RDF that does not describe valid DiSCOs is rejected
+	 * as a whole.  The DiSCOs are then created in chunks, and the result of creating each is streamed to the client as
+	 * its chunk is committed: one tab separated line per DiSCO, in the order of the graphs, holding the status (201 if
+	 * created, 303 if it duplicates an existing DiSCO, otherwise 400 or 500), the DiSCO URI, and the creation Event URL
+	 * or the reason the DiSCO was not created.
+	 *
+	 * @param discoRdf the DiSCOs as RDF, in a format supporting named graphs
+	 * @param contentType the content type
+	 * @return HTTP Response
+	 * @throws RMapApiException the RMap API exception
+	 */
+	public Response createRMapDiSCOs(InputStream discoRdf, RDFType contentType) throws RMapApiException {
+		try	{ 
+			if (discoRdf == null){
+				throw new RMapApiException(ErrorCode.ER_NO_DISCO_RDF_PROVIDED);
+			} 
+			if (contentType == null){
+				throw new RMapApiException(ErrorCode.ER_NO_CONTENT_TYPE_PROVIDED);
+			}
+						
+			List<RMapDiSCO> rmapDiscos = rdfHandler.rdf2RMapDiSCOs(discoRdf, contentType, Constants.BASE_URL);
+			if (rmapDiscos == null || rmapDiscos.isEmpty()) {
+				throw new RMapApiException(ErrorCode.ER_CORE_RDF_TO_DISCO_FAILED);
+			}  
+			LOG.debug("Bulk DiSCO create request initiated for {} DiSCOs", rmapDiscos.size());
+
+			//Ensure user has been converted to an RMapAgent
+			apiUserService.prepareCurrentUserForWriteAccess();
+			//Retrieve agent to associate with Events
+			RequestEventDetails reqEventDetails = apiUserService.getCurrentRequestEventDetails();
+			
+			StreamingOutput results = out -> {
+				Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+				try {
+					rmapService.createDiSCOs(rmapDiscos, reqEventDetails, result -> {
+						try {
+							writer.write(bulkResultLine(result));
+							writer.flush();
+						} catch (IOException | RMapApiException ex) {
+							throw new RMapException("Could not write bulk DiSCO create result: " + ex.getMessage(), ex);
+						}
+					});
+				} catch (RMapException | RMapDefectiveArgumentException ex) {
+					//the response has begun, so the failure can only be reported in it
+					LOG.error("Bulk DiSCO create request did not complete: {}", ex.getMessage(), ex);
+					writer.write(Status.INTERNAL_SERVER_ERROR.getStatusCode() + "\t\t" + oneLine(ex.getMessage()) + "\n");
+				}
+				writer.flush();
+			};
+			
+			return Response.status(Response.Status.OK)
+						.entity(results)
+						.type(MediaType.TEXT_PLAIN + ";charset=UTF-8")
+						.build(); 
+		}
+		catch(RMapApiException ex)	{
+			throw ex;
+		}  
+		catch(RMapDefectiveArgumentException ex) {
+			throw RMapApiException.wrap(ex,ErrorCode.ER_GET_DISCO_BAD_ARGUMENT);
+		} 
+		catch(RMapException ex) { 
+			throw RMapApiException.wrap(ex,ErrorCode.ER_CORE_GENERIC_RMAP_EXCEPTION);  			
+		}  
+		catch(Exception ex)	{
+			throw RMapApiException.wrap(ex,ErrorCode.ER_UNKNOWN_SYSTEM_ERROR);
+		}
+	}
+	
+	/**
+	 * Formats the result of creating one DiSCO of several as a line of the bulk create response.
+	 *
+	 * @param result the result of creating the DiSCO
+	 * @return the line, including its line terminator
+	 * @throws RMapApiException if the Event URL cannot be formed
+	 */
+	private String bulkResultLine(DiSCOCreateResult result) throws RMapApiException {
+		StringBuilder line = new StringBuilder();
+		if (result.isCreated()) {
+			line.append(Status.CREATED.getStatusCode()).append('\t')
+				.append(result.getDiscoId()).append('\t')
+				.append(pathUtils.makeEventUrl(result.getEvent().getId().getIri()));
+		} else if (result.getError() instanceof RMapDuplicateDiSCOException) {
+			line.append(Status.SEE_OTHER.getStatusCode()).append('\t')
+				.append(((RMapDuplicateDiSCOException) result.getError()).getDiscoId()).append('\t')
+				.append(oneLine(result.getError().getMessage()));
+		} else {
+			Status status = (result.getError() instanceof RMapDefectiveArgumentException) 
+					? Status.BAD_REQUEST : Status.INTERNAL_SERVER_ERROR;
+			line.append(status.getStatusCode()).append('\t')
+				.append('\t')
+				.append(oneLine(result.getError().getMessage()));
+		}
+		return line.append('\n').toString();
+	}
+	
+	private static String oneLine(String message) {
+		return (message == null) ? "" : message.replaceAll("[\\t\\r\\n]+", " ");
+	}
+
+
 	/**
 	 * Updates RMap:DiSCO.  Does this by inactivating the previous version of the DiSCO and 
 	 * creating a new version using valid client-provided RDF.
@@ -610,6 +739,126 @@ public class DiscoResponseManager extends ResponseManager {
 	}
 	
 	
+	/**
+	 * Updates RMap:DiSCO from a delta.  Does this by inactivating the previous version of the DiSCO and 
+	 * creating a new version from the previous version, with the triples removed and added by a valid 
+	 * client-provided RDF Patch.
+	 *
+	 * @param origDiscoUri the DiSCO URI to update
+	 * @param discoPatch the changes to the DiSCO as an RDF Patch
+	 * @return HTTP Response
+	 * @throws RMapApiException the RMap API exception
+	 */
+	public Response patchRMapDiSCO(String origDiscoUri, InputStream discoPatch) throws RMapApiException {
+		boolean reqSuccessful = false;
+		Response response = null;
+		try	{		
+			if (origDiscoUri==null || origDiscoUri.length()==0)	{
+				throw new RMapApiException(ErrorCode.ER_NO_OBJECT_URI_PROVIDED); 
+			}	
+			if (discoPatch == null || discoPatch.toString().length()==0){
+				throw new RMapApiException(ErrorCode.ER_NO_DISCO_RDF_PROVIDED);
+			} 
+			
+			URI uriOrigDiscoUri = null;
+			try {
+				origDiscoUri = URLDecoder.decode(origDiscoUri, StandardCharsets.UTF_8.name());
+				uriOrigDiscoUri = new URI(origDiscoUri);
+			}
+			catch (Exception ex)  {
+				throw RMapApiException.wrap(ex, ErrorCode.ER_PARAM_WONT_CONVERT_TO_URI);
+			}
+
+			RMapDelta delta = rdfHandler.rdfPatch2RMapDelta(discoPatch, Constants.BASE_URL);
+			if (delta == null || delta.isEmpty()) {
+				throw new RMapApiException(ErrorCode.ER_NO_DISCO_RDF_PROVIDED);
+			}  
+
+			//Ensure user has been converted to an RMapAgent
+			apiUserService.prepareCurrentUserForWriteAccess();
+			//Retrieve agent to associate with Event
+			RequestEventDetails reqEventDetails = apiUserService.getCurrentRequestEventDetails();
+			
+			RMapEvent discoEvent = rmapService.updateDiSCO(uriOrigDiscoUri, delta, reqEventDetails);
+			
+			if (discoEvent == null) {
+				throw new RMapApiException(ErrorCode.ER_CORE_UPDATEDISCO_NOT_COMPLETED);
+			} 
+			
+			RMapIri newDiscoIri = null;
+			if (discoEvent instanceof RMapEventUpdate) {
+				newDiscoIri = ((RMapEventUpdate) discoEvent).getDerivedObjectId();
+			} else if (discoEvent instanceof RMapEventDerivation) {
+				newDiscoIri = ((RMapEventDerivation) discoEvent).getDerivedObjectId();
+			}
+			if (newDiscoIri==null || newDiscoIri.getIri()==null){
+				throw new RMapApiException(ErrorCode.ER_CORE_GET_DISCOID_RETURNED_NULL);
+			}
+			String sDiscoURI = newDiscoIri.getIri().toString();  
+			if (sDiscoURI.length() == 0){
+				throw new RMapApiException(ErrorCode.ER_CORE_DISCOURI_STRING_EMPTY);
+			} 
+			
+			URI uEventURI = discoEvent.getId().getIri();  
+			if (uEventURI==null){
+				throw new RMapApiException(ErrorCode.ER_CORE_GET_EVENTID_RETURNED_NULL);
+			} 
+
+			String newEventURL = pathUtils.makeEventUrl(uEventURI);
+			String prevDiscoUrl = pathUtils.makeDiscoUrl(origDiscoUri);
+			String newDiscoUrl = pathUtils.makeDiscoUrl(sDiscoURI);
+			
+			HttpLinkBuilder links = new HttpLinkBuilder();
+			links.addLink(newEventURL, LinkRels.WAS_GENERATED_BY);
+			links.addLink(prevDiscoUrl, LinkRels.PREDECESSOR_VERSION);			
+			
+			response = Response.status(Response.Status.CREATED)
+						.entity(sDiscoURI)
+						.location(new URI(newDiscoUrl)) 
+						.links(links.getLinkArray())  
+						.build();   
+			
+			reqSuccessful = true;
+    	
+		}
+		catch(RMapApiException ex)	{
+			throw RMapApiException.wrap(ex);
+		}  
+		catch(RMapDefectiveArgumentException ex) {
+			throw RMapApiException.wrap(ex,ErrorCode.ER_GET_DISCO_BAD_ARGUMENT);
+		} 
+		catch(RMapDiSCONotFoundException ex) {
+			throw RMapApiException.wrap(ex,ErrorCode.ER_DISCO_OBJECT_NOT_FOUND);
+		} 
+		catch(RMapInactiveVersionException ex){
+			throw RMapApiException.wrap(ex, ErrorCode.ER_CORE_UPDATING_INACTIVE_DISCO);
+		}
+		catch(RMapNotLatestVersionException ex) {
+			throw RMapApiException.wrap(ex,ErrorCode.ER_NOT_LATEST_DISCOVERS);
+		} 
+		catch(RMapException ex) { 
+			if (ex.getCause() instanceof RMapDeletedObjectException){
+				throw RMapApiException.wrap(ex,ErrorCode.ER_OBJECT_DELETED);  			
+			}
+			else if (ex.getCause() instanceof RMapTombstonedObjectException){
+				throw RMapApiException.wrap(ex,ErrorCode.ER_OBJECT_TOMBSTONED);  			
+			}
+			else if (ex.getCause() instanceof RMapObjectNotFoundException){
+				throw RMapApiException.wrap(ex,ErrorCode.ER_OBJECT_NOT_FOUND);  			
+			}
+			else {
+				throw RMapApiException.wrap(ex,ErrorCode.ER_CORE_GENERIC_RMAP_EXCEPTION);  					
+			}
+		}  
+		catch(Exception ex)	{
+			throw RMapApiException.wrap(ex,ErrorCode.ER_UNKNOWN_SYSTEM_ERROR);
+		}
+		finally{
+			if (!reqSuccessful && response!=null) response.close();
+		}
+		return response;	
+	}
+	
 	/**
 	 * Sets status of RMap:DiSCO to tombstoned.  
 	 *
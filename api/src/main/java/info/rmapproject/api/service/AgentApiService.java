@@ -24,6 +24,7 @@ import info.rmapproject.api.exception.RMapApiException;
 import info.rmapproject.api.lists.NonRdfType;
 import info.rmapproject.api.lists.RdfMediaType;
 import info.rmapproject.api.responsemgr.AgentResponseManager;
+import info.rmapproject.api.utils.AsyncRequestExecutor;
 import info.rmapproject.api.utils.HttpTypeMediator;
 
 import javax.ws.rs.GET;
@@ -32,6 +33,8 @@ import javax.ws.rs.OPTIONS;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MultivaluedMap;
@@ -53,6 +56,10 @@ public class AgentApiService {
     /** Web Application context to retrieve bean values (must use WebApplicationContext to avoid thread issues). */
     @Autowired
     private ApplicationContext context;
+
+    /** Processes the listing requests, which may run slow queries, off the container's request threads. */
+    @Autowired
+    private AsyncRequestExecutor asyncRequestExecutor;
     
 	//private AgentResponseManager agentResponseManager;
 
@@ -181,19 +188,19 @@ public class AgentApiService {
  * @param headers the HTTP request headers
  * @param agentUri the Agent URI
  * @param uriInfo the uri info to retrieve query params etc.
- * @return HTTP Response
+ * @param asyncResponse the suspended HTTP response, resumed with the response once the request is processed
  * @throws RMapApiException the RMap API exception
  */    
     @GET
     @Path("/{agentUri}/events")
     @Produces({"application/json;charset=UTF-8;","text/plain;charset=UTF-8;"})
-    public Response apiGetRMapAgentEventList(	@Context HttpHeaders headers, 
+    public void apiGetRMapAgentEventList(	@Context HttpHeaders headers, 
 												@PathParam("agentUri") String agentUri, 
-									    		@Context UriInfo uriInfo) throws RMapApiException {
+									    		@Context UriInfo uriInfo,
+									    		@Suspended AsyncResponse asyncResponse) throws RMapApiException {
     	NonRdfType outputType = HttpTypeMediator.getNonRdfResponseType(headers);
     	MultivaluedMap<String, String> queryParams = uriInfo.getQueryParameters();
-    	Response eventList = getAgentResponseManager().getRMapAgentEvents(agentUri, outputType, queryParams);
-    	return eventList;
+    	asyncRequestExecutor.execute(asyncResponse, () -> getAgentResponseManager().getRMapAgentEvents(agentUri, outputType, queryParams));
     }
     
    
@@ -204,20 +211,20 @@ public class AgentApiService {
 	 * @param headers the HTTP request headers
 	 * @param agentUri the Agent URI
 	 * @param uriInfo the uri info to retrieve query params etc
-	 * @return HTTP Response
+	 * @param asyncResponse the suspended HTTP response, resumed with the response once the request is processed
 	 * @throws RMapApiException the RMap API exception
 	 */    
     @GET
     @Path("/{agentUri}/discos")
     @Produces({"application/json;charset=UTF-8;","text/plain;charset=UTF-8;"})
-    public Response apiGetRMapAgentDiSCOList (	@Context HttpHeaders headers, 
+    public void apiGetRMapAgentDiSCOList (	@Context HttpHeaders headers, 
     											@PathParam("agentUri") String agentUri, 
-    											@Context UriInfo uriInfo) throws RMapApiException {
+    											@Context UriInfo uriInfo,
+    											@Suspended AsyncResponse asyncResponse) throws RMapApiException {
     	
     	NonRdfType outputType = HttpTypeMediator.getNonRdfResponseType(headers);
     	MultivaluedMap<String, String> queryParams = uriInfo.getQueryParameters();
-    	Response discoList = getAgentResponseManager().getRMapAgentDiSCOs(agentUri, outputType, queryParams);
-    	return discoList;
+    	asyncRequestExecutor.execute(asyncResponse, () -> getAgentResponseManager().getRMapAgentDiSCOs(agentUri, outputType, queryParams));
     }
     
     
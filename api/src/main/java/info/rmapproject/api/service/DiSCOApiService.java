@@ -45,6 +45,7 @@ import info.rmapproject.api.lists.RdfMediaType;
 import info.rmapproject.api.responsemgr.DiscoResponseManager;
 import info.rmapproject.api.utils.Constants;
 import info.rmapproject.api.utils.HttpTypeMediator;
+import info.rmapproject.api.utils.PATCH;
 import info.rmapproject.core.rdfhandler.RDFType;
 
 /**
@@ -243,6 +244,25 @@ public class DiSCOApiService {
 		return createResponse;
     }	
 
+
+	/**
+ * POST /discos/bulk
+ * Creates new DiSCOs from N-Quads or JSON-LD describing one DiSCO per graph, streaming the result of creating each.
+ *
+ * @param header the HTTP request headers
+ * @param discosRdf the new DiSCOs as RDF
+ * @return HTTP Response
+ * @throws RMapApiException the RMap API exception
+ */
+    @POST
+    @Path("/bulk")
+    @Consumes({"application/n-quads;charset=UTF-8;", "application/ld+json;charset=UTF-8;"})
+    @Produces("text/plain;charset=UTF-8;")
+    public Response apiCreateRMapDiSCOs(@Context HttpHeaders headers, InputStream discosRdf) throws RMapApiException {
+    	RDFType requestFormat = HttpTypeMediator.getRdfTypeOfMultiGraphRequest(headers);
+    	Response createResponse = getDiscoResponseManager().createRMapDiSCOs(discosRdf, requestFormat);
+		return createResponse;
+    }	
 	
 /*
  * ------------------------------
@@ -276,6 +296,24 @@ public class DiSCOApiService {
 		return updateResponse;
     }
 
+	/**
+ * PATCH /discos/{discoid}
+ * Sets original DiSCO as inactive and creates a new DiSCO from it, with the changes in an RDF Patch.
+ *
+ * @param origDiscoId the ID of the DiSCO to be updated
+ * @param discoPatch the changes to the DiSCO as an RDF Patch
+ * @return HTTP Response
+ * @throws RMapApiException the RMap API exception
+ */
+    @PATCH
+    @Path("/{discoid}")
+    @Consumes({"application/rdf-patch;charset=UTF-8;", "text/rdf-patch;charset=UTF-8;"})
+    public Response apiPatchRMapDiSCO(@PathParam("discoid") String origDiscoId, 
+    										InputStream discoPatch) throws RMapApiException {
+    	Response patchResponse = getDiscoResponseManager().patchRMapDiSCO(origDiscoId, discoPatch);
+		return patchResponse;
+    }
+
 /*
  * ------------------------------
  * 
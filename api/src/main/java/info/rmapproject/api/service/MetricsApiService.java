@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.api.service;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import info.rmapproject.core.metrics.OperationMetrics;
+
+/**
+ * REST API service exposing the RMap operation metrics for scraping by Prometheus.
+ */
+@Path("/metrics")
+@Component
+public class MetricsApiService {
+
+	/** Content type of the Prometheus text exposition format */
+	static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+	private OperationMetrics metrics;
+
+	@Autowired
+	public MetricsApiService(OperationMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * GET /metrics
+	 * Returns the latency, row counts and error counts of RMap operations in the Prometheus text format.
+	 *
+	 * @return HTTP Response
+	 */
+	@GET
+	@Produces(PROMETHEUS_TEXT)
+	public Response apiGetMetrics() {
+		return Response.status(Response.Status.OK)
+				.entity(metrics.scrape())
+				.type(PROMETHEUS_TEXT)
+				.build();
+	}
+
+}
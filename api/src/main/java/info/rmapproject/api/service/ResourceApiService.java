@@ -25,6 +25,8 @@ import javax.ws.rs.OPTIONS;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MultivaluedMap;
@@ -40,6 +42,7 @@ import info.rmapproject.api.exception.RMapApiException;
 import info.rmapproject.api.lists.NonRdfType;
 import info.rmapproject.api.lists.RdfMediaType;
 import info.rmapproject.api.responsemgr.ResourceResponseManager;
+import info.rmapproject.api.utils.AsyncRequestExecutor;
 import info.rmapproject.api.utils.HttpTypeMediator;
 import info.rmapproject.core.model.RMapObjectType;
 
@@ -56,6 +59,10 @@ public class ResourceApiService {
     /** Web Application context to retrieve bean values (must use WebApplicationContext to avoid thread issues). */
     @Autowired
     private ApplicationContext context;
+
+    /** Processes the listing requests, which may run slow queries, off the container's request threads. */
+    @Autowired
+    private AsyncRequestExecutor asyncRequestExecutor;
 	//private ResourceResponseManager resourceResponseManager = null;
 
     /**
@@ -131,19 +138,19 @@ public class ResourceApiService {
 	 * @param headers the HTTP request headers
 	 * @param resourceUri the Resource URI
 	 * @param uriInfo the URI info for retrieving query string params etc
-	 * @return HTTP Response
+	 * @param asyncResponse the suspended HTTP response, resumed with the response once the request is processed
 	 * @throws RMapApiException the RMap API exception
 	 */
     @GET
     @Path("/{resourceUri}/events")
     @Produces({"application/json;charset=UTF-8;","text/plain;charset=UTF-8;"})
-    public Response apiGetRMapResourceEvents(@Context HttpHeaders headers, 
+    public void apiGetRMapResourceEvents(@Context HttpHeaders headers, 
 										    		@PathParam("resourceUri") String resourceUri, 
-	    											@Context UriInfo uriInfo) throws RMapApiException {
+	    											@Context UriInfo uriInfo,
+	    											@Suspended AsyncResponse asyncResponse) throws RMapApiException {
     	NonRdfType outputType = HttpTypeMediator.getNonRdfResponseType(headers);
     	MultivaluedMap<String, String> queryParams = uriInfo.getQueryParameters();
-    	Response response = getResourceResponseManager().getRMapResourceRelatedObjs(resourceUri, RMapObjectType.EVENT, outputType, queryParams);
-	    return response;	
+    	asyncRequestExecutor.execute(asyncResponse, () -> getResourceResponseManager().getRMapResourceRelatedObjs(resourceUri, RMapObjectType.EVENT, outputType, queryParams));
     }
 		
 	/**
@@ -153,19 +160,19 @@ public class ResourceApiService {
 	 * @param headers the HTTP request headers
 	 * @param resourceUri the Resource URI
 	 * @param uriInfo the URI info for retrieving query string params etc
-	 * @return HTTP Response
+	 * @param asyncResponse the suspended HTTP response, resumed with the response once the request is processed
 	 * @throws RMapApiException the RMap API exception
 	 */
     @GET
     @Path("/{resourceUri}/agents")
     @Produces({"application/json;charset=UTF-8;","text/plain;charset=UTF-8;"})
-    public Response apiGetRMapResourceAssertingAgents(@Context HttpHeaders headers, 
+    public void apiGetRMapResourceAssertingAgents(@Context HttpHeaders headers, 
     												@PathParam("resourceUri") String resourceUri, 
-	    											@Context UriInfo uriInfo) throws RMapApiException {
+	    											@Context UriInfo uriInfo,
+	    											@Suspended AsyncResponse asyncResponse) throws RMapApiException {
     	NonRdfType outputType = HttpTypeMediator.getNonRdfResponseType(headers);
     	MultivaluedMap<String, String> queryParams = uriInfo.getQueryParameters();
-    	Response response = getResourceResponseManager().getRMapResourceRelatedObjs(resourceUri, RMapObjectType.AGENT, outputType, queryParams);
-	    return response;	
+    	asyncRequestExecutor.execute(asyncResponse, () -> getResourceResponseManager().getRMapResourceRelatedObjs(resourceUri, RMapObjectType.AGENT, outputType, queryParams));
     }
     
 	/**
@@ -175,20 +182,20 @@ public class ResourceApiService {
 	 * @param headers the HTTP request headers
 	 * @param resourceUri the Resource URI
 	 * @param uriInfo the URI info for retrieving query string params etc
-	 * @return HTTP Response
+	 * @param asyncResponse the suspended HTTP response, resumed with the response once the request is processed
 	 * @throws RMapApiException the RMap API exception
 	 */
     @GET
     @Path("/{resourceUri}/discos")
     @Produces({"application/json;charset=UTF-8;","text/plain;charset=UTF-8;"})
-    public Response apiGetRMapResourceDiscos(@Context HttpHeaders headers, 
+    public void apiGetRMapResourceDiscos(@Context HttpHeaders headers, 
 								    		@PathParam("resourceUri") String resourceUri, 
-											@Context UriInfo uriInfo) throws RMapApiException {
+											@Context UriInfo uriInfo,
+											@Suspended AsyncResponse asyncResponse) throws RMapApiException {
     	
     	NonRdfType outputType = HttpTypeMediator.getNonRdfResponseType(headers);
     	MultivaluedMap<String, String> queryParams = uriInfo.getQueryParameters();
-		Response response = getResourceResponseManager().getRMapResourceRelatedObjs(resourceUri, RMapObjectType.DISCO, outputType, queryParams);
-	    return response;	
+		asyncRequestExecutor.execute(asyncResponse, () -> getResourceResponseManager().getRMapResourceRelatedObjs(resourceUri, RMapObjectType.DISCO, outputType, queryParams));
     }
 
 	/**
@@ -198,7 +205,7 @@ public class ResourceApiService {
 	 * @param headers the HTTP request headers
 	 * @param resourceUri the Resource URI
 	 * @param uriInfo the URI info for retrieving query string params etc
-	 * @return HTTP Response
+	 * @param asyncResponse the suspended HTTP response, resumed with the response once the request is processed
 	 * @throws RMapApiException the RMap API exception
 	 */
     @GET
@@ -207,14 +214,14 @@ public class ResourceApiService {
 				"application/ld+json;charset=UTF-8;", "application/n-quads;charset=UTF-8;",
 				"text/turtle;charset=UTF-8;"
 				})
-    public Response apiGetRMapResourceTriples(@Context HttpHeaders headers, 
+    public void apiGetRMapResourceTriples(@Context HttpHeaders headers, 
 									    		@PathParam("resourceUri") String resourceUri, 
-												@Context UriInfo uriInfo) throws RMapApiException {
+												@Context UriInfo uriInfo,
+												@Suspended AsyncResponse asyncResponse) throws RMapApiException {
 
     	RdfMediaType outputType = HttpTypeMediator.getRdfResponseType(headers);
     	MultivaluedMap<String, String> queryParams = uriInfo.getQueryParameters();
-    	Response response = getResourceResponseManager().getRMapResourceTriples(resourceUri, outputType, queryParams);
-	    return response;	
+    	asyncRequestExecutor.execute(asyncResponse, () -> getResourceResponseManager().getRMapResourceTriples(resourceUri, outputType, queryParams));
     }
     
     
@@ -23,6 +23,7 @@ import info.rmapproject.api.exception.ErrorCode;
 import info.rmapproject.api.exception.RMapApiException;
 import info.rmapproject.api.lists.NonRdfType;
 import info.rmapproject.api.responsemgr.StatementResponseManager;
+import info.rmapproject.api.utils.AsyncRequestExecutor;
 import info.rmapproject.api.utils.HttpTypeMediator;
 
 import javax.ws.rs.GET;
@@ -31,6 +32,8 @@ import javax.ws.rs.OPTIONS;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MultivaluedMap;
@@ -52,6 +55,10 @@ public class StatementApiService {
     /** Web Application context to retrieve bean values (must use WebApplicationContext to avoid thread issues). */
     @Autowired
     private ApplicationContext context;
+
+    /** Processes the listing requests, which may run slow queries, off the container's request threads. */
+    @Autowired
+    private AsyncRequestExecutor asyncRequestExecutor;
 	//private StatementResponseManager statementResponseManager = null;
 
     /**
@@ -144,21 +151,21 @@ public class StatementApiService {
 	 * @param predicate the predicate
 	 * @param object the object
 	 * @param uriInfo the URI info for retrieving query string params etc
-	 * @return HTTP Response
+	 * @param asyncResponse the suspended HTTP response, resumed with the response once the request is processed
 	 * @throws RMapApiException the RMap API exception
 	 */  
     @GET
     @Path("/{subject}/{predicate}/{object}/discos")
     @Produces({"application/json;charset=UTF-8;","text/plain;charset=UTF-8;"})
-    public Response apiGetRMapDiSCOsContainingStmt( @Context HttpHeaders headers, 
+    public void apiGetRMapDiSCOsContainingStmt( @Context HttpHeaders headers, 
 		    										@PathParam("subject") String subject, 
 		    										@PathParam("predicate") String predicate, 
 		    										@PathParam("object") String object, 
-	    											@Context UriInfo uriInfo) throws RMapApiException {
+	    											@Context UriInfo uriInfo,
+	    											@Suspended AsyncResponse asyncResponse) throws RMapApiException {
     	NonRdfType outputType = HttpTypeMediator.getNonRdfResponseType(headers);
     	MultivaluedMap<String, String> queryParams = uriInfo.getQueryParameters();
-    	Response response = getStatementResponseManager().getStatementRelatedDiSCOs(subject, predicate, object, outputType, queryParams);
-	    return response;	
+    	asyncRequestExecutor.execute(asyncResponse, () -> getStatementResponseManager().getStatementRelatedDiSCOs(subject, predicate, object, outputType, queryParams));
     }
 
 /*
@@ -177,21 +184,21 @@ public class StatementApiService {
 	 * @param predicate the predicate
 	 * @param object the object
 	 * @param uriInfo the URI info for retrieving query string params etc
-	 * @return HTTP Response
+	 * @param asyncResponse the suspended HTTP response, resumed with the response once the request is processed
 	 * @throws RMapApiException the RMap API exception
 	 */
     @GET
     @Path("/{subject}/{predicate}/{object}/agents")
     @Produces({"application/json;charset=UTF-8;","text/plain;charset=UTF-8;"})
-    public Response apiGetStmtAssertingAgents(@Context HttpHeaders headers, 
+    public void apiGetStmtAssertingAgents(@Context HttpHeaders headers, 
     										@PathParam("subject") String subject, 
     										@PathParam("predicate") String predicate, 
     										@PathParam("object") String object, 
-											@Context UriInfo uriInfo) throws RMapApiException {
+											@Context UriInfo uriInfo,
+											@Suspended AsyncResponse asyncResponse) throws RMapApiException {
     	NonRdfType outputType = HttpTypeMediator.getNonRdfResponseType(headers);
     	MultivaluedMap<String, String> queryParams = uriInfo.getQueryParameters();
-    	Response response = getStatementResponseManager().getStatementAssertingAgents(subject, predicate, object, outputType, queryParams);
-	    return response;	
+    	asyncRequestExecutor.execute(asyncResponse, () -> getStatementResponseManager().getStatementAssertingAgents(subject, predicate, object, outputType, queryParams));
     }
        
 }
\ No newline at end of file
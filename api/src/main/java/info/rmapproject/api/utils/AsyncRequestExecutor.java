@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.api.utils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.ConnectionCallback;
+import javax.ws.rs.core.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import info.rmapproject.api.exception.ErrorCode;
+import info.rmapproject.api.exception.RMapApiException;
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.QueryContext;
+
+/**
+ * Processes suspended API requests on a bounded pool of threads, so that requests that run slow triplestore queries
+ * do not tie up the threads of the container.  A request that cannot be queued is answered with
+ * {@link ErrorCode#ER_SERVER_BUSY}, and a request that is not answered within {@link #getTimeoutMs() timeoutMs} is
+ * answered with {@link ErrorCode#ER_REQUEST_TIMED_OUT}.  The triplestore queries issued while processing a request
+ * are limited to the time remaining to it by a {@link QueryContext}, which is cancelled, and the thread processing the
+ * request interrupted, when the request times out or the client disconnects.
+ *
+ * @see javax.ws.rs.container.Suspended
+ */
+public class AsyncRequestExecutor implements DisposableBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AsyncRequestExecutor.class);
+
+	private int threads = 16;
+
+	private int queueCapacity = 100;
+
+	private long timeoutMs = 60000;
+
+	private ThreadPoolExecutor executor = null;
+
+	/**
+	 * Produces the response to a request.
+	 */
+	@FunctionalInterface
+	public interface ResponseSupplier {
+		/**
+		 * @return the HTTP response
+		 * @throws RMapApiException the RMap API exception
+		 */
+		Response get() throws RMapApiException;
+	}
+
+	/**
+	 * Processes a request on the pool, resuming the suspended response with the response produced, or with the
+	 * exception thrown.
+	 *
+	 * @param asyncResponse the suspended response
+	 * @param supplier produces the response
+	 */
+	public void execute(AsyncResponse asyncResponse, ResponseSupplier supplier) {
+		QueryContext context = new QueryContext(timeoutMs);
+		AtomicReference<Future<?>> task = new AtomicReference<>();
+		asyncResponse.setTimeoutHandler(timedOut -> {
+			cancel(context, task.get());
+			LOG.warn("Request cancelled after {} ms", timeoutMs);
+			timedOut.resume(new RMapApiException(ErrorCode.ER_REQUEST_TIMED_OUT));
+		});
+		asyncResponse.setTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+		asyncResponse.register((ConnectionCallback) disconnected -> {
+			cancel(context, task.get());
+			LOG.debug("Request cancelled: the client disconnected");
+		});
+
+		try {
+			task.set(getExecutor().submit(() -> {
+				try (QueryContext.Scope scope = context.attach()) {
+					asyncResponse.resume(supplier.get());
+				} catch (Throwable e) {
+					asyncResponse.resume(e);
+				}
+			}));
+		} catch (RejectedExecutionException e) {
+			LOG.warn("Request rejected: {} requests are queued", queueCapacity);
+			asyncResponse.resume(new RMapApiException(ErrorCode.ER_SERVER_BUSY));
+		}
+	}
+
+	private static void cancel(QueryContext context, Future<?> running) {
+		context.cancel();
+		if (running != null) {
+			running.cancel(true);
+		}
+	}
+
+	private synchronized ThreadPoolExecutor getExecutor() {
+		if (executor == null) {
+			AtomicInteger count = new AtomicInteger();
+			executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+						Thread thread = new Thread(runnable, "rmap-api-async-" + count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					});
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
+	}
+
+	/**
+	 * @return the number of requests being processed
+	 */
+	public int getActiveCount() {
+		return (executor != null) ? executor.getActiveCount() : 0;
+	}
+
+	/**
+	 * @return the number of requests waiting for a thread
+	 */
+	public int getQueuedCount() {
+		return (executor != null) ? executor.getQueue().size() : 0;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Threads must be a positive integer.");
+		}
+		this.threads = threads;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("Queue capacity must be a positive integer.");
+		}
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * @return the time in ms a request may take before it is cancelled
+	 */
+	public long getTimeoutMs() {
+		return timeoutMs;
+	}
+
+	public void setTimeoutMs(long timeoutMs) {
+		if (timeoutMs < 1) {
+			throw new IllegalArgumentException("Timeout ms must be a positive integer.");
+		}
+		this.timeoutMs = timeoutMs;
+	}
+
+	/**
+	 * Interrupts the requests being processed, and discards those waiting.
+	 */
+	@Override
+	public synchronized void destroy() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+}
@@ -123,6 +123,23 @@ public class HttpTypeMediator {
 		return requestType;
 	}
 	
+	/**
+	 * Gets the RDF type of a request that may describe several RMap objects, one per graph.  Such requests may also
+	 * be made as N-Quads, which is not otherwise accepted.
+	 *
+	 * @param headers the HTTP Request headers
+	 * @return the RDF type
+	 * @throws RMapApiException the RMap API exception
+	 */
+	public static RDFType getRdfTypeOfMultiGraphRequest(HttpHeaders headers) throws RMapApiException	{
+		MediaType contentType = headers.getMediaType();
+		if (contentType!=null && "application".equals(contentType.getType()) 
+				&& "n-quads".equals(contentType.getSubtype())){
+			return RDFType.NQUADS;
+		}
+		return getRdfTypeOfRequest(headers);
+	}
+	
 	/**
 	 * Determine RDF media type that will be returned in the response as the content-type
 	 *
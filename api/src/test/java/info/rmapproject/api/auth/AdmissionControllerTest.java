@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.api.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import info.rmapproject.api.auth.AdmissionController.Permit;
+import info.rmapproject.api.auth.AdmissionController.Pool;
+import info.rmapproject.api.exception.ErrorCode;
+import info.rmapproject.api.exception.RMapApiException;
+import info.rmapproject.auth.model.ApiKey;
+
+/**
+ * Tests for {@link AdmissionController}
+ */
+public class AdmissionControllerTest {
+
+	private static final String ADDRESS = "192.0.2.1";
+
+	private ApiUserService apiUserService;
+
+	private AdmissionController underTest;
+
+	@Before
+	public void setUp() {
+		apiUserService = mock(ApiUserService.class);
+		underTest = new AdmissionController();
+		underTest.setApiUserService(apiUserService);
+		underTest.setEnabled(true);
+		underTest.setBurstSeconds(1);
+	}
+
+	/**
+	 * Requests are pooled by method and endpoint.
+	 */
+	@Test
+	public void testPoolOf() {
+		assertEquals(Pool.WRITE, Pool.of("POST", "/discos"));
+		assertEquals(Pool.WRITE, Pool.of("DELETE", "/discos/rmap%3Aabc"));
+		assertEquals(Pool.READ, Pool.of("GET", "/discos/rmap%3Aabc"));
+		assertEquals(Pool.READ, Pool.of("GET", "/agents/rmap%3Aabc"));
+		assertEquals(Pool.READ, Pool.of("HEAD", "/resources"));
+		assertEquals(Pool.LISTING, Pool.of("GET", "/resources/http%3A%2F%2Fexample.org%2Fa"));
+		assertEquals(Pool.LISTING, Pool.of("GET", "/resources/http%3A%2F%2Fexample.org%2Fa/discos"));
+		assertEquals(Pool.LISTING, Pool.of("GET", "/stmts/a/b/c/agents"));
+		assertEquals(Pool.LISTING, Pool.of("HEAD", "/agents/rmap%3Aabc/events"));
+	}
+
+	/**
+	 * Requests over the rate of a client are rejected until tokens are added to its bucket.
+	 */
+	@Test
+	public void testRateLimit() throws Exception {
+		underTest.setReadRequestsPerSecond(2);
+		underTest.admit(null, null, ADDRESS, Pool.READ).release();
+		underTest.admit(null, null, ADDRESS, Pool.READ).release();
+		RMapApiException rejected = reject(null, null, ADDRESS, Pool.READ, ErrorCode.ER_REQUEST_RATE_EXCEEDED);
+		assertEquals(Long.valueOf(1), rejected.get(RMapApiException.RETRY_AFTER));
+
+		// other clients and other pools are not affected
+		assertNotNull(underTest.admit(null, null, "192.0.2.2", Pool.READ));
+		assertNotNull(underTest.admit(null, null, ADDRESS, Pool.LISTING));
+
+		Thread.sleep(600);
+		assertNotNull(underTest.admit(null, null, ADDRESS, Pool.READ));
+	}
+
+	/**
+	 * Requests over the maximum in progress for a client are rejected until one is released.
+	 */
+	@Test
+	public void testMaxInFlight() throws Exception {
+		underTest.setListingMaxInFlight(1);
+		Permit permit = underTest.admit(null, null, ADDRESS, Pool.LISTING);
+		reject(null, null, ADDRESS, Pool.LISTING, ErrorCode.ER_TOO_MANY_CONCURRENT_REQUESTS);
+
+		permit.release();
+		permit.release();
+		underTest.admit(null, null, ADDRESS, Pool.LISTING);
+		reject(null, null, ADDRESS, Pool.LISTING, ErrorCode.ER_TOO_MANY_CONCURRENT_REQUESTS);
+	}
+
+	/**
+	 * A permit that is never released stops counting after the maximum hold time.
+	 */
+	@Test
+	public void testPermitExpires() throws Exception {
+		underTest.setWriteMaxInFlight(1);
+		underTest.setMaxHoldMs(50);
+		underTest.admit(null, null, ADDRESS, Pool.WRITE);
+		Thread.sleep(100);
+		assertNotNull(underTest.admit(null, null, ADDRESS, Pool.WRITE));
+	}
+
+	/**
+	 * The limits of a key in the auth DB replace the defaults, and the key is cached; a request with the wrong secret
+	 * is limited by its address.
+	 */
+	@Test
+	public void testKeyLimits() throws Exception {
+		underTest.setReadMaxInFlight(1);
+		ApiKey apiKey = new ApiKey();
+		apiKey.setMaxInFlight(3);
+		when(apiUserService.getApiKey("key", "secret")).thenReturn(apiKey);
+
+		for (int i = 0; i < 3; i++) {
+			underTest.admit("key", "secret", ADDRESS, Pool.READ);
+		}
+		reject("key", "secret", ADDRESS, Pool.READ, ErrorCode.ER_TOO_MANY_CONCURRENT_REQUESTS);
+		verify(apiUserService, times(1)).getApiKey("key", "secret");
+
+		underTest.admit("key", "wrong", ADDRESS, Pool.READ);
+		reject("key", "wrong", ADDRESS, Pool.READ, ErrorCode.ER_TOO_MANY_CONCURRENT_REQUESTS);
+		reject(null, null, ADDRESS, Pool.READ, ErrorCode.ER_TOO_MANY_CONCURRENT_REQUESTS);
+	}
+
+	/**
+	 * A request from a trusted proxy is attributed to the nearest untrusted address it was forwarded for; the
+	 * X-Forwarded-For header of any other request is ignored.
+	 */
+	@Test
+	public void testClientAddress() {
+		underTest.setTrustedProxies("10.0.0.1, 10.0.0.2");
+		assertEquals(ADDRESS, underTest.clientAddress(ADDRESS, null));
+		assertEquals(ADDRESS, underTest.clientAddress(ADDRESS, "198.51.100.7"));
+		assertEquals("198.51.100.7", underTest.clientAddress("10.0.0.1", "198.51.100.7"));
+		assertEquals("198.51.100.7", underTest.clientAddress("10.0.0.1", "203.0.113.9, 198.51.100.7, 10.0.0.2"));
+		assertEquals("10.0.0.1", underTest.clientAddress("10.0.0.1", ""));
+	}
+
+	/**
+	 * Anonymous clients behind a trusted proxy are limited separately.
+	 */
+	@Test
+	public void testClientsBehindProxyLimitedSeparately() throws Exception {
+		underTest.setTrustedProxies("10.0.0.1");
+		underTest.setReadMaxInFlight(1);
+		underTest.admit(null, null, underTest.clientAddress("10.0.0.1", "198.51.100.7"), Pool.READ);
+		underTest.admit(null, null, underTest.clientAddress("10.0.0.1", "198.51.100.8"), Pool.READ);
+		reject(null, null, underTest.clientAddress("10.0.0.1", "198.51.100.7"), Pool.READ,
+				ErrorCode.ER_TOO_MANY_CONCURRENT_REQUESTS);
+	}
+
+	/**
+	 * No request is rejected while admission control is disabled.
+	 */
+	@Test
+	public void testDisabled() throws Exception {
+		underTest.setEnabled(false);
+		underTest.setReadMaxInFlight(1);
+		for (int i = 0; i < 10; i++) {
+			underTest.admit(null, null, ADDRESS, Pool.READ);
+		}
+		assertEquals(0, underTest.getClientCount());
+	}
+
+	private RMapApiException reject(String accessKey, String secret, String address, Pool pool, ErrorCode expected) {
+		try {
+			underTest.admit(accessKey, secret, address, pool);
+			fail("Expected the request to be rejected");
+			return null;
+		} catch (RMapApiException e) {
+			assertEquals(expected, e.getErrorCode());
+			return e;
+		}
+	}
+
+}
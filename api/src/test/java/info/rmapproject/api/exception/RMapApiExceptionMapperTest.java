@@ -19,10 +19,12 @@
  *******************************************************************************/
 package info.rmapproject.api.exception;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 public class RMapApiExceptionMapperTest {
@@ -36,4 +38,16 @@ public class RMapApiExceptionMapperTest {
 		assertNotNull(response);
 	}
 
+	/**
+	 * A rejected request is answered with 429 and the time after which it may be retried.
+	 */
+	@Test
+	public void testRetryAfter() {
+		RMapApiException e = new RMapApiException(ErrorCode.ER_REQUEST_RATE_EXCEEDED)
+				.set(RMapApiException.RETRY_AFTER, 3);
+		Response response = new RMapApiExceptionHandler().toResponse(e);
+		assertEquals(429, response.getStatus());
+		assertEquals("3", response.getHeaderString(HttpHeaders.RETRY_AFTER));
+	}
+
 }
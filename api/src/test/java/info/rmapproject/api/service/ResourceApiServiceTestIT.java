@@ -23,12 +23,15 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedHashMap;
@@ -38,6 +41,7 @@ import javax.ws.rs.core.UriInfo;
 
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -77,7 +81,7 @@ public class ResourceApiServiceTestIT extends ApiDataCreationTestAbstractIT {
 		when (uriInfo.getQueryParameters()).thenReturn(params);
 		when (httpheaders.getAcceptableMediaTypes()).thenReturn(mediatypes);
 
-		response = resourceApiService.apiGetRMapResourceTriples(httpheaders, discoURI, uriInfo);
+		response = getRMapResourceTriples(httpheaders, discoURI, uriInfo);
 
 		assertNotNull(response);
 		String body = response.getEntity().toString();
@@ -94,7 +98,7 @@ public class ResourceApiServiceTestIT extends ApiDataCreationTestAbstractIT {
 		params.add(Constants.PAGE_PARAM, "1");
 		params.add(Constants.UNTIL_PARAM, untildate);
 
-		response = resourceApiService.apiGetRMapResourceTriples(httpheaders, discoURI, uriInfo);
+		response = getRMapResourceTriples(httpheaders, discoURI, uriInfo);
 
 		assertEquals(200,response.getStatus());
 		body = response.getEntity().toString();
@@ -102,4 +106,15 @@ public class ResourceApiServiceTestIT extends ApiDataCreationTestAbstractIT {
 		assertEquals(2,numMatches);
 	}
 
+	/**
+	 * Requests the triples of a resource, and waits for the suspended response to be resumed.
+	 */
+	private Response getRMapResourceTriples(HttpHeaders headers, String resourceUri, UriInfo uriInfo) throws Exception {
+		AsyncResponse asyncResponse = mock(AsyncResponse.class);
+		resourceApiService.apiGetRMapResourceTriples(headers, resourceUri, uriInfo, asyncResponse);
+		ArgumentCaptor<Object> resumed = ArgumentCaptor.forClass(Object.class);
+		verify(asyncResponse, timeout(10000)).resume(resumed.capture());
+		return (Response) resumed.getValue();
+	}
+
 }
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.api.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.ConnectionCallback;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Response;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import info.rmapproject.api.exception.ErrorCode;
+import info.rmapproject.api.exception.RMapApiException;
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.QueryContext;
+
+/**
+ * Tests for {@link AsyncRequestExecutor}
+ */
+public class AsyncRequestExecutorTest {
+
+	private AsyncRequestExecutor underTest;
+
+	@Before
+	public void setUp() {
+		underTest = new AsyncRequestExecutor();
+		underTest.setThreads(1);
+		underTest.setQueueCapacity(1);
+		underTest.setTimeoutMs(5000);
+	}
+
+	@After
+	public void tearDown() {
+		underTest.destroy();
+	}
+
+	/**
+	 * The suspended response is resumed with the response produced, or the exception thrown, on a pool thread.
+	 */
+	@Test
+	public void testResumes() throws Exception {
+		Response ok = Response.ok().build();
+		AsyncResponse asyncResponse = mock(AsyncResponse.class);
+		underTest.execute(asyncResponse, () -> ok);
+		verify(asyncResponse, timeout(5000)).resume(ok);
+		verify(asyncResponse).setTimeout(5000, TimeUnit.MILLISECONDS);
+
+		RMapApiException notFound = new RMapApiException(ErrorCode.ER_RESOURCE_NOT_FOUND);
+		AsyncResponse failing = mock(AsyncResponse.class);
+		underTest.execute(failing, () -> {
+			throw notFound;
+		});
+		verify(failing, timeout(5000)).resume(notFound);
+	}
+
+	/**
+	 * A request is rejected as busy when every thread is processing a request and the queue is full.
+	 */
+	@Test
+	public void testRejectsWhenBusy() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+		try {
+			underTest.execute(mock(AsyncResponse.class), () -> {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return Response.ok().build();
+			});
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			underTest.execute(mock(AsyncResponse.class), () -> Response.ok().build());
+			assertEquals(1, underTest.getQueuedCount());
+
+			AsyncResponse rejected = mock(AsyncResponse.class);
+			underTest.execute(rejected, () -> Response.ok().build());
+			assertEquals(ErrorCode.ER_SERVER_BUSY, resumedWith(rejected).getErrorCode());
+		} finally {
+			release.countDown();
+		}
+	}
+
+	/**
+	 * A request that times out is resumed with a timeout error, its queries are cancelled, and the thread processing 
+	 * it is interrupted.
+	 */
+	@Test
+	public void testTimeoutCancels() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+		AtomicReference<QueryContext> context = new AtomicReference<>();
+		AsyncResponse asyncResponse = mock(AsyncResponse.class);
+		underTest.execute(asyncResponse, () -> {
+			context.set(QueryContext.current());
+			started.countDown();
+			try {
+				Thread.sleep(60000);
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+			}
+			return Response.ok().build();
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		ArgumentCaptor<TimeoutHandler> handler = ArgumentCaptor.forClass(TimeoutHandler.class);
+		verify(asyncResponse).setTimeoutHandler(handler.capture());
+		handler.getValue().handleTimeout(asyncResponse);
+
+		assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+		assertEquals(ErrorCode.ER_REQUEST_TIMED_OUT, resumedWith(asyncResponse).getErrorCode());
+		assertTrue(context.get().isCancelled());
+	}
+
+	/**
+	 * The queries of a request are cancelled when the client disconnects.
+	 */
+	@Test
+	public void testDisconnectCancels() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicReference<QueryContext> context = new AtomicReference<>();
+		AsyncResponse asyncResponse = mock(AsyncResponse.class);
+		underTest.execute(asyncResponse, () -> {
+			context.set(QueryContext.current());
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return Response.ok().build();
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertFalse(context.get().isCancelled());
+		assertTrue(context.get().getRemainingMs() <= 5000);
+
+		ArgumentCaptor<ConnectionCallback> callback = ArgumentCaptor.forClass(ConnectionCallback.class);
+		verify(asyncResponse).register(callback.capture());
+		callback.getValue().onDisconnect(asyncResponse);
+		release.countDown();
+
+		assertTrue(context.get().isCancelled());
+	}
+
+	private static RMapApiException resumedWith(AsyncResponse asyncResponse) {
+		ArgumentCaptor<Throwable> resumed = ArgumentCaptor.forClass(Throwable.class);
+		verify(asyncResponse, timeout(5000)).resume(resumed.capture());
+		assertSame(RMapApiException.class, resumed.getValue().getClass());
+		return (RMapApiException) resumed.getValue();
+	}
+
+}
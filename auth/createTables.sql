@@ -13,6 +13,8 @@ CREATE TABLE `ApiKeys` (
   `lastModifiedDate` datetime DEFAULT NULL,
   `revokedDate` datetime DEFAULT NULL,
   `userId` int(11) DEFAULT NULL,
+  `requestsPerSecond` int(11) DEFAULT NULL,
+  `maxInFlight` int(11) DEFAULT NULL,
   PRIMARY KEY (`apiKeyId`),
   UNIQUE KEY `apiKeyId_UNIQUE` (`apiKeyId`)
 ) ENGINE=InnoDB AUTO_INCREMENT=32 DEFAULT CHARSET=latin1;
@@ -96,6 +96,13 @@ public class ApiKey {
 	
 	/** The user that the key is associated with. */
 	private int userId;
+
+	/** The number of requests per second the key may make to each class of API endpoint; null for the API default. */
+	private Integer requestsPerSecond;
+	
+	/** The number of requests the key may have in progress at once for each class of API endpoint; null for the API 
+	 * default. */
+	private Integer maxInFlight;
 	
 	/**
 	 * Gets the api key id.
@@ -331,6 +338,42 @@ public class ApiKey {
 		this.userId = userId;
 	}
 	
+	/**
+	 * Gets the number of requests per second the key may make to each class of API endpoint.
+	 *
+	 * @return the requests per second, or null if the API default applies
+	 */
+	public Integer getRequestsPerSecond() {
+		return requestsPerSecond;
+	}
+	
+	/**
+	 * Sets the number of requests per second the key may make to each class of API endpoint.
+	 *
+	 * @param requestsPerSecond the requests per second, or null for the API default
+	 */
+	public void setRequestsPerSecond(Integer requestsPerSecond) {
+		this.requestsPerSecond = requestsPerSecond;
+	}
+	
+	/**
+	 * Gets the number of requests the key may have in progress at once for each class of API endpoint.
+	 *
+	 * @return the maximum requests in progress, or null if the API default applies
+	 */
+	public Integer getMaxInFlight() {
+		return maxInFlight;
+	}
+	
+	/**
+	 * Sets the number of requests the key may have in progress at once for each class of API endpoint.
+	 *
+	 * @param maxInFlight the maximum requests in progress, or null for the API default
+	 */
+	public void setMaxInFlight(Integer maxInFlight) {
+		this.maxInFlight = maxInFlight;
+	}
+	
 	/**
 	 * Checks if is include in event.
 	 *
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import info.rmapproject.core.model.disco.RMapDiSCO;
+import info.rmapproject.core.model.request.DiSCOCreateResult;
+import info.rmapproject.core.model.request.RequestEventDetails;
+import info.rmapproject.core.rdfhandler.RDFHandler;
+import info.rmapproject.core.rdfhandler.RDFType;
+import info.rmapproject.core.rmapservice.RMapService;
+import info.rmapproject.testdata.corpus.CorpusAgent;
+import info.rmapproject.testdata.corpus.CorpusDisco;
+import info.rmapproject.testdata.corpus.CorpusGenerator;
+import info.rmapproject.testdata.corpus.CorpusSink;
+
+/**
+ * Loads a generated corpus into RMap through {@link RMapService}, so that the triplestore holds the DiSCOs, agents and
+ * events exactly as RMap writes them.  Updates and derivations of the corpus are replayed as RMap updates by the
+ * agent of the DiSCO: by the agent of the predecessor for an update, by another agent for a derivation.
+ * <p>
+ * New DiSCOs are buffered per agent and created {@value #BATCH_SIZE} at a time with
+ * {@link RMapService#createDiSCOs(List, RequestEventDetails)}, which commits them in chunks of
+ * {@code rmapcore.bulk.chunkSize}.  Updates and derivations are made one {@code RMapService} call each, after the
+ * buffered DiSCOs have been created, so that their predecessors exist.  The triplestore and id service are chosen
+ * with Spring profiles, e.g. to load an HTTP triplestore:
+ * </p>
+ * <pre>
+ * java -Dspring.profiles.active=default,http-triplestore,inmemory-idservice -Drdf4jhttp.repository.url=... \
+ *      -cp benchmarks.jar info.rmapproject.benchmarks.CorpusLoader --discos 1000000 --seed 42
+ * </pre>
+ * <p>
+ * Without {@code spring.profiles.active} the corpus is loaded into an in-memory triplestore, which is only useful to
+ * time the load itself.
+ * </p>
+ */
+public class CorpusLoader implements CorpusSink {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CorpusLoader.class);
+
+	private static final String DEFAULT_PROFILES = "default,inmemory-triplestore,inmemory-idservice";
+
+	private static final int PROGRESS_INTERVAL = 10000;
+
+	/** Number of new DiSCOs of an agent passed to each createDiSCOs call */
+	static final int BATCH_SIZE = 1000;
+
+	private final RMapService rmapService;
+
+	private final RDFHandler rdfHandler;
+
+	/** RMap id of the latest version of each lineage, keyed by corpus sequence */
+	private final Map<Long, URI> heads = new HashMap<>();
+
+	private final Map<Integer, RequestEventDetails> agents = new HashMap<>();
+
+	/** New DiSCOs not yet created, keyed by agent index */
+	private final Map<Integer, List<RMapDiSCO>> pendingDiscos = new HashMap<>();
+
+	/** Corpus sequence of each new DiSCO not yet created, keyed by agent index */
+	private final Map<Integer, List<Long>> pendingSequences = new HashMap<>();
+
+	private long loaded;
+
+	private final long start = System.currentTimeMillis();
+
+	/**
+	 * @param rmapService loads the corpus
+	 * @param rdfHandler parses the DiSCOs of the corpus
+	 */
+	public CorpusLoader(RMapService rmapService, RDFHandler rdfHandler) {
+		this.rmapService = rmapService;
+		this.rdfHandler = rdfHandler;
+	}
+
+	/**
+	 * @param args {@link CorpusGenerator#fromOptions(String[], int) options} of the corpus
+	 * @throws Exception if the corpus cannot be loaded
+	 */
+	public static void main(String[] args) throws Exception {
+		CorpusGenerator generator = CorpusGenerator.fromOptions(args, 0);
+		try (ClassPathXmlApplicationContext ctx = new ClassPathXmlApplicationContext(
+				new String[] {"classpath:/spring-rmapcore-context.xml"}, false)) {
+			if (System.getProperty("spring.profiles.active") == null) {
+				ctx.getEnvironment().setActiveProfiles(DEFAULT_PROFILES.split(","));
+			}
+			ctx.refresh();
+			CorpusLoader loader = new CorpusLoader(ctx.getBean(RMapService.class), ctx.getBean(RDFHandler.class));
+			long statements = generator.generate(loader);
+			loader.flush();
+			LOG.info("Loaded {} DiSCOs with {} statements in {} s", loader.loaded, statements,
+					(System.currentTimeMillis() - loader.start) / 1000);
+		}
+	}
+
+	@Override
+	public void agent(CorpusAgent agent) throws Exception {
+		URI id = URI.create(agent.getIri());
+		RequestEventDetails requestEventDetails = new RequestEventDetails(id);
+		if (!rmapService.isAgentId(id)) {
+			rmapService.createAgent(id, agent.getName(), URI.create(agent.getIdentityProvider()),
+					URI.create(agent.getAuthId()), requestEventDetails);
+		}
+		agents.put(agent.getIndex(), requestEventDetails);
+	}
+
+	@Override
+	public void disco(CorpusDisco disco) throws Exception {
+		RMapDiSCO rmapDisco = rdfHandler.rdf2RMapDiSCO(
+				new ByteArrayInputStream(disco.toNTriples().getBytes(StandardCharsets.UTF_8)), RDFType.TURTLE, "");
+		int agent = disco.getAgent().getIndex();
+		RequestEventDetails requestEventDetails = agents.get(agent);
+
+		switch (disco.getKind()) {
+			case CREATION:
+				List<RMapDiSCO> discos = pendingDiscos.computeIfAbsent(agent, a -> new ArrayList<>());
+				discos.add(rmapDisco);
+				pendingSequences.computeIfAbsent(agent, a -> new ArrayList<>()).add(disco.getSequence());
+				if (discos.size() >= BATCH_SIZE) {
+					flush(agent);
+				}
+				return;
+			case UPDATE:
+				flush();
+				// the predecessor is no longer the latest version of its lineage
+				rmapService.updateDiSCO(heads.remove(disco.getPredecessor()), rmapDisco, requestEventDetails);
+				break;
+			case DERIVATION:
+				flush();
+				rmapService.updateDiSCO(heads.get(disco.getPredecessor()), rmapDisco, requestEventDetails);
+				break;
+			default:
+				throw new IllegalStateException("Unknown kind of DiSCO " + disco.getKind());
+		}
+		heads.put(disco.getSequence(), rmapDisco.getId().getIri());
+		loaded(1);
+	}
+
+	/**
+	 * Creates the buffered new DiSCOs of every agent.
+	 *
+	 * @throws Exception if a DiSCO cannot be created
+	 */
+	void flush() throws Exception {
+		for (Integer agent : new ArrayList<>(pendingDiscos.keySet())) {
+			flush(agent);
+		}
+	}
+
+	private void flush(int agent) throws Exception {
+		List<RMapDiSCO> discos = pendingDiscos.remove(agent);
+		List<Long> sequences = pendingSequences.remove(agent);
+		if (discos == null || discos.isEmpty()) {
+			return;
+		}
+
+		List<DiSCOCreateResult> results = rmapService.createDiSCOs(discos, agents.get(agent));
+		for (int i = 0; i < results.size(); i++) {
+			DiSCOCreateResult result = results.get(i);
+			if (!result.isCreated()) {
+				throw result.getError();
+			}
+			heads.put(sequences.get(i), result.getDiscoId());
+		}
+		loaded(results.size());
+	}
+
+	private void loaded(int count) {
+		long before = loaded;
+		loaded += count;
+		if (loaded / PROGRESS_INTERVAL > before / PROGRESS_INTERVAL) {
+			long elapsed = Math.max(1, System.currentTimeMillis() - start);
+			LOG.info("Loaded {} DiSCOs ({} per second)", loaded, loaded * 1000 / elapsed);
+		}
+	}
+
+}
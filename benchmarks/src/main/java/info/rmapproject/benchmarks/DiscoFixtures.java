@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.benchmarks;
+
+import static info.rmapproject.core.model.impl.rdf4j.ORAdapter.getValueFactory;
+import static java.net.URI.create;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
+import org.eclipse.rdf4j.model.vocabulary.FOAF;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+
+import info.rmapproject.core.idservice.IdService;
+import info.rmapproject.core.idservice.RandomStringIdService;
+import info.rmapproject.core.model.RMapIri;
+import info.rmapproject.core.model.event.RMapEventTargetType;
+import info.rmapproject.core.model.impl.rdf4j.ORMapDiSCO;
+import info.rmapproject.core.model.impl.rdf4j.ORMapEventCreation;
+import info.rmapproject.core.model.impl.rdf4j.OStatementsAdapter;
+import info.rmapproject.core.model.request.RequestEventDetails;
+import info.rmapproject.core.rdfhandler.RDFType;
+import info.rmapproject.core.rdfhandler.impl.rdf4j.RioRDFHandler;
+import info.rmapproject.core.vocabulary.impl.rdf4j.ORE;
+import info.rmapproject.core.vocabulary.impl.rdf4j.RMAP;
+import info.rmapproject.testdata.service.TestConstants;
+import info.rmapproject.testdata.service.TestDataHandler;
+import info.rmapproject.testdata.service.TestFile;
+
+/**
+ * Generates the inputs of the benchmarks.  DiSCOs are generated with a given number of aggregated resources, each
+ * described by a type, a title and a blank-node author, so that the number of statements, and the number of blank
+ * nodes, grows linearly with the number of aggregated resources.  Agents are read from the shared test data.
+ */
+public final class DiscoFixtures {
+
+	/** Number of related statements generated for each aggregated resource */
+	public static final int STATEMENTS_PER_AGGREGATE = 4;
+
+	private static final ValueFactory VF = getValueFactory();
+
+	private static final IRI CONFERENCE_PAPER = VF.createIRI(TestConstants.TEST_DISCO_DOI_TYPE);
+
+	private DiscoFixtures() {
+	}
+
+	/**
+	 * @return an id service minting random {@code rmap:} identifiers
+	 */
+	public static IdService idService() {
+		return new RandomStringIdService();
+	}
+
+	/**
+	 * @return a supplier of random {@code rmap:} identifiers
+	 */
+	public static Supplier<URI> idSupplier() {
+		IdService idService = idService();
+		return () -> {
+			try {
+				return idService.createId();
+			} catch (Exception e) {
+				throw new RuntimeException(e.getMessage(), e);
+			}
+		};
+	}
+
+	/**
+	 * Generates the statements of a new DiSCO, as they would be parsed from a client request: the DiSCO is
+	 * identified by a blank node, and the authors of the aggregated resources are blank nodes.
+	 *
+	 * @param aggregates the number of aggregated resources
+	 * @return the statements of the DiSCO
+	 */
+	public static Set<Statement> discoStatements(int aggregates) {
+		Set<Statement> stmts = new LinkedHashSet<>();
+		BNode disco = VF.createBNode();
+		stmts.add(VF.createStatement(disco, RDF.TYPE, RMAP.DISCO));
+		stmts.add(VF.createStatement(disco, DCTERMS.CREATOR, VF.createIRI(TestConstants.SYSAGENT_ID)));
+		stmts.add(VF.createStatement(disco, DCTERMS.DESCRIPTION,
+				VF.createLiteral("Generated DiSCO with " + aggregates + " aggregated resources")));
+
+		for (int i = 0; i < aggregates; i++) {
+			IRI resource = VF.createIRI(TestConstants.TEST_DISCO_DOI + "/" + i);
+			BNode author = VF.createBNode();
+			stmts.add(VF.createStatement(disco, ORE.AGGREGATES, resource));
+			stmts.add(VF.createStatement(resource, RDF.TYPE, CONFERENCE_PAPER));
+			stmts.add(VF.createStatement(resource, DCTERMS.TITLE, VF.createLiteral("Resource " + i)));
+			stmts.add(VF.createStatement(resource, DCTERMS.CREATOR, author));
+			stmts.add(VF.createStatement(author, FOAF.NAME, VF.createLiteral("Author " + i)));
+		}
+
+		return stmts;
+	}
+
+	/**
+	 * @param aggregates the number of aggregated resources
+	 * @return a new DiSCO, with blank nodes in its related statements
+	 */
+	public static ORMapDiSCO disco(int aggregates) {
+		try {
+			return OStatementsAdapter.asDisco(discoStatements(aggregates), idSupplier());
+		} catch (Exception e) {
+			throw new RuntimeException("Unable to generate DiSCO: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @param disco the DiSCO created by the event
+	 * @return a creation event for the DiSCO, with a start and end time
+	 */
+	public static ORMapEventCreation creationEvent(ORMapDiSCO disco) {
+		try {
+			List<RMapIri> created = new ArrayList<>();
+			created.add(disco.getId());
+			RequestEventDetails details = new RequestEventDetails(create(TestConstants.SYSAGENT_ID),
+					create(TestConstants.SYSAGENT_KEY));
+			ORMapEventCreation event = new ORMapEventCreation(VF.createIRI(idSupplier().get().toString()), details,
+					RMapEventTargetType.DISCO, created);
+			event.setEndTime(new Date());
+			return event;
+		} catch (Exception e) {
+			throw new RuntimeException("Unable to generate event: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @return the statements of test agent A
+	 */
+	public static Set<Statement> agentStatements() {
+		try (InputStream in = TestDataHandler.getTestData(TestFile.AGENTA_XML)) {
+			return new RioRDFHandler().convertRDFToStmtList(in, RDFType.RDFXML, "");
+		} catch (Exception e) {
+			throw new RuntimeException("Unable to read agent test data: " + e.getMessage(), e);
+		}
+	}
+
+}
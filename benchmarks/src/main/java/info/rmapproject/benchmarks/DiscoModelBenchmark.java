@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.model.Model;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.rmapproject.core.idservice.IdService;
+import info.rmapproject.core.model.RMapTriple;
+import info.rmapproject.core.model.impl.rdf4j.ORMapDiSCO;
+
+/**
+ * Measures {@link ORMapDiSCO#getAsModel()}, performed whenever a DiSCO is written or serialized, and
+ * {@link ORMapDiSCO#replaceBNodesWithIds(IdService)}, performed for every new DiSCO.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiscoModelBenchmark {
+
+	/** The number of aggregated resources in the DiSCO */
+	@Param({"10", "100", "1000"})
+	public int aggregates;
+
+	private ORMapDiSCO disco;
+
+	@Setup
+	public void setUp() {
+		disco = DiscoFixtures.disco(aggregates);
+	}
+
+	@Benchmark
+	public Model getAsModel() {
+		return disco.getAsModel();
+	}
+
+	@Benchmark
+	public ORMapDiSCO replaceBNodesWithIds(NewDisco newDisco) {
+		newDisco.disco.replaceBNodesWithIds(newDisco.idService);
+		return newDisco.disco;
+	}
+
+	/**
+	 * A DiSCO whose blank nodes are restored before each invocation, because replacing them modifies the DiSCO.
+	 */
+	@State(Scope.Thread)
+	public static class NewDisco {
+
+		private ORMapDiSCO disco;
+
+		private List<RMapTriple> relatedWithBNodes;
+
+		private IdService idService;
+
+		@Setup
+		public void setUp(DiscoModelBenchmark benchmark) {
+			idService = DiscoFixtures.idService();
+			disco = DiscoFixtures.disco(benchmark.aggregates);
+			relatedWithBNodes = disco.getRelatedStatements();
+		}
+
+		@Setup(Level.Invocation)
+		public void restoreBNodes() {
+			disco.setRelatedStatements(relatedWithBNodes);
+		}
+
+	}
+
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.rmapproject.core.model.event.RMapEventSnapshot;
+import info.rmapproject.core.model.impl.rdf4j.ORMapAgent;
+import info.rmapproject.core.model.impl.rdf4j.ORMapDiSCO;
+import info.rmapproject.core.model.impl.rdf4j.ORMapEvent;
+import info.rmapproject.core.model.impl.rdf4j.OStatementsAdapter;
+import info.rmapproject.kafka.shared.GenericJvmObjectDeserializer;
+import info.rmapproject.kafka.shared.GenericJvmObjectSerializer;
+
+/**
+ * Measures the Kafka serializers applied to each event published by RMap, and to the optional snapshot of the
+ * DiSCOs and agent published with it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KafkaSerializerBenchmark {
+
+	private static final String TOPIC = "rmap-event-topic";
+
+	/** The number of aggregated resources in the DiSCO of the snapshot */
+	@Param({"10", "100", "1000"})
+	public int aggregates;
+
+	private GenericJvmObjectSerializer<Object> serializer;
+
+	private GenericJvmObjectDeserializer<Object> deserializer;
+
+	private ORMapEvent event;
+
+	private RMapEventSnapshot snapshot;
+
+	private byte[] serializedEvent;
+
+	private byte[] serializedSnapshot;
+
+	@Setup
+	public void setUp() throws Exception {
+		serializer = new GenericJvmObjectSerializer<>();
+		deserializer = new GenericJvmObjectDeserializer<>();
+		ORMapDiSCO disco = DiscoFixtures.disco(aggregates);
+		ORMapAgent agent = OStatementsAdapter.asAgent(DiscoFixtures.agentStatements(), DiscoFixtures.idSupplier());
+		event = DiscoFixtures.creationEvent(disco);
+		snapshot = new RMapEventSnapshot(null, disco, agent);
+		serializedEvent = serializer.serialize(TOPIC, event);
+		serializedSnapshot = serializer.serialize(TOPIC, snapshot);
+	}
+
+	@Benchmark
+	public byte[] serializeEvent() {
+		return serializer.serialize(TOPIC, event);
+	}
+
+	@Benchmark
+	public Object deserializeEvent() {
+		return deserializer.deserialize(TOPIC, serializedEvent);
+	}
+
+	@Benchmark
+	public byte[] serializeSnapshot() {
+		return serializer.serialize(TOPIC, snapshot);
+	}
+
+	@Benchmark
+	public Object deserializeSnapshot() {
+		return deserializer.deserialize(TOPIC, serializedSnapshot);
+	}
+
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.rmapproject.core.model.RMapTriple;
+import info.rmapproject.core.model.impl.rdf4j.ORAdapter;
+
+/**
+ * Measures the {@link ORAdapter} conversions between RDF4J statements and RMap triples, applied to every statement
+ * of a DiSCO when it is read or written.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ORAdapterBenchmark {
+
+	/** The number of aggregated resources in the DiSCO */
+	@Param({"10", "100", "1000"})
+	public int aggregates;
+
+	private List<Statement> statements;
+
+	private List<RMapTriple> triples;
+
+	@Setup
+	public void setUp() {
+		statements = new ArrayList<>(DiscoFixtures.discoStatements(aggregates));
+		triples = new ArrayList<>(statements.size());
+		for (Statement stmt : statements) {
+			triples.add(ORAdapter.rdf4jStatement2RMapTriple(stmt));
+		}
+	}
+
+	@Benchmark
+	public List<RMapTriple> rdf4jStatement2RMapTriple() {
+		List<RMapTriple> result = new ArrayList<>(statements.size());
+		for (Statement stmt : statements) {
+			result.add(ORAdapter.rdf4jStatement2RMapTriple(stmt));
+		}
+		return result;
+	}
+
+	@Benchmark
+	public List<Statement> rmapTriple2Rdf4jStatement() {
+		List<Statement> result = new ArrayList<>(triples.size());
+		for (RMapTriple triple : triples) {
+			result.add(ORAdapter.rmapTriple2Rdf4jStatement(triple));
+		}
+		return result;
+	}
+
+	@Benchmark
+	public int isRdf4jStmtUriCompatible() {
+		int compatible = 0;
+		for (Statement stmt : statements) {
+			if (ORAdapter.isRdf4jStmtUriCompatible(stmt)) {
+				compatible++;
+			}
+		}
+		return compatible;
+	}
+
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.rmapproject.core.model.impl.rdf4j.ORMapDiSCO;
+import info.rmapproject.core.rdfhandler.RDFType;
+import info.rmapproject.core.rdfhandler.impl.rdf4j.RioRDFHandler;
+
+/**
+ * Measures parsing and serializing a DiSCO with {@link RioRDFHandler}, in each {@link RDFType} supported by the API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RioRDFHandlerBenchmark {
+
+	/** The number of aggregated resources in the DiSCO */
+	@Param({"10", "100", "1000"})
+	public int aggregates;
+
+	@Param({"JSONLD", "RDFXML", "TURTLE", "NQUADS"})
+	public RDFType rdfType;
+
+	private RioRDFHandler rdfHandler;
+
+	private ORMapDiSCO disco;
+
+	private Model model;
+
+	private byte[] rdf;
+
+	@Setup
+	public void setUp() {
+		rdfHandler = new RioRDFHandler();
+		disco = DiscoFixtures.disco(aggregates);
+		model = disco.getAsModel();
+		rdf = ((ByteArrayOutputStream) rdfHandler.convertStmtListToRDF(model, rdfType)).toByteArray();
+	}
+
+	@Benchmark
+	public Set<Statement> parse() {
+		return rdfHandler.convertRDFToStmtList(new ByteArrayInputStream(rdf), rdfType, "");
+	}
+
+	@Benchmark
+	public OutputStream serialize() {
+		return rdfHandler.convertStmtListToRDF(model, rdfType);
+	}
+
+	@Benchmark
+	public OutputStream disco2Rdf() {
+		return rdfHandler.disco2Rdf(disco, rdfType);
+	}
+
+}
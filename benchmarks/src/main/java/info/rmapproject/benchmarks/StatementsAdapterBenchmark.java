@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.benchmarks;
+
+import java.net.URI;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.rmapproject.core.model.impl.rdf4j.ORMapAgent;
+import info.rmapproject.core.model.impl.rdf4j.ORMapDiSCO;
+import info.rmapproject.core.model.impl.rdf4j.ORMapEvent;
+import info.rmapproject.core.model.impl.rdf4j.OStatementsAdapter;
+
+/**
+ * Measures the conversion of statements to RMap objects by {@link OStatementsAdapter}, which is performed for every
+ * object read from the triplestore or submitted by a client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementsAdapterBenchmark {
+
+	/** The number of aggregated resources in the DiSCO */
+	@Param({"10", "100", "1000"})
+	public int aggregates;
+
+	private Set<Statement> discoStmts;
+
+	private Set<Statement> eventStmts;
+
+	private Set<Statement> agentStmts;
+
+	private List<URI> aggregatedResources;
+
+	private List<Statement> relatedStmts;
+
+	private Supplier<URI> idSupplier;
+
+	@Setup
+	public void setUp() {
+		idSupplier = DiscoFixtures.idSupplier();
+		discoStmts = DiscoFixtures.discoStatements(aggregates);
+		ORMapDiSCO disco = DiscoFixtures.disco(aggregates);
+		eventStmts = new HashSet<>(DiscoFixtures.creationEvent(disco).getAsModel());
+		agentStmts = DiscoFixtures.agentStatements();
+		aggregatedResources = disco.getAggregatedResources();
+		relatedStmts = disco.getRelatedStatementsAsList();
+	}
+
+	@Benchmark
+	public ORMapDiSCO asDisco() throws Exception {
+		return OStatementsAdapter.asDisco(discoStmts, idSupplier);
+	}
+
+	@Benchmark
+	public ORMapEvent asEvent() throws Exception {
+		return OStatementsAdapter.asEvent(eventStmts);
+	}
+
+	@Benchmark
+	public ORMapAgent asAgent() throws Exception {
+		return OStatementsAdapter.asAgent(agentStmts, idSupplier);
+	}
+
+	@Benchmark
+	public boolean isConnectedGraph() throws Exception {
+		return OStatementsAdapter.isConnectedGraph(aggregatedResources, relatedStmts);
+	}
+
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.exception;
+
+import java.net.URI;
+
+/**
+ * Exception occurs when a DiSCO submitted to RMap has the same content as an active DiSCO already created by the
+ * same agent, and RMap is configured to answer the existing DiSCO rather than create a duplicate
+ */
+public class RMapDuplicateDiSCOException extends RMapException {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The existing DiSCO. */
+	private final URI discoId;
+
+	/**
+	 * Instantiates a new RMap duplicate DiSCO exception.
+	 *
+	 * @param message the message
+	 * @param discoId the IRI of the existing DiSCO
+	 */
+	public RMapDuplicateDiSCOException(String message, URI discoId) {
+		super(message);
+		this.discoId = discoId;
+	}
+
+	/**
+	 * @return the IRI of the existing DiSCO with the same content
+	 */
+	public URI getDiscoId() {
+		return discoId;
+	}
+
+}
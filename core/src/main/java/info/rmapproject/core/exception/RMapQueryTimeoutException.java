@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.exception;
+
+/**
+ * Exception occurs when a triplestore query exceeds the time allowed for it, or is cancelled because the request
+ * that issued it was abandoned
+ */
+public class RMapQueryTimeoutException extends RMapException {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Instantiates a new RMap query timeout exception.
+	 *
+	 * @param message the message
+	 */
+	public RMapQueryTimeoutException(String message) {
+		super(message);
+	}
+
+	/**
+	 * Instantiates a new RMap query timeout exception.
+	 *
+	 * @param message the message
+	 * @param cause the cause
+	 */
+	public RMapQueryTimeoutException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
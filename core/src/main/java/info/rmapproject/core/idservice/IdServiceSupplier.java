@@ -22,6 +22,7 @@ package info.rmapproject.core.idservice;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.net.URI;
+import java.util.List;
 import java.util.function.Supplier;
 
 /**
@@ -42,4 +43,18 @@ public class IdServiceSupplier implements Supplier<URI> {
             throw new RuntimeException("Unable to supply an identifier: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Supplies several identifiers at once, minted in bulk by the {@link IdService}.
+     *
+     * @param count the number of identifiers to supply
+     * @return the identifiers
+     */
+    public List<URI> get(int count) {
+        try {
+            return idService.createIds(count);
+        } catch (Exception e) {
+            throw new RuntimeException("Unable to supply identifiers: " + e.getMessage(), e);
+        }
+    }
 }
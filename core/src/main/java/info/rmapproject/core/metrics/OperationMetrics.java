@@ -0,0 +1,390 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Latency histograms, result-row and statement-write counts, and error counts for RMap operations.  Two kinds of
+ * operation are recorded:
+ * <ul>
+ *     <li>manager and service methods, timed by the {@link OperationMetricsInterceptor}, named
+ *     {@code <object>.<method>}, e.g. {@code disco.getDiSCOStatus}</li>
+ *     <li>triplestore calls, timed by {@code Rdf4jTriplestore} with an {@link OperationSample}, tagged with the
+ *     manager or service method that made the call (or {@code none})</li>
+ * </ul>
+ * <p>
+ * Each operation is registered as an MBean (e.g.
+ * {@code info.rmapproject:type=Triplestore,application=api,call=getStatements,operation=disco.getDiSCOStatus}),
+ * and all operations can be written in the Prometheus text exposition format by {@link #scrape()}.  Other components
+ * may publish their own counters and gauges with {@link #counter(String, String, LongSupplier)} and
+ * {@link #gauge(String, String, LongSupplier)}.
+ * </p>
+ * <p>
+ * Recording a sample costs a {@code System.nanoTime()} pair and a few uncontended {@code LongAdder} updates, so
+ * metrics are enabled by default; set {@code rmapcore.metrics.enabled=false} to disable them.  Thread safe.
+ * </p>
+ */
+@Component
+public class OperationMetrics implements DisposableBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OperationMetrics.class);
+
+	/** Operation name used for triplestore calls that are not made by a manager or service method */
+	static final String NO_OPERATION = "none";
+
+	private static final String OPERATION_PREFIX = "rmap_operation";
+
+	private static final String TRIPLESTORE_PREFIX = "rmap_triplestore";
+
+	private final ThreadLocal<String> currentOperation = new ThreadLocal<>();
+
+	/** Stats of manager and service methods, by operation */
+	private final ConcurrentHashMap<String, OperationStats> operations = new ConcurrentHashMap<>();
+
+	/** Stats of triplestore calls, by operation and then by call */
+	private final ConcurrentHashMap<String, ConcurrentHashMap<String, OperationStats>> calls =
+			new ConcurrentHashMap<>();
+
+	/** Counters and gauges published by other components, by name */
+	private final ConcurrentSkipListMap<String, Meter> meters = new ConcurrentSkipListMap<>();
+
+	private final List<ObjectName> registeredMBeans = new CopyOnWriteArrayList<>();
+
+	private boolean enabled = true;
+
+	private boolean jmxEnabled = true;
+
+	private String jmxDomain = "info.rmapproject";
+
+	private String application = "rmap";
+
+	/**
+	 * @return true if samples are recorded
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Value("${rmapcore.metrics.enabled:true}")
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @return true if each operation is registered as an MBean with the platform MBean server
+	 */
+	public boolean isJmxEnabled() {
+		return jmxEnabled;
+	}
+
+	@Value("${rmapcore.metrics.jmx.enabled:true}")
+	public void setJmxEnabled(boolean jmxEnabled) {
+		this.jmxEnabled = jmxEnabled;
+	}
+
+	public String getJmxDomain() {
+		return jmxDomain;
+	}
+
+	@Value("${rmapcore.metrics.jmx.domain:info.rmapproject}")
+	public void setJmxDomain(String jmxDomain) {
+		this.jmxDomain = jmxDomain;
+	}
+
+	/**
+	 * @return distinguishes the MBeans of applications sharing a JVM, e.g. the api and webapp in one servlet container
+	 */
+	public String getApplication() {
+		return application;
+	}
+
+	@Value("${rmapcore.metrics.application:rmap}")
+	public void setApplication(String application) {
+		this.application = application;
+	}
+
+	/**
+	 * Starts timing a triplestore call made on behalf of the current operation.
+	 *
+	 * @param call the name of the call, e.g. {@code getStatements}
+	 * @return the sample, which must be closed when the call completes
+	 */
+	public OperationSample sample(String call) {
+		if (!enabled) {
+			return OperationSample.NOOP;
+		}
+		String operation = currentOperation.get();
+		if (operation == null) {
+			operation = NO_OPERATION;
+		}
+		return new OperationSample(callStats(operation, call));
+	}
+
+	/**
+	 * Writes the stats of all operations, counters and gauges in the Prometheus text exposition format, version 0.0.4.
+	 *
+	 * @param out the writer
+	 * @throws IOException if the stats cannot be written
+	 */
+	public void scrape(Writer out) throws IOException {
+		List<OperationStats> triplestoreCalls = new ArrayList<>();
+		calls.values().forEach(byCall -> triplestoreCalls.addAll(byCall.values()));
+
+		writeOperations(out, OPERATION_PREFIX, "RMap manager and service methods", operations.values());
+		writeOperations(out, TRIPLESTORE_PREFIX, "triplestore calls, by the RMap operation that made them",
+				triplestoreCalls);
+
+		for (Meter meter : meters.values()) {
+			writeHeader(out, meter.name, meter.type, meter.help);
+			out.write(meter.name);
+			out.write(' ');
+			out.write(String.valueOf(meter.value.getAsLong()));
+			out.write('\n');
+		}
+	}
+
+	/**
+	 * @return the stats of all operations, counters and gauges in the Prometheus text exposition format
+	 */
+	public String scrape() {
+		StringWriter out = new StringWriter();
+		try {
+			scrape(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Publishes a monotonically increasing value with the operation stats.  Publishing a name again replaces the
+	 * earlier counter or gauge of that name, so each name is written once by {@link #scrape()}.
+	 *
+	 * @param name the Prometheus metric name, e.g. {@code rmap_retry_parked_total}
+	 * @param help describes the metric
+	 * @param value supplies the current value
+	 */
+	public void counter(String name, String help, LongSupplier value) {
+		publish(new Meter(name, "counter", help, value));
+	}
+
+	/**
+	 * Publishes a value that may go up or down with the operation stats.  Publishing a name again replaces the
+	 * earlier counter or gauge of that name, so each name is written once by {@link #scrape()}.
+	 *
+	 * @param name the Prometheus metric name, e.g. {@code rmap_retry_pending}
+	 * @param help describes the metric
+	 * @param value supplies the current value
+	 */
+	public void gauge(String name, String help, LongSupplier value) {
+		publish(new Meter(name, "gauge", help, value));
+	}
+
+	private void publish(Meter meter) {
+		if (meters.put(meter.name, meter) != null) {
+			LOG.debug("Replaced the previously published {} {}", meter.type, meter.name);
+		}
+	}
+
+	/**
+	 * Unregisters the MBeans registered by this instance.
+	 */
+	@Override
+	public void destroy() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName name : registeredMBeans) {
+			try {
+				server.unregisterMBean(name);
+			} catch (Exception e) {
+				LOG.debug("Unable to unregister MBean {}: {}", name, e.getMessage());
+			}
+		}
+		registeredMBeans.clear();
+	}
+
+	/**
+	 * Makes {@code operation} the current operation of this thread.
+	 *
+	 * @param operation the operation being entered
+	 * @return the previous operation, to be restored by {@link #exit(String)}
+	 */
+	String enter(String operation) {
+		String previous = currentOperation.get();
+		currentOperation.set(operation);
+		return previous;
+	}
+
+	/**
+	 * Restores the operation that was current before the last {@link #enter(String)}.
+	 *
+	 * @param previous the operation answered by {@code enter}
+	 */
+	void exit(String previous) {
+		if (previous == null) {
+			currentOperation.remove();
+		} else {
+			currentOperation.set(previous);
+		}
+	}
+
+	/**
+	 * @return the operation current on this thread, or {@code none}
+	 */
+	public String currentOperation() {
+		String operation = currentOperation.get();
+		return (operation != null) ? operation : NO_OPERATION;
+	}
+
+	/**
+	 * @param operation the name of a manager or service method
+	 * @return the stats of the operation
+	 */
+	OperationStats operation(String operation) {
+		return operations.computeIfAbsent(operation, op -> register(new OperationStats(op, null)));
+	}
+
+	private OperationStats callStats(String operation, String call) {
+		return calls.computeIfAbsent(operation, op -> new ConcurrentHashMap<>())
+				.computeIfAbsent(call, c -> register(new OperationStats(operation, c)));
+	}
+
+	private OperationStats register(OperationStats stats) {
+		if (!jmxEnabled) {
+			return stats;
+		}
+		try {
+			StringBuilder name = new StringBuilder(jmxDomain)
+					.append(":type=").append(stats.getCall() == null ? "Operation" : "Triplestore")
+					.append(",application=").append(ObjectName.quote(application));
+			if (stats.getCall() != null) {
+				name.append(",call=").append(ObjectName.quote(stats.getCall()));
+			}
+			name.append(",operation=").append(ObjectName.quote(stats.getOperation()));
+			ObjectName objectName = new ObjectName(name.toString());
+			ManagementFactory.getPlatformMBeanServer().registerMBean(stats, objectName);
+			registeredMBeans.add(objectName);
+		} catch (Exception e) {
+			LOG.debug("Unable to register MBean for operation {} {}: {}", stats.getOperation(), stats.getCall(),
+					e.getMessage());
+		}
+		return stats;
+	}
+
+	private static void writeOperations(Writer out, String prefix, String help, Collection<OperationStats> stats)
+			throws IOException {
+		if (stats.isEmpty()) {
+			return;
+		}
+
+		writeHeader(out, prefix + "_seconds", "histogram", "Latency of " + help);
+		for (OperationStats s : stats) {
+			String labels = labels(s);
+			long[] buckets = s.getCumulativeBuckets();
+			for (int i = 0; i < OperationStats.BUCKETS.length; i++) {
+				writeSample(out, prefix + "_seconds_bucket",
+						labels + ",le=\"" + OperationStats.BUCKETS[i] + "\"", buckets[i]);
+			}
+			writeSample(out, prefix + "_seconds_bucket", labels + ",le=\"+Inf\"", s.getCount());
+			writeSample(out, prefix + "_seconds_count", labels, s.getCount());
+			writeSample(out, prefix + "_seconds_sum", labels, s.getTotalSeconds());
+		}
+
+		writeHeader(out, prefix + "_errors_total", "counter", "Exceptions thrown by " + help);
+		for (OperationStats s : stats) {
+			writeSample(out, prefix + "_errors_total", labels(s), s.getErrorCount());
+		}
+
+		if (TRIPLESTORE_PREFIX.equals(prefix)) {
+			writeHeader(out, prefix + "_rows_total", "counter", "Statements or result rows read by " + help);
+			for (OperationStats s : stats) {
+				writeSample(out, prefix + "_rows_total", labels(s), s.getRowCount());
+			}
+			writeHeader(out, prefix + "_statements_written_total", "counter", "Statements written by " + help);
+			for (OperationStats s : stats) {
+				writeSample(out, prefix + "_statements_written_total", labels(s), s.getStatementsWritten());
+			}
+		}
+	}
+
+	private static void writeHeader(Writer out, String name, String type, String help) throws IOException {
+		out.write("# HELP " + name + " " + help + "\n");
+		out.write("# TYPE " + name + " " + type + "\n");
+	}
+
+	private static void writeSample(Writer out, String name, String labels, Object value) throws IOException {
+		out.write(name + "{" + labels + "} " + value + "\n");
+	}
+
+	private static String labels(OperationStats stats) {
+		String labels = "operation=\"" + escape(stats.getOperation()) + "\"";
+		if (stats.getCall() != null) {
+			labels = "call=\"" + escape(stats.getCall()) + "\"," + labels;
+		}
+		return labels;
+	}
+
+	private static String escape(String labelValue) {
+		return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	/**
+	 * A counter or gauge published by another component.
+	 */
+	private static class Meter {
+
+		private final String name;
+
+		private final String type;
+
+		private final String help;
+
+		private final LongSupplier value;
+
+		private Meter(String name, String type, String help, LongSupplier value) {
+			this.name = name;
+			this.type = type;
+			this.help = help;
+			this.value = value;
+		}
+
+	}
+
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.metrics;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Times each method invoked on a proxied RMap manager or service, as the operation
+ * {@code <object>.<method>}, e.g. {@code resource.getResourceRelatedDiSCOS} for
+ * {@code ORMapResourceMgr#getResourceRelatedDiSCOS}.  The object name is the simple class name of the target, less
+ * any {@code ORMap} prefix and {@code Mgr} suffix.  Triplestore calls made while the method is running are attributed
+ * to the operation.
+ * <p>
+ * Applied to beans by name in {@code spring-rmapcore-context.xml}.  Invocations a manager makes on itself are not
+ * proxied, and are attributed to the method that made them.
+ * </p>
+ */
+public class OperationMetricsInterceptor implements MethodInterceptor {
+
+	private final OperationMetrics metrics;
+
+	/** Operation stats for each target class and method; method names are computed once per method */
+	private final ConcurrentHashMap<Class<?>, ConcurrentHashMap<Method, OperationStats>> operations =
+			new ConcurrentHashMap<>();
+
+	/**
+	 * @param metrics the metrics to record operations to
+	 */
+	public OperationMetricsInterceptor(OperationMetrics metrics) {
+		if (metrics == null) {
+			throw new IllegalArgumentException("Operation metrics must not be null.");
+		}
+		this.metrics = metrics;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		if (!metrics.isEnabled() || invocation.getMethod().getDeclaringClass() == Object.class) {
+			return invocation.proceed();
+		}
+
+		OperationStats stats = statsFor(invocation);
+		String previous = metrics.enter(stats.getOperation());
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			Object result = invocation.proceed();
+			failed = false;
+			return result;
+		} finally {
+			stats.record(System.nanoTime() - start, failed, 0, 0);
+			metrics.exit(previous);
+		}
+	}
+
+	private OperationStats statsFor(MethodInvocation invocation) {
+		Class<?> targetClass = (invocation.getThis() != null)
+				? invocation.getThis().getClass()
+				: invocation.getMethod().getDeclaringClass();
+		return operations
+				.computeIfAbsent(targetClass, c -> new ConcurrentHashMap<>())
+				.computeIfAbsent(invocation.getMethod(),
+						m -> metrics.operation(objectName(targetClass) + "." + m.getName()));
+	}
+
+	/**
+	 * @param targetClass the class of the proxied object
+	 * @return the name of the object in operation names, e.g. {@code disco} for {@code ORMapDiSCOMgr}
+	 */
+	static String objectName(Class<?> targetClass) {
+		String name = targetClass.getSimpleName();
+		int cglib = name.indexOf("$$");
+		if (cglib > 0) {
+			name = name.substring(0, cglib);
+		}
+		if (name.startsWith("ORMap")) {
+			name = name.substring("ORMap".length());
+		}
+		if (name.endsWith("Mgr")) {
+			name = name.substring(0, name.length() - "Mgr".length());
+		}
+		return name.toLowerCase();
+	}
+
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.metrics;
+
+import java.util.Collection;
+
+/**
+ * Times a single triplestore call, recording it when closed.  The call is recorded as failed unless one of
+ * {@link #rows(Collection)}, {@link #row(Object)} or {@link #written(int)} is invoked before the sample is closed,
+ * so a sample is used in a try-with-resources block that reports the result of the call on success:
+ * <pre>
+ * try (OperationSample sample = metrics.sample("getStatements")) {
+ *     ...
+ *     return sample.rows(statements);
+ * }
+ * </pre>
+ * Not thread safe: a sample is used by the thread that started it.
+ */
+public class OperationSample implements AutoCloseable {
+
+	/** Sample used when metrics are disabled; records nothing */
+	public static final OperationSample NOOP = new OperationSample(null);
+
+	private final OperationStats stats;
+
+	private final long start;
+
+	private boolean succeeded;
+
+	private long rowCount;
+
+	private long writtenCount;
+
+	OperationSample(OperationStats stats) {
+		this.stats = stats;
+		this.start = (stats != null) ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records a successful call that read the supplied results.
+	 *
+	 * @param results the results of the call
+	 * @param <T> the type of the results
+	 * @return the results
+	 */
+	public <T extends Collection<?>> T rows(T results) {
+		succeeded = true;
+		rowCount = (results != null) ? results.size() : 0;
+		return results;
+	}
+
+	/**
+	 * Records a successful call that read at most one result.
+	 *
+	 * @param result the result of the call, may be {@code null}
+	 * @param <T> the type of the result
+	 * @return the result
+	 */
+	public <T> T row(T result) {
+		succeeded = true;
+		rowCount = (result != null) ? 1 : 0;
+		return result;
+	}
+
+	/**
+	 * Records a successful call that streamed the supplied number of results.
+	 *
+	 * @param rows the number of results read
+	 * @return the number of results read
+	 */
+	public long streamed(long rows) {
+		succeeded = true;
+		rowCount = rows;
+		return rows;
+	}
+
+	/**
+	 * Records a successful call that wrote the supplied number of statements.
+	 *
+	 * @param statements the number of statements written
+	 */
+	public void written(int statements) {
+		succeeded = true;
+		writtenCount = statements;
+	}
+
+	@Override
+	public void close() {
+		if (stats != null) {
+			stats.record(System.nanoTime() - start, !succeeded, rowCount, writtenCount);
+		}
+	}
+
+}
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and counters for a single operation: a manager method, or a triplestore call made on behalf of
+ * a manager method.  Updates are lock free, so an instance can be shared by all threads.
+ */
+public class OperationStats implements OperationStatsMBean {
+
+	/** Upper bounds of the latency histogram buckets, in seconds */
+	static final double[] BUCKETS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+	private static final long[] BUCKET_NANOS = new long[BUCKETS.length];
+
+	static {
+		for (int i = 0; i < BUCKETS.length; i++) {
+			BUCKET_NANOS[i] = (long) (BUCKETS[i] * TimeUnit.SECONDS.toNanos(1));
+		}
+	}
+
+	private final String operation;
+
+	private final String call;
+
+	/** Count of samples per bucket; the last element counts samples greater than the largest bucket */
+	private final LongAdder[] buckets = new LongAdder[BUCKETS.length + 1];
+
+	private final LongAdder count = new LongAdder();
+
+	private final LongAdder totalNanos = new LongAdder();
+
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+	private final LongAdder errors = new LongAdder();
+
+	private final LongAdder rows = new LongAdder();
+
+	private final LongAdder written = new LongAdder();
+
+	/**
+	 * @param operation the logical operation, e.g. {@code resource.getResourceRelatedDiSCOS}
+	 * @param call the triplestore call made on behalf of the operation, or {@code null} for the operation itself
+	 */
+	OperationStats(String operation, String call) {
+		this.operation = operation;
+		this.call = call;
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Records a single invocation of the operation.
+	 *
+	 * @param nanos the time taken
+	 * @param failed true if the invocation threw an exception
+	 * @param rowCount the number of statements or result rows read
+	 * @param writtenCount the number of statements written
+	 */
+	void record(long nanos, boolean failed, long rowCount, long writtenCount) {
+		int i = 0;
+		while (i < BUCKET_NANOS.length && nanos > BUCKET_NANOS[i]) {
+			i++;
+		}
+		buckets[i].increment();
+		count.increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+		if (failed) {
+			errors.increment();
+		}
+		if (rowCount > 0) {
+			rows.add(rowCount);
+		}
+		if (writtenCount > 0) {
+			written.add(writtenCount);
+		}
+	}
+
+	/**
+	 * @return the logical operation
+	 */
+	public String getOperation() {
+		return operation;
+	}
+
+	/**
+	 * @return the triplestore call, or {@code null} if these are the stats of the operation itself
+	 */
+	public String getCall() {
+		return call;
+	}
+
+	/**
+	 * @return the cumulative count of samples less than or equal to each of the {@link #BUCKETS}
+	 */
+	long[] getCumulativeBuckets() {
+		long[] cumulative = new long[BUCKETS.length];
+		long sum = 0;
+		for (int i = 0; i < BUCKETS.length; i++) {
+			sum += buckets[i].sum();
+			cumulative[i] = sum;
+		}
+		return cumulative;
+	}
+
+	/**
+	 * @return the total time spent in the operation, in seconds
+	 */
+	double getTotalSeconds() {
+		return totalNanos.sum() / (double) TimeUnit.SECONDS.toNanos(1);
+	}
+
+	@Override
+	public long getCount() {
+		return count.sum();
+	}
+
+	@Override
+	public long getErrorCount() {
+		return errors.sum();
+	}
+
+	@Override
+	public double getTotalTimeMs() {
+		return totalNanos.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	@Override
+	public double getMeanTimeMs() {
+		long n = count.sum();
+		return (n == 0) ? 0 : getTotalTimeMs() / n;
+	}
+
+	@Override
+	public double getMaxTimeMs() {
+		return maxNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	@Override
+	public long getRowCount() {
+		return rows.sum();
+	}
+
+	@Override
+	public long getStatementsWritten() {
+		return written.sum();
+	}
+
+}
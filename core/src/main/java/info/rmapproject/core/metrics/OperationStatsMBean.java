@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.metrics;
+
+/**
+ * JMX view of the {@link OperationStats} of a single operation.
+ */
+public interface OperationStatsMBean {
+
+	/**
+	 * @return the number of times the operation was invoked
+	 */
+	long getCount();
+
+	/**
+	 * @return the number of invocations that threw an exception
+	 */
+	long getErrorCount();
+
+	/**
+	 * @return the total time spent in the operation, in ms
+	 */
+	double getTotalTimeMs();
+
+	/**
+	 * @return the mean time spent in the operation, in ms
+	 */
+	double getMeanTimeMs();
+
+	/**
+	 * @return the longest time spent in a single invocation of the operation, in ms
+	 */
+	double getMaxTimeMs();
+
+	/**
+	 * @return the number of statements or result rows read by the operation
+	 */
+	long getRowCount();
+
+	/**
+	 * @return the number of statements written by the operation
+	 */
+	long getStatementsWritten();
+
+}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.metrics;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * A triplestore query that took longer than the {@link SlowQueryLog} threshold.  Immutable.
+ */
+public class SlowQuery {
+
+	private final long time;
+
+	private final String call;
+
+	private final String operation;
+
+	private final String query;
+
+	private final Map<String, String> bindings;
+
+	private final long durationMs;
+
+	private final long rows;
+
+	private final String plan;
+
+	/**
+	 * @param time the time the query completed, in epoch ms
+	 * @param call the triplestore call that issued the query, e.g. {@code getSPARQLQueryResults}
+	 * @param operation the manager or service method that made the call, or {@code none}
+	 * @param query the normalized query text
+	 * @param bindings the values removed from the query text by normalization, by placeholder name
+	 * @param durationMs the duration of the query in ms
+	 * @param rows the number of rows answered by the query, or -1 if the query failed
+	 * @param plan the query plan, or {@code null} if plans are not captured
+	 */
+	SlowQuery(long time, String call, String operation, String query, Map<String, String> bindings, long durationMs,
+			long rows, String plan) {
+		this.time = time;
+		this.call = call;
+		this.operation = operation;
+		this.query = query;
+		this.bindings = Collections.unmodifiableMap(bindings);
+		this.durationMs = durationMs;
+		this.rows = rows;
+		this.plan = plan;
+	}
+
+	/**
+	 * @return the time the query completed
+	 */
+	public Date getTime() {
+		return new Date(time);
+	}
+
+	public String getCall() {
+		return call;
+	}
+
+	public String getOperation() {
+		return operation;
+	}
+
+	/**
+	 * @return the query text with whitespace collapsed, and with instance IRIs, literals and LIMIT and OFFSET values
+	 * replaced by placeholders, so that queries of the same shape have the same text
+	 */
+	public String getQuery() {
+		return query;
+	}
+
+	/**
+	 * @return the values of the placeholders in the query text, in order of appearance
+	 */
+	public Map<String, String> getBindings() {
+		return bindings;
+	}
+
+	public long getDurationMs() {
+		return durationMs;
+	}
+
+	/**
+	 * @return the number of rows answered by the query, or -1 if the query failed
+	 */
+	public long getRows() {
+		return rows;
+	}
+
+	public boolean isFailed() {
+		return rows < 0;
+	}
+
+	/**
+	 * @return the query plan, or {@code null} if it was not captured
+	 */
+	public String getPlan() {
+		return plan;
+	}
+
+	@Override
+	public String toString() {
+		return call + " (" + operation + ") " + durationMs + " ms, " + (isFailed() ? "failed" : rows + " rows")
+				+ ": " + query + " " + bindings;
+	}
+
+}
@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.vocabulary.DC;
+import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
+import org.eclipse.rdf4j.model.vocabulary.FOAF;
+import org.eclipse.rdf4j.model.vocabulary.OWL;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.parser.QueryParserUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import info.rmapproject.core.utils.Terms;
+
+/**
+ * Records triplestore queries that take longer than a threshold in a fixed-size ring buffer, so that the queries
+ * responsible for a slow request can be identified after the fact.  Each {@link SlowQuery} holds the normalized query
+ * text, the values removed from it by normalization, the duration, the row count, and the manager or service method
+ * that issued the query.  Optionally the query plan is captured too.
+ * <p>
+ * SPARQL queries are normalized by collapsing whitespace and replacing instance IRIs, literals and LIMIT and OFFSET
+ * values with placeholders ({@code ?_1}, {@code ?_2}, ...), so that queries built from the same template have the same
+ * text.  IRIs in the RDF, RDFS, OWL, XML Schema, Dublin Core, FOAF, PROV, ORE and RMap namespaces are part of the
+ * shape of a query and are kept.  Statement pattern lookups are recorded as a {@code GRAPH ?c { ?s ?p ?o }} pattern,
+ * with the bound positions as bindings.
+ * </p>
+ * <p>
+ * Disabled by default; set {@code rmapcore.slowQueries.enabled=true} to record queries taking at least
+ * {@code rmapcore.slowQueries.thresholdMs}.  Queries under the threshold cost one {@code System.nanoTime()} call.
+ * Thread safe.
+ * </p>
+ */
+@Component
+public class SlowQueryLog {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SlowQueryLog.class);
+
+	/** Query text recorded for statement pattern lookups */
+	static final String STATEMENT_PATTERN = "GRAPH ?c { ?s ?p ?o }";
+
+	/** Namespaces of IRIs that are kept in normalized query text */
+	private static final List<String> VOCABULARY_NAMESPACES = Arrays.asList(RDF.NAMESPACE, RDFS.NAMESPACE,
+			OWL.NAMESPACE, XMLSchema.NAMESPACE, DC.NAMESPACE, DCTERMS.NAMESPACE, FOAF.NAMESPACE, Terms.PROV_NAMESPACE,
+			Terms.ORE_NAMESPACE, Terms.RMAP_NAMESPACE);
+
+	/** Matches an IRI, a literal with its optional datatype or language tag, a LIMIT or OFFSET, or whitespace */
+	private static final Pattern TOKEN = Pattern.compile(
+			"(<[^<>\"{}|^`\\\\\\s]*>)"
+			+ "|(\"(?:[^\"\\\\]|\\\\.)*\"(?:\\^\\^(?:<[^<>\\s]*>|[\\w.-]*:[\\w.-]*)|@[A-Za-z0-9-]+)?)"
+			+ "|\\b((?i:LIMIT|OFFSET)\\s+)(\\d+)"
+			+ "|(\\s+)");
+
+	private OperationMetrics metrics;
+
+	private boolean enabled = false;
+
+	private long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(1000);
+
+	private boolean explain = false;
+
+	private SlowQuery[] buffer = new SlowQuery[100];
+
+	private long recorded = 0;
+
+	/**
+	 * @return true if slow queries are recorded
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Value("${rmapcore.slowQueries.enabled:false}")
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @return the minimum duration of a recorded query, in ms
+	 */
+	public long getThresholdMs() {
+		return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+	}
+
+	@Value("${rmapcore.slowQueries.thresholdMs:1000}")
+	public void setThresholdMs(long thresholdMs) {
+		if (thresholdMs < 0) {
+			throw new IllegalArgumentException("Slow query threshold must not be negative.");
+		}
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+	}
+
+	/**
+	 * @return true if the plan of each recorded SPARQL query is captured
+	 */
+	public boolean isExplain() {
+		return explain;
+	}
+
+	@Value("${rmapcore.slowQueries.explain:false}")
+	public void setExplain(boolean explain) {
+		this.explain = explain;
+	}
+
+	/**
+	 * @return the number of queries retained; older queries are discarded
+	 */
+	public synchronized int getCapacity() {
+		return buffer.length;
+	}
+
+	/**
+	 * Sets the number of queries retained, discarding the queries recorded so far.
+	 *
+	 * @param capacity the number of queries retained
+	 */
+	@Value("${rmapcore.slowQueries.capacity:100}")
+	public synchronized void setCapacity(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Slow query capacity must be a positive integer.");
+		}
+		this.buffer = new SlowQuery[capacity];
+		this.recorded = 0;
+	}
+
+	/**
+	 * Publishes the number of slow queries recorded with the operation stats, and tags each slow query with the
+	 * operation that issued it.
+	 *
+	 * @param metrics the operation metrics, or null if there are none
+	 */
+	@Autowired(required = false)
+	public void setMetrics(OperationMetrics metrics) {
+		this.metrics = metrics;
+		if (metrics == null) {
+			return;
+		}
+		metrics.counter("rmap_triplestore_slow_queries_total",
+				"triplestore queries that took longer than the slow query threshold", this::getRecordedCount);
+	}
+
+	/**
+	 * Records a SPARQL query if it took longer than the threshold.
+	 *
+	 * @param call the triplestore call that issued the query
+	 * @param sparqlQuery the query
+	 * @param startNanos the {@code System.nanoTime()} at which the query started
+	 * @param rows the number of rows answered by the query, or -1 if the query failed
+	 */
+	public void sparql(String call, String sparqlQuery, long startNanos, long rows) {
+		long elapsed = System.nanoTime() - startNanos;
+		if (!enabled || elapsed < thresholdNanos) {
+			return;
+		}
+		Map<String, String> bindings = new LinkedHashMap<>();
+		String query = normalize(sparqlQuery, bindings);
+		record(call, query, bindings, elapsed, rows, explain ? plan(sparqlQuery) : null);
+	}
+
+	/**
+	 * Records a statement pattern lookup if it took longer than the threshold.  Null positions are wildcards.
+	 *
+	 * @param call the triplestore call that made the lookup
+	 * @param subj the statement subject
+	 * @param pred the statement predicate
+	 * @param obj the statement object
+	 * @param context the statement context
+	 * @param startNanos the {@code System.nanoTime()} at which the lookup started
+	 * @param rows the number of statements answered by the lookup, or -1 if the lookup failed
+	 */
+	public void statements(String call, Resource subj, IRI pred, org.eclipse.rdf4j.model.Value obj, Resource context,
+			long startNanos, long rows) {
+		long elapsed = System.nanoTime() - startNanos;
+		if (!enabled || elapsed < thresholdNanos) {
+			return;
+		}
+		Map<String, String> bindings = new LinkedHashMap<>();
+		bind(bindings, "s", subj);
+		bind(bindings, "p", pred);
+		bind(bindings, "o", obj);
+		bind(bindings, "c", context);
+		record(call, STATEMENT_PATTERN, bindings, elapsed, rows, null);
+	}
+
+	/**
+	 * @return the retained slow queries, most recent first
+	 */
+	public synchronized List<SlowQuery> getQueries() {
+		int retained = (int) Math.min(recorded, buffer.length);
+		List<SlowQuery> queries = new ArrayList<>(retained);
+		for (long i = recorded - 1; i >= recorded - retained; i--) {
+			queries.add(buffer[(int) (i % buffer.length)]);
+		}
+		return queries;
+	}
+
+	/**
+	 * @return the number of slow queries recorded since the log was created or last cleared, including those that
+	 * are no longer retained
+	 */
+	public synchronized long getRecordedCount() {
+		return recorded;
+	}
+
+	/**
+	 * Discards the retained slow queries.
+	 */
+	public synchronized void clear() {
+		Arrays.fill(buffer, null);
+		recorded = 0;
+	}
+
+	private void record(String call, String query, Map<String, String> bindings, long elapsedNanos, long rows,
+			String plan) {
+		String operation = (metrics != null) ? metrics.currentOperation() : OperationMetrics.NO_OPERATION;
+		SlowQuery slowQuery = new SlowQuery(System.currentTimeMillis(), call, operation, query, bindings,
+				TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rows, plan);
+		LOG.info("Slow query: {}", slowQuery);
+		synchronized (this) {
+			buffer[(int) (recorded % buffer.length)] = slowQuery;
+			recorded++;
+		}
+	}
+
+	/**
+	 * Normalizes SPARQL query text, collapsing whitespace and replacing instance IRIs, literals and LIMIT and OFFSET
+	 * values with placeholders.  A value that occurs more than once is replaced by the same placeholder each time.
+	 *
+	 * @param sparqlQuery the query
+	 * @param bindings receives the value of each placeholder, by placeholder name
+	 * @return the normalized query text
+	 */
+	static String normalize(String sparqlQuery, Map<String, String> bindings) {
+		Map<String, String> placeholders = new LinkedHashMap<>();
+		StringBuffer normalized = new StringBuffer(sparqlQuery.length());
+		Matcher m = TOKEN.matcher(sparqlQuery);
+		while (m.find()) {
+			String replacement;
+			if (m.group(1) != null) {
+				replacement = isVocabularyIri(m.group(1)) ? m.group(1) : placeholder(m.group(1), placeholders);
+			} else if (m.group(2) != null) {
+				replacement = placeholder(m.group(2), placeholders);
+			} else if (m.group(4) != null) {
+				replacement = m.group(3).trim().toUpperCase() + " " + placeholder(m.group(4), placeholders);
+			} else {
+				replacement = " ";
+			}
+			m.appendReplacement(normalized, Matcher.quoteReplacement(replacement));
+		}
+		m.appendTail(normalized);
+		placeholders.forEach((value, name) -> bindings.put(name, value));
+		return normalized.toString().trim();
+	}
+
+	private static String placeholder(String value, Map<String, String> placeholders) {
+		return "?" + placeholders.computeIfAbsent(value, v -> "_" + (placeholders.size() + 1));
+	}
+
+	private static boolean isVocabularyIri(String iri) {
+		for (String namespace : VOCABULARY_NAMESPACES) {
+			if (iri.startsWith(namespace, 1)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void bind(Map<String, String> bindings, String name, org.eclipse.rdf4j.model.Value value) {
+		if (value != null) {
+			bindings.put(name, value.toString());
+		}
+	}
+
+	/**
+	 * RDF4J 2.x has no query explanation, so the plan is the query algebra produced by the SPARQL parser, prior to
+	 * optimization by the triplestore.
+	 *
+	 * @param sparqlQuery the query
+	 * @return the query algebra, or a description of the parse failure
+	 */
+	private static String plan(String sparqlQuery) {
+		try {
+			return QueryParserUtil.parseQuery(QueryLanguage.SPARQL, sparqlQuery, null).getTupleExpr().toString();
+		} catch (Exception e) {
+			return "Unable to parse query: " + e.getMessage();
+		}
+	}
+
+}
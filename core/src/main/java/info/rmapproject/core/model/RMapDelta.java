@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Models a change to the statements of an RMap object, as the triples to remove from it and the triples to add to it.
+ * Removals are applied before additions.
+ */
+public class RMapDelta {
+
+	/** The triples to remove. */
+	private final List<RMapTriple> removals = new ArrayList<RMapTriple>();
+
+	/** The triples to add. */
+	private final List<RMapTriple> additions = new ArrayList<RMapTriple>();
+
+	/**
+	 * Instantiates a new, empty, RMap delta.
+	 */
+	public RMapDelta() {
+		super();
+	}
+
+	/**
+	 * Gets the triples to remove.
+	 *
+	 * @return the triples to remove
+	 */
+	public List<RMapTriple> getRemovals() {
+		return removals;
+	}
+
+	/**
+	 * Gets the triples to add.
+	 *
+	 * @return the triples to add
+	 */
+	public List<RMapTriple> getAdditions() {
+		return additions;
+	}
+
+	/**
+	 * Checks whether the delta has any triples.
+	 *
+	 * @return true, if there are no triples to remove or add
+	 */
+	public boolean isEmpty() {
+		return removals.isEmpty() && additions.isEmpty();
+	}
+
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.model.event;
+
+import java.io.Serializable;
+
+import info.rmapproject.core.model.agent.RMapAgent;
+import info.rmapproject.core.model.disco.RMapDiSCO;
+
+/**
+ * A snapshot of the DiSCOs and Agent referenced by an RMap Event, taken when the Event was created.  The snapshot may
+ * be published alongside the Event, so that consumers of the Event do not need to read the DiSCOs and Agent back 
+ * from the triplestore.  Source and target DiSCOs are {@code null} if the Event does not reference them.
+ */
+public class RMapEventSnapshot implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Name of the Kafka record header carrying the serialized snapshot of the Event in the record value */
+	public static final String KAFKA_HEADER = "rmap-event-snapshot";
+
+	/** The source DiSCO of the Event, as it was before the Event */
+	private final RMapDiSCO sourceDisco;
+
+	/** The target DiSCO of the Event, as created by the Event */
+	private final RMapDiSCO targetDisco;
+
+	/** The Agent associated with the Event */
+	private final RMapAgent agent;
+
+	/**
+	 * Instantiates a new RMap Event snapshot.
+	 *
+	 * @param sourceDisco the source DiSCO, may be null
+	 * @param targetDisco the target DiSCO, may be null
+	 * @param agent the Agent associated with the Event
+	 */
+	public RMapEventSnapshot(RMapDiSCO sourceDisco, RMapDiSCO targetDisco, RMapAgent agent) {
+		if (agent == null) {
+			throw new IllegalArgumentException("Agent must not be null.");
+		}
+		this.sourceDisco = sourceDisco;
+		this.targetDisco = targetDisco;
+		this.agent = agent;
+	}
+
+	/**
+	 * @return the source DiSCO of the Event, or null
+	 */
+	public RMapDiSCO getSourceDisco() {
+		return sourceDisco;
+	}
+
+	/**
+	 * @return the target DiSCO of the Event, or null
+	 */
+	public RMapDiSCO getTargetDisco() {
+		return targetDisco;
+	}
+
+	/**
+	 * @return the Agent associated with the Event
+	 */
+	public RMapAgent getAgent() {
+		return agent;
+	}
+
+}
@@ -95,6 +95,36 @@ public class OStatementsAdapter {
         Identifiers identifiers = identifiers(stmts, RMAP.DISCO).orElseThrow(() ->
                 new RMapDefectiveArgumentException(MISSING_RDF_TYPE));
 
+        return asDisco(stmts, identifiers, idSupplier);
+    }
+
+    /**
+     * Constructs DiSCO from List of triples, when the statement typing the DiSCO has already been found, e.g. while
+     * parsing the triples.
+     *
+     * @param stmts Statements to be structured into DiSCO
+     * @param typeStmt the statement typing the DiSCO as {@code rmap:DiSCO}; null if the statements have none
+     * @throws RMapException                  if resources not present, or related statements do not reference at least
+     *                                        one resource, or comprise a disjoint graph, or if cannot create Statements
+     *                                        from parameters
+     * @throws RMapDefectiveArgumentException the RMap defective argument exception
+     */
+    public static ORMapDiSCO asDisco(Set<Statement> stmts, Statement typeStmt, Supplier<URI> idSupplier)
+            throws RMapException, RMapDefectiveArgumentException {
+
+        if (stmts == null) {
+            throw new RMapDefectiveArgumentException(NULL_STATEMENTS);
+        }
+        if (typeStmt == null) {
+            throw new RMapDefectiveArgumentException(MISSING_RDF_TYPE);
+        }
+
+        return asDisco(stmts, new Identifiers(typeStmt.getContext(), typeStmt.getSubject()), idSupplier);
+    }
+
+    private static ORMapDiSCO asDisco(Set<Statement> stmts, Identifiers identifiers, Supplier<URI> idSupplier)
+            throws RMapException, RMapDefectiveArgumentException {
+
         if (identifiers.assertedId == null || identifiers.assertedId.stringValue().trim().length() == 0) {
             throw new RMapException(MISSING_DISCO_IRI);
         }
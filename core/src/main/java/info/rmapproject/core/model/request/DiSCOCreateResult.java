@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.model.request;
+
+import java.net.URI;
+
+import info.rmapproject.core.model.disco.RMapDiSCO;
+import info.rmapproject.core.model.event.RMapEvent;
+
+/**
+ * The outcome of creating one DiSCO of several: the creation Event if the DiSCO was created, otherwise the reason
+ * it was not.
+ *
+ * @see info.rmapproject.core.rmapservice.RMapService#createDiSCOs(java.util.List, RequestEventDetails)
+ */
+public class DiSCOCreateResult {
+
+	/** The DiSCO that was to be created */
+	private final RMapDiSCO disco;
+	
+	/** The creation Event, null if the DiSCO was not created */
+	private final RMapEvent event;
+	
+	/** The reason the DiSCO was not created, null if it was */
+	private final RuntimeException error;
+	
+	private DiSCOCreateResult(RMapDiSCO disco, RMapEvent event, RuntimeException error) {
+		this.disco = disco;
+		this.event = event;
+		this.error = error;
+	}
+	
+	/**
+	 * @param disco the DiSCO created
+	 * @param event the creation Event
+	 * @return the result of creating the DiSCO
+	 */
+	public static DiSCOCreateResult created(RMapDiSCO disco, RMapEvent event) {
+		return new DiSCOCreateResult(disco, event, null);
+	}
+	
+	/**
+	 * @param disco the DiSCO that was not created
+	 * @param error the reason the DiSCO was not created
+	 * @return the result of failing to create the DiSCO
+	 */
+	public static DiSCOCreateResult failed(RMapDiSCO disco, RuntimeException error) {
+		return new DiSCOCreateResult(disco, null, error);
+	}
+	
+	/**
+	 * @return the DiSCO that was to be created
+	 */
+	public RMapDiSCO getDisco() {
+		return disco;
+	}
+	
+	/**
+	 * @return the id of the DiSCO that was to be created, null if it has none
+	 */
+	public URI getDiscoId() {
+		return (disco != null && disco.getId() != null) ? disco.getId().getIri() : null;
+	}
+
+	/**
+	 * @return the creation Event, null if the DiSCO was not created
+	 */
+	public RMapEvent getEvent() {
+		return event;
+	}
+
+	/**
+	 * @return the reason the DiSCO was not created, null if it was
+	 */
+	public RuntimeException getError() {
+		return error;
+	}
+	
+	/**
+	 * @return true if the DiSCO was created
+	 */
+	public boolean isCreated() {
+		return error == null;
+	}
+	
+}
@@ -28,6 +28,7 @@ import java.util.List;
 
 import info.rmapproject.core.exception.RMapDefectiveArgumentException;
 import info.rmapproject.core.exception.RMapException;
+import info.rmapproject.core.model.RMapDelta;
 import info.rmapproject.core.model.RMapTriple;
 import info.rmapproject.core.model.agent.RMapAgent;
 import info.rmapproject.core.model.disco.RMapDiSCO;
@@ -52,6 +53,19 @@ public interface RDFHandler {
 	 */
 	public RMapDiSCO rdf2RMapDiSCO(InputStream rdfIn, RDFType rdfFormat, String baseUri) throws RMapException, RMapDefectiveArgumentException;
 	
+	/**
+	 * Deserialize an RDF InputStream describing several DiSCOs into RMapDiSCOs.  The statements of each DiSCO are 
+	 * those in one graph: each named graph, and the default graph if it has statements, describes one DiSCO.  
+	 *
+	 * @param rdfIn an RDF InputStream, in a format supporting named graphs such as N-Quads or JSON-LD
+	 * @param rdfFormat name of RDF format
+	 * @param baseUri for resolving relative URIs; empty string if no relative URIs in stream
+	 * @return the RMapDiSCOs built from the RDF statements in the InputStream, in the order their graphs first appear
+	 * @throws RMapException if the InputStream cannot be converted to valid DiSCOs
+	 * @throws RMapDefectiveArgumentException the RMap defective argument exception
+	 */
+	public List<RMapDiSCO> rdf2RMapDiSCOs(InputStream rdfIn, RDFType rdfFormat, String baseUri) throws RMapException, RMapDefectiveArgumentException;
+	
 	/**
 	 * Deserialize an RDF InputStream into an RMapAgent.
 	 *
@@ -76,6 +90,19 @@ public interface RDFHandler {
 	 */
 	public RMapEvent rdf2RMapEvent(InputStream rdfIn, RDFType rdfFormat, String baseUri) throws RMapException, RMapDefectiveArgumentException;
 
+	/**
+	 * Deserialize an RDF Patch InputStream into an RMapDelta.  Each line of the patch adds ({@code A}) or deletes
+	 * ({@code D}) a triple, written as in N-Triples, e.g. {@code A <http://a> <http://b> "c" .}  Header ({@code H}),
+	 * transaction ({@code TX}, {@code TC}) and comment lines are ignored.
+	 *
+	 * @param patchIn an RDF Patch InputStream
+	 * @param baseUri for resolving relative URIs; empty string if no relative URIs in stream
+	 * @return RMapDelta built from the lines of the patch
+	 * @throws RMapException if InputStream cannot be read as an RDF Patch
+	 * @throws RMapDefectiveArgumentException the RMap defective argument exception
+	 */
+	public RMapDelta rdfPatch2RMapDelta(InputStream patchIn, String baseUri) throws RMapException, RMapDefectiveArgumentException;
+
 	/**
 	 * Serialize RMapTriple as RDF.
 	 *
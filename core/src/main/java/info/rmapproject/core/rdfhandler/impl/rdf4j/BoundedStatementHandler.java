@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rdfhandler.impl.rdf4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+
+import info.rmapproject.core.exception.RMapException;
+import info.rmapproject.core.exception.RMapRequestTooLargeException;
+import info.rmapproject.core.model.impl.rdf4j.ORAdapter;
+
+/**
+ * Collects the statements of RDF as it is parsed, failing the parse as soon as the RDF is found to be unacceptable:
+ * when a statement contains a URI that is not compatible with java.net.URI, or when the RDF has more statements or
+ * more bytes than allowed.  The bytes are counted by the stream answered by {@link #limit(InputStream)}, which is
+ * given to the parser in place of the original.  A limit of 0 means no limit.
+ * <p>
+ * While collecting, the handler notes the first statement typing a resource as {@code type}, so the RMap object
+ * described by the RDF can be identified without another pass over the statements.
+ * </p>
+ * <p>
+ * Not thread safe; use one handler per parse.
+ * </p>
+ */
+public class BoundedStatementHandler extends AbstractRDFHandler {
+
+	private final Set<Statement> statements = new LinkedHashSet<Statement>();
+
+	private final int maxStatements;
+
+	private final long maxBytes;
+
+	private final IRI type;
+
+	private Statement typeStatement;
+
+	private long bytes = 0;
+
+	/** The limit exceeded, kept in case the parser wraps the exception thrown */
+	private RMapRequestTooLargeException exceeded;
+
+	/**
+	 * @param maxStatements the maximum number of statements, or 0 for no limit
+	 * @param maxBytes the maximum number of bytes, or 0 for no limit
+	 * @param type the rdf:type of the RMap object described by the RDF, or null if none is of interest
+	 */
+	public BoundedStatementHandler(int maxStatements, long maxBytes, IRI type) {
+		if (maxStatements < 0 || maxBytes < 0) {
+			throw new IllegalArgumentException("RDF limits must not be negative.");
+		}
+		this.maxStatements = maxStatements;
+		this.maxBytes = maxBytes;
+		this.type = type;
+	}
+
+	/**
+	 * Counts the bytes read from the RDF.
+	 *
+	 * @param rdfIn the RDF
+	 * @return the stream to parse
+	 */
+	public InputStream limit(InputStream rdfIn) {
+		return new FilterInputStream(rdfIn) {
+			@Override
+			public int read() throws IOException {
+				int b = super.read();
+				if (b >= 0) {
+					count(1);
+				}
+				return b;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int read = super.read(b, off, len);
+				if (read > 0) {
+					count(read);
+				}
+				return read;
+			}
+		};
+	}
+
+	@Override
+	public void handleStatement(Statement st) throws RDFHandlerException {
+		//IRI is less restrictive than java.net.URI and will allow e.g. /n in URIs.
+		if (!ORAdapter.isRdf4jStmtUriCompatible(st)) {
+			throw new RMapException("A statement in the RDF contains an invalid URI: " + st.toString());
+		}
+		if (statements.add(st) && maxStatements > 0 && statements.size() > maxStatements) {
+			throw exceeded("The RDF contains more than the maximum of " + maxStatements + " statements");
+		}
+		if (typeStatement == null && type != null && st.getPredicate().equals(RDF.TYPE)
+				&& st.getObject().equals(type)) {
+			typeStatement = st;
+		}
+	}
+
+	/**
+	 * @return the statements collected
+	 */
+	public Set<Statement> getStatements() {
+		return statements;
+	}
+
+	/**
+	 * @return the first statement typing a resource as the type given, or null if there was none
+	 */
+	public Statement getTypeStatement() {
+		return typeStatement;
+	}
+
+	/**
+	 * @return the limit the RDF exceeded, or null if it is within the limits
+	 */
+	public RMapRequestTooLargeException getExceeded() {
+		return exceeded;
+	}
+
+	private void count(int read) {
+		bytes += read;
+		if (maxBytes > 0 && bytes > maxBytes) {
+			throw exceeded("The RDF is longer than the maximum of " + maxBytes + " bytes");
+		}
+	}
+
+	private RMapRequestTooLargeException exceeded(String message) {
+		if (exceeded == null) {
+			exceeded = new RMapRequestTooLargeException(message);
+		}
+		return exceeded;
+	}
+
+}
@@ -20,29 +20,44 @@
 package info.rmapproject.core.rdfhandler.impl.rdf4j;
 
 
+import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.StringReader;
 import java.net.URI;
-import java.util.HashSet;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.eclipse.rdf4j.rio.RDFFormat;
-import org.eclipse.rdf4j.rio.RDFHandlerException;
-import org.eclipse.rdf4j.rio.RDFParseException;
 import org.eclipse.rdf4j.rio.RDFParser;
 import org.eclipse.rdf4j.rio.Rio;
-import org.eclipse.rdf4j.rio.helpers.StatementCollector;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
 import info.rmapproject.core.exception.RMapDefectiveArgumentException;
 import info.rmapproject.core.exception.RMapException;
+import info.rmapproject.core.exception.RMapRequestTooLargeException;
+import info.rmapproject.core.idservice.IdServiceSupplier;
+import info.rmapproject.core.model.RMapDelta;
 import info.rmapproject.core.model.RMapTriple;
 import info.rmapproject.core.model.agent.RMapAgent;
 import info.rmapproject.core.model.disco.RMapDiSCO;
@@ -61,6 +76,7 @@ import info.rmapproject.core.model.impl.rdf4j.ORMapEventUpdateWithReplace;
 import info.rmapproject.core.model.impl.rdf4j.OStatementsAdapter;
 import info.rmapproject.core.rdfhandler.RDFHandler;
 import info.rmapproject.core.rdfhandler.RDFType;
+import info.rmapproject.core.vocabulary.impl.rdf4j.RMAP;
 
 /**
  * Class to convert linked data objects in RMap (RMapDiSCO, RMapTriple etc) to raw RDF
@@ -72,11 +88,67 @@ public class RioRDFHandler implements RDFHandler {
 
 	@Autowired
 	private Supplier<URI> idSupplier;
+
+	/** The maximum number of statements accepted in RDF, 0 for no limit */
+	private int maxStatements = 0;
+
+	/** The maximum length of RDF accepted, in bytes, 0 for no limit */
+	private long maxBytes = 0;
+
+	/** The maximum number of statements accepted in a multi-DiSCO payload, 0 for no limit */
+	private int bulkMaxStatements = 0;
+
+	/** The maximum length of a multi-DiSCO payload accepted, in bytes, 0 for no limit */
+	private long bulkMaxBytes = 0;
 		
 	/**
 	 * Instantiates a new Rio RDF handler.
 	 */
 	public RioRDFHandler() {}
+
+	/**
+	 * @param maxStatements the maximum number of statements accepted in RDF, or 0 for no limit
+	 */
+	@Value("${rmapcore.rdf.maxStatements:0}")
+	public void setMaxStatements(int maxStatements) {
+		if (maxStatements < 0) {
+			throw new IllegalArgumentException("Maximum statements must not be negative.");
+		}
+		this.maxStatements = maxStatements;
+	}
+
+	/**
+	 * @param maxBytes the maximum length of RDF accepted, in bytes, or 0 for no limit
+	 */
+	@Value("${rmapcore.rdf.maxBytes:0}")
+	public void setMaxBytes(long maxBytes) {
+		if (maxBytes < 0) {
+			throw new IllegalArgumentException("Maximum bytes must not be negative.");
+		}
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @param bulkMaxStatements the maximum number of statements accepted in a multi-DiSCO payload, or 0 for no limit
+	 */
+	@Value("${rmapcore.rdf.bulk.maxStatements:0}")
+	public void setBulkMaxStatements(int bulkMaxStatements) {
+		if (bulkMaxStatements < 0) {
+			throw new IllegalArgumentException("Maximum bulk statements must not be negative.");
+		}
+		this.bulkMaxStatements = bulkMaxStatements;
+	}
+
+	/**
+	 * @param bulkMaxBytes the maximum length of a multi-DiSCO payload accepted, in bytes, or 0 for no limit
+	 */
+	@Value("${rmapcore.rdf.bulk.maxBytes:0}")
+	public void setBulkMaxBytes(long bulkMaxBytes) {
+		if (bulkMaxBytes < 0) {
+			throw new IllegalArgumentException("Maximum bulk bytes must not be negative.");
+		}
+		this.bulkMaxBytes = bulkMaxBytes;
+	}
 	
 	/**
 	 * Convert Model of RMap object to an OutputStream of RDF.
@@ -113,16 +185,35 @@ public class RioRDFHandler implements RDFHandler {
 	 * @param baseUri  String with base URI of any relative URI in InputStream.
 	 * @return List of Statements created from RDF InputStsream
 	 * @throws RMapException if null parameters, or invalid rdfType, or error parsing stream
+	 * @throws RMapRequestTooLargeException if the RDF has more statements or bytes than allowed
 	 */
 	public Set <Statement> convertRDFToStmtList(InputStream rdfIn, RDFType rdfType, String baseUri) 
 			throws RMapException	{
+		return this.parse(rdfIn, rdfType, baseUri, null, maxStatements, maxBytes).getStatements();
+	}
+
+	/**
+	 * Parses an RDF InputStream, validating and counting the statements as they are read.  Parsing stops as soon as
+	 * the RDF is found to contain an invalid URI, or to exceed the maximum number of statements or bytes.
+	 *
+	 * @param rdfIn InputStream of RDF
+	 * @param rdfType Format of RDF in InputStream
+	 * @param baseUri  String with base URI of any relative URI in InputStream.
+	 * @param type the rdf:type of the RMap object described by the RDF, or null
+	 * @param maxStatements the maximum number of statements, or 0 for no limit
+	 * @param maxBytes the maximum number of bytes, or 0 for no limit
+	 * @return the handler holding the statements parsed
+	 * @throws RMapException if null parameters, or invalid rdfType, or error parsing stream
+	 * @throws RMapRequestTooLargeException if the RDF has more statements or bytes than allowed
+	 */
+	private BoundedStatementHandler parse(InputStream rdfIn, RDFType rdfType, String baseUri, IRI type, 
+			int maxStatements, long maxBytes) throws RMapException	{
 		if (rdfIn==null){
 			throw new RMapException("Null rdf input stream");
 		}
 		if (rdfType==null){
 			throw new RMapException("Null rdf type");
 		}
-		Set <Statement> stmts = new HashSet<Statement>();
 		RDFFormat rdfFormat = null;
 		try {
 			rdfFormat = this.getRDFFormatConstant(rdfType);
@@ -130,23 +221,21 @@ public class RioRDFHandler implements RDFHandler {
 			throw new RMapException("Unable to match rdfType: " + rdfType, e1);
 		}
 		RDFParser rdfParser = Rio.createParser(rdfFormat);	
-		StatementCollector collector = new StatementCollector(stmts);		
-		rdfParser.setRDFHandler(collector);
+		BoundedStatementHandler handler = new BoundedStatementHandler(maxStatements, maxBytes, type);
+		rdfParser.setRDFHandler(handler);
 		try {
-			rdfParser.parse(rdfIn, baseUri);
-		} catch (RDFParseException | RDFHandlerException | IOException e) {
+			rdfParser.parse(handler.limit(rdfIn), baseUri);
+		} catch (IOException | RuntimeException e) {
+			//parse and handler exceptions are runtime exceptions, and parsers may wrap the one thrown on exceeding a limit
+			if (handler.getExceeded() != null) {
+				throw handler.getExceeded();
+			}
+			if (e instanceof RMapException) {
+				throw (RMapException) e;
+			}
 			throw new RMapException("Unable to parse input RDF: " + e.getMessage(), e);
 		}		
-		
-		//Need to do last check to make sure IRIs are compatible with java.net.URI format. 
-		//IRI is less restrictive and will allow e.g. /n in URIs.
-		for (Statement stmt:stmts){
-			if (!ORAdapter.isRdf4jStmtUriCompatible(stmt)){
-				throw new RMapException("A statement in the RDF contains an invalid URI: " + stmt.toString());
-			}
-		}
-		
-		return stmts;
+		return handler;
 	}
 
 	/* (non-Javadoc)
@@ -155,10 +244,89 @@ public class RioRDFHandler implements RDFHandler {
 	@Override
 	public RMapDiSCO rdf2RMapDiSCO(InputStream rdfIn, RDFType rdfFormat, String baseUri)
 			throws RMapException, RMapDefectiveArgumentException {
-		Set <Statement> stmts = this.convertRDFToStmtList(rdfIn, rdfFormat, baseUri);
-		ORMapDiSCO disco = OStatementsAdapter.asDisco(stmts, idSupplier);
+		BoundedStatementHandler handler = this.parse(rdfIn, rdfFormat, baseUri, RMAP.DISCO, maxStatements, maxBytes);
+		ORMapDiSCO disco = OStatementsAdapter.asDisco(handler.getStatements(), handler.getTypeStatement(), idSupplier);
 		return disco;
 	}
+
+	/* (non-Javadoc)
+	 * @see info.rmapproject.core.rdfhandler.RDFHandler#rdf2RMapDiSCOs(java.io.InputStream, info.rmapproject.core.rdfhandler.RDFType, java.lang.String)
+	 */
+	@Override
+	public List<RMapDiSCO> rdf2RMapDiSCOs(InputStream rdfIn, RDFType rdfFormat, String baseUri)
+			throws RMapException, RMapDefectiveArgumentException {
+		//the payload as a whole is held to the bulk limits, and each DiSCO in it to the limit on a single DiSCO
+		BoundedStatementHandler handler = this.parse(rdfIn, rdfFormat, baseUri, null, bulkMaxStatements, bulkMaxBytes);
+		
+		//sort the statements by graph, dropping the graph name so that each DiSCO is given a new id
+		ValueFactory vf = ORAdapter.getValueFactory();
+		Map<Resource, Set<Statement>> graphs = new LinkedHashMap<Resource, Set<Statement>>();
+		Map<Resource, Statement> typeStmts = new HashMap<Resource, Statement>();
+		for (Statement stmt : handler.getStatements()) {
+			Statement graphStmt = vf.createStatement(stmt.getSubject(), stmt.getPredicate(), stmt.getObject());
+			Set<Statement> graphStmts = graphs.computeIfAbsent(stmt.getContext(), graph -> new LinkedHashSet<Statement>());
+			if (graphStmts.add(graphStmt) && maxStatements > 0 && graphStmts.size() > maxStatements) {
+				String in = (stmt.getContext() == null) ? "The default graph" : "Graph " + stmt.getContext().stringValue();
+				throw new RMapRequestTooLargeException(in + " contains more than the maximum of " + maxStatements 
+						+ " statements");
+			}
+			if (stmt.getPredicate().equals(RDF.TYPE) && stmt.getObject().equals(RMAP.DISCO)) {
+				typeStmts.putIfAbsent(stmt.getContext(), graphStmt);
+			}
+		}
+		if (graphs.isEmpty()) {
+			throw new RMapDefectiveArgumentException("No DiSCOs found in the input RDF");
+		}
+		
+		List<Resource> graphNames = new ArrayList<Resource>(graphs.keySet());
+		List<URI> ids = mintIds(graphNames.size());
+		
+		//the DiSCOs do not depend on each other, so are built and validated in parallel
+		return IntStream.range(0, graphNames.size()).parallel()
+				.mapToObj(i -> asDisco(graphs.get(graphNames.get(i)), typeStmts.get(graphNames.get(i)), 
+						ids.get(i), graphNames.get(i)))
+				.collect(Collectors.toList());
+	}
+	
+	/**
+	 * Builds the DiSCO described by one graph of a multi-DiSCO payload.
+	 *
+	 * @param stmts the statements of the graph
+	 * @param typeStmt the statement typing the DiSCO, null if there is none
+	 * @param id the id to assign to the DiSCO
+	 * @param graph the name of the graph, null for the default graph
+	 * @return the DiSCO
+	 * @throws RMapException if the statements are not a valid DiSCO; the message identifies the graph
+	 * @throws RMapDefectiveArgumentException if the statements are not a valid DiSCO; the message identifies the graph
+	 */
+	private static RMapDiSCO asDisco(Set<Statement> stmts, Statement typeStmt, URI id, Resource graph) 
+			throws RMapException, RMapDefectiveArgumentException {
+		String in = (graph == null) ? "In the default graph: " : "In graph " + graph.stringValue() + ": ";
+		try {
+			return OStatementsAdapter.asDisco(stmts, typeStmt, () -> id);
+		} catch (RMapDefectiveArgumentException ex) {
+			throw new RMapDefectiveArgumentException(in + ex.getMessage(), ex);
+		} catch (RMapException ex) {
+			throw new RMapException(in + ex.getMessage(), ex);
+		}
+	}
+	
+	/**
+	 * Mints ids for new RMap objects, in bulk when the id supplier supports it.
+	 *
+	 * @param count the number of ids
+	 * @return the ids
+	 */
+	private List<URI> mintIds(int count) {
+		if (idSupplier instanceof IdServiceSupplier) {
+			return ((IdServiceSupplier) idSupplier).get(count);
+		}
+		List<URI> ids = new ArrayList<URI>(count);
+		for (int i = 0; i < count; i++) {
+			ids.add(idSupplier.get());
+		}
+		return ids;
+	}
 	
 	/* (non-Javadoc)
 	 * @see info.rmapproject.core.rdfhandler.RDFHandler#rdf2RMapAgent(java.io.InputStream, info.rmapproject.core.rdfhandler.RDFType, java.lang.String)
@@ -178,6 +346,92 @@ public class RioRDFHandler implements RDFHandler {
 		return event;
 	}
 
+	/* (non-Javadoc)
+	 * @see info.rmapproject.core.rdfhandler.RDFHandler#rdfPatch2RMapDelta(java.io.InputStream, java.lang.String)
+	 */
+	@Override
+	public RMapDelta rdfPatch2RMapDelta(InputStream patchIn, String baseUri) 
+			throws RMapException, RMapDefectiveArgumentException {
+		if (patchIn==null){
+			throw new RMapException("Null rdf patch input stream");
+		}
+		//sort the lines into triples to add and triples to remove, then parse each as N-Triples
+		BoundedStatementHandler limits = new BoundedStatementHandler(maxStatements, maxBytes, null);
+		StringBuilder additions = new StringBuilder();
+		StringBuilder removals = new StringBuilder();
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(limits.limit(patchIn), StandardCharsets.UTF_8));
+			String line = null;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] opAndTriple = line.split("\\s+", 2);
+				switch (opAndTriple[0]) {
+				case "A":
+					additions.append(opAndTriple.length > 1 ? opAndTriple[1] : "").append('\n');
+					break;
+				case "D":
+					removals.append(opAndTriple.length > 1 ? opAndTriple[1] : "").append('\n');
+					break;
+				case "H":
+				case "TX":
+				case "TC":
+					break;
+				case "TA":
+					throw new RMapDefectiveArgumentException("The RDF patch was aborted");
+				default:
+					throw new RMapException("Unrecognized line in RDF patch: " + line);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			if (limits.getExceeded() != null) {
+				throw limits.getExceeded();
+			}
+			if (e instanceof RMapException || e instanceof RMapDefectiveArgumentException) {
+				throw (RuntimeException) e;
+			}
+			throw new RMapException("Unable to read input RDF patch: " + e.getMessage(), e);
+		}
+
+		RMapDelta delta = new RMapDelta();
+		for (Statement stmt : this.parseNTriples(removals.toString(), baseUri)) {
+			delta.getRemovals().add(ORAdapter.rdf4jStatement2RMapTriple(stmt));
+		}
+		for (Statement stmt : this.parseNTriples(additions.toString(), baseUri)) {
+			delta.getAdditions().add(ORAdapter.rdf4jStatement2RMapTriple(stmt));
+		}
+		return delta;
+	}
+
+	/**
+	 * Parses the triples of an RDF patch, validating and counting them as they are read.
+	 *
+	 * @param triples the triples, as N-Triples
+	 * @param baseUri  String with base URI of any relative URI in the triples.
+	 * @return the statements parsed
+	 * @throws RMapException if the triples cannot be parsed
+	 * @throws RMapRequestTooLargeException if there are more triples than allowed
+	 */
+	private Set<Statement> parseNTriples(String triples, String baseUri) throws RMapException {
+		RDFParser rdfParser = Rio.createParser(RDFFormat.NTRIPLES);
+		BoundedStatementHandler handler = new BoundedStatementHandler(maxStatements, 0, null);
+		rdfParser.setRDFHandler(handler);
+		try {
+			rdfParser.parse(new StringReader(triples), baseUri);
+		} catch (IOException | RuntimeException e) {
+			if (handler.getExceeded() != null) {
+				throw handler.getExceeded();
+			}
+			if (e instanceof RMapException) {
+				throw (RMapException) e;
+			}
+			throw new RMapException("Unable to parse input RDF patch: " + e.getMessage(), e);
+		}
+		return handler.getStatements();
+	}
+
 	/* (non-Javadoc)
      * @see info.rmapproject.core.rdfhandler.RDFHandler#triple2Rdf(info.rmapproject.core.model.RMapTriple, info.rmapproject.core.rdfhandler.RDFType)
      */
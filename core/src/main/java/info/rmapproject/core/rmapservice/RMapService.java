@@ -24,19 +24,23 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import info.rmapproject.core.exception.RMapAgentNotFoundException;
 import info.rmapproject.core.exception.RMapDefectiveArgumentException;
 import info.rmapproject.core.exception.RMapDiSCONotFoundException;
+import info.rmapproject.core.exception.RMapDuplicateDiSCOException;
 import info.rmapproject.core.exception.RMapEventNotFoundException;
 import info.rmapproject.core.exception.RMapException;
 import info.rmapproject.core.exception.RMapObjectNotFoundException;
+import info.rmapproject.core.model.RMapObjectType;
 import info.rmapproject.core.model.RMapStatus;
 import info.rmapproject.core.model.RMapTriple;
 import info.rmapproject.core.model.RMapValue;
 import info.rmapproject.core.model.agent.RMapAgent;
 import info.rmapproject.core.model.disco.RMapDiSCO;
 import info.rmapproject.core.model.event.RMapEvent;
+import info.rmapproject.core.model.request.DiSCOCreateResult;
 import info.rmapproject.core.model.request.RequestEventDetails;
 import info.rmapproject.core.model.request.RMapSearchParams;
 import info.rmapproject.core.model.request.ResultBatch;
@@ -185,8 +189,36 @@ public interface RMapService {
 	 * @return an RMap Event
 	 * @throws RMapException an RMapException
 	 * @throws RMapDefectiveArgumentException an RMap defective argument exception
+	 * @throws RMapDuplicateDiSCOException if rmapcore.discoDedup.enabled is true and the requesting agent has already
+	 *         created an active DiSCO with the same content, which the exception identifies
 	 */
 	public RMapEvent createDiSCO(RMapDiSCO disco, RequestEventDetails reqEventDetails)  throws RMapException, RMapDefectiveArgumentException;
+	
+	/**
+	 * Creates several new DiSCOs, committing them in chunks of rmapcore.bulk.chunkSize rather than one by one, and 
+	 * returns the result of creating each.  A DiSCO that cannot be created does not prevent the others from being 
+	 * created, except that an error writing to the triplestore fails the whole chunk in which it occurs.
+	 *
+	 * @param discos the new DiSCOs
+	 * @param reqEventDetails client provided event information - contains requesting agent, event description and key uri
+	 * @return the results, in the order of the DiSCOs
+	 * @throws RMapException an RMapException
+	 * @throws RMapDefectiveArgumentException an RMap defective argument exception
+	 */
+	public List<DiSCOCreateResult> createDiSCOs(List<RMapDiSCO> discos, RequestEventDetails reqEventDetails) throws RMapException, RMapDefectiveArgumentException;
+	
+	/**
+	 * Creates several new DiSCOs as {@link #createDiSCOs(List, RequestEventDetails)} does, passing the result of 
+	 * creating each DiSCO to a consumer as soon as the chunk containing it has been committed or rolled back, so that 
+	 * the results can be streamed to the client while the remaining chunks are written.
+	 *
+	 * @param discos the new DiSCOs
+	 * @param reqEventDetails client provided event information - contains requesting agent, event description and key uri
+	 * @param results consumes the results, in the order of the DiSCOs
+	 * @throws RMapException an RMapException
+	 * @throws RMapDefectiveArgumentException an RMap defective argument exception
+	 */
+	public void createDiSCOs(List<RMapDiSCO> discos, RequestEventDetails reqEventDetails, Consumer<DiSCOCreateResult> results) throws RMapException, RMapDefectiveArgumentException;
 
 	/**
 	 * Gets the DiSCO's current status.
@@ -213,6 +245,22 @@ public interface RMapService {
 	 */
 	public RMapEvent updateDiSCO(URI oldDiscoId, RMapDiSCO disco, RequestEventDetails reqEventDetails) 
 			throws RMapException, RMapDefectiveArgumentException;
+
+	/**
+	 * Updates an existing DiSCO with a delta, rather than a complete new version.  The new version of the DiSCO is 
+	 * built from the statements of the existing version, with the triples of the delta removed and added, and is 
+	 * then written as by {@link #updateDiSCO(URI, RMapDiSCO, RequestEventDetails)}.  Triples of the delta may refer 
+	 * to the DiSCO by its existing id.
+	 *
+	 * @param oldDiscoId the original DiSCO URI
+	 * @param delta the triples to remove from the DiSCO, and to add to it
+	 * @param reqEventDetails client provided event information - contains requesting agent, event description and key uri
+	 * @return an RMap Event
+	 * @throws RMapException an RMapException
+	 * @throws RMapDefectiveArgumentException an RMap defective argument exception
+	 */
+	public RMapEvent updateDiSCO(URI oldDiscoId, RMapDelta delta, RequestEventDetails reqEventDetails) 
+			throws RMapException, RMapDefectiveArgumentException;
 	
 	/**
 	 * Inactivate a DiSCO.  Can only be performed by same agent that created DiSCO.
@@ -526,6 +574,17 @@ public interface RMapService {
 	 */
 	public boolean isEventId(URI id) throws RMapException, RMapDefectiveArgumentException;
 
+	/**
+	 * Gets the RMap type of a URI in a single lookup, rather than checking whether it is a DiSCO, Agent or Event
+	 * in turn.
+	 *
+	 * @param id the URI of any resource
+	 * @return DISCO, AGENT or EVENT; or null if the URI is not that of an RMap object
+	 * @throws RMapException an RMapException
+	 * @throws RMapDefectiveArgumentException an RMap defective argument exception
+	 */
+	public RMapObjectType getRMapObjectType(URI id) throws RMapException, RMapDefectiveArgumentException;
+
 	/**
 	 * Gets the lineage progenitor of the given disco
 	 *
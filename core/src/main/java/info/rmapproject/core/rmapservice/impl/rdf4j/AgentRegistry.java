@@ -0,0 +1,314 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+import info.rmapproject.core.exception.RMapException;
+import info.rmapproject.core.metrics.OperationMetrics;
+import info.rmapproject.core.model.event.RMapEventTargetType;
+import info.rmapproject.core.model.impl.rdf4j.ORAdapter;
+import info.rmapproject.core.model.impl.rdf4j.ORMapEvent;
+import info.rmapproject.core.model.impl.rdf4j.ORMapEventUpdateWithReplace;
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore;
+import info.rmapproject.core.vocabulary.impl.rdf4j.RMAP;
+
+/**
+ * Holds the statements of each RMap Agent in memory, so that {@link ORMapAgentMgr} can validate the agent making a
+ * request, and read an agent or its status, without querying the triplestore.  There are few agents and they rarely
+ * change, so all of them are loaded when the application context starts, and agents created or updated by this node
+ * are registered once their transaction commits.
+ * <p>
+ * Agents are never deleted, so an agent registered here exists.  An agent that is not registered, e.g. because it was
+ * created by another node, is read from the triplestore and registered.  An agent updated by another node is
+ * unregistered by {@link EventStreamListener} when the update Event is published; without that listener, a node
+ * may answer the previous version of an agent updated elsewhere.  When {@code rmapcore.agentCache.enabled} is false,
+ * nothing is registered and agents are always read from the triplestore.
+ * </p>
+ * <p>
+ * An agent read from the triplestore may be updated before the statements read are registered.  To keep the previous
+ * version from being registered after the update has unregistered it, each agent has a generation, advanced each time
+ * it is unregistered: the generation is noted before the agent is read, and the statements read are registered only
+ * if it has not changed.
+ * </p>
+ * <p>
+ * Thread safe.
+ * </p>
+ */
+@Component
+public class AgentRegistry implements ApplicationListener<ContextRefreshedEvent>, EventStreamListener.Observer {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AgentRegistry.class);
+
+	private volatile boolean enabled = true;
+
+	/** The statements of each registered agent, by agent id */
+	private final Map<IRI, Set<Statement>> agents = new ConcurrentHashMap<>();
+
+	/** The generation of each agent that has been unregistered, by agent id; other agents are at generation 0 */
+	private final Map<IRI, Long> generations = new ConcurrentHashMap<>();
+
+	private final AtomicBoolean loaded = new AtomicBoolean();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private Rdf4jTriplestore triplestore;
+
+	/**
+	 * @return true if agents are registered, and read from the registry
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Value("${rmapcore.agentCache.enabled:true}")
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		if (!enabled) {
+			agents.clear();
+		}
+	}
+
+	/**
+	 * @param triplestore the triplestore from which agents are loaded when the application context starts
+	 */
+	@Autowired(required = false)
+	public void setTriplestore(Rdf4jTriplestore triplestore) {
+		this.triplestore = triplestore;
+	}
+
+	/**
+	 * Publishes the number of agent lookups answered from the registry, and the number that had to query the
+	 * triplestore, with the operation stats.
+	 *
+	 * @param metrics the operation metrics, or null if there are none
+	 */
+	@Autowired(required = false)
+	public void setMetrics(OperationMetrics metrics) {
+		if (metrics == null) {
+			return;
+		}
+		metrics.counter("rmap_agent_cache_hits_total", "agent lookups answered from the agent registry",
+				this::getHitCount);
+		metrics.counter("rmap_agent_cache_misses_total", "agent lookups that queried the triplestore",
+				this::getMissCount);
+	}
+
+	/**
+	 * Loads every agent once the application context has started.  A failure to load them is logged, and agents
+	 * are then registered as they are read.
+	 *
+	 * @param event the context refresh
+	 */
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		if (!enabled || triplestore == null || !loaded.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			load(triplestore);
+			LOG.info("Loaded {} agents into the agent registry", agents.size());
+		} catch (RuntimeException e) {
+			LOG.warn("Unable to load the agent registry, agents will be registered as they are read: {}",
+					e.getMessage(), e);
+		} finally {
+			try {
+				triplestore.closeConnection();
+			} catch (RuntimeException e) {
+				LOG.debug("Unable to close the connection used to load the agent registry: {}", e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Registers every agent in the triplestore.
+	 *
+	 * @param ts the triplestore instance
+	 * @throws RMapException if the agents cannot be read
+	 */
+	public void load(Rdf4jTriplestore ts) throws RMapException {
+		Set<Statement> typeStmts;
+		try {
+			typeStmts = ts.getStatements(null, RDF.TYPE, RMAP.AGENT);
+		} catch (Exception e) {
+			throw new RMapException("Exception thrown reading the agents to register", e);
+		}
+		for (Statement typeStmt : typeStmts) {
+			Resource agentId = typeStmt.getSubject();
+			if (!(agentId instanceof IRI) || !agentId.equals(typeStmt.getContext())) {
+				continue;
+			}
+			try {
+				long generation = generation((IRI) agentId);
+				put((IRI) agentId, ts.getStatements(null, null, null, false, agentId), generation);
+			} catch (Exception e) {
+				throw new RMapException("Exception thrown reading agent " + agentId.stringValue(), e);
+			}
+		}
+	}
+
+	/**
+	 * @param agentId the agent IRI
+	 * @return the statements of the agent, or null if it is not registered
+	 */
+	public Set<Statement> get(IRI agentId) {
+		Set<Statement> stmts = enabled ? agents.get(agentId) : null;
+		if (stmts != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+		return stmts;
+	}
+
+	/**
+	 * @param agentId the agent IRI
+	 * @return true if the agent is registered, and so exists
+	 */
+	public boolean contains(IRI agentId) {
+		return get(agentId) != null;
+	}
+
+	/**
+	 * Registers the current version of an agent.  Must only be called with statements that have been committed.
+	 *
+	 * @param agentId the agent IRI
+	 * @param stmts the statements of the agent's named graph
+	 */
+	public void put(IRI agentId, Set<Statement> stmts) {
+		if (enabled && stmts != null && !stmts.isEmpty()) {
+			agents.put(agentId, Collections.unmodifiableSet(new HashSet<>(stmts)));
+		}
+	}
+
+	/**
+	 * Registers a version of an agent read from the triplestore, unless the agent has been unregistered since its 
+	 * generation was noted, in which case the version read may no longer be current.
+	 *
+	 * @param agentId the agent IRI
+	 * @param stmts the statements of the agent's named graph
+	 * @param generation the generation of the agent, noted before its statements were read
+	 */
+	public void put(IRI agentId, Set<Statement> stmts, long generation) {
+		if (!enabled || stmts == null || stmts.isEmpty()) {
+			return;
+		}
+		Set<Statement> registered = Collections.unmodifiableSet(new HashSet<>(stmts));
+		//registers under the agent's generation, so the agent cannot be unregistered between the check and the put
+		generations.compute(agentId, (id, current) -> {
+			if (((current == null) ? 0L : current) == generation) {
+				agents.put(id, registered);
+			}
+			return current;
+		});
+	}
+
+	/**
+	 * @param agentId the agent IRI
+	 * @return the generation of the agent, to be noted before the agent is read from the triplestore
+	 */
+	public long generation(IRI agentId) {
+		return generations.getOrDefault(agentId, 0L);
+	}
+
+	/**
+	 * Unregisters an agent that has been, or is being, changed; it will be read from the triplestore when next used.
+	 * Advances the agent's generation, so that a version read before the change is not registered.
+	 *
+	 * @param agentId the agent IRI
+	 */
+	public void invalidate(IRI agentId) {
+		generations.compute(agentId, (id, current) -> {
+			agents.remove(id);
+			return (current == null) ? 1L : current + 1;
+		});
+	}
+
+	/**
+	 * Unregisters every agent.
+	 */
+	public void clear() {
+		agents.clear();
+	}
+
+	/**
+	 * Unregisters the agent changed by an Event, so that an agent updated by another node is read again.
+	 *
+	 * @param event an Event published by any node
+	 */
+	@Override
+	public void onEvent(ORMapEvent event) {
+		if (event instanceof ORMapEventUpdateWithReplace
+				&& event.getEventTargetType() == RMapEventTargetType.AGENT) {
+			invalidate(ORAdapter.rMapIri2Rdf4jIri(((ORMapEventUpdateWithReplace) event).getUpdatedObjectId()));
+		}
+	}
+
+	/**
+	 * Disables the registry once agents updated by other nodes can no longer be seen.
+	 */
+	@Override
+	public void onStreamLost() {
+		LOG.warn("Disabling the agent registry, agents will be read from the triplestore");
+		setEnabled(false);
+	}
+
+	/**
+	 * @return the number of agents registered
+	 */
+	public int size() {
+		return agents.size();
+	}
+
+	/**
+	 * @return the number of agent lookups answered from the registry
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of agent lookups that were not registered
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+}
@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import info.rmapproject.core.exception.RMapException;
+import info.rmapproject.core.metrics.OperationMetrics;
+import info.rmapproject.core.model.impl.rdf4j.ORMapDiSCO;
+
+/**
+ * Indexes the DiSCOs created by each agent by a hash of their content, so that when
+ * {@code rmapcore.discoDedup.enabled} is true, a DiSCO submitted again by the agent that created it is answered with
+ * the existing DiSCO rather than written a second time.
+ * <p>
+ * The content hash is computed over the statements of the DiSCO as submitted, with the DiSCO identifier and the named
+ * graph left out, and with blank nodes labelled by their position in the graph rather than by the labels the parser
+ * gave them.  So the hash is the same for every submission of the same RDF, whatever the DiSCO id allocated to it.
+ * </p>
+ * <p>
+ * The content hash of each DiSCO created while duplicates are detected is recorded on its creation Event, as an
+ * {@code rmap:contentHash} statement, which is the authoritative record.  This index holds the most recently created
+ * or matched {@code rmapcore.discoDedup.capacity} DiSCOs in memory so that most submissions are answered without a
+ * query; it is empty when RMap starts and is not shared between nodes, so {@link ORMapDiSCOMgr} looks a hash that is
+ * not indexed up in the triplestore, and confirms that an indexed DiSCO is still active before answering it.
+ * </p>
+ * <p>
+ * Thread safe.
+ * </p>
+ */
+@Component
+public class DiSCOContentIndex {
+
+	/** Stands in for the DiSCO identifier in the content hash */
+	private static final String DISCO = "<>";
+
+	private volatile boolean enabled = false;
+
+	private volatile int capacity = 100000;
+
+	/** The DiSCOs indexed, by agent and content hash, in access order */
+	private final Map<String, IRI> discos = new LinkedHashMap<String, IRI>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, IRI> eldest) {
+			return size() > capacity;
+		}
+	};
+
+	private final AtomicLong duplicates = new AtomicLong();
+
+	/**
+	 * @return true if DiSCOs submitted again by the agent that created them are answered from the index
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Value("${rmapcore.discoDedup.enabled:false}")
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @return the maximum number of DiSCOs indexed
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	@Value("${rmapcore.discoDedup.capacity:100000}")
+	public void setCapacity(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("DiSCO content index capacity must be a positive integer.");
+		}
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Publishes the number of duplicate DiSCOs answered from the index with the operation stats.
+	 *
+	 * @param metrics the operation metrics, or null if there are none
+	 */
+	@Autowired(required = false)
+	public void setMetrics(OperationMetrics metrics) {
+		if (metrics == null) {
+			return;
+		}
+		metrics.counter("rmap_disco_duplicates_total",
+				"DiSCO submissions answered with an existing DiSCO of the same content",
+				this::getDuplicateCount);
+	}
+
+	/**
+	 * @param agent the agent creating the DiSCO
+	 * @param hash the content hash of the DiSCO
+	 * @return the DiSCO the agent created with the content, or null if none is indexed
+	 */
+	public IRI find(IRI agent, String hash) {
+		synchronized (discos) {
+			return discos.get(key(agent, hash));
+		}
+	}
+
+	/**
+	 * @param agent the agent that created the DiSCO
+	 * @param hash the content hash of the DiSCO
+	 * @param disco the DiSCO
+	 */
+	public void put(IRI agent, String hash, IRI disco) {
+		synchronized (discos) {
+			discos.put(key(agent, hash), disco);
+		}
+	}
+
+	/**
+	 * Forgets a DiSCO that is no longer active.
+	 *
+	 * @param agent the agent that created the DiSCO
+	 * @param hash the content hash of the DiSCO
+	 */
+	public void remove(IRI agent, String hash) {
+		synchronized (discos) {
+			discos.remove(key(agent, hash));
+		}
+	}
+
+	/**
+	 * Forgets every DiSCO indexed.
+	 */
+	public void clear() {
+		synchronized (discos) {
+			discos.clear();
+		}
+	}
+
+	/**
+	 * @return the number of DiSCOs indexed
+	 */
+	public int size() {
+		synchronized (discos) {
+			return discos.size();
+		}
+	}
+
+	/**
+	 * Counts a submission answered with an existing DiSCO.
+	 */
+	void duplicate() {
+		duplicates.incrementAndGet();
+	}
+
+	/**
+	 * @return the number of submissions answered with an existing DiSCO
+	 */
+	public long getDuplicateCount() {
+		return duplicates.get();
+	}
+
+	/**
+	 * Computes the content hash of a DiSCO.  Must be called before the blank nodes of the DiSCO are replaced with
+	 * RMap identifiers.
+	 *
+	 * @param disco the DiSCO
+	 * @return the hex encoded SHA-256 hash of the canonical statements of the DiSCO
+	 * @throws RMapException if the hash cannot be computed
+	 */
+	public static String hash(ORMapDiSCO disco) throws RMapException {
+		Model model = disco.getAsModel();
+		IRI discoId = disco.getDiscoContext();
+		Map<BNode, String> labels = labelBNodes(model, discoId);
+
+		List<String> lines = new ArrayList<String>(model.size());
+		for (Statement stmt : model) {
+			lines.add(term(stmt.getSubject(), discoId, labels) + " " + term(stmt.getPredicate(), discoId, labels)
+					+ " " + term(stmt.getObject(), discoId, labels));
+		}
+		Collections.sort(lines);
+		return sha256(String.join("\n", lines));
+	}
+
+	/**
+	 * Labels each blank node by the statements it appears in, refining the labels by those of neighbouring blank
+	 * nodes until no more blank nodes are told apart.  Isomorphic graphs get the same labels.
+	 */
+	private static Map<BNode, String> labelBNodes(Model model, IRI discoId) {
+		Map<BNode, String> labels = new HashMap<BNode, String>();
+		for (Statement stmt : model) {
+			if (stmt.getSubject() instanceof BNode) {
+				labels.put((BNode) stmt.getSubject(), "");
+			}
+			if (stmt.getObject() instanceof BNode) {
+				labels.put((BNode) stmt.getObject(), "");
+			}
+		}
+		int distinct = 1;
+		for (int round = 0; round < labels.size(); round++) {
+			Map<BNode, List<String>> signatures = new HashMap<BNode, List<String>>();
+			for (Statement stmt : model) {
+				String p = term(stmt.getPredicate(), discoId, labels);
+				if (stmt.getSubject() instanceof BNode) {
+					signatures.computeIfAbsent((BNode) stmt.getSubject(), b -> new ArrayList<String>())
+							.add("> " + p + " " + term(stmt.getObject(), discoId, labels));
+				}
+				if (stmt.getObject() instanceof BNode) {
+					signatures.computeIfAbsent((BNode) stmt.getObject(), b -> new ArrayList<String>())
+							.add("< " + p + " " + term(stmt.getSubject(), discoId, labels));
+				}
+			}
+			Map<BNode, String> refined = new HashMap<BNode, String>();
+			signatures.forEach((bnode, signature) -> {
+				Collections.sort(signature);
+				refined.put(bnode, sha256(labels.get(bnode) + "\n" + String.join("\n", signature)));
+			});
+			int refinedDistinct = new HashSet<String>(refined.values()).size();
+			labels.putAll(refined);
+			if (refinedDistinct == distinct) {
+				break;
+			}
+			distinct = refinedDistinct;
+		}
+		return labels;
+	}
+
+	private static String term(Value value, IRI discoId, Map<BNode, String> labels) {
+		if (value instanceof BNode) {
+			return "_:" + labels.get(value);
+		}
+		if (value.equals(discoId)) {
+			return DISCO;
+		}
+		if (value instanceof IRI) {
+			return "<" + value.stringValue() + ">";
+		}
+		return value.toString();
+	}
+
+	private static String sha256(String text) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest.digest(text.getBytes(StandardCharsets.UTF_8))) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RMapException("Unable to compute DiSCO content hash", e);
+		}
+	}
+
+	private static String key(IRI agent, String hash) {
+		return agent.stringValue() + " " + hash;
+	}
+
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import info.rmapproject.core.model.impl.rdf4j.ORMapEvent;
+
+/**
+ * Keeps the in-memory state of this node, such as the {@link AgentRegistry}, current with the writes made by other
+ * nodes, by passing every Event published to the Event topic from the time it starts to each {@link Observer}.  The
+ * consumer is assigned every partition of the topic rather than joining a consumer group, so each node sees every
+ * Event, and no offsets are committed.
+ * <p>
+ * If the listener fails, each observer is told that it will see no more Events, and stops relying on them.
+ * </p>
+ */
+public class EventStreamListener implements InitializingBean, DisposableBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(EventStreamListener.class);
+
+	private static final long POLL_TIMEOUT_MS = 1000;
+
+	/**
+	 * State kept current with the Events published by every node.
+	 */
+	public interface Observer {
+
+		/**
+		 * @param event an Event published by any node, including this one
+		 */
+		void onEvent(ORMapEvent event);
+
+		/**
+		 * The listener has failed, and no more Events will be passed to the observer.
+		 */
+		void onStreamLost();
+
+	}
+
+	private final List<Observer> observers;
+
+	private final Consumer<String, ORMapEvent> consumer;
+
+	private final String topic;
+
+	private volatile boolean stopped = false;
+
+	private Thread listener;
+
+	/**
+	 * @param observers the state to keep current
+	 * @param consumer a consumer of RMap Events, used only by this listener
+	 * @param topic the topic to which Events are published
+	 */
+	public EventStreamListener(List<Observer> observers, Consumer<String, ORMapEvent> consumer, String topic) {
+		if (observers == null || observers.isEmpty()) {
+			throw new IllegalArgumentException("Observers must not be empty.");
+		}
+		if (consumer == null) {
+			throw new IllegalArgumentException("Consumer must not be null.");
+		}
+		if (topic == null || topic.trim().isEmpty()) {
+			throw new IllegalArgumentException("Topic must not be empty.");
+		}
+		this.observers = new ArrayList<>(observers);
+		this.consumer = consumer;
+		this.topic = topic;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		listener = new Thread(this::listen, "rmap-event-stream-listener");
+		listener.setDaemon(true);
+		listener.start();
+	}
+
+	@Override
+	public void destroy() {
+		stopped = true;
+		consumer.wakeup();
+	}
+
+	private void listen() {
+		try {
+			List<TopicPartition> partitions = consumer.partitionsFor(topic).stream()
+					.map(partition -> new TopicPartition(topic, partition.partition()))
+					.collect(Collectors.toList());
+			consumer.assign(partitions);
+			consumer.seekToEnd(partitions);
+			while (!stopped) {
+				for (ConsumerRecord<String, ORMapEvent> record : consumer.poll(POLL_TIMEOUT_MS)) {
+					if (record.value() != null) {
+						observers.forEach(observer -> observer.onEvent(record.value()));
+					}
+				}
+			}
+		} catch (WakeupException e) {
+			if (!stopped) {
+				fail(e);
+			}
+		} catch (RuntimeException e) {
+			fail(e);
+		} finally {
+			consumer.close();
+		}
+	}
+
+	private void fail(RuntimeException e) {
+		LOG.error("Stopped listening for Events on topic {}: {}", topic, e.getMessage(), e);
+		observers.forEach(Observer::onStreamLost);
+	}
+
+}
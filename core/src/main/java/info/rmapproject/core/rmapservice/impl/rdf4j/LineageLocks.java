@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j;
+
+import java.net.URI;
+
+import info.rmapproject.core.exception.RMapException;
+
+/**
+ * Serializes the writes made to each DiSCO lineage, so that two concurrent updates of the same version of a DiSCO
+ * cannot both pass the check that it is the latest version and fork the lineage.  Writes to different lineages are
+ * not serialized against each other.
+ * <p>
+ * {@link StripedLineageLocks} locks the lineages within one process.  Deployments running more than one RMap node
+ * against the same triplestore replace the {@code lineageLocks} bean with an implementation that locks across nodes.
+ * Implementations must be thread safe, and a thread holding the lock of a lineage must be able to lock it again, since
+ * a group commit may hold several updates to the same lineage.
+ * </p>
+ */
+public interface LineageLocks {
+
+	/**
+	 * The lock of a lineage, held until it is closed.
+	 */
+	@FunctionalInterface
+	public interface LineageLock extends AutoCloseable {
+		/**
+		 * Releases the lock.
+		 */
+		@Override
+		void close();
+	}
+
+	/**
+	 * Locks a lineage, waiting for the lock if it is held by another writer.
+	 *
+	 * @param progenitor the lineage progenitor, identifying the lineage
+	 * @return the lock, to be closed once the write has been committed or rolled back
+	 * @throws RMapException if the lock could not be obtained in time
+	 */
+	public LineageLock lock(URI progenitor) throws RMapException;
+
+}
@@ -75,6 +75,9 @@ public class ORMapAgentMgr extends ORMapObjectMgr {
 	
 	private ORMapEventMgr eventMgr;
 
+	/** The agents held in memory; may be null, in which case agents are always read from the triplestore */
+	private AgentRegistry agentRegistry;
+
 	@Autowired
 	public ORMapAgentMgr(ORMapEventMgr eventMgr) {
 		if (eventMgr == null) {
@@ -84,6 +87,14 @@ public class ORMapAgentMgr extends ORMapObjectMgr {
 		this.eventMgr = eventMgr;
 	}
 
+	/**
+	 * @param agentRegistry the agents held in memory
+	 */
+	@Autowired(required = false)
+	public void setAgentRegistry(AgentRegistry agentRegistry) {
+		this.agentRegistry = agentRegistry;
+	}
+
 	/**
 	 * Get an Agent using Agent IRI and a specific triplestore instance
 	 *
@@ -102,15 +113,19 @@ public class ORMapAgentMgr extends ORMapObjectMgr {
 		if (ts==null){
 			throw new RMapException("null triplestore");
 		}		
-		if (!(this.isAgentId(agentId, ts))){
-			throw new RMapAgentNotFoundException("Not an agentID: " + agentId.stringValue());
-		}
-		Set<Statement> agentStmts = null;
-		try {
-			agentStmts = this.getNamedGraph(agentId, ts);	
-		}
-		catch (RMapObjectNotFoundException e) {
-			throw new RMapAgentNotFoundException ("No agent found with id " + agentId.toString(), e);
+		long generation = (agentRegistry != null) ? agentRegistry.generation(agentId) : 0;
+		Set<Statement> agentStmts = (agentRegistry != null) ? agentRegistry.get(agentId) : null;
+		if (agentStmts == null) {
+			if (!(this.isAgentId(agentId, ts))){
+				throw new RMapAgentNotFoundException("Not an agentID: " + agentId.stringValue());
+			}
+			try {
+				agentStmts = this.getNamedGraph(agentId, ts);	
+			}
+			catch (RMapObjectNotFoundException e) {
+				throw new RMapAgentNotFoundException ("No agent found with id " + agentId.toString(), e);
+			}
+			register(agentId, agentStmts, generation, ts);
 		}
 		ORMapAgent agent = OStatementsAdapter.asAgent(agentStmts, idSupplier);
 		return agent;
@@ -130,7 +145,7 @@ public class ORMapAgentMgr extends ORMapObjectMgr {
 			throw new RMapException ("Null disco");
 		}
 		// first ensure Exists statement IRI rdf:TYPE RMAP:AGENT  if not: raise NOTFOUND exception
-		if (! this.isAgentId(agentId, ts)){
+		if (!isRegistered(agentId) && !this.isAgentId(agentId, ts)){
 			throw new RMapAgentNotFoundException ("No Agent found with id " + agentId.stringValue());
 		}
 		// If the agent exists, it is active. We don't alter Agent status.
@@ -203,6 +218,7 @@ public class ORMapAgentMgr extends ORMapObjectMgr {
 			} catch (Exception e) {
 				throw new RMapException("Exception thrown committing new triples to triplestore");
 			}
+			register(newAgentId, new HashSet<Statement>(model), ts);
 		}
 		return event;
 	}
@@ -258,6 +274,11 @@ public class ORMapAgentMgr extends ORMapObjectMgr {
 		} catch (Exception e) {
 			throw new RMapException("Unable to begin RDF4J transaction", e);
 		}
+		if (agentRegistry != null) {
+			// read the agent again once the update is committed, or in case it is rolled back
+			agentRegistry.invalidate(agentId);
+			ts.releaseOnTransactionEnd(() -> agentRegistry.invalidate(agentId));
+		}
 				
 		// Get the event started
 		ORMapEventUpdateWithReplace event = 
@@ -474,9 +495,57 @@ public class ORMapAgentMgr extends ORMapObjectMgr {
 			throw new RMapException("The requesting agent parameter is invalid. System Agent could not be converted to an IRI.");
 		}
 		
+		if (isRegistered(agentIri)) {
+			return;
+		}
 		if (!this.isAgentId(agentIri, ts)){
 			throw new RMapAgentNotFoundException("The requesting agent is invalid. No Agent exists with IRI " + agentIri.stringValue());
 		}
+		if (agentRegistry != null && agentRegistry.isEnabled() && !ts.hasTransactionOpen()) {
+			long generation = agentRegistry.generation(agentIri);
+			try {
+				register(agentIri, this.getNamedGraph(agentIri, ts), generation, ts);
+			} catch (RMapObjectNotFoundException e) {
+				// an agent with no named graph is left to be read from the triplestore
+			}
+		}
+	}
+
+	/**
+	 * @param agentId the Agent IRI
+	 * @return true if the Agent is held in the agent registry, and so exists
+	 */
+	private boolean isRegistered(IRI agentId) {
+		return agentRegistry != null && agentRegistry.contains(agentId);
+	}
+
+	/**
+	 * Holds an Agent committed to the triplestore in the agent registry.  Agents written within a transaction that
+	 * has not yet been committed are not held, since the transaction may yet be rolled back.
+	 *
+	 * @param agentId the Agent IRI
+	 * @param agentStmts the statements of the Agent
+	 * @param ts the triplestore instance
+	 */
+	private void register(IRI agentId, Set<Statement> agentStmts, Rdf4jTriplestore ts) {
+		if (agentRegistry != null && !ts.hasTransactionOpen()) {
+			agentRegistry.put(agentId, agentStmts);
+		}
+	}
+
+	/**
+	 * Holds an Agent read from the triplestore in the agent registry, unless it has been changed since it was read.  
+	 * Agents read within a transaction are not held, since the transaction may yet be rolled back.
+	 *
+	 * @param agentId the Agent IRI
+	 * @param agentStmts the statements of the Agent
+	 * @param generation the generation of the Agent in the registry, noted before it was read
+	 * @param ts the triplestore instance
+	 */
+	private void register(IRI agentId, Set<Statement> agentStmts, long generation, Rdf4jTriplestore ts) {
+		if (agentRegistry != null && !ts.hasTransactionOpen()) {
+			agentRegistry.put(agentId, agentStmts, generation);
+		}
 	}
 
 	/**
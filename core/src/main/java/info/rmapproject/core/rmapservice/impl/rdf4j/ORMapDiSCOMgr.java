@@ -35,6 +35,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
@@ -45,6 +46,7 @@ import info.rmapproject.core.exception.RMapAgentNotFoundException;
 import info.rmapproject.core.exception.RMapDefectiveArgumentException;
 import info.rmapproject.core.exception.RMapDeletedObjectException;
 import info.rmapproject.core.exception.RMapDiSCONotFoundException;
+import info.rmapproject.core.exception.RMapDuplicateDiSCOException;
 import info.rmapproject.core.exception.RMapException;
 import info.rmapproject.core.exception.RMapInactiveVersionException;
 import info.rmapproject.core.exception.RMapNotLatestVersionException;
@@ -53,8 +55,10 @@ import info.rmapproject.core.exception.RMapTombstonedObjectException;
 import info.rmapproject.core.model.RMapIri;
 import info.rmapproject.core.model.RMapStatus;
 import info.rmapproject.core.model.event.RMapEvent;
+import info.rmapproject.core.model.event.RMapEventSnapshot;
 import info.rmapproject.core.model.event.RMapEventTargetType;
 import info.rmapproject.core.model.impl.rdf4j.ORAdapter;
+import info.rmapproject.core.model.impl.rdf4j.ORMapAgent;
 import info.rmapproject.core.model.impl.rdf4j.ORMapDiSCO;
 import info.rmapproject.core.model.impl.rdf4j.ORMapEvent;
 import info.rmapproject.core.model.impl.rdf4j.ORMapEventCreation;
@@ -66,6 +70,7 @@ import info.rmapproject.core.model.impl.rdf4j.ORMapEventUpdate;
 import info.rmapproject.core.model.impl.rdf4j.ORMapEventWithNewObjects;
 import info.rmapproject.core.model.impl.rdf4j.OStatementsAdapter;
 import info.rmapproject.core.model.request.RequestEventDetails;
+import info.rmapproject.core.rmapservice.impl.rdf4j.LineageLocks.LineageLock;
 import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore;
 import info.rmapproject.core.vocabulary.impl.rdf4j.PROV;
 import info.rmapproject.core.vocabulary.impl.rdf4j.RMAP;
@@ -83,6 +88,12 @@ public class ORMapDiSCOMgr extends ORMapObjectMgr {
 	
 	/** Instance of the RMap Event Manager */
 	private ORMapEventMgr eventmgr;
+
+	/** Index of the DiSCOs created by each agent, by content */
+	private DiSCOContentIndex contentIndex;
+
+	/** Locks serializing the updates of each DiSCO lineage; may be null, in which case updates are not serialized */
+	private LineageLocks lineageLocks;
 		
 	/**
 	 * Instantiates a new RMap DiSCO Manager
@@ -96,6 +107,22 @@ public class ORMapDiSCOMgr extends ORMapObjectMgr {
 		this.agentmgr = agentmgr;
 		this.eventmgr = eventmgr;
 	}
+
+	/**
+	 * @param contentIndex the index of the DiSCOs created by each agent, by content
+	 */
+	@Autowired(required = false)
+	public void setContentIndex(DiSCOContentIndex contentIndex) {
+		this.contentIndex = contentIndex;
+	}
+
+	/**
+	 * @param lineageLocks the locks serializing the updates of each DiSCO lineage
+	 */
+	@Autowired(required = false)
+	public void setLineageLocks(LineageLocks lineageLocks) {
+		this.lineageLocks = lineageLocks;
+	}
 	
 	/**
 	 * Return RMap DiSCO object corresponding to the DiSCO IRI.
@@ -176,6 +203,8 @@ public class ORMapDiSCOMgr extends ORMapObjectMgr {
 	 * @throws RMapException the RMap exception
 	 * @throws RMapAgentNotFoundException the RMap agent not found exception
 	 * @throws RMapDefectiveArgumentException the RMap defective argument exception
+	 * @throws RMapDuplicateDiSCOException if the agent has already created an active DiSCO with the same content, and
+	 *         duplicates are answered with the existing DiSCO
 	 */
 	public ORMapEvent createDiSCO(ORMapDiSCO disco, RequestEventDetails reqEventDetails, Rdf4jTriplestore ts) 
 			throws RMapException, RMapAgentNotFoundException, RMapDefectiveArgumentException{		
@@ -188,6 +217,32 @@ public class ORMapDiSCOMgr extends ORMapObjectMgr {
 		}
 		
 		agentmgr.validateRequestAgent(reqEventDetails, ts);
+
+		// answer the DiSCO the agent already created with the same content, if configured to
+		IRI agentId = uri2Rdf4jIri(reqEventDetails.getSystemAgent());
+		String contentHash = null;
+		if (contentIndex != null && contentIndex.isEnabled()) {
+			contentHash = DiSCOContentIndex.hash(disco);
+			IRI existing = contentIndex.find(agentId, contentHash);
+			if (existing != null 
+					&& !(this.isDiscoId(existing, ts) && this.getDiSCOStatus(existing, ts) == RMapStatus.ACTIVE)) {
+				contentIndex.remove(agentId, contentHash);
+				existing = null;
+			}
+			if (existing == null) {
+				// the index is not persistent, so look for the hash recorded on the creation event
+				existing = findCreatedDiSCO(agentId, contentHash, ts);
+				if (existing != null) {
+					contentIndex.put(agentId, contentHash, existing);
+				}
+			}
+			if (existing != null) {
+				contentIndex.duplicate();
+				throw new RMapDuplicateDiSCOException("Agent " + agentId.stringValue()
+						+ " has already created DiSCO " + existing.stringValue() + " with the same content",
+						rdf4jIri2URI(existing));
+			}
+		}
 		
 		// get the event started
 		ORMapEventCreation event = new ORMapEventCreation(uri2Rdf4jIri(idSupplier.get()), reqEventDetails, RMapEventTargetType.DISCO);
@@ -227,7 +282,16 @@ public class ORMapDiSCOMgr extends ORMapObjectMgr {
 		event.setCreatedObjectIdsFromIRI(created);		
 		event.setEndTime(new Date());
 		event.setLineageProgenitor(disco.getId());
-		eventmgr.createEvent(event, ts);
+		eventmgr.createEvent(event, 
+				() -> new RMapEventSnapshot(null, disco, readRequestAgent(reqEventDetails, ts)), ts);
+		if (contentHash != null) {
+			try {
+				ts.addStatement(event.getContext(), RMAP.CONTENTHASH, 
+						ORAdapter.getValueFactory().createLiteral(contentHash), event.getContext());
+			} catch (Exception e) {
+				throw new RMapException("Exception thrown recording the content hash of the new DiSCO", e);
+			}
+		}
 
 		if (doCommitTransaction){
 			try {
@@ -236,9 +300,76 @@ public class ORMapDiSCOMgr extends ORMapObjectMgr {
 				throw new RMapException("Exception thrown committing new triples to triplestore: " + e.getMessage(), e);
 			}
 		}
+		if (contentHash != null) {
+			contentIndex.put(agentId, contentHash, disco.getDiscoContext());
+		}
 		return event;
 	}
 
+	/**
+	 * Builds a new version of a DiSCO by applying a delta to the statements of the existing version, as they are 
+	 * held in the triplestore.  The new version is identified as a newly submitted DiSCO would be, so it can be 
+	 * written with {@link #updateDiSCO(IRI, ORMapDiSCO, RequestEventDetails, boolean, Rdf4jTriplestore)}. 
+	 * Statements of the delta may refer to the DiSCO by its existing id.
+	 *
+	 * @param discoId the IRI of the existing DiSCO
+	 * @param removals the statements to remove from the DiSCO
+	 * @param additions the statements to add to the DiSCO
+	 * @param ts the triplestore instance
+	 * @return the new version of the DiSCO
+	 * @throws RMapDiSCONotFoundException if there is no DiSCO with the id
+	 * @throws RMapDefectiveArgumentException if the delta does not change the DiSCO
+	 * @throws RMapException if the DiSCO that results from the delta is not valid
+	 */
+	public ORMapDiSCO applyDelta(IRI discoId, Set<Statement> removals, Set<Statement> additions, Rdf4jTriplestore ts)
+			throws RMapDiSCONotFoundException, RMapDefectiveArgumentException, RMapException {
+		if (discoId==null){
+			throw new RMapDefectiveArgumentException("Null value for id of target DiSCO");
+		}
+		if (removals==null || additions==null){
+			throw new RMapDefectiveArgumentException("Null delta");
+		}
+		if (! (this.isDiscoId(discoId, ts))){
+			throw new RMapDiSCONotFoundException("No DiSCO with id " + discoId.stringValue());
+		}
+		Set<Statement> discoStmts = null;
+		try {
+			discoStmts = this.getNamedGraph(discoId, ts);		
+		}
+		catch (RMapObjectNotFoundException e){
+			throw new RMapDiSCONotFoundException("No DiSCO found with id " + discoId.stringValue(), e);
+		}
+
+		//stand in a blank node for the DiSCO id, as in a new DiSCO submitted as RDF
+		Resource newDiscoId = ORAdapter.getValueFactory().createBNode();
+		Set<Statement> stmts = triples(discoStmts, discoId, newDiscoId);
+		boolean changed = stmts.removeAll(triples(removals, discoId, newDiscoId));
+		changed = stmts.addAll(triples(additions, discoId, newDiscoId)) || changed;
+		if (!changed){
+			throw new RMapDefectiveArgumentException("The changes provided leave DiSCO " + discoId.stringValue() 
+						+ " as it is");
+		}
+		return OStatementsAdapter.asDisco(stmts, idSupplier);
+	}
+
+	/**
+	 * Copies statements without their context, replacing a DiSCO id with another.
+	 *
+	 * @param stmts the statements
+	 * @param discoId the DiSCO id to replace
+	 * @param newDiscoId the id to put in its place
+	 * @return the triples
+	 */
+	private Set<Statement> triples(Set<Statement> stmts, IRI discoId, Resource newDiscoId) {
+		Set<Statement> triples = new HashSet<Statement>();
+		for (Statement stmt : stmts) {
+			Resource subject = stmt.getSubject().equals(discoId) ? newDiscoId : stmt.getSubject();
+			Value object = stmt.getObject().equals(discoId) ? newDiscoId : stmt.getObject();
+			triples.add(ORAdapter.getValueFactory().createStatement(subject, stmt.getPredicate(), object));
+		}
+		return triples;
+	}
+
 	/**
 	 * Updates an existing DiSCO.  If the requesting agent is the same as the original DiSCO creator
 	 * the previous version of the DiSCO will get the status of "INACTIVE" and the new DiSCO will be linked as a 
@@ -269,110 +400,125 @@ public class ORMapDiSCOMgr extends ORMapObjectMgr {
 		}		
 		agentmgr.validateRequestAgent(reqEventDetails, ts);
 		
-		final URI latestDiscoURI = getLineageMembers(findLineageProgenitor(rdf4jIri2URI(oldDiscoId), ts), ts)
-		        .stream().reduce((a, b) -> b).get();
-		//check that they are updating the latest version of the DiSCO otherwise throw exception
-		if (!latestDiscoURI.toString().equals(oldDiscoId.stringValue())){
-			//NOTE:the IRI of the latest DiSCO should always appear in angle brackets at the end of the message
-			//so that it can be parsed as needed
-			throw new RMapNotLatestVersionException("The DiSCO '" + oldDiscoId.toString() + "' has a newer version. "
-									+ "Only the latest version of the DiSCO can be updated. The latest version can be found at "
-									+ "<" + latestDiscoURI +">");
-		}		
+		// serialize updates of the lineage, so that no other update can pass the latest version check before this
+		// update is committed
+		final URI progenitor = findLineageProgenitor(rdf4jIri2URI(oldDiscoId), ts);
+		LineageLock lock = (lineageLocks != null) ? lineageLocks.lock(progenitor) : null;
+		try {
+			final URI latestDiscoURI = getLineageMembers(progenitor, ts).stream().reduce((a, b) -> b).get();
+			//check that they are updating the latest version of the DiSCO otherwise throw exception
+			if (!latestDiscoURI.toString().equals(oldDiscoId.stringValue())){
+				//NOTE:the IRI of the latest DiSCO should always appear in angle brackets at the end of the message
+				//so that it can be parsed as needed
+				throw new RMapNotLatestVersionException("The DiSCO '" + oldDiscoId.toString() + "' has a newer version. "
+										+ "Only the latest version of the DiSCO can be updated. The latest version can be found at "
+										+ "<" + latestDiscoURI +">");
+			}		
 		
-		//check that they are updating an active DiSCO
-		if (getDiSCOStatus(oldDiscoId,ts)!=RMapStatus.ACTIVE) {
-			throw new RMapInactiveVersionException("The DiSCO '" + oldDiscoId.toString() + "' is inactive. "
-									+ "Only active DiSCOs can be updated.");				
-		}
+			//check that they are updating an active DiSCO
+			if (getDiSCOStatus(oldDiscoId,ts)!=RMapStatus.ACTIVE) {
+				throw new RMapInactiveVersionException("The DiSCO '" + oldDiscoId.toString() + "' is inactive. "
+										+ "Only active DiSCOs can be updated.");				
+			}
 		
 		
-		// get the event started
-		ORMapEvent event = null;	
-		boolean creatorSameAsOrig = this.isSameCreatorAgent(oldDiscoId, reqEventDetails, ts);
+			// get the event started
+			ORMapEvent event = null;	
+			boolean creatorSameAsOrig = this.isSameCreatorAgent(oldDiscoId, reqEventDetails, ts);
 				
-		if (justInactivate){
-			// must be same agent
-			if (creatorSameAsOrig){
-				ORMapEventInactivation iEvent = new ORMapEventInactivation(uri2Rdf4jIri(idSupplier.get()), reqEventDetails, RMapEventTargetType.DISCO);
-				iEvent.setInactivatedObjectId(ORAdapter.rdf4jIri2RMapIri(oldDiscoId));
-				iEvent.setLineageProgenitor(new RMapIri(findLineageProgenitor(rdf4jIri2URI(oldDiscoId), ts)));
-				event = iEvent;
+			if (justInactivate){
+				// must be same agent
+				if (creatorSameAsOrig){
+					ORMapEventInactivation iEvent = new ORMapEventInactivation(uri2Rdf4jIri(idSupplier.get()), reqEventDetails, RMapEventTargetType.DISCO);
+					iEvent.setInactivatedObjectId(ORAdapter.rdf4jIri2RMapIri(oldDiscoId));
+					iEvent.setLineageProgenitor(new RMapIri(progenitor));
+					event = iEvent;
+				}
+				else {
+					throw new RMapDefectiveArgumentException("Agent is not the same as creating agent; " +
+							" cannot inactivate another agent's DiSCO");
+				}
 			}
 			else {
-				throw new RMapDefectiveArgumentException("Agent is not the same as creating agent; " +
-						" cannot inactivate another agent's DiSCO");
-			}
-		}
-		else {
-			// if same agent, it's an update; otherwise it's a derivation
-			// in either case, must have non-null new DiSCO
-			if (disco==null){
-				throw new RMapDefectiveArgumentException("No new DiSCO provided for update");
-			}
+				// if same agent, it's an update; otherwise it's a derivation
+				// in either case, must have non-null new DiSCO
+				if (disco==null){
+					throw new RMapDefectiveArgumentException("No new DiSCO provided for update");
+				}
 
-			if (oldDiscoId.stringValue().equals(disco.getDiscoContext().stringValue())){
-				throw new RMapDefectiveArgumentException("The DiSCO provided has the same identifier as the DiSCO being replaced.");
-			}
-			if (creatorSameAsOrig){
-				ORMapEventUpdate uEvent = new ORMapEventUpdate(uri2Rdf4jIri(idSupplier.get()), reqEventDetails, RMapEventTargetType.DISCO, oldDiscoId, disco.getDiscoContext());
-				uEvent.setLineageProgenitor(new RMapIri(findLineageProgenitor(rdf4jIri2URI(oldDiscoId), ts)));
-				event = uEvent;
-			}
-			else {
-				ORMapEventDerivation dEvent = new ORMapEventDerivation(uri2Rdf4jIri(idSupplier.get()), reqEventDetails, RMapEventTargetType.DISCO, oldDiscoId, disco.getDiscoContext());
-				dEvent.setLineageProgenitor(disco.getId());
-				event = dEvent;
+				if (oldDiscoId.stringValue().equals(disco.getDiscoContext().stringValue())){
+					throw new RMapDefectiveArgumentException("The DiSCO provided has the same identifier as the DiSCO being replaced.");
+				}
+				if (creatorSameAsOrig){
+					ORMapEventUpdate uEvent = new ORMapEventUpdate(uri2Rdf4jIri(idSupplier.get()), reqEventDetails, RMapEventTargetType.DISCO, oldDiscoId, disco.getDiscoContext());
+					uEvent.setLineageProgenitor(new RMapIri(progenitor));
+					event = uEvent;
+				}
+				else {
+					ORMapEventDerivation dEvent = new ORMapEventDerivation(uri2Rdf4jIri(idSupplier.get()), reqEventDetails, RMapEventTargetType.DISCO, oldDiscoId, disco.getDiscoContext());
+					dEvent.setLineageProgenitor(disco.getId());
+					event = dEvent;
+				}
 			}
-		}
 			
-		// set up triplestore and start transaction
-		boolean doCommitTransaction = false;
-		try {
-			if (!ts.hasTransactionOpen())	{
-				doCommitTransaction = true;
-				ts.beginTransaction();
+			// set up triplestore and start transaction
+			boolean doCommitTransaction = false;
+			try {
+				if (!ts.hasTransactionOpen())	{
+					doCommitTransaction = true;
+					ts.beginTransaction();
+				}
+			} catch (Exception e) {
+				throw new RMapException("Unable to begin RDF4J transaction: ", e);
 			}
-		} catch (Exception e) {
-			throw new RMapException("Unable to begin RDF4J transaction: ", e);
-		}
-		do {
-			if (disco==null){
-				// just inactivating; no new disco
-				break;
+			if (lock != null) {
+				// hold the lineage until whichever transaction includes this update is committed or rolled back
+				ts.releaseOnTransactionEnd(lock);
+				lock = null;
 			}
+			do {
+				if (disco==null){
+					// just inactivating; no new disco
+					break;
+				}
 						
-			// create any new triples for all statements in DiSCO
-			// Keep track of resources created by this Event
-			Set<IRI> created = new HashSet<IRI>();			
-			// add the DiSCO IRI as an event-created Resource
-			created.add(disco.getDiscoContext());
+				// create any new triples for all statements in DiSCO
+				// Keep track of resources created by this Event
+				Set<IRI> created = new HashSet<IRI>();			
+				// add the DiSCO IRI as an event-created Resource
+				created.add(disco.getDiscoContext());
 			
-			//since this is the first time we are seeing this DiSCO, lets replace the BNodes with proper IDs.
-			disco.replaceBNodesWithIds(idService);
+				//since this is the first time we are seeing this DiSCO, lets replace the BNodes with proper IDs.
+				disco.replaceBNodesWithIds(idService);
 			
-			Model discoStmts = disco.getAsModel();
+				Model discoStmts = disco.getAsModel();
 			
-			for (Statement stmt: discoStmts){
-				this.createStatement(ts, stmt);
-			}
+				for (Statement stmt: discoStmts){
+					this.createStatement(ts, stmt);
+				}
 			
-			if (event instanceof ORMapEventWithNewObjects){
-				((ORMapEventWithNewObjects)event).setCreatedObjectIdsFromIRI(created);		
-			}
-		} while (false);
+				if (event instanceof ORMapEventWithNewObjects){
+					((ORMapEventWithNewObjects)event).setCreatedObjectIdsFromIRI(created);		
+				}
+			} while (false);
 			
-		// end the event, write the event triples, and commit everything
-		event.setEndTime(new Date());
-		eventmgr.createEvent(event, ts);
-		if (doCommitTransaction){
-			try {
-				ts.commitTransaction();
-			} catch (Exception e) {
-				throw new RMapException("Exception thrown committing new triples to triplestore");
+			// end the event, write the event triples, and commit everything
+			event.setEndTime(new Date());
+			eventmgr.createEvent(event, 
+					() -> new RMapEventSnapshot(readDiSCO(oldDiscoId, ts), disco, readRequestAgent(reqEventDetails, ts)), ts);
+			if (doCommitTransaction){
+				try {
+					ts.commitTransaction();
+				} catch (Exception e) {
+					throw new RMapException("Exception thrown committing new triples to triplestore");
+				}
+			}
+			return event;
+		} finally {
+			if (lock != null) {
+				lock.close();
 			}
 		}
-		return event;
 	}
 	
 	/**
@@ -499,6 +645,44 @@ public class ORMapDiSCOMgr extends ORMapObjectMgr {
 		return event;
 	}
 		
+	/**
+	 * Finds the active DiSCO an agent created with some content, from the content hash recorded on the creation
+	 * events of DiSCOs.
+	 *
+	 * @param agentId the agent that created the DiSCO
+	 * @param contentHash the content hash of the DiSCO
+	 * @param ts the triplestore instance
+	 * @return the active DiSCO, or null if the agent created none with the content
+	 * @throws RMapException the RMap exception
+	 */
+	IRI findCreatedDiSCO(IRI agentId, String contentHash, Rdf4jTriplestore ts) throws RMapException {
+		Literal hash = ORAdapter.getValueFactory().createLiteral(contentHash);
+		try {
+			for (Statement hashStmt : ts.getStatements(null, RMAP.CONTENTHASH, hash)) {
+				if (!(hashStmt.getSubject() instanceof IRI)) {
+					continue;
+				}
+				IRI eventId = (IRI) hashStmt.getSubject();
+				if (!ts.hasStatement(eventId, PROV.WASASSOCIATEDWITH, agentId, eventId)) {
+					continue;
+				}
+				for (Statement generated : ts.getStatements(eventId, PROV.GENERATED, null, eventId)) {
+					if (generated.getObject() instanceof IRI) {
+						IRI discoId = (IRI) generated.getObject();
+						if (this.isDiscoId(discoId, ts) && this.getDiSCOStatus(discoId, ts) == RMapStatus.ACTIVE) {
+							return discoId;
+						}
+					}
+				}
+			}
+		} catch (RMapException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RMapException("Exception thrown querying triplestore for DiSCOs with the same content", e);
+		}
+		return null;
+	}
+
 	/**
 	 * Get the status of a DiSCO
 	 * See RMapStatus enum for possible statuses
@@ -678,4 +862,17 @@ public class ORMapDiSCOMgr extends ORMapObjectMgr {
         return isSame;
     }
 
+	/**
+	 * Reads the requesting Agent, for inclusion in an Event snapshot
+	 *
+	 * @param reqEventDetails the requesting agent
+	 * @param ts the triplestore instance
+	 * @return the requesting Agent
+	 * @throws RMapException the RMap exception
+	 */
+	private ORMapAgent readRequestAgent(RequestEventDetails reqEventDetails, Rdf4jTriplestore ts) 
+			throws RMapException {
+		return agentmgr.readAgent(uri2Rdf4jIri(reqEventDetails.getSystemAgent()), ts);
+	}
+
 }
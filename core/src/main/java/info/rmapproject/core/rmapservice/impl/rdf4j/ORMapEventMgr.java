@@ -23,16 +23,22 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Statement;
@@ -43,6 +49,7 @@ import info.rmapproject.core.exception.RMapDiSCONotFoundException;
 import info.rmapproject.core.exception.RMapEventNotFoundException;
 import info.rmapproject.core.exception.RMapException;
 import info.rmapproject.core.exception.RMapObjectNotFoundException;
+import info.rmapproject.core.model.event.RMapEventSnapshot;
 import info.rmapproject.core.model.event.RMapEventTargetType;
 import info.rmapproject.core.model.event.RMapEventType;
 import info.rmapproject.core.model.impl.rdf4j.ORMapEvent;
@@ -58,6 +65,7 @@ import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore
 import info.rmapproject.core.utils.DateUtils;
 import info.rmapproject.core.vocabulary.impl.rdf4j.PROV;
 import info.rmapproject.core.vocabulary.impl.rdf4j.RMAP;
+import info.rmapproject.kafka.shared.GenericJvmObjectSerializer;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.core.KafkaTemplate;
@@ -66,6 +74,7 @@ import org.springframework.util.concurrent.ListenableFuture;
 
 import static java.lang.Integer.toHexString;
 import static java.lang.System.identityHashCode;
+import static java.util.Collections.singletonList;
 
 /**
  * A concrete class for managing RMap Events, implemented using RDF4J
@@ -77,8 +86,15 @@ public class ORMapEventMgr extends ORMapObjectMgr {
 	@org.springframework.beans.factory.annotation.Value("${rmapcore.producer.topic}")
 	private String topic;
 
+	@org.springframework.beans.factory.annotation.Value("${rmapcore.producer.snapshot:false}")
+	private boolean sendSnapshot;
+
 	private KafkaTemplate<String, ORMapEvent> kafkaTemplate;
 
+	/** The Event sends deferred to {@link #endSendBatch()}, keyed by Event id, for threads that have begun a batch.
+	 * Static, since each manager that creates Events has its own instance of this one */
+	private static final ThreadLocal<Map<String, Supplier<Future<?>>>> batchedSends = new ThreadLocal<>();
+
 	public ORMapEventMgr() {
 		// required, since ORMapEventMgr(KafkaTemplate<String, ORMapEvent> kafkaTemplate) is optional
 	}
@@ -97,6 +113,23 @@ public class ORMapEventMgr extends ORMapObjectMgr {
 	 * @throws RMapException the RMap exception
 	 */
 	public IRI createEvent (ORMapEvent event, Rdf4jTriplestore ts) throws RMapException {
+		return createEvent(event, null, ts);
+	}
+
+	/**
+	 * Creates triples that comprise the Event object, and puts into triplestore.  If sending snapshots is enabled, 
+	 * the snapshot of the DiSCOs and Agent referenced by the Event is published with the Event, in the 
+	 * {@link RMapEventSnapshot#KAFKA_HEADER} record header.
+	 *
+	 * @param event the new RMap Event
+	 * @param snapshot supplies the snapshot of the DiSCOs and Agent referenced by the Event; only invoked if snapshots 
+	 *                 are sent. May be null.
+	 * @param ts the triplestore instance
+	 * @return the iri
+	 * @throws RMapException the RMap exception
+	 */
+	public IRI createEvent (ORMapEvent event, Supplier<RMapEventSnapshot> snapshot, Rdf4jTriplestore ts) 
+			throws RMapException {
 		if (event==null){
 			throw new RMapException ("Cannot create null Event");
 		}
@@ -187,31 +220,122 @@ public class ORMapEventMgr extends ORMapObjectMgr {
 		}
 
 		if (kafkaTemplate != null) {
-			log.debug("Sending {} to topic {} with {}@{}", event.getId().getStringValue(), topic,
-					kafkaTemplate.getClass().getSimpleName(), toHexString(identityHashCode(kafkaTemplate)));
-			ListenableFuture<SendResult<String, ORMapEvent>> result =
-					kafkaTemplate.send(topic, event.getId().getStringValue(), event);
-			result.addCallback((r) -> {
-				RecordMetadata md = (r != null) ? r.getRecordMetadata() : null;
-				if (md != null) {
-					log.debug("Sent {} to topic/partition/offset {}/{}/{}, total size {} bytes",
+			Map<String, Supplier<Future<?>>> batch = batchedSends.get();
+			if (batch != null) {
+				batch.put(event.getId().getStringValue(), () -> send(event, snapshot));
+			} else {
+				awaitSend(event.getId().getStringValue(), send(event, snapshot));
+			}
+		}
+
+		return eventId;
+	}
+
+	/**
+	 * Sends an Event to the topic.
+	 *
+	 * @param event the new RMap Event
+	 * @param snapshot supplies the snapshot of the DiSCOs and Agent referenced by the Event, may be null
+	 * @return the result of sending the Event
+	 */
+	private Future<?> send(ORMapEvent event, Supplier<RMapEventSnapshot> snapshot) {
+		log.debug("Sending {} to topic {} with {}@{}", event.getId().getStringValue(), topic,
+				kafkaTemplate.getClass().getSimpleName(), toHexString(identityHashCode(kafkaTemplate)));
+		List<Header> headers = snapshotHeaders(event, snapshot);
+		ListenableFuture<SendResult<String, ORMapEvent>> result = (headers == null)
+				? kafkaTemplate.send(topic, event.getId().getStringValue(), event)
+				: kafkaTemplate.send(new ProducerRecord<>(topic, null, event.getId().getStringValue(), event, headers));
+		result.addCallback((r) -> {
+			RecordMetadata md = (r != null) ? r.getRecordMetadata() : null;
+			if (md != null) {
+				log.debug("Sent {} to topic/partition/offset {}/{}/{}, total size {} bytes",
                             event.getId().getStringValue(), md.topic(), md.partition(), md.offset(),
                             (md.serializedKeySize() + md.serializedValueSize()));
-				} else {
-					log.debug("Sent {} but record metadata was null");
+			} else {
+				log.debug("Sent {} but record metadata was null");
+			}
+		}, (ex) -> {
+			log.info("Failed to send {}: {}", event.getId().getStringValue(), ex.getMessage(), ex);
+		});
+		return result;
+	}
+
+	/**
+	 * Begins a batch of Events on the current thread: rather than being sent as each is created, the Events are sent
+	 * together by {@link #endSendBatch()}, once the transaction that created them has been committed, or dropped by 
+	 * {@link #discardSendBatch()} if it was rolled back.
+	 */
+	public void beginSendBatch() {
+		batchedSends.set(new LinkedHashMap<>());
+	}
+
+	/**
+	 * Ends the batch of Events begun on the current thread, sending the Events created since it began and waiting for
+	 * them to be sent. Does nothing if no batch was begun.  As the transaction that created the Events has been 
+	 * committed, a failure to send an Event is logged rather than thrown, and the other Events are still sent.
+	 */
+	public void endSendBatch() {
+		Map<String, Supplier<Future<?>>> batch = batchedSends.get();
+		batchedSends.remove();
+		if (batch != null) {
+			Map<String, Future<?>> sent = new LinkedHashMap<>();
+			batch.forEach((eventId, send) -> {
+				try {
+					sent.put(eventId, send.get());
+				} catch (RuntimeException e) {
+					log.info("Failed to send {}: {}", eventId, e.getMessage(), e);
 				}
-			}, (ex) -> {
-				log.info("Failed to send {}: {}", event.getId().getStringValue(), ex.getMessage(), ex);
 			});
+			sent.forEach(this::awaitSend);
+		}
+	}
 
-			try {
-				result.get(30000, TimeUnit.MILLISECONDS);
-			} catch (InterruptedException|ExecutionException|TimeoutException e) {
-				log.info("Failed to send {}: {}", event.getId().getStringValue(), e.getMessage(), e);
-			}
+	/**
+	 * Ends the batch of Events begun on the current thread without sending them, because the transaction that created
+	 * them was rolled back. Does nothing if no batch was begun, or it has already ended.
+	 */
+	public void discardSendBatch() {
+		Map<String, Supplier<Future<?>>> batch = batchedSends.get();
+		batchedSends.remove();
+		if (batch != null && !batch.isEmpty()) {
+			log.debug("Discarded {} Events that were rolled back", batch.size());
 		}
+	}
 
-		return eventId;
+	/**
+	 * Waits for an Event to be sent, logging a failure to send it.
+	 *
+	 * @param eventId the id of the Event
+	 * @param result the result of sending it
+	 */
+	private void awaitSend(String eventId, Future<?> result) {
+		try {
+			result.get(30000, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException|ExecutionException|TimeoutException e) {
+			log.info("Failed to send {}: {}", eventId, e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Serializes the Event snapshot as a record header, if sending snapshots is enabled.  If the snapshot cannot be 
+	 * produced, the Event is sent without it, and consumers will need to read the DiSCOs and Agent themselves.
+	 *
+	 * @param event the new RMap Event
+	 * @param snapshot supplies the Event snapshot, may be null
+	 * @return the record headers, or null if there are none
+	 */
+	private List<Header> snapshotHeaders(ORMapEvent event, Supplier<RMapEventSnapshot> snapshot) {
+		if (!sendSnapshot || snapshot == null) {
+			return null;
+		}
+		try {
+			byte[] serialized = new GenericJvmObjectSerializer<RMapEventSnapshot>().serialize(topic, snapshot.get());
+			return singletonList(new RecordHeader(RMapEventSnapshot.KAFKA_HEADER, serialized));
+		} catch (RuntimeException e) {
+			log.info("Unable to produce a snapshot for {}, sending it without one: {}", 
+					event.getId().getStringValue(), e.getMessage(), e);
+			return null;
+		}
 	}
 	
 	/**
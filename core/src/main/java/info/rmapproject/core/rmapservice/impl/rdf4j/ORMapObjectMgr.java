@@ -28,12 +28,14 @@ import java.util.function.Supplier;
 
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import info.rmapproject.core.exception.RMapException;
 import info.rmapproject.core.exception.RMapObjectNotFoundException;
 import info.rmapproject.core.idservice.IdService;
+import info.rmapproject.core.model.RMapObjectType;
 import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore;
 import info.rmapproject.core.vocabulary.impl.rdf4j.RMAP;
 
@@ -56,6 +58,10 @@ public abstract class ORMapObjectMgr {
 	@Autowired
 	Supplier<URI> idSupplier;
 
+	/** The RMap types of IRIs, held in memory; may be null, in which case types are always looked up */
+	@Autowired(required = false)
+	ObjectTypeCache typeCache;
+
 	/**
 	 * Creates a triple in the RMap database
 	 *
@@ -65,6 +71,9 @@ public abstract class ORMapObjectMgr {
 	 */
 	public void createStatement(Rdf4jTriplestore ts, Statement stmt) throws RMapException {
 		try {
+			if (typeCache != null) {
+				typeCache.written(stmt);
+			}
 			ts.addStatement(stmt);
 		} catch (Exception e) {
 			throw new RMapException("Exception thrown creating triple from ORMapStatement: " + e.getMessage(), e);
@@ -84,31 +93,120 @@ public abstract class ORMapObjectMgr {
 		if (ts==null || id==null || typeIRI==null){
 			throw new RMapException("Null parameter passed");
 		}
+		if (typeCache != null) {
+			//an IRI has at most one RMap type, and it never changes
+			IRI cachedType = typeCache.getType(id);
+			if (cachedType != null) {
+				return cachedType.equals(typeIRI);
+			}
+			if (typeCache.isNeverWritten(id)) {
+				return false;
+			}
+		}
 		boolean isRmapType = false;
 		try {
-			if (ts.getConnection().size(id)>0) {
+			if (ts.hasContext(id)) {
 				//resource exists somewhere, lets find out where
-				if (ts.getConnection().hasStatement(id, RDF.TYPE, typeIRI, false, id)) {
+				if (ts.hasStatement(id, RDF.TYPE, typeIRI, id)) {
 					//it is of defined type!
-					return true;
+					isRmapType = true;
 				} 
 			} else if (typeIRI.equals(RMAP.DISCO)) {
 				//check events to see if it's a deleted DiSCO
-				Set<Statement> stmts = ts.getStatements(null, RMAP.DELETEDOBJECT, id);
-				for (Statement stmt : stmts) {
-					IRI subject = (IRI) stmt.getSubject();
-					IRI context = (IRI) stmt.getContext();
-					if (subject.equals(context) && this.isRMapType(ts, subject, RMAP.EVENT)) {
-						return true;
-					}						
-				}		
+				isRmapType = isDeletedDiSCO(ts, id);
 			}
 		} catch (Exception e) {
 			throw new RMapException ("Exception thrown searching for object " + id.stringValue(), e);
 		}		
+		if (isRmapType && typeCache != null && !ts.hasTransactionOpen()) {
+			//types found within a transaction may yet be rolled back
+			typeCache.putType(id, typeIRI);
+		}
 		return isRmapType;
 	}
 
+	/**
+	 * Looks up the RMap type of an IRI, reading the type statements of its named graph in one query rather than
+	 * checking for each type in turn.
+	 *
+	 * @param ts the triplestore instance
+	 * @param id the IRI to be checked
+	 * @return the RMap type of the IRI: DISCO, AGENT or EVENT; or null if the IRI is not an RMap object
+	 * @throws RMapException the RMap exception
+	 */
+	public RMapObjectType getRMapObjectType(Rdf4jTriplestore ts, IRI id) throws RMapException {
+		if (ts==null || id==null){
+			throw new RMapException("Null parameter passed");
+		}
+		if (typeCache != null) {
+			IRI cachedType = typeCache.getType(id);
+			if (cachedType != null) {
+				return objectType(cachedType);
+			}
+			if (typeCache.isNeverWritten(id)) {
+				return null;
+			}
+		}
+		IRI type = null;
+		try {
+			for (Statement stmt : ts.getStatements(id, RDF.TYPE, null, id)) {
+				Value object = stmt.getObject();
+				if (object.equals(RMAP.DISCO) || object.equals(RMAP.AGENT) || object.equals(RMAP.EVENT)) {
+					type = (IRI) object;
+					break;
+				}
+			}
+			if (type == null && isDeletedDiSCO(ts, id)) {
+				type = RMAP.DISCO;
+			}
+		} catch (Exception e) {
+			throw new RMapException ("Exception thrown searching for object " + id.stringValue(), e);
+		}
+		if (type == null) {
+			return null;
+		}
+		if (typeCache != null && !ts.hasTransactionOpen()) {
+			typeCache.putType(id, type);
+		}
+		return objectType(type);
+	}
+
+	/**
+	 * @param type an RMap type IRI
+	 * @return the corresponding RMap object type, or null if the IRI is not an RMap DiSCO, Agent or Event type
+	 */
+	private static RMapObjectType objectType(IRI type) {
+		if (RMAP.DISCO.equals(type)) {
+			return RMapObjectType.DISCO;
+		} else if (RMAP.AGENT.equals(type)) {
+			return RMapObjectType.AGENT;
+		} else if (RMAP.EVENT.equals(type)) {
+			return RMapObjectType.EVENT;
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether an IRI is that of a deleted DiSCO, whose named graph is gone but whose deletion is recorded by
+	 * an Event.
+	 *
+	 * @param ts the triplestore instance
+	 * @param id the IRI to be checked
+	 * @return true, if a deletion Event names the IRI as the deleted object
+	 * @throws RMapException the RMap exception
+	 */
+	private boolean isDeletedDiSCO(Rdf4jTriplestore ts, IRI id) throws RMapException {
+		Set<Statement> stmts = ts.getStatements(null, RMAP.DELETEDOBJECT, id);
+		for (Statement stmt : stmts) {
+			IRI subject = (IRI) stmt.getSubject();
+			IRI context = (IRI) stmt.getContext();
+			if (subject.equals(context) && this.isRMapType(ts, subject, RMAP.EVENT)) {
+				return true;
+			}						
+		}
+		return false;
+	}
+
 	/**
 	 * Confirm that IRI is a DiSCO IRI.
 	 *
@@ -158,7 +256,7 @@ public abstract class ORMapObjectMgr {
 	protected Set<Statement> getNamedGraph(IRI id, Rdf4jTriplestore ts) throws RMapObjectNotFoundException, RMapException {
 		Set<Statement> matchingTriples = null;
 		try {
-            if (ts.getConnection().size(id)>0) {
+            if (ts.hasContext(id)) {
                 matchingTriples = ts.getStatements(null, null, null, false, id);   
             }
 		} catch (Exception e) {
@@ -186,4 +284,12 @@ public abstract class ORMapObjectMgr {
 	public void setIdSupplier(Supplier<URI> idSupplier) {
 		this.idSupplier = idSupplier;
 	}
+
+	public ObjectTypeCache getTypeCache() {
+		return typeCache;
+	}
+
+	public void setTypeCache(ObjectTypeCache typeCache) {
+		this.typeCache = typeCache;
+	}
 }
@@ -26,6 +26,7 @@ import static info.rmapproject.core.utils.Terms.RMAP_DERIVEDOBJECT_PATH;
 import static info.rmapproject.core.utils.Terms.RMAP_EVENT_PATH;
 import static info.rmapproject.core.utils.Terms.RMAP_HASSOURCEOBJECT_PATH;
 import static info.rmapproject.core.utils.Terms.RMAP_LINEAGE_PROGENITOR_PATH;
+import static java.util.Collections.singletonMap;
 
 import java.net.URI;
 import java.util.ArrayList;
@@ -37,11 +38,10 @@ import java.util.Set;
 import java.util.TreeMap;
 
 import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.query.BindingSet;
-import org.eclipse.rdf4j.query.TupleQuery;
-import org.eclipse.rdf4j.query.TupleQueryResult;
-import org.eclipse.rdf4j.repository.RepositoryConnection;
 
+import info.rmapproject.core.exception.RMapException;
 import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore;
 
 /**
@@ -92,21 +92,15 @@ abstract class ORMapQueriesLineage {
      * @return URI of the progenitor, null if not present;
      */
     static URI findLineageProgenitor(URI disco, Rdf4jTriplestore ts) {
-        final RepositoryConnection c = ts.getConnection();
+        final List<BindingSet> result = query(QUERY_LINEAGE_SEARCH, BINDING_RESOURCE, disco, ts);
 
-        final TupleQuery q = c.prepareTupleQuery(QUERY_LINEAGE_SEARCH);
-
-        q.setBinding(BINDING_RESOURCE, c.getValueFactory().createIRI(disco.toString()));
-
-        try (TupleQueryResult result = q.evaluate()) {
-            if (result.hasNext()) {
-                final URI found = URI.create(result.next().getBinding(BINDING_LINEAGE).getValue().toString());
-                if (result.hasNext()) {
-                    throw new RuntimeException(String.format("Two lineages found for resource <>: <> and <>",
-                            disco, found, result.next().getBinding(BINDING_LINEAGE).toString()));
-                }
-                return found;
+        if (!result.isEmpty()) {
+            final URI found = URI.create(result.get(0).getBinding(BINDING_LINEAGE).getValue().toString());
+            if (result.size() > 1) {
+                throw new RuntimeException(String.format("Two lineages found for resource <>: <> and <>",
+                        disco, found, result.get(1).getBinding(BINDING_LINEAGE).toString()));
             }
+            return found;
         }
 
         return null;
@@ -115,15 +109,9 @@ abstract class ORMapQueriesLineage {
     static Set<URI> findDerivativesfrom(URI disco, Rdf4jTriplestore ts) {
 
         final Set<URI> derivatives = new HashSet<>();
-        final RepositoryConnection c = ts.getConnection();
-        final TupleQuery q = c.prepareTupleQuery(QUERY_FIND_DERIVATIVES);
 
-        q.setBinding(BINDING_LINEAGE, c.getValueFactory().createIRI(disco.toString()));
-
-        try (TupleQueryResult result = q.evaluate()) {
-            while (result.hasNext()) {
-                derivatives.add(URI.create(result.next().getBinding(BINDING_RESOURCE).getValue().toString()));
-            }
+        for (final BindingSet result : query(QUERY_FIND_DERIVATIVES, BINDING_LINEAGE, disco, ts)) {
+            derivatives.add(URI.create(result.getBinding(BINDING_RESOURCE).getValue().toString()));
         }
 
         return derivatives;
@@ -133,21 +121,13 @@ abstract class ORMapQueriesLineage {
 
         final Map<Date, URI> members = new TreeMap<>();
 
-        final RepositoryConnection c = ts.getConnection();
-        final TupleQuery q = c.prepareTupleQuery(QUERY_GET_LINEAGE_MEMBERS);
+        for (final BindingSet val : query(QUERY_GET_LINEAGE_MEMBERS, BINDING_LINEAGE, progenitor, ts)) {
 
-        q.setBinding(BINDING_LINEAGE, c.getValueFactory().createIRI(progenitor.toString()));
+            final Date date = new Date(((Literal) val.getValue(BINDING_DATE)).calendarValue()
+                    .toGregorianCalendar()
+                    .getTimeInMillis());
 
-        try (TupleQueryResult result = q.evaluate()) {
-            while (result.hasNext()) {
-                final BindingSet val = result.next();
-
-                final Date date = new Date(((Literal) val.getValue(BINDING_DATE)).calendarValue()
-                        .toGregorianCalendar()
-                        .getTimeInMillis());
-
-                members.put(date, URI.create(val.getValue(BINDING_RESOURCE).toString()));
-            }
+            members.put(date, URI.create(val.getValue(BINDING_RESOURCE).toString()));
         }
 
         return members;
@@ -157,4 +137,25 @@ abstract class ORMapQueriesLineage {
 
         return new ArrayList<>(getLineageMembersWithDates(progenitor, ts).values());
     }
+
+    /**
+     * Evaluates a lineage query through the triplestore, rather than its connection, so that a triplestore that
+     * spans more than one repository can evaluate it against each of them.
+     *
+     * @param query the query
+     * @param binding the name of the variable bound to {@code value}
+     * @param value the value of the bound variable
+     * @param ts the triplestore
+     * @return the query results
+     */
+    private static List<BindingSet> query(String query, String binding, URI value, Rdf4jTriplestore ts) {
+        try {
+            return ts.getSPARQLQueryResults(query,
+                    singletonMap(binding, SimpleValueFactory.getInstance().createIRI(value.toString())));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RMapException("Could not retrieve SPARQL query results", e);
+        }
+    }
 }
@@ -33,9 +33,11 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Statement;
@@ -51,10 +53,13 @@ import org.springframework.stereotype.Component;
 import info.rmapproject.core.exception.RMapAgentNotFoundException;
 import info.rmapproject.core.exception.RMapDefectiveArgumentException;
 import info.rmapproject.core.exception.RMapDiSCONotFoundException;
+import info.rmapproject.core.exception.RMapDuplicateDiSCOException;
 import info.rmapproject.core.exception.RMapEventNotFoundException;
 import info.rmapproject.core.exception.RMapException;
 import info.rmapproject.core.exception.RMapObjectNotFoundException;
 import info.rmapproject.core.idservice.IdService;
+import info.rmapproject.core.model.RMapDelta;
+import info.rmapproject.core.model.RMapObjectType;
 import info.rmapproject.core.model.RMapStatus;
 import info.rmapproject.core.model.RMapTriple;
 import info.rmapproject.core.model.RMapValue;
@@ -64,12 +69,14 @@ import info.rmapproject.core.model.event.RMapEvent;
 import info.rmapproject.core.model.impl.rdf4j.ORAdapter;
 import info.rmapproject.core.model.impl.rdf4j.ORMapAgent;
 import info.rmapproject.core.model.impl.rdf4j.ORMapDiSCO;
+import info.rmapproject.core.model.request.DiSCOCreateResult;
 import info.rmapproject.core.model.request.RequestEventDetails;
 import info.rmapproject.core.model.request.RMapSearchParams;
 import info.rmapproject.core.model.request.RMapSearchParamsFactory;
 import info.rmapproject.core.model.request.ResultBatch;
 import info.rmapproject.core.model.request.ResultBatchImpl;
 import info.rmapproject.core.rmapservice.RMapService;
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jReplicaTriplestore;
 import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore;
 
 /**
@@ -104,10 +111,21 @@ public class ORMapService implements RMapService {
 	 * across a single interaction */
 	private Rdf4jTriplestore triplestore;
 
+	/** Read replicas of the triplestore, which serve reads that are not affected by a recent write. May be null, 
+	 * in which case all reads are served by the primary triplestore */
+	private Rdf4jReplicaTriplestore readTriplestore;
+
 	private RMapSearchParamsFactory paramsFactory;
 
 	private IdService idService;
 
+	/** The number of DiSCOs committed together when creating several at once */
+	private int bulkChunkSize = 500;
+
+	/** Merges DiSCO writes into group commits when enabled. May be null, in which case each write is committed in
+	 * its own transaction */
+	private WriteCoordinator writeCoordinator;
+
 	/**
 	 * Instantiates a new RMap Service using the various managers
 	 *
@@ -139,6 +157,94 @@ public class ORMapService implements RMapService {
 	}
 	
 	
+	/**
+	 * Sets the read replicas of the triplestore. Reads are served by the replicas unless the staleness policy of the 
+	 * replicas requires the primary triplestore. Writes, including the reads made by the managers while writing, are 
+	 * always made against the primary triplestore.
+	 * @param readTriplestore the read replicas, or null to serve all reads from the primary triplestore
+	 */
+	@Autowired(required = false)
+	public void setReadTriplestore(Rdf4jReplicaTriplestore readTriplestore) {
+		this.readTriplestore = readTriplestore;
+	}
+
+	/**
+	 * Sets the number of DiSCOs committed together when creating several at once.
+	 * @param bulkChunkSize the number of DiSCOs per transaction
+	 */
+	@org.springframework.beans.factory.annotation.Value("${rmapcore.bulk.chunkSize:500}")
+	public void setBulkChunkSize(int bulkChunkSize) {
+		if (bulkChunkSize < 1) {
+			throw new IllegalArgumentException("Bulk chunk size must be a positive integer.");
+		}
+		this.bulkChunkSize = bulkChunkSize;
+	}
+
+	/**
+	 * Sets the write coordinator, which merges the DiSCO creates and updates of concurrent requests into group commits
+	 * when group commit is enabled.
+	 * @param writeCoordinator the write coordinator, or null to commit each write in its own transaction
+	 */
+	@Autowired(required = false)
+	public void setWriteCoordinator(WriteCoordinator writeCoordinator) {
+		this.writeCoordinator = writeCoordinator;
+	}
+
+	/**
+	 * Runs a write against the primary triplestore: in a group commit with the writes of other requests if group 
+	 * commit is enabled, otherwise in the transaction opened and committed by the managers.
+	 * @param write the write
+	 * @return the result of the write
+	 */
+	private <T> T write(WriteCoordinator.Write<T> write) throws RMapException, RMapDefectiveArgumentException {
+		if (writeCoordinator!=null && writeCoordinator.isEnabled()) {
+			return writeCoordinator.write(write);
+		}
+		return write.apply(triplestore);
+	}
+
+	/**
+	 * Gets the triplestore to serve a read from: the read replicas if they are configured and none of the ids 
+	 * identifies an object written too recently to have reached them, otherwise the primary triplestore.
+	 * @param ids the ids of the objects being read
+	 * @return the triplestore
+	 */
+	private Rdf4jTriplestore reader(URI... ids) {
+		if (readTriplestore==null || readTriplestore.getPool().isStale(ids)) {
+			return triplestore;
+		}
+		return readTriplestore;
+	}
+
+	/**
+	 * Gets the triplestore to serve a read that is not keyed by the objects it depends on, such as a read of the 
+	 * DiSCOs related to a resource or of the versions of a DiSCO: the read replicas if they are configured and 
+	 * nothing has been written too recently to have reached them, otherwise the primary triplestore.
+	 * @return the triplestore
+	 */
+	private Rdf4jTriplestore unkeyedReader() {
+		if (readTriplestore==null || readTriplestore.getPool().isAnyWriteRecent()) {
+			return triplestore;
+		}
+		return readTriplestore;
+	}
+
+	/**
+	 * Records a successful write, so that reads of the objects written are served by the primary triplestore until
+	 * the write is assumed to have reached the read replicas.
+	 * @param event the event recording the write
+	 * @param reqEventDetails the details of the request, identifying the Agent that made the write
+	 * @param ids the ids of the objects written
+	 */
+	private void written(RMapEvent event, RequestEventDetails reqEventDetails, URI... ids) {
+		if (readTriplestore!=null) {
+			readTriplestore.getPool().written(ids);
+			readTriplestore.getPool().written(
+					(event!=null && event.getId()!=null) ? event.getId().getIri() : null,
+					(reqEventDetails!=null) ? reqEventDetails.getSystemAgent() : null);
+		}
+	}
+	
 	/**
 	 * Closes triplestore connection if still open. Do this after each set of queries to triplestore
 	 * @throws RMapException
@@ -148,6 +254,9 @@ public class ORMapService implements RMapService {
 			if (triplestore!=null) {
 				triplestore.closeConnection();
 			}
+			if (readTriplestore!=null) {
+				readTriplestore.closeConnection();
+			}
 		}
 		catch(Exception e)  {
             throw new RMapException("Could not close connection");
@@ -190,9 +299,9 @@ public class ORMapService implements RMapService {
 			params.setCheckNext(true);
 			
 			if (context!=null){
-				stmts = resourcemgr.getRelatedTriples(mIri, mContextIri, params, triplestore);
+				stmts = resourcemgr.getRelatedTriples(mIri, mContextIri, params, unkeyedReader());
 			} else {
-				stmts = resourcemgr.getRelatedTriples(mIri, params, triplestore); 
+				stmts = resourcemgr.getRelatedTriples(mIri, params, unkeyedReader()); 
 			}
 			
 			List<RMapTriple> triples = new ArrayList<RMapTriple>();
@@ -226,7 +335,7 @@ public class ORMapService implements RMapService {
 			throws RMapException, RMapDefectiveArgumentException {
 		try {
 			UriBatchRequest uriBatchReq = (iri, prms, triplestore) -> resourcemgr.getResourceRelatedEvents(iri, prms, triplestore);
-			return getUriBatch(uri,params,uriBatchReq);
+			return getUriBatch(uri,params,uriBatchReq,unkeyedReader());
 		} finally {
 			closeConnection();
 		}
@@ -240,7 +349,7 @@ public class ORMapService implements RMapService {
 			throws RMapException, RMapDefectiveArgumentException {
 		try {
 			UriBatchRequest uriBatchReq = (iri, prms, triplestore) -> resourcemgr.getResourceRelatedDiSCOS(iri, prms, triplestore);
-			return getUriBatch(uri,params,uriBatchReq);
+			return getUriBatch(uri,params,uriBatchReq,unkeyedReader());
 		} finally {
 			closeConnection();
 		}
@@ -254,7 +363,7 @@ public class ORMapService implements RMapService {
 			throws RMapException, RMapDefectiveArgumentException {
 		try {
 			UriBatchRequest uriBatchReq = (iri, prms, triplestore) -> resourcemgr.getResourceAssertingAgents(iri, prms, triplestore);
-			return getUriBatch(uri,params,uriBatchReq);
+			return getUriBatch(uri,params,uriBatchReq,unkeyedReader());
 		} finally {
 			closeConnection();
 		}
@@ -276,7 +385,7 @@ public class ORMapService implements RMapService {
 		org.eclipse.rdf4j.model.IRI contextIri = uri2Rdf4jIri(contextUri);
 
 		try {
-			List<org.eclipse.rdf4j.model.IRI> uris = resourcemgr.getResourceRdfTypes(resourceIri, contextIri, triplestore);
+			List<org.eclipse.rdf4j.model.IRI> uris = resourcemgr.getResourceRdfTypes(resourceIri, contextIri, unkeyedReader());
 			if (uris == null){
 				return null;
 			}
@@ -304,7 +413,7 @@ public class ORMapService implements RMapService {
 		IRI rUri = uri2Rdf4jIri(resourceUri);
 		Map<URI, Set<URI>> map = null;
 		try {
-			Map<IRI, Set<IRI>> typesMap = resourcemgr.getResourceRdfTypesAllContexts(rUri, params, triplestore);
+			Map<IRI, Set<IRI>> typesMap = resourcemgr.getResourceRdfTypesAllContexts(rUri, params, unkeyedReader());
 			if (typesMap != null && typesMap.keySet().size()>0){
 				map = new HashMap<URI, Set<URI>>();
 				for (IRI uri : typesMap.keySet()){
@@ -350,7 +459,7 @@ public class ORMapService implements RMapService {
 			throw new RMapDefectiveArgumentException("Null DiSCO id provided");
 		}
 		try {
-			ORMapDiSCO disco = discomgr.readDiSCO(uri2Rdf4jIri(discoID), triplestore);
+			ORMapDiSCO disco = discomgr.readDiSCO(uri2Rdf4jIri(discoID), reader(discoID));
 			return disco;
 		} finally {
 			closeConnection();
@@ -373,7 +482,8 @@ public class ORMapService implements RMapService {
 			throw new RMapDefectiveArgumentException("disco not instance of ORMapDiSCO");
 		}
 		try {
-			RMapEvent createEvent = discomgr.createDiSCO((ORMapDiSCO)disco, reqEventDetails, triplestore);
+			RMapEvent createEvent = write(ts -> discomgr.createDiSCO((ORMapDiSCO)disco, reqEventDetails, ts));
+			written(createEvent, reqEventDetails, disco.getId().getIri());
 			return createEvent;			
 		} finally {
 			closeConnection();
@@ -381,6 +491,98 @@ public class ORMapService implements RMapService {
 	}
 
 
+	/* (non-Javadoc)
+	 * @see info.rmapproject.core.rmapservice.RMapService#createDiSCOs(java.util.List, RequestEventDetails)
+	 */
+	@Override
+	public List<DiSCOCreateResult> createDiSCOs(List<RMapDiSCO> discos, RequestEventDetails reqEventDetails)
+			throws RMapException, RMapDefectiveArgumentException {
+		List<DiSCOCreateResult> results = new ArrayList<DiSCOCreateResult>();
+		createDiSCOs(discos, reqEventDetails, results::add);
+		return results;
+	}
+
+	/* (non-Javadoc)
+	 * @see info.rmapproject.core.rmapservice.RMapService#createDiSCOs(java.util.List, RequestEventDetails, java.util.function.Consumer)
+	 */
+	@Override
+	public void createDiSCOs(List<RMapDiSCO> discos, RequestEventDetails reqEventDetails, 
+			Consumer<DiSCOCreateResult> results) throws RMapException, RMapDefectiveArgumentException {
+		if (discos==null){
+			throw new RMapDefectiveArgumentException("Null DiSCOs provided");
+		}
+		if (reqEventDetails==null){
+			throw new RMapDefectiveArgumentException("Null reqEventDetails provided");
+		}
+		if (results==null){
+			throw new RMapDefectiveArgumentException("Null results consumer provided");
+		}
+		for (RMapDiSCO disco : discos) {
+			if (!(disco instanceof ORMapDiSCO)){
+				throw new RMapDefectiveArgumentException("disco not instance of ORMapDiSCO");
+			}
+		}
+		//each new DiSCO starts a lineage, so each is written in its own transaction if transactions are per lineage
+		int chunkSize = triplestore.supportsMultiLineageTransactions() ? bulkChunkSize : 1;
+		try {
+			for (int start = 0; start < discos.size(); start += chunkSize) {
+				List<RMapDiSCO> chunk = discos.subList(start, Math.min(start + chunkSize, discos.size()));
+				createDiSCOChunk(chunk, reqEventDetails).forEach(results);
+			}
+		} finally {
+			closeConnection();
+		}
+	}
+
+	/**
+	 * Creates a chunk of DiSCOs in a single transaction, sending their creation Events together once the chunk has 
+	 * been committed. A DiSCO that is rejected before any of its statements are written, as a duplicate or 
+	 * for a defective argument, fails alone; any other error rolls back the transaction and fails the whole chunk.
+	 * @param chunk the DiSCOs
+	 * @param reqEventDetails client provided event information
+	 * @return the results, in the order of the DiSCOs
+	 */
+	private List<DiSCOCreateResult> createDiSCOChunk(List<RMapDiSCO> chunk, RequestEventDetails reqEventDetails) {
+		List<DiSCOCreateResult> results = new ArrayList<DiSCOCreateResult>(chunk.size());
+		eventmgr.beginSendBatch();
+		try {
+			triplestore.beginTransaction();
+			for (RMapDiSCO disco : chunk) {
+				try {
+					//the transaction is open, so the DiSCO manager leaves it to be committed with the chunk
+					RMapEvent createEvent = discomgr.createDiSCO((ORMapDiSCO)disco, reqEventDetails, triplestore);
+					results.add(DiSCOCreateResult.created(disco, createEvent));
+				} catch (RMapDuplicateDiSCOException | RMapDefectiveArgumentException ex) {
+					results.add(DiSCOCreateResult.failed(disco, ex));
+				}
+			}
+			triplestore.commitTransaction();
+			eventmgr.endSendBatch();
+		} catch (RMapException | RepositoryException ex) {
+			LOG.info("Could not create a chunk of {} DiSCOs, rolling it back: {}", chunk.size(), ex.getMessage());
+			RMapException error = (ex instanceof RMapException) ? (RMapException) ex 
+					: new RMapException("Exception thrown committing new triples to triplestore: " + ex.getMessage(), ex);
+			try {
+				triplestore.rollbackTransaction();
+			} catch(RepositoryException rollbackException) {
+				error = new RMapException("Could not rollback changes after error. Please check your DiSCO records for errors.", ex);
+			}
+			results.clear();
+			for (RMapDiSCO disco : chunk) {
+				results.add(DiSCOCreateResult.failed(disco, error));
+			}
+		} finally {
+			//drops the Events of a chunk that was not committed
+			eventmgr.discardSendBatch();
+		}
+		for (DiSCOCreateResult result : results) {
+			if (result.isCreated()) {
+				written(result.getEvent(), reqEventDetails, result.getDiscoId());
+			}
+		}
+		return results;
+	}
+
 	/* (non-Javadoc)
 	 * @see info.rmapproject.core.rmapservice.RMapService#getDiSCOStatus(java.net.URI)
 	 */
@@ -390,7 +592,7 @@ public class ORMapService implements RMapService {
 			throw new RMapDefectiveArgumentException("Null DiSCO id provided");
 		}
 		try {
-			RMapStatus status = discomgr.getDiSCOStatus(uri2Rdf4jIri(discoId), triplestore);
+			RMapStatus status = discomgr.getDiSCOStatus(uri2Rdf4jIri(discoId), reader(discoId));
 			return status;
 		} finally {
 			closeConnection();
@@ -418,12 +620,55 @@ public class ORMapService implements RMapService {
 
 		RMapEvent updateEvent = null;
 		try {
-			updateEvent = discomgr.updateDiSCO(
+			updateEvent = write(ts -> discomgr.updateDiSCO(
 										uri2Rdf4jIri(oldDiscoId),
 										(ORMapDiSCO)disco, 
 										reqEventDetails,
 										false, 
-										triplestore);
+										ts));
+			written(updateEvent, reqEventDetails, oldDiscoId, disco.getId().getIri());
+		} catch (RMapException | RMapDefectiveArgumentException ex) {
+			try {
+				//there has been an error during an update so try to rollback the transaction
+				triplestore.rollbackTransaction();
+			} catch(RepositoryException rollbackException) {
+				throw new RMapException("Could not rollback changes after error. Please check your DiSCO record for errors.", ex);
+			}
+			throw ex;	
+		}	finally {
+			closeConnection();
+		}
+		
+		return updateEvent;
+	}
+
+	/* (non-Javadoc)
+	 * @see info.rmapproject.core.rmapservice.RMapService#updateDiSCO(java.net.URI, RMapDelta, RequestEventDetails)
+	 */
+	@Override
+	public RMapEvent updateDiSCO(URI oldDiscoId, RMapDelta delta, RequestEventDetails reqEventDetails)
+			throws RMapException, RMapDefectiveArgumentException {
+		if (reqEventDetails==null){
+			throw new RMapDefectiveArgumentException ("Null reqEventDetails");
+		}
+		if (oldDiscoId==null){
+			throw new RMapDefectiveArgumentException ("Null id for old DiSCO");
+		}
+		if (delta==null || delta.isEmpty()){
+			throw new RMapDefectiveArgumentException ("Null or empty delta");
+		}
+
+		RMapEvent updateEvent = null;
+		try {
+			Set<Statement> removals = rmapTriples2Rdf4jStatements(delta.getRemovals());
+			Set<Statement> additions = rmapTriples2Rdf4jStatements(delta.getAdditions());
+			//the delta is applied in the same write as the update, so that it applies to the version being updated
+			ORMapDiSCO[] disco = new ORMapDiSCO[1];
+			updateEvent = write(ts -> {
+				disco[0] = discomgr.applyDelta(uri2Rdf4jIri(oldDiscoId), removals, additions, ts);
+				return discomgr.updateDiSCO(uri2Rdf4jIri(oldDiscoId), disco[0], reqEventDetails, false, ts);
+			});
+			written(updateEvent, reqEventDetails, oldDiscoId, disco[0].getId().getIri());
 		} catch (RMapException | RMapDefectiveArgumentException ex) {
 			try {
 				//there has been an error during an update so try to rollback the transaction
@@ -439,6 +684,20 @@ public class ORMapService implements RMapService {
 		return updateEvent;
 	}
 
+	/**
+	 * Converts RMap triples to RDF4J statements.
+	 *
+	 * @param triples the RMap triples
+	 * @return the statements
+	 */
+	private static Set<Statement> rmapTriples2Rdf4jStatements(List<RMapTriple> triples) {
+		Set<Statement> stmts = new HashSet<Statement>();
+		for (RMapTriple triple : triples) {
+			stmts.add(ORAdapter.rmapTriple2Rdf4jStatement(triple));
+		}
+		return stmts;
+	}
+
 	/* (non-Javadoc)
 	 * @see info.rmapproject.core.rmapservice.RMapService#inactivateDiSCO(java.net.URI, java.net.URI)
 	 */
@@ -455,6 +714,7 @@ public class ORMapService implements RMapService {
 		RMapEvent inactivateEvent = null;
 		try {
 			inactivateEvent = discomgr.updateDiSCO(uri2Rdf4jIri(oldDiscoId), null, reqEventDetails, true, triplestore);
+			written(inactivateEvent, reqEventDetails, oldDiscoId);
 		} catch (RMapException | RMapDefectiveArgumentException ex) {
 			try {
 				//there has been an error during an update so try to rollback the transaction
@@ -484,6 +744,7 @@ public class ORMapService implements RMapService {
 		RMapEvent tombstoneEvent = null;
 		try {
 			tombstoneEvent = discomgr.tombstoneDiSCO(uri2Rdf4jIri(discoID), reqEventDetails, triplestore);
+			written(tombstoneEvent, reqEventDetails, discoID);
 		} catch (RMapException ex) {
 			try {
 				//there has been an error during an update so try to rollback the transaction
@@ -514,6 +775,7 @@ public class ORMapService implements RMapService {
 		RMapEvent deleteEvent = null;
 		try {
 			deleteEvent = discomgr.deleteDiSCO(uri2Rdf4jIri(discoID), requestEventDets, triplestore);
+			written(deleteEvent, requestEventDets, discoID);
 		} catch (RMapException ex) {
 			try {
 				//there has been an error during an update so try to rollback the transaction
@@ -537,13 +799,14 @@ public class ORMapService implements RMapService {
 			throw new RMapDefectiveArgumentException ("Null DiSCO id");
 		}
 		try {
-		    final URI lineage = findLineageProgenitor(discoID, triplestore);
+		    final Rdf4jTriplestore ts = unkeyedReader();
+		    final URI lineage = findLineageProgenitor(discoID, ts);
 		    final List<URI> discos = new ArrayList<>();
 		            
-		    discos.addAll(getLineageMembers(lineage, triplestore));
+		    discos.addAll(getLineageMembers(lineage, ts));
 		    
-		    for (final URI derivative : findDerivativesfrom(lineage, triplestore)) {
-		        discos.addAll(getLineageMembers(derivative, triplestore));
+		    for (final URI derivative : findDerivativesfrom(lineage, ts)) {
+		        discos.addAll(getLineageMembers(derivative, ts));
 		    }
 		    
 		    return discos;
@@ -559,7 +822,8 @@ public class ORMapService implements RMapService {
 			throw new RMapDefectiveArgumentException ("Null DiSCO id");
 		}
 		try {
-			return getLineageMembers(findLineageProgenitor(discoID, triplestore), triplestore);
+			final Rdf4jTriplestore ts = unkeyedReader();
+			return getLineageMembers(findLineageProgenitor(discoID, ts), ts);
 		} finally {
 			closeConnection();
 		}
@@ -572,7 +836,8 @@ public class ORMapService implements RMapService {
 			throw new RMapDefectiveArgumentException ("Null DiSCO id");
 		}
 		try {
-			return getLineageMembersWithDates(findLineageProgenitor(discoID, triplestore), triplestore);
+			final Rdf4jTriplestore ts = unkeyedReader();
+			return getLineageMembersWithDates(findLineageProgenitor(discoID, ts), ts);
 		} finally {
 			closeConnection();
 		}
@@ -585,7 +850,8 @@ public class ORMapService implements RMapService {
 			throw new RMapDefectiveArgumentException ("Null DiSCO id");
 		}
 		try {
-            final List<URI> members = getLineageMembers(findLineageProgenitor(discoID, triplestore), triplestore);
+            final Rdf4jTriplestore ts = unkeyedReader();
+            final List<URI> members = getLineageMembers(findLineageProgenitor(discoID, ts), ts);
 			return members.get(members.size() - 1);
 		} finally {
 			closeConnection();
@@ -601,7 +867,8 @@ public class ORMapService implements RMapService {
 		}
 
 		try {
-		    final List<URI> members = getLineageMembers(findLineageProgenitor(discoID, triplestore), triplestore);
+		    final Rdf4jTriplestore ts = unkeyedReader();
+		    final List<URI> members = getLineageMembers(findLineageProgenitor(discoID, ts), ts);
             final int i = members.indexOf(discoID);
             return i - 1 > 0 ? members.get(i - 1) : null;
 		} finally {
@@ -617,7 +884,8 @@ public class ORMapService implements RMapService {
 		}
 
 		try {
-		    final List<URI> members = getLineageMembers(findLineageProgenitor(discoID, triplestore), triplestore);
+		    final Rdf4jTriplestore ts = unkeyedReader();
+		    final List<URI> members = getLineageMembers(findLineageProgenitor(discoID, ts), ts);
 		    final int i = members.indexOf(discoID);
 		    return i + 1 < members.size() ? members.get(i + 1) : null;
 		} finally {
@@ -634,7 +902,7 @@ public class ORMapService implements RMapService {
 			throw new RMapDefectiveArgumentException ("Null DiSCO id");
 		}
 		try {
-			List<IRI> events = eventmgr.getDiscoRelatedEventIds(uri2Rdf4jIri(discoID), triplestore);
+			List<IRI> events = eventmgr.getDiscoRelatedEventIds(uri2Rdf4jIri(discoID), reader(discoID));
 			List<URI> uris = ORAdapter.rdf4jIriList2UriList(events);
 			return uris;
 		} finally {
@@ -652,7 +920,7 @@ public class ORMapService implements RMapService {
 			throw new RMapDefectiveArgumentException ("Null event id");
 		}
 		try {
-			return eventmgr.readEvent(uri2Rdf4jIri(eventId), triplestore);
+			return eventmgr.readEvent(uri2Rdf4jIri(eventId), reader(eventId));
 		} finally {
 			closeConnection();
 		}
@@ -667,7 +935,7 @@ public class ORMapService implements RMapService {
 			throw new RMapDefectiveArgumentException ("Null event id");
 		}
 		try {
-			List<IRI> resources = eventmgr.getAffectedResources(uri2Rdf4jIri(eventID), triplestore);
+			List<IRI> resources = eventmgr.getAffectedResources(uri2Rdf4jIri(eventID), reader(eventID));
 			List<URI> resourceIds = ORAdapter.rdf4jIriList2UriList(resources);
 			return resourceIds;
 		} finally {
@@ -684,7 +952,7 @@ public class ORMapService implements RMapService {
 			throw new RMapDefectiveArgumentException ("Null event id");
 		}
 		try {
-			List<IRI> discos = eventmgr.getAffectedDiSCOs(uri2Rdf4jIri(eventID), triplestore);
+			List<IRI> discos = eventmgr.getAffectedDiSCOs(uri2Rdf4jIri(eventID), reader(eventID));
 			List<URI> discoIds = ORAdapter.rdf4jIriList2UriList(discos);
 			return discoIds;
 		} finally {
@@ -701,7 +969,7 @@ public class ORMapService implements RMapService {
 			throw new RMapDefectiveArgumentException ("Null event id");
 		}
 		try {
-			List<IRI> agents = eventmgr.getAffectedAgents(uri2Rdf4jIri(eventID), triplestore);
+			List<IRI> agents = eventmgr.getAffectedAgents(uri2Rdf4jIri(eventID), reader(eventID));
 			List<URI> agentIds = ORAdapter.rdf4jIriList2UriList(agents);
 			return agentIds;
 		} finally {
@@ -719,7 +987,7 @@ public class ORMapService implements RMapService {
 			throw new RMapDefectiveArgumentException("Null agentid");
 		}
 		try {
-			ORMapAgent agent = agentmgr.readAgent(uri2Rdf4jIri(agentId), triplestore);
+			ORMapAgent agent = agentmgr.readAgent(uri2Rdf4jIri(agentId), reader(agentId));
 			return agent;
 		} finally {
 			closeConnection();
@@ -745,6 +1013,7 @@ public class ORMapService implements RMapService {
 		try {
 			ORMapAgent orAgent = (ORMapAgent)agent;
 			event = agentmgr.createAgent(orAgent, reqEventDetails, triplestore);
+			written(event, reqEventDetails, agent.getId().getIri());
 		} catch (RMapException ex) {
 			try {
 				LOG.warn("Encountered error creating agent {}: {}", agent, ex.getMessage(), ex);
@@ -846,6 +1115,7 @@ public class ORMapService implements RMapService {
 		try{
 			ORMapAgent orAgent = (ORMapAgent)agent;
 			event = agentmgr.updateAgent(orAgent, reqEventDetails, triplestore);
+			written(event, reqEventDetails, agent.getId().getIri());
 		} catch (RMapException ex) {
 			try {
 				//there has been an error during an update so try to rollback the transaction
@@ -899,7 +1169,7 @@ public class ORMapService implements RMapService {
 			RMapDefectiveArgumentException {
 		try {
 			UriBatchRequest uriBatchReq = (iri, prms, triplestore) -> agentmgr.getAgentDiSCOs(iri, prms, triplestore);
-			return getUriBatch(agentId,params,uriBatchReq);
+			return getUriBatch(agentId,params,uriBatchReq,reader(agentId));
 		} finally {
 			closeConnection();
 		}
@@ -916,7 +1186,7 @@ public class ORMapService implements RMapService {
 			throw new RMapDefectiveArgumentException("Null agentId");
 		}
 		try {
-			List<IRI> eventset = eventmgr.getAgentRelatedEventIds(uri, triplestore);		
+			List<IRI> eventset = eventmgr.getAgentRelatedEventIds(uri, reader(agentId));		
 			List <URI> eventUris = ORAdapter.rdf4jIriList2UriList(eventset);
 			return eventUris;
 		} finally {
@@ -932,7 +1202,7 @@ public class ORMapService implements RMapService {
 			RMapDefectiveArgumentException, RMapAgentNotFoundException {
 		try {
 			UriBatchRequest uriBatchReq = (iri, prms, triplestore) -> agentmgr.getAgentEventsInitiated(iri, prms, triplestore);
-			return getUriBatch(agentId, params, uriBatchReq);
+			return getUriBatch(agentId, params, uriBatchReq, reader(agentId));
 		} finally {
 			closeConnection();
 		}
@@ -948,7 +1218,7 @@ public class ORMapService implements RMapService {
 		}
 		IRI id = uri2Rdf4jIri(agentId);
 		try {
-			RMapStatus status = agentmgr.getAgentStatus(id, triplestore);
+			RMapStatus status = agentmgr.getAgentStatus(id, reader(agentId));
 			return status;
 		} finally {
 			closeConnection();
@@ -966,7 +1236,7 @@ public class ORMapService implements RMapService {
 		}
 		IRI id = uri2Rdf4jIri(agentId);
 		try {
-			boolean isAgentId = agentmgr.isAgentId(id, triplestore);
+			boolean isAgentId = agentmgr.isAgentId(id, reader(agentId));
 			return isAgentId;
 		} finally {
 			closeConnection();
@@ -983,7 +1253,7 @@ public class ORMapService implements RMapService {
 		}
 		IRI id = uri2Rdf4jIri(eventId);
 		try {
-			boolean isEventId = eventmgr.isEventId(id, triplestore);
+			boolean isEventId = eventmgr.isEventId(id, reader(eventId));
 			return isEventId;
 		} finally {
 			closeConnection();
@@ -1000,13 +1270,28 @@ public class ORMapService implements RMapService {
 		}
 		IRI id = uri2Rdf4jIri(discoId);
 		try {
-			boolean isDiSCOId = discomgr.isDiscoId(id, triplestore);
+			boolean isDiSCOId = discomgr.isDiscoId(id, reader(discoId));
 			return isDiSCOId;
 		} finally {
 			closeConnection();
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see info.rmapproject.core.rmapservice.RMapService#getRMapObjectType(java.net.URI)
+	 */
+	@Override
+	public RMapObjectType getRMapObjectType(URI id) throws RMapException, RMapDefectiveArgumentException {
+		if (id==null){
+			throw new RMapDefectiveArgumentException ("Null ID");
+		}
+		try {
+			return resourcemgr.getRMapObjectType(uri2Rdf4jIri(id), reader(id));
+		} finally {
+			closeConnection();
+		}
+	}
+
 
 	/**
 	 * Functional interface to support passing of method name to getUriBatch function
@@ -1022,9 +1307,10 @@ public class ORMapService implements RMapService {
 	 * @param uri
 	 * @param params
 	 * @param queryType
+	 * @param ts the triplestore to read from
 	 * @return URI ResultBatch
 	 */
-	private ResultBatch<URI> getUriBatch(URI uri, RMapSearchParams params, UriBatchRequest uriBatchRequest)
+	private ResultBatch<URI> getUriBatch(URI uri, RMapSearchParams params, UriBatchRequest uriBatchRequest, Rdf4jTriplestore ts)
 			throws RMapException, RMapDefectiveArgumentException {
 		if (uri==null){
 			throw new RMapDefectiveArgumentException("Null URI");
@@ -1038,7 +1324,7 @@ public class ORMapService implements RMapService {
 		params.setCheckNext(true);
 		
 		try {
-			List<org.eclipse.rdf4j.model.IRI> iris = uriBatchRequest.retrieve(resource, params, triplestore);
+			List<org.eclipse.rdf4j.model.IRI> iris = uriBatchRequest.retrieve(resource, params, ts);
 			
 			List<URI> uris = ORAdapter.rdf4jIriList2UriList(iris);
 			
@@ -1099,7 +1385,7 @@ public class ORMapService implements RMapService {
 		params.setCheckNext(true);
 
 		try {
-			List<org.eclipse.rdf4j.model.IRI> iris = uriBatchRequest.retrieve(orSubject, orPredicate, orObject, params, triplestore);
+			List<org.eclipse.rdf4j.model.IRI> iris = uriBatchRequest.retrieve(orSubject, orPredicate, orObject, params, unkeyedReader());
 			List<URI> uris = ORAdapter.rdf4jIriList2UriList(iris);
 			
 			//if records are greater than limit, there are more records to be retrieved
@@ -1120,7 +1406,7 @@ public class ORMapService implements RMapService {
     @Override
     public URI getLineageProgenitor(URI discoUri) {
         try {
-            return findLineageProgenitor(discoUri, triplestore);
+            return findLineageProgenitor(discoUri, unkeyedReader());
         } finally {
             closeConnection();
         }
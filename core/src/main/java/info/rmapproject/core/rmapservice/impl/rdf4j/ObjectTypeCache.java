@@ -0,0 +1,453 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+import info.rmapproject.core.exception.RMapException;
+import info.rmapproject.core.metrics.OperationMetrics;
+import info.rmapproject.core.model.RMapIri;
+import info.rmapproject.core.model.impl.rdf4j.ORMapEvent;
+import info.rmapproject.core.model.impl.rdf4j.ORMapEventWithNewObjects;
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore;
+import info.rmapproject.core.vocabulary.impl.rdf4j.RMAP;
+
+/**
+ * Answers {@link ORMapObjectMgr#isRMapType(Rdf4jTriplestore, IRI, IRI)} without querying the triplestore where it
+ * can.  The RMap type of an IRI never changes once it is written, so the types found are held for the most recently
+ * used {@code rmapcore.typeCache.capacity} IRIs.  A bloom filter of every DiSCO, Agent and Event IRI, loaded in the
+ * background when the application context starts, answers that an IRI that was never written is not an RMap object,
+ * so lookups of arbitrary resource IRIs do not reach the triplestore.
+ * <p>
+ * The filter is sized for {@code rmapcore.typeCache.expectedObjects} objects with a false positive rate of
+ * {@code rmapcore.typeCache.falsePositiveRate}; it answers more false positives, which are checked against the
+ * triplestore, once it holds more.  IRIs are added to the filter as their type statements are written, before they
+ * are committed.  Objects written by other nodes are added by {@link EventStreamListener}, so a deployment of several
+ * nodes enables the cache only with that listener; a node whose listener has failed stops trusting the filter.
+ * </p>
+ * <p>
+ * Even with the listener, an object committed by another node is not in this node's filter until its Event arrives.
+ * The filter is therefore only trusted for IRIs outside the RMap id namespace, {@code idservice.idPrefix}, which
+ * cannot name RMap objects: an IRI within it that is not in the filter is still looked up in the triplestore.
+ * </p>
+ * <p>
+ * Disabled unless {@code rmapcore.typeCache.enabled} is true.  Thread safe.
+ * </p>
+ */
+@Component
+public class ObjectTypeCache implements ApplicationListener<ContextRefreshedEvent>, EventStreamListener.Observer {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ObjectTypeCache.class);
+
+	/** The types of the RMap objects held in the filter */
+	private static final IRI[] TYPES = { RMAP.DISCO, RMAP.AGENT, RMAP.EVENT };
+
+	private volatile boolean enabled = false;
+
+	private volatile int capacity = 100000;
+
+	private volatile long expectedObjects = 10000000;
+
+	private volatile double falsePositiveRate = 0.01;
+
+	private volatile String idPrefix = "rmap:";
+
+	/** The RMap type of each IRI found, in access order */
+	private final Map<IRI, IRI> types = new LinkedHashMap<IRI, IRI>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<IRI, IRI> eldest) {
+			return size() > capacity;
+		}
+	};
+
+	private volatile BloomFilter filter;
+
+	/** True once the filter holds every object in the triplestore, until the Events of other nodes are lost */
+	private volatile boolean filterComplete = false;
+
+	private final AtomicBoolean loaded = new AtomicBoolean();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong filtered = new AtomicLong();
+
+	private Rdf4jTriplestore triplestore;
+
+	/**
+	 * @return true if RMap types are answered from the cache
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@org.springframework.beans.factory.annotation.Value("${rmapcore.typeCache.enabled:false}")
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @return the maximum number of IRIs whose type is held
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	@org.springframework.beans.factory.annotation.Value("${rmapcore.typeCache.capacity:100000}")
+	public void setCapacity(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Type cache capacity must be a positive integer.");
+		}
+		this.capacity = capacity;
+	}
+
+	/**
+	 * @return the number of objects the filter is sized for
+	 */
+	public long getExpectedObjects() {
+		return expectedObjects;
+	}
+
+	@org.springframework.beans.factory.annotation.Value("${rmapcore.typeCache.expectedObjects:10000000}")
+	public void setExpectedObjects(long expectedObjects) {
+		if (expectedObjects < 1) {
+			throw new IllegalArgumentException("Type cache expected objects must be a positive integer.");
+		}
+		this.expectedObjects = expectedObjects;
+	}
+
+	/**
+	 * @return the rate of false positives the filter is sized for
+	 */
+	public double getFalsePositiveRate() {
+		return falsePositiveRate;
+	}
+
+	@org.springframework.beans.factory.annotation.Value("${rmapcore.typeCache.falsePositiveRate:0.01}")
+	public void setFalsePositiveRate(double falsePositiveRate) {
+		if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+			throw new IllegalArgumentException("Type cache false positive rate must be between 0 and 1.");
+		}
+		this.falsePositiveRate = falsePositiveRate;
+	}
+
+	/**
+	 * @return the prefix of the ids minted for RMap objects
+	 */
+	public String getIdPrefix() {
+		return idPrefix;
+	}
+
+	/**
+	 * @param idPrefix the prefix of the ids minted for RMap objects; the filter is not trusted for IRIs with it
+	 */
+	@org.springframework.beans.factory.annotation.Value("${idservice.idPrefix:rmap:}")
+	public void setIdPrefix(String idPrefix) {
+		if (idPrefix == null) {
+			throw new IllegalArgumentException("Type cache id prefix must not be null.");
+		}
+		this.idPrefix = idPrefix;
+	}
+
+	/**
+	 * @param triplestore the triplestore from which the filter is loaded when the application context starts
+	 */
+	@Autowired(required = false)
+	public void setTriplestore(Rdf4jTriplestore triplestore) {
+		this.triplestore = triplestore;
+	}
+
+	/**
+	 * Publishes the number of lookups answered from the cache, and the number answered by the filter, with the
+	 * operation stats.
+	 *
+	 * @param metrics the operation metrics, or null if there are none
+	 */
+	@Autowired(required = false)
+	public void setMetrics(OperationMetrics metrics) {
+		if (metrics == null) {
+			return;
+		}
+		metrics.counter("rmap_type_cache_hits_total", "RMap type lookups answered from the type cache",
+				this::getHitCount);
+		metrics.counter("rmap_type_filter_negatives_total",
+				"RMap type lookups of IRIs the bloom filter shows were never written", this::getFilteredCount);
+	}
+
+	/**
+	 * Loads the filter in the background once the application context has started.  Until it is loaded, IRIs that
+	 * are not cached are looked up in the triplestore.
+	 *
+	 * @param event the context refresh
+	 */
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		if (!enabled || triplestore == null || !loaded.compareAndSet(false, true)) {
+			return;
+		}
+		filter = new BloomFilter(expectedObjects, falsePositiveRate);
+		Thread loader = new Thread(() -> {
+			try {
+				long count = load(triplestore);
+				LOG.info("Loaded {} RMap object IRIs into the type filter", count);
+			} catch (RuntimeException e) {
+				LOG.warn("Unable to load the type filter, RMap types will be looked up in the triplestore: {}",
+						e.getMessage(), e);
+			} finally {
+				try {
+					triplestore.closeConnection();
+				} catch (RuntimeException e) {
+					LOG.debug("Unable to close the connection used to load the type filter: {}", e.getMessage());
+				}
+			}
+		}, "rmap-type-filter-loader");
+		loader.setDaemon(true);
+		loader.start();
+	}
+
+	/**
+	 * Adds every DiSCO, Agent and Event IRI in the triplestore to the filter, including the IRIs of deleted DiSCOs,
+	 * and trusts the filter once they are all added.  IRIs written while the filter is loading are added to it.
+	 *
+	 * @param ts the triplestore instance
+	 * @return the number of IRIs added
+	 * @throws RMapException if the IRIs cannot be read
+	 */
+	public long load(Rdf4jTriplestore ts) throws RMapException {
+		if (filter == null) {
+			filter = new BloomFilter(expectedObjects, falsePositiveRate);
+		}
+		BloomFilter loading = filter;
+		AtomicLong count = new AtomicLong();
+		try {
+			for (IRI type : TYPES) {
+				ts.forEachStatement(null, RDF.TYPE, type, stmt -> {
+					if (stmt.getSubject().equals(stmt.getContext())) {
+						loading.add(stmt.getSubject().stringValue());
+						count.incrementAndGet();
+					}
+				});
+			}
+			ts.forEachStatement(null, RMAP.DELETEDOBJECT, null, stmt -> {
+				loading.add(stmt.getObject().stringValue());
+				count.incrementAndGet();
+			});
+		} catch (Exception e) {
+			throw new RMapException("Exception thrown loading the RMap object IRIs into the type filter", e);
+		}
+		filterComplete = true;
+		return count.get();
+	}
+
+	/**
+	 * @param id an IRI
+	 * @return the RMap type of the IRI, if it is cached, else null
+	 */
+	public IRI getType(IRI id) {
+		if (!enabled) {
+			return null;
+		}
+		IRI type;
+		synchronized (types) {
+			type = types.get(id);
+		}
+		if (type != null) {
+			hits.incrementAndGet();
+		}
+		return type;
+	}
+
+	/**
+	 * @param id an IRI
+	 * @return true if the IRI was never written as an RMap object; false if it may have been, including when it is
+	 * in the RMap id namespace, where it may have been written by another node whose Event has not yet arrived
+	 */
+	public boolean isNeverWritten(IRI id) {
+		BloomFilter filter = this.filter;
+		String iri = id.stringValue();
+		if (!enabled || !filterComplete || filter == null || iri.startsWith(idPrefix) || filter.mightContain(iri)) {
+			return false;
+		}
+		filtered.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Caches the RMap type of a committed object.
+	 *
+	 * @param id the object IRI
+	 * @param type the RMap type of the object
+	 */
+	public void putType(IRI id, IRI type) {
+		if (enabled) {
+			synchronized (types) {
+				types.put(id, type);
+			}
+		}
+	}
+
+	/**
+	 * Adds the subject of the type statement of an RMap object being written to the filter.  Other statements are
+	 * ignored.
+	 *
+	 * @param stmt a statement being written
+	 */
+	public void written(Statement stmt) {
+		if (RDF.TYPE.equals(stmt.getPredicate()) && stmt.getSubject().equals(stmt.getContext())) {
+			Value type = stmt.getObject();
+			for (IRI rmapType : TYPES) {
+				if (rmapType.equals(type)) {
+					add(stmt.getSubject());
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the Event published by any node, and the objects it created, to the filter.
+	 *
+	 * @param event an Event published by any node
+	 */
+	@Override
+	public void onEvent(ORMapEvent event) {
+		add(event.getContext());
+		if (event instanceof ORMapEventWithNewObjects) {
+			for (RMapIri created : ((ORMapEventWithNewObjects) event).getCreatedObjectIds()) {
+				add(created.getIri().toString());
+			}
+		}
+	}
+
+	/**
+	 * Stops trusting the filter once the objects written by other nodes can no longer be seen.
+	 */
+	@Override
+	public void onStreamLost() {
+		LOG.warn("Not using the type filter, RMap types will be looked up in the triplestore");
+		filterComplete = false;
+	}
+
+	private void add(Resource id) {
+		if (id != null) {
+			add(id.stringValue());
+		}
+	}
+
+	private void add(String id) {
+		BloomFilter filter = this.filter;
+		if (filter != null) {
+			filter.add(id);
+		}
+	}
+
+	/**
+	 * @return the number of lookups answered from the cache
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of lookups answered by the filter
+	 */
+	public long getFilteredCount() {
+		return filtered.get();
+	}
+
+	/**
+	 * A bloom filter of strings, using double hashing of a 64 bit FNV-1a hash.
+	 */
+	private static final class BloomFilter {
+
+		private final AtomicLongArray words;
+
+		private final long bits;
+
+		private final int hashes;
+
+		private BloomFilter(long expected, double falsePositiveRate) {
+			double ln2 = Math.log(2);
+			long optimal = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (ln2 * ln2));
+			int length = (int) Math.min(Integer.MAX_VALUE, Math.max(1, (optimal + 63) / 64));
+			this.words = new AtomicLongArray(length);
+			this.bits = length * 64L;
+			this.hashes = (int) Math.max(1, Math.round((double) bits / expected * ln2));
+		}
+
+		private void add(String value) {
+			long hash = hash(value);
+			long step = mix(hash) | 1;
+			for (int i = 0; i < hashes; i++) {
+				long bit = Math.floorMod(hash + i * step, bits);
+				words.accumulateAndGet((int) (bit >>> 6), 1L << bit, (word, mask) -> word | mask);
+			}
+		}
+
+		private boolean mightContain(String value) {
+			long hash = hash(value);
+			long step = mix(hash) | 1;
+			for (int i = 0; i < hashes; i++) {
+				long bit = Math.floorMod(hash + i * step, bits);
+				if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static long hash(String value) {
+			long hash = 0xcbf29ce484222325L;
+			for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+				hash ^= (b & 0xff);
+				hash *= 0x100000001b3L;
+			}
+			return hash;
+		}
+
+		private static long mix(long hash) {
+			hash ^= hash >>> 33;
+			hash *= 0xff51afd7ed558ccdL;
+			hash ^= hash >>> 33;
+			hash *= 0xc4ceb9fe1a85ec53L;
+			return hash ^ (hash >>> 33);
+		}
+
+	}
+
+}
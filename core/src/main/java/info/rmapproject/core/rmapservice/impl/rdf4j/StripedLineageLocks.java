@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+
+import info.rmapproject.core.exception.RMapException;
+
+/**
+ * Locks DiSCO lineages within this process, using a fixed number of reentrant locks shared by the lineages whose
+ * progenitors hash to the same stripe.  Lineages that share a stripe are serialized against each other, so the
+ * number of stripes, {@code rmapcore.lineageLocks.stripes}, should be well above the number of concurrent writers.
+ * A writer waits up to {@code rmapcore.lineageLocks.timeoutMs} for a lock.
+ * <p>
+ * Thread safe.
+ * </p>
+ */
+public class StripedLineageLocks implements LineageLocks {
+
+	private volatile ReentrantLock[] stripes = newStripes(1024);
+
+	private volatile long timeoutMs = 30000;
+
+	/**
+	 * @return the number of locks shared by the lineages
+	 */
+	public int getStripes() {
+		return stripes.length;
+	}
+
+	@Value("${rmapcore.lineageLocks.stripes:1024}")
+	public void setStripes(int stripes) {
+		if (stripes < 1) {
+			throw new IllegalArgumentException("Lineage lock stripes must be a positive integer.");
+		}
+		this.stripes = newStripes(stripes);
+	}
+
+	/**
+	 * @return the time, in ms, a writer waits for the lock of a lineage
+	 */
+	public long getTimeoutMs() {
+		return timeoutMs;
+	}
+
+	@Value("${rmapcore.lineageLocks.timeoutMs:30000}")
+	public void setTimeoutMs(long timeoutMs) {
+		if (timeoutMs < 1) {
+			throw new IllegalArgumentException("Lineage lock timeout ms must be a positive integer.");
+		}
+		this.timeoutMs = timeoutMs;
+	}
+
+	@Override
+	public LineageLock lock(URI progenitor) throws RMapException {
+		if (progenitor == null) {
+			throw new RMapException("Null lineage progenitor");
+		}
+		ReentrantLock[] stripes = this.stripes;
+		ReentrantLock lock = stripes[Math.floorMod(progenitor.toString().hashCode(), stripes.length)];
+		try {
+			if (!lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+				throw new RMapException("Timed out after " + timeoutMs + " ms waiting to update the lineage of "
+						+ progenitor);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RMapException("Interrupted while waiting to update the lineage of " + progenitor, e);
+		}
+		return lock::unlock;
+	}
+
+	private static ReentrantLock[] newStripes(int count) {
+		ReentrantLock[] stripes = new ReentrantLock[count];
+		for (int i = 0; i < count; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+		return stripes;
+	}
+
+}
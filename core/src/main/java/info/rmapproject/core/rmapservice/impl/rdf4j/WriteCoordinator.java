@@ -0,0 +1,366 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.rdf4j.repository.RepositoryException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import info.rmapproject.core.exception.RMapDefectiveArgumentException;
+import info.rmapproject.core.exception.RMapException;
+import info.rmapproject.core.metrics.OperationMetrics;
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.QueryContext;
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore;
+
+/**
+ * Merges the writes of concurrent requests into group commits when {@code rmapcore.groupCommit.enabled} is true, so
+ * that the triplestore commits once per group rather than once per write.  Writes are queued, and a single writer
+ * thread runs them in the order they were submitted, in one transaction per group: a group is closed
+ * {@code rmapcore.groupCommit.windowMs} after its first write was taken, or once it holds
+ * {@code rmapcore.groupCommit.maxWrites} writes.  The caller of {@link #write(Write)} waits until its group has been
+ * committed.
+ * <p>
+ * Since the writes of a group share a connection, each write reads the writes made before it, so writes to the same
+ * lineage are applied in order, as they would be one transaction at a time.  If any write of a group fails, or the
+ * group cannot be committed, the group is rolled back and each of its writes is run again in a transaction of its own,
+ * so that each caller is answered with the outcome of its own write.  Writes must therefore be safe to run again after
+ * a rollback, as the manager methods are.  The Events created by a group are only sent once it has been committed.
+ * </p>
+ * <p>
+ * A group writes many lineages in one transaction, so writes are not group committed against a triplestore that
+ * does not {@link Rdf4jTriplestore#supportsMultiLineageTransactions() support} such transactions.
+ * </p>
+ * <p>
+ * Thread safe.
+ * </p>
+ */
+@Component
+public class WriteCoordinator implements DisposableBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(WriteCoordinator.class);
+
+	/**
+	 * A write against the triplestore, run in a transaction that is opened and committed by the coordinator.
+	 *
+	 * @param <T> the result of the write
+	 */
+	@FunctionalInterface
+	public interface Write<T> {
+		/**
+		 * @param ts the triplestore instance, with a transaction open
+		 * @return the result of the write
+		 * @throws RMapException the RMap exception
+		 * @throws RMapDefectiveArgumentException the RMap defective argument exception
+		 */
+		T apply(Rdf4jTriplestore ts) throws RMapException, RMapDefectiveArgumentException;
+	}
+
+	/**
+	 * A write waiting to be run, with the caller's query context and the future answering it.
+	 */
+	private static class Pending<T> {
+		private final Write<T> write;
+		private final QueryContext context = QueryContext.current();
+		private final CompletableFuture<T> result = new CompletableFuture<>();
+		private T value;
+
+		private Pending(Write<T> write) {
+			this.write = write;
+		}
+
+		private void run(Rdf4jTriplestore ts) {
+			QueryContext.Scope scope = (context != null) ? context.attach() : null;
+			try {
+				value = write.apply(ts);
+			} finally {
+				if (scope != null) {
+					scope.close();
+				}
+			}
+		}
+	}
+
+	private volatile boolean enabled = false;
+
+	private volatile long windowMs = 5;
+
+	private volatile int maxWrites = 50;
+
+	private Rdf4jTriplestore triplestore;
+
+	private ORMapEventMgr eventmgr;
+
+	private final BlockingQueue<Pending<?>> queue = new LinkedBlockingQueue<>();
+
+	private Thread writer = null;
+
+	private volatile boolean stopped = false;
+
+	private final AtomicLong commits = new AtomicLong();
+
+	private final AtomicLong writes = new AtomicLong();
+
+	/**
+	 * @return true if writes are merged into group commits: group commit is enabled, and the triplestore supports
+	 * transactions that write more than one lineage (a sharded triplestore does not)
+	 */
+	public boolean isEnabled() {
+		return enabled && (triplestore == null || triplestore.supportsMultiLineageTransactions());
+	}
+
+	@Value("${rmapcore.groupCommit.enabled:false}")
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @return the time, in ms, a group waits for further writes after its first
+	 */
+	public long getWindowMs() {
+		return windowMs;
+	}
+
+	@Value("${rmapcore.groupCommit.windowMs:5}")
+	public void setWindowMs(long windowMs) {
+		if (windowMs < 0) {
+			throw new IllegalArgumentException("Group commit window must not be negative.");
+		}
+		this.windowMs = windowMs;
+	}
+
+	/**
+	 * @return the maximum number of writes in a group
+	 */
+	public int getMaxWrites() {
+		return maxWrites;
+	}
+
+	@Value("${rmapcore.groupCommit.maxWrites:50}")
+	public void setMaxWrites(int maxWrites) {
+		if (maxWrites < 1) {
+			throw new IllegalArgumentException("Group commit max writes must be a positive integer.");
+		}
+		this.maxWrites = maxWrites;
+	}
+
+	/**
+	 * @param triplestore the triplestore the groups are written to, used only by the writer thread
+	 */
+	@Autowired
+	public void setTriplestore(Rdf4jTriplestore triplestore) {
+		this.triplestore = triplestore;
+		if (triplestore != null && !triplestore.supportsMultiLineageTransactions()) {
+			LOG.info("The triplestore writes one lineage per transaction, so writes will not be group committed");
+		}
+	}
+
+	/**
+	 * @param eventmgr sends the Events created by a group once it has been committed
+	 */
+	@Autowired
+	public void setEventmgr(ORMapEventMgr eventmgr) {
+		this.eventmgr = eventmgr;
+	}
+
+	/**
+	 * Publishes the number of group commits, and of the writes they held, with the operation stats.
+	 *
+	 * @param metrics the operation metrics, or null if there are none
+	 */
+	@Autowired(required = false)
+	public void setMetrics(OperationMetrics metrics) {
+		if (metrics == null) {
+			return;
+		}
+		metrics.counter("rmap_group_commits_total", "transactions committed by the write coordinator",
+				this::getCommitCount);
+		metrics.counter("rmap_group_commit_writes_total", "writes committed by the write coordinator",
+				this::getWriteCount);
+	}
+
+	/**
+	 * Runs a write in the next group commit, waiting for the group to be committed.
+	 *
+	 * @param write the write
+	 * @param <T> the result of the write
+	 * @return the result of the write, once it has been committed
+	 * @throws RMapException if the write failed, or could not be committed
+	 * @throws RMapDefectiveArgumentException if the write failed
+	 */
+	public <T> T write(Write<T> write) throws RMapException, RMapDefectiveArgumentException {
+		Pending<T> pending = new Pending<>(write);
+		start();
+		queue.add(pending);
+		if (stopped && queue.remove(pending)) {
+			//stopped while the write was being queued, so it will not be taken
+			pending.result.completeExceptionally(new RMapException("The write coordinator has been stopped"));
+		}
+		try {
+			//not interruptible, so that the caller is never left unsure whether its write was committed
+			return pending.result.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RMapException("Write failed: " + e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	private synchronized void start() {
+		if (stopped) {
+			throw new RMapException("The write coordinator has been stopped");
+		}
+		if (writer == null) {
+			writer = new Thread(this::writeGroups, "rmap-write-coordinator");
+			writer.setDaemon(true);
+			writer.start();
+		}
+	}
+
+	/**
+	 * Takes the queued writes in groups and commits them, until interrupted.
+	 */
+	private void writeGroups() {
+		List<Pending<?>> group = new ArrayList<>();
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				group.add(queue.take());
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMs);
+				while (group.size() < maxWrites) {
+					Pending<?> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					group.add(next);
+				}
+				commit(group);
+				group.clear();
+			}
+		} catch (InterruptedException e) {
+			LOG.debug("Write coordinator stopped");
+		} finally {
+			synchronized (this) {
+				writer = null;
+			}
+			RMapException notRun = new RMapException("The write coordinator stopped before the write was run");
+			group.forEach(pending -> pending.result.completeExceptionally(notRun));
+			if (stopped) {
+				queue.forEach(pending -> pending.result.completeExceptionally(notRun));
+			} else if (!queue.isEmpty()) {
+				//the writer died, so is replaced for the writes still queued
+				start();
+			}
+		}
+	}
+
+	/**
+	 * Runs a group of writes in one transaction, answering each write with its result once the transaction has been
+	 * committed.  If the group fails, it is rolled back, and each write is run again in a group of its own.  The 
+	 * Events of the group are sent once it is committed; a failure to send them is logged, and does not fail the 
+	 * writes, which cannot be rolled back.
+	 *
+	 * @param group the writes
+	 */
+	private void commit(List<Pending<?>> group) {
+		eventmgr.beginSendBatch();
+		try {
+			triplestore.beginTransaction();
+			for (Pending<?> pending : group) {
+				pending.run(triplestore);
+			}
+			triplestore.commitTransaction();
+			commits.incrementAndGet();
+			writes.addAndGet(group.size());
+		} catch (RuntimeException | RepositoryException e) {
+			try {
+				triplestore.rollbackTransaction();
+			} catch (RepositoryException rollbackException) {
+				LOG.error("Could not roll back a group commit: {}", rollbackException.getMessage(), rollbackException);
+			}
+			eventmgr.discardSendBatch();
+			if (group.size() > 1) {
+				LOG.debug("Group of {} writes failed, running each on its own: {}", group.size(), e.getMessage());
+				group.forEach(pending -> commit(Collections.singletonList(pending)));
+			} else {
+				group.get(0).result.completeExceptionally((e instanceof RepositoryException)
+						? new RMapException("Exception thrown committing to triplestore: " + e.getMessage(), e)
+						: e);
+			}
+			return;
+		} finally {
+			closeConnection();
+		}
+		try {
+			eventmgr.endSendBatch();
+		} catch (RuntimeException e) {
+			LOG.error("Could not send the Events of a group commit: {}", e.getMessage(), e);
+		}
+		group.forEach(WriteCoordinator::complete);
+	}
+
+	private static <T> void complete(Pending<T> pending) {
+		pending.result.complete(pending.value);
+	}
+
+	private void closeConnection() {
+		try {
+			triplestore.closeConnection();
+		} catch (RepositoryException e) {
+			LOG.info("Could not close the write coordinator connection: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * @return the number of group commits
+	 */
+	public long getCommitCount() {
+		return commits.get();
+	}
+
+	/**
+	 * @return the number of writes committed in groups
+	 */
+	public long getWriteCount() {
+		return writes.get();
+	}
+
+	@Override
+	public synchronized void destroy() {
+		stopped = true;
+		if (writer != null) {
+			writer.interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j.triplestore;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import info.rmapproject.core.exception.RMapQueryTimeoutException;
+
+/**
+ * The time remaining to a request for the triplestore queries issued on its behalf, and the means to cancel those
+ * queries when the request is abandoned.  While a context is {@link #attach() attached} to a thread, the maximum
+ * execution time of each query that {@link Rdf4jTriplestore} prepares on the thread is limited to the time remaining,
+ * and {@link #cancel()} closes the results of the queries that are running, from any thread.
+ * <p>
+ * Thread safe.
+ * </p>
+ */
+public class QueryContext {
+
+	private static final Logger LOG = LoggerFactory.getLogger(QueryContext.class);
+
+	private static final ThreadLocal<QueryContext> CURRENT = new ThreadLocal<>();
+
+	private final long deadlineNanos;
+
+	private volatile boolean cancelled = false;
+
+	/** The results of the queries running on behalf of the request */
+	private final Set<AutoCloseable> running = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Restores the context that was attached before {@link QueryContext#attach()}.
+	 */
+	@FunctionalInterface
+	public interface Scope extends AutoCloseable {
+		@Override
+		void close();
+	}
+
+	/**
+	 * @param timeoutMs the time allowed to the request, in ms
+	 */
+	public QueryContext(long timeoutMs) {
+		if (timeoutMs < 1) {
+			throw new IllegalArgumentException("Timeout ms must be a positive integer.");
+		}
+		this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+	}
+
+	/**
+	 * @return the context attached to the current thread, or null if there is none
+	 */
+	public static QueryContext current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Attaches this context to the current thread, until the scope answered is closed.
+	 *
+	 * @return the scope, to be closed when the thread stops working on behalf of the request
+	 */
+	public Scope attach() {
+		QueryContext previous = CURRENT.get();
+		CURRENT.set(this);
+		return () -> {
+			if (previous == null) {
+				CURRENT.remove();
+			} else {
+				CURRENT.set(previous);
+			}
+		};
+	}
+
+	/**
+	 * @return the time remaining to the request, in ms; 0 once the request has run out of time
+	 */
+	public long getRemainingMs() {
+		return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+	}
+
+	/**
+	 * @return true if the request was abandoned
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Abandons the request: closes the results of the queries running on its behalf, and fails the queries it issues
+	 * from now on.
+	 */
+	public void cancel() {
+		cancelled = true;
+		running.forEach(this::close);
+	}
+
+	/**
+	 * Limits the maximum execution time of a query to the time remaining to the request.
+	 *
+	 * @param seconds the maximum execution time of the query, in seconds, or 0 for no limit
+	 * @return the lesser of {@code seconds} and the time remaining, rounded up to whole seconds
+	 * @throws RMapQueryTimeoutException if the request was abandoned or has run out of time
+	 */
+	public int limit(int seconds) {
+		check();
+		long remaining = TimeUnit.MILLISECONDS.toSeconds(getRemainingMs() + 999);
+		return (int) ((seconds > 0) ? Math.min(seconds, remaining) : Math.min(Integer.MAX_VALUE, remaining));
+	}
+
+	/**
+	 * @throws RMapQueryTimeoutException if the request was abandoned or has run out of time
+	 */
+	public void check() {
+		if (cancelled) {
+			throw new RMapQueryTimeoutException("The request was cancelled");
+		}
+		if (getRemainingMs() == 0) {
+			throw new RMapQueryTimeoutException("The request ran out of time");
+		}
+	}
+
+	/**
+	 * Registers the results of a query, to be closed if the request is cancelled before they are read.
+	 *
+	 * @param result the query results
+	 */
+	void register(AutoCloseable result) {
+		running.add(result);
+		if (cancelled) {
+			close(result);
+		}
+	}
+
+	/**
+	 * @param result query results that have been read
+	 */
+	void unregister(AutoCloseable result) {
+		running.remove(result);
+	}
+
+	private void close(AutoCloseable result) {
+		try {
+			result.close();
+		} catch (Exception e) {
+			LOG.debug("Unable to close the results of a cancelled query: {}", e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j.triplestore;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import info.rmapproject.core.exception.RMapQueryTimeoutException;
+import info.rmapproject.core.metrics.OperationMetrics;
+
+/**
+ * The maximum execution time of the triplestore queries issued by each operation.  Operations are named as by
+ * {@link OperationMetrics}, e.g. {@code resource.getResourceRelatedTriples}, and are configured as a comma separated
+ * list of {@code operation=seconds} in {@code rmapcore.queryTimeouts.operations}.  The queries of other operations,
+ * and of all operations when operation metrics are disabled, are allowed {@code rmapcore.queryTimeouts.defaultSeconds}.
+ * A time of 0 means no limit.
+ * <p>
+ * Thread safe.
+ * </p>
+ *
+ * @see QueryContext
+ */
+@Component
+public class Rdf4jQueryTimeouts {
+
+	private OperationMetrics metrics;
+
+	private volatile int defaultSeconds = 0;
+
+	private volatile Map<String, Integer> operationSeconds = Collections.emptyMap();
+
+	private final AtomicLong timedOut = new AtomicLong();
+
+	/**
+	 * @return the maximum execution time, in seconds, of queries issued by operations not otherwise configured
+	 */
+	public int getDefaultSeconds() {
+		return defaultSeconds;
+	}
+
+	@Value("${rmapcore.queryTimeouts.defaultSeconds:0}")
+	public void setDefaultSeconds(int defaultSeconds) {
+		if (defaultSeconds < 0) {
+			throw new IllegalArgumentException("Query timeout must not be negative.");
+		}
+		this.defaultSeconds = defaultSeconds;
+	}
+
+	/**
+	 * @return the maximum execution time, in seconds, of the queries issued by each configured operation
+	 */
+	public Map<String, Integer> getOperationSeconds() {
+		return operationSeconds;
+	}
+
+	/**
+	 * @param operations a comma separated list of {@code operation=seconds}; may be empty
+	 */
+	@Value("${rmapcore.queryTimeouts.operations:}")
+	public void setOperations(String operations) {
+		Map<String, Integer> seconds = new HashMap<>();
+		for (String operation : operations.split(",")) {
+			if (operation.trim().isEmpty()) {
+				continue;
+			}
+			String[] nameAndSeconds = operation.split("=");
+			if (nameAndSeconds.length != 2) {
+				throw new IllegalArgumentException("Query timeout '" + operation.trim()
+						+ "' must be of the form operation=seconds.");
+			}
+			int value = Integer.parseInt(nameAndSeconds[1].trim());
+			if (value < 0) {
+				throw new IllegalArgumentException("Query timeout must not be negative.");
+			}
+			seconds.put(nameAndSeconds[0].trim(), value);
+		}
+		this.operationSeconds = Collections.unmodifiableMap(seconds);
+	}
+
+	/**
+	 * Identifies the operation issuing each query, and publishes the number of queries that timed out with the
+	 * operation stats.
+	 *
+	 * @param metrics the operation metrics, or null if there are none
+	 */
+	@Autowired(required = false)
+	public void setMetrics(OperationMetrics metrics) {
+		this.metrics = metrics;
+		if (metrics == null) {
+			return;
+		}
+		metrics.counter("rmap_triplestore_query_timeouts_total",
+				"triplestore queries that exceeded their maximum execution time",
+				this::getTimedOutCount);
+	}
+
+	/**
+	 * @return the maximum execution time, in seconds, of a query issued by the current operation, or 0 for no limit
+	 */
+	public int getMaxExecutionTime() {
+		if (metrics != null) {
+			Integer seconds = operationSeconds.get(metrics.currentOperation());
+			if (seconds != null) {
+				return seconds;
+			}
+		}
+		return defaultSeconds;
+	}
+
+	/**
+	 * Counts a query that timed out.
+	 *
+	 * @param call the triplestore call that issued the query
+	 * @param seconds the maximum execution time of the query
+	 * @param cause the exception thrown by the triplestore
+	 * @return the exception to throw
+	 */
+	RMapQueryTimeoutException timedOut(String call, int seconds, Throwable cause) {
+		timedOut.incrementAndGet();
+		return new RMapQueryTimeoutException("Query issued by " + call + " did not complete within " + seconds
+				+ " seconds", cause);
+	}
+
+	/**
+	 * @return the number of queries that timed out
+	 */
+	public long getTimedOutCount() {
+		return timedOut.get();
+	}
+
+}
@@ -0,0 +1,354 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j.triplestore;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryException;
+import org.eclipse.rdf4j.repository.http.HTTPRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * A pool of read replicas of the primary triplestore, from which {@link Rdf4jReplicaTriplestore} instances obtain
+ * their connections.  A replica is selected for each connection, either in turn or by the fewest open connections.
+ * A replica that cannot be connected to is skipped for {@link #getFailureBackoffMs() failureBackoffMs}.
+ * <p>
+ * Replication itself is performed by the triplestore, so reads served by a replica may not yet reflect recent writes
+ * to the primary.  The {@link StalenessPolicy} decides which reads are served by the primary instead.  Writes are
+ * tracked by this pool, i.e. per application instance: a write made through another instance is only seen by the
+ * replicas once they catch up.
+ * </p>
+ * <p>
+ * Thread safe.
+ * </p>
+ */
+public class Rdf4jReplicaPool implements DisposableBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(Rdf4jReplicaPool.class);
+
+	/** How a replica is selected for a connection */
+	public enum Selection {
+		/** Each replica in turn */
+		ROUND_ROBIN,
+		/** The replica with the fewest open connections, ties are broken in turn */
+		LEAST_LOADED
+	}
+
+	/** Which reads are served by the primary triplestore, to hide replication lag */
+	public enum StalenessPolicy {
+		/** Replicas serve all reads, which may lag the primary by up to the replication lag */
+		NONE,
+		/** Reads of an object (DiSCO, Agent or Event) that was written, or of an Agent that made a write, within 
+		 * maxLagMs are served by the primary.  Reads that are not keyed by the objects they depend on, e.g. reads of 
+		 * the DiSCOs related to a resource, are served by the primary for maxLagMs after any write (see 
+		 * {@link Rdf4jReplicaPool#isAnyWriteRecent()}) */
+		RECENT_WRITES,
+		/** All reads are served by the primary for maxLagMs after any write */
+		ANY_RECENT_WRITE
+	}
+
+	private final List<Replica> replicas;
+
+	private final AtomicInteger next = new AtomicInteger();
+
+	/** Time in epoch ms of the most recent write to an object, by object IRI */
+	private final ConcurrentHashMap<String, Long> recentWrites = new ConcurrentHashMap<>();
+
+	private volatile long lastWrite = 0;
+
+	private volatile long lastPrune = 0;
+
+	private Selection selection = Selection.ROUND_ROBIN;
+
+	private StalenessPolicy stalenessPolicy = StalenessPolicy.RECENT_WRITES;
+
+	private long maxLagMs = 5000;
+
+	private long failureBackoffMs = 30000;
+
+	/**
+	 * @param repositories the read replicas, which are initialized when first used
+	 */
+	public Rdf4jReplicaPool(List<Repository> repositories) {
+		if (repositories == null || repositories.isEmpty()) {
+			throw new IllegalArgumentException("At least one read replica must be provided.");
+		}
+		List<Replica> replicas = new ArrayList<>(repositories.size());
+		for (Repository repository : repositories) {
+			replicas.add(new Replica(repository));
+		}
+		this.replicas = Collections.unmodifiableList(replicas);
+	}
+
+	/**
+	 * Creates a pool of RDF4J HTTP repositories.
+	 *
+	 * @param repositoryUrls the URL of each replica repository, e.g. {@code http://replica1:8080/rdf4j-server/repositories/rmap}
+	 * @param userName the user name of each replica
+	 * @param password the password of each replica
+	 * @return the pool
+	 */
+	public static Rdf4jReplicaPool httpReplicas(String[] repositoryUrls, String userName, String password) {
+		List<Repository> repositories = new ArrayList<>();
+		for (String url : repositoryUrls) {
+			if (url.trim().length() > 0) {
+				HTTPRepository repository = new HTTPRepository(url.trim());
+				repository.setUsernameAndPassword(userName, password);
+				repositories.add(repository);
+			}
+		}
+		return new Rdf4jReplicaPool(repositories);
+	}
+
+	/**
+	 * Selects a replica for a connection.  The replica must be {@link #release(Replica) released} when the 
+	 * connection is closed.
+	 *
+	 * @return the replica
+	 * @throws RepositoryException if every replica recently failed
+	 */
+	Replica acquire() throws RepositoryException {
+		long now = System.currentTimeMillis();
+		int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+		Replica selected = null;
+		for (int i = 0; i < replicas.size(); i++) {
+			Replica replica = replicas.get((start + i) % replicas.size());
+			if (replica.unavailableUntil > now) {
+				continue;
+			}
+			if (selection == Selection.ROUND_ROBIN) {
+				selected = replica;
+				break;
+			}
+			if (selected == null || replica.connections.get() < selected.connections.get()) {
+				selected = replica;
+			}
+		}
+		if (selected == null) {
+			throw new RepositoryException("No read replica is available");
+		}
+		selected.connections.incrementAndGet();
+		return selected;
+	}
+
+	/**
+	 * Releases a replica selected by {@link #acquire()}.
+	 *
+	 * @param replica the replica
+	 */
+	void release(Replica replica) {
+		replica.connections.decrementAndGet();
+	}
+
+	/**
+	 * Skips a replica that could not be connected to for {@code failureBackoffMs}.
+	 *
+	 * @param replica the replica
+	 * @param e the cause of the failure
+	 */
+	void failed(Replica replica, RepositoryException e) {
+		LOG.warn("Read replica {} is unavailable, skipping it for {} ms: {}", replica, failureBackoffMs, e.getMessage());
+		replica.unavailableUntil = System.currentTimeMillis() + failureBackoffMs;
+	}
+
+	/**
+	 * @return the number of replicas in the pool
+	 */
+	public int size() {
+		return replicas.size();
+	}
+
+	/**
+	 * Records a write to the primary triplestore.
+	 *
+	 * @param ids the IRIs of the objects written, and of the Agent that wrote them; null IRIs are ignored
+	 */
+	public void written(URI... ids) {
+		long now = System.currentTimeMillis();
+		lastWrite = now;
+		if (stalenessPolicy != StalenessPolicy.RECENT_WRITES) {
+			return;
+		}
+		for (URI id : ids) {
+			if (id != null) {
+				recentWrites.put(id.toString(), now);
+			}
+		}
+		if (now - lastPrune > maxLagMs) {
+			lastPrune = now;
+			recentWrites.values().removeIf(writtenAt -> now - writtenAt > maxLagMs);
+		}
+	}
+
+	/**
+	 * Answers whether a replica may not yet reflect some recent write, for reads that cannot be tied to the objects
+	 * written: reads of the statements, types or DiSCOs related to a resource, and reads of a DiSCO lineage, which 
+	 * may include versions written since the version being read.
+	 *
+	 * @return true if anything was written within maxLagMs and the staleness policy is not {@code NONE}, so the 
+	 * read must be served by the primary
+	 */
+	public boolean isAnyWriteRecent() {
+		return stalenessPolicy != StalenessPolicy.NONE && lastWrite >= System.currentTimeMillis() - maxLagMs;
+	}
+
+	/**
+	 * @param ids the IRIs of the objects being read; null IRIs are ignored
+	 * @return true if a replica may not yet reflect a recent write that affects the read, according to the 
+	 * staleness policy, so the read must be served by the primary
+	 */
+	public boolean isStale(URI... ids) {
+		long cutoff = System.currentTimeMillis() - maxLagMs;
+		switch (stalenessPolicy) {
+			case ANY_RECENT_WRITE:
+				return lastWrite >= cutoff;
+			case RECENT_WRITES:
+				if (lastWrite < cutoff) {
+					return false;
+				}
+				for (URI id : ids) {
+					if (id != null) {
+						Long writtenAt = recentWrites.get(id.toString());
+						if (writtenAt != null && writtenAt >= cutoff) {
+							return true;
+						}
+					}
+				}
+				return false;
+			default:
+				return false;
+		}
+	}
+
+	public Selection getSelection() {
+		return selection;
+	}
+
+	public void setSelection(Selection selection) {
+		this.selection = selection;
+	}
+
+	public StalenessPolicy getStalenessPolicy() {
+		return stalenessPolicy;
+	}
+
+	public void setStalenessPolicy(StalenessPolicy stalenessPolicy) {
+		this.stalenessPolicy = stalenessPolicy;
+	}
+
+	/**
+	 * @return the time in ms a write is assumed to take to reach every replica
+	 */
+	public long getMaxLagMs() {
+		return maxLagMs;
+	}
+
+	public void setMaxLagMs(long maxLagMs) {
+		if (maxLagMs < 0) {
+			throw new IllegalArgumentException("Max lag ms must not be negative.");
+		}
+		this.maxLagMs = maxLagMs;
+	}
+
+	/**
+	 * @return the time in ms a replica that could not be connected to is skipped
+	 */
+	public long getFailureBackoffMs() {
+		return failureBackoffMs;
+	}
+
+	public void setFailureBackoffMs(long failureBackoffMs) {
+		if (failureBackoffMs < 0) {
+			throw new IllegalArgumentException("Failure backoff ms must not be negative.");
+		}
+		this.failureBackoffMs = failureBackoffMs;
+	}
+
+	/**
+	 * Shuts down the replicas that were initialized.
+	 */
+	@Override
+	public void destroy() {
+		for (Replica replica : replicas) {
+			replica.shutDown();
+		}
+	}
+
+	/**
+	 * A read replica, and the number of connections open to it.
+	 */
+	static class Replica {
+
+		private final Repository repository;
+
+		private final AtomicInteger connections = new AtomicInteger();
+
+		private volatile long unavailableUntil = 0;
+
+		private boolean initialized = false;
+
+		Replica(Repository repository) {
+			this.repository = repository;
+		}
+
+		/**
+		 * @return the repository, initialized
+		 * @throws RepositoryException if the repository cannot be initialized
+		 */
+		synchronized Repository getRepository() throws RepositoryException {
+			if (!initialized) {
+				repository.initialize();
+				initialized = true;
+			}
+			return repository;
+		}
+
+		int getConnections() {
+			return connections.get();
+		}
+
+		synchronized void shutDown() {
+			if (initialized) {
+				try {
+					repository.shutDown();
+				} catch (RepositoryException e) {
+					LOG.debug("Unable to shut down read replica {}: {}", this, e.getMessage());
+				}
+				initialized = false;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return (repository instanceof HTTPRepository) 
+					? ((HTTPRepository) repository).getRepositoryURL() : repository.toString();
+		}
+
+	}
+
+}
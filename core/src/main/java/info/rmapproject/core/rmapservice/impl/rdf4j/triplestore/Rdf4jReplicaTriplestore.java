@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j.triplestore;
+
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryException;
+
+/**
+ * A read-only RDF4J triplestore that connects to one of the read replicas in a {@link Rdf4jReplicaPool}.  A replica is
+ * selected each time a connection is opened, and released when the connection is closed.  Transactions are not
+ * supported: writes, and the reads made by the managers while writing, are made against the primary triplestore.
+ */
+public class Rdf4jReplicaTriplestore extends Rdf4jTriplestore {
+
+	private final Rdf4jReplicaPool pool;
+
+	/** The replica the current connection was obtained from, null if no connection is open */
+	private Rdf4jReplicaPool.Replica replica = null;
+
+	/**
+	 * @param pool the read replicas
+	 */
+	public Rdf4jReplicaTriplestore(Rdf4jReplicaPool pool) {
+		if (pool == null) {
+			throw new IllegalArgumentException("Replica pool must not be null.");
+		}
+		this.pool = pool;
+	}
+
+	/**
+	 * @return the read replicas this triplestore connects to
+	 */
+	public Rdf4jReplicaPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * Gets the repository of the replica the current connection is obtained from, selecting a replica if necessary.
+	 *
+	 * @return the replica repository
+	 * @throws RepositoryException if no replica is available
+	 */
+	@Override
+	protected Repository getRepository() throws RepositoryException {
+		if (replica == null) {
+			replica = pool.acquire();
+		}
+		return replica.getRepository();
+	}
+
+	/* (non-Javadoc)
+	 * @see info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore#intitializeRepository()
+	 */
+	@Override
+	protected Repository intitializeRepository() throws RepositoryException {
+		return getRepository();
+	}
+
+	/**
+	 * Opens a connection to a replica.  A replica that cannot be connected to is skipped, and another is tried.
+	 *
+	 * @throws RepositoryException if no replica could be connected to
+	 */
+	@Override
+	public void openConnection() throws RepositoryException {
+		for (int attempt = 1; ; attempt++) {
+			try {
+				super.openConnection();
+				return;
+			} catch (RepositoryException e) {
+				if (replica != null) {
+					pool.failed(replica, e);
+					releaseReplica();
+				}
+				if (attempt >= pool.size()) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Closes the connection, and releases the replica it was obtained from.
+	 *
+	 * @throws RepositoryException the repository exception
+	 */
+	@Override
+	public void closeConnection() throws RepositoryException {
+		try {
+			super.closeConnection();
+		} finally {
+			releaseReplica();
+		}
+	}
+
+	/**
+	 * Not supported: read replicas are read-only.
+	 *
+	 * @throws RepositoryException always
+	 */
+	@Override
+	public void beginTransaction() throws RepositoryException {
+		throw new RepositoryException("Transactions are not supported by read replicas");
+	}
+
+	private void releaseReplica() {
+		if (replica != null) {
+			pool.release(replica);
+			replica = null;
+		}
+	}
+
+}
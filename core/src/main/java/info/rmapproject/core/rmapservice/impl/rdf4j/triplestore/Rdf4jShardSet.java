@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j.triplestore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryException;
+import org.eclipse.rdf4j.repository.http.HTTPRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * The repositories that together hold the RMap graph when it is sharded by lineage, from which
+ * {@link Rdf4jShardedTriplestore} instances obtain their connections.  The DiSCO and Event graphs of a DiSCO lineage
+ * are held by the shard selected by the hash of the lineage progenitor IRI, normalized as by the
+ * {@code LineagePartitioner} of the indexer.  Agent graphs, and the Events that create and update them, are held by
+ * every shard.
+ * <p>
+ * The number and order of the shards must not change once data has been written, because lineages are not moved
+ * between shards.
+ * </p>
+ * <p>
+ * Thread safe.
+ * </p>
+ */
+public class Rdf4jShardSet implements DisposableBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(Rdf4jShardSet.class);
+
+	private final List<Repository> repositories;
+
+	private final boolean[] initialized;
+
+	/** Queries the shards in parallel */
+	private final ExecutorService executor;
+
+	/**
+	 * @param repositories the shards, in order, which are initialized when first used
+	 */
+	public Rdf4jShardSet(List<Repository> repositories) {
+		if (repositories == null || repositories.isEmpty()) {
+			throw new IllegalArgumentException("At least one shard must be provided.");
+		}
+		this.repositories = Collections.unmodifiableList(new ArrayList<>(repositories));
+		this.initialized = new boolean[repositories.size()];
+		AtomicInteger threads = new AtomicInteger();
+		this.executor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "rmap-shard-query-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Creates a set of RDF4J HTTP repositories.
+	 *
+	 * @param repositoryUrls the URL of each shard repository, in order, e.g.
+	 * {@code http://shard1:8080/rdf4j-server/repositories/rmap}
+	 * @param userName the user name of each shard
+	 * @param password the password of each shard
+	 * @return the shards
+	 */
+	public static Rdf4jShardSet httpShards(String[] repositoryUrls, String userName, String password) {
+		List<Repository> repositories = new ArrayList<>();
+		for (String url : repositoryUrls) {
+			if (url.trim().length() > 0) {
+				HTTPRepository repository = new HTTPRepository(url.trim());
+				repository.setUsernameAndPassword(userName, password);
+				repositories.add(repository);
+			}
+		}
+		return new Rdf4jShardSet(repositories);
+	}
+
+	/**
+	 * @return the number of shards
+	 */
+	public int size() {
+		return repositories.size();
+	}
+
+	/**
+	 * @param progenitor the lineage progenitor IRI
+	 * @return the index of the shard that holds the lineage
+	 */
+	public int shardOf(IRI progenitor) {
+		return Math.floorMod(progenitor.stringValue().trim().toLowerCase().hashCode(), repositories.size());
+	}
+
+	/**
+	 * @param shard the index of the shard
+	 * @return the repository of the shard, initialized
+	 * @throws RepositoryException if the repository cannot be initialized
+	 */
+	synchronized Repository getRepository(int shard) throws RepositoryException {
+		Repository repository = repositories.get(shard);
+		if (!initialized[shard]) {
+			repository.initialize();
+			initialized[shard] = true;
+		}
+		return repository;
+	}
+
+	/**
+	 * @return the executor that queries the shards in parallel
+	 */
+	ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Shuts down the shards that were initialized.
+	 */
+	@Override
+	public synchronized void destroy() {
+		executor.shutdownNow();
+		for (int i = 0; i < repositories.size(); i++) {
+			if (initialized[i]) {
+				try {
+					repositories.get(i).shutDown();
+				} catch (RepositoryException e) {
+					LOG.debug("Unable to shut down shard {}: {}", i, e.getMessage());
+				}
+				initialized[i] = false;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,649 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j.triplestore;
+
+import static java.util.Collections.singletonList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.ValueComparator;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import info.rmapproject.core.metrics.OperationSample;
+import info.rmapproject.core.vocabulary.impl.rdf4j.RMAP;
+
+/**
+ * An RDF4J triplestore that spans the shards of a {@link Rdf4jShardSet}.
+ * <p>
+ * Writes are buffered until the transaction is committed, and then routed by the lineage progenitor of the Event
+ * being written: the DiSCO and Event graphs of a lineage are written to the shard that holds the lineage, while a
+ * transaction without a lineage progenitor (i.e. one that creates or updates an Agent) is written to every shard.
+ * The Event graph of a derivation is also written to the shard that holds the source DiSCO, so that the derivatives
+ * of a lineage can be found within a single shard.  A write that spans shards is committed shard by shard.  Reads
+ * made while a transaction is open do not see its buffered writes; the managers only read committed objects while
+ * writing.
+ * </p>
+ * <p>
+ * A transaction must therefore write at most one lineage: one that writes the Events of several lineages is rejected
+ * when it is committed.  So that group commits and chunks of new DiSCOs are not rejected, and do not read each
+ * other's uncommitted versions of a lineage, {@link #supportsMultiLineageTransactions()} answers false, and the
+ * {@code WriteCoordinator} and {@code ORMapService.createDiSCOs} then write each lineage in a transaction of its own.
+ * </p>
+ * <p>
+ * Reads are evaluated against every shard in parallel, and the results merged.  Results found in more than one shard
+ * (e.g. Agents) are returned once.  A query that ends with {@code LIMIT} and {@code OFFSET} is evaluated against each
+ * shard for the first {@code OFFSET + LIMIT} results, which are merged by the variables of a trailing
+ * {@code ORDER BY}, or in shard order when the query is unordered, before the page is taken; so pages of a
+ * {@code ResultBatch} are the same as if the graph were held by a single repository.  Joins across lineages are
+ * evaluated within each shard.
+ * </p>
+ * <p>
+ * Not thread safe; there is no single connection, so {@link #getConnection()} is not supported.
+ * </p>
+ */
+public class Rdf4jShardedTriplestore extends Rdf4jTriplestore {
+
+	private static final Logger LOG = LoggerFactory.getLogger(Rdf4jShardedTriplestore.class);
+
+	/** The trailing LIMIT and OFFSET of a query, as written by {@link Rdf4jSparqlUtils#convertLimitOffsetToSparqlFilter} */
+	private static final Pattern LIMIT_OFFSET =
+			Pattern.compile("(?:\\s+LIMIT\\s+(\\d+))?(?:\\s+OFFSET\\s+(\\d+))?\\s*$", Pattern.CASE_INSENSITIVE);
+
+	/** A trailing ORDER BY of variables, each optionally in ASC() or DESC() */
+	private static final Pattern ORDER_BY = Pattern.compile(
+			"\\sORDER\\s+BY((?:\\s*(?:(?:ASC|DESC)\\s*\\(\\s*\\?\\w+\\s*\\)|\\?\\w+))+)\\s*$", Pattern.CASE_INSENSITIVE);
+
+	private static final Pattern ORDER_CONDITION =
+			Pattern.compile("(ASC|DESC)?\\s*\\(?\\s*\\?(\\w+)", Pattern.CASE_INSENSITIVE);
+
+	private static final ValueFactory VALUE_FACTORY = SimpleValueFactory.getInstance();
+
+	private final Rdf4jShardSet shardSet;
+
+	private final List<Shard> shards;
+
+	/** The writes of the open transaction, in order */
+	private final List<Write> writes = new ArrayList<>();
+
+	/**
+	 * @param shardSet the shards
+	 */
+	public Rdf4jShardedTriplestore(Rdf4jShardSet shardSet) {
+		if (shardSet == null) {
+			throw new IllegalArgumentException("Shard set must not be null.");
+		}
+		this.shardSet = shardSet;
+		List<Shard> shards = new ArrayList<>(shardSet.size());
+		for (int i = 0; i < shardSet.size(); i++) {
+			shards.add(new Shard(shardSet, i));
+		}
+		this.shards = Collections.unmodifiableList(shards);
+	}
+
+	/**
+	 * @return the shards this triplestore spans
+	 */
+	public Rdf4jShardSet getShardSet() {
+		return shardSet;
+	}
+
+	/**
+	 * Sets the maximum execution time of the queries issued by each operation against each shard.
+	 *
+	 * @param queryTimeouts the query timeouts, or null to limit queries only by the request context
+	 */
+	@Override
+	public void setQueryTimeouts(Rdf4jQueryTimeouts queryTimeouts) {
+		super.setQueryTimeouts(queryTimeouts);
+		shards.forEach(shard -> shard.setQueryTimeouts(queryTimeouts));
+	}
+
+	/**
+	 * Not supported: each shard has its own repository.
+	 *
+	 * @throws RepositoryException always
+	 */
+	@Override
+	protected Repository getRepository() throws RepositoryException {
+		throw new RepositoryException("A sharded triplestore has no single repository");
+	}
+
+	/* (non-Javadoc)
+	 * @see info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore#intitializeRepository()
+	 */
+	@Override
+	protected Repository intitializeRepository() throws RepositoryException {
+		return getRepository();
+	}
+
+	/**
+	 * Not supported: each shard has its own connection.
+	 *
+	 * @throws RepositoryException always
+	 */
+	@Override
+	public RepositoryConnection getConnection() throws RepositoryException {
+		throw new RepositoryException("A sharded triplestore has no single connection");
+	}
+
+	/**
+	 * Marks the triplestore as open; a connection to each shard is opened when the shard is first used.
+	 */
+	@Override
+	public void openConnection() throws RepositoryException {
+		setConnectionOpen(true);
+	}
+
+	/**
+	 * Closes the connection to each shard, discarding the writes of a transaction that was not committed.
+	 *
+	 * @throws RepositoryException the repository exception
+	 */
+	@Override
+	public void closeConnection() throws RepositoryException {
+		writes.clear();
+		setTransactionOpen(false);
+		RepositoryException failed = null;
+		try {
+			for (Shard shard : shards) {
+				try {
+					shard.closeConnection();
+				} catch (RepositoryException e) {
+					failed = e;
+				}
+			}
+			setConnectionOpen(false);
+		} finally {
+			releaseTransactionResources();
+		}
+		if (failed != null) {
+			throw failed;
+		}
+	}
+
+	@Override
+	public boolean hasConnectionOpen() {
+		return this.connectionOpen;
+	}
+
+	@Override
+	public void beginTransaction() throws RepositoryException {
+		writes.clear();
+		setTransactionOpen(true);
+	}
+
+	@Override
+	public void rollbackTransaction() throws RepositoryException {
+		writes.clear();
+		setTransactionOpen(false);
+		releaseTransactionResources();
+	}
+
+	/**
+	 * Writes the buffered writes of the transaction to the shards they are routed to.
+	 *
+	 * @throws RepositoryException if a shard could not be written to; shards written to before it are not rolled back
+	 */
+	@Override
+	public void commitTransaction() throws RepositoryException {
+		if (hasTransactionOpen()) {
+			try (OperationSample sample = sample("commitTransaction")) {
+				sample.written(write(writes));
+			} finally {
+				writes.clear();
+			}
+		}
+		setTransactionOpen(false);
+		releaseTransactionResources();
+	}
+
+	@Override
+	public void addStatement(Statement stmt) throws RepositoryException {
+		buffer(new Write(false, Collections.singleton(stmt)));
+	}
+
+	@Override
+	public void addStatement(Resource subj, IRI pred, Value obj) throws RepositoryException {
+		addStatement(VALUE_FACTORY.createStatement(subj, pred, obj));
+	}
+
+	@Override
+	public void addStatement(Resource subj, IRI pred, Value obj, Resource context) throws RepositoryException {
+		addStatement(VALUE_FACTORY.createStatement(subj, pred, obj, context));
+	}
+
+	@Override
+	public void removeStatements(Set<Statement> stmts, Resource... contexts) throws RepositoryException {
+		buffer(new Write(true, new LinkedHashSet<>(stmts), contexts));
+	}
+
+	@Override
+	public Set<Statement> getStatements(Resource subj, IRI pred, Value obj, boolean includeInferred,
+			Resource context) throws RepositoryException {
+		long start = System.nanoTime();
+		long rows = -1;
+		try (OperationSample sample = sample("getStatements")) {
+			Set<Statement> stmts = new LinkedHashSet<>();
+			scatterRepository(shard -> shard.getStatements(subj, pred, obj, includeInferred, context))
+					.forEach(stmts::addAll);
+			rows = stmts.size();
+			return sample.rows(stmts);
+		} finally {
+			if (slowQueries != null) {
+				slowQueries.statements("getStatements", subj, pred, obj, context, start, rows);
+			}
+		}
+	}
+
+	@Override
+	public List<Statement> getStatementsAnyContext(Resource subj, IRI pred, Value obj, boolean includeInferred)
+			throws Exception {
+		long start = System.nanoTime();
+		long rows = -1;
+		try (OperationSample sample = sample("getStatementsAnyContext")) {
+			Set<Statement> stmts = new LinkedHashSet<>();
+			scatter(shard -> shard.getStatementsAnyContext(subj, pred, obj, includeInferred)).forEach(stmts::addAll);
+			rows = stmts.size();
+			return sample.rows(new ArrayList<>(stmts));
+		} finally {
+			if (slowQueries != null) {
+				slowQueries.statements("getStatementsAnyContext", subj, pred, obj, null, start, rows);
+			}
+		}
+	}
+
+	@Override
+	public Statement getStatementAnyContext(Resource subj, IRI pred, Value obj) throws RepositoryException {
+		try (OperationSample sample = sample("getStatementAnyContext")) {
+			return sample.row(first(scatterRepository(shard -> shard.getStatementAnyContext(subj, pred, obj))));
+		}
+	}
+
+	@Override
+	public Statement getStatement(Resource subj, IRI pred, Value obj, Resource context) throws RepositoryException {
+		try (OperationSample sample = sample("getStatement")) {
+			return sample.row(first(scatterRepository(shard -> shard.getStatement(subj, pred, obj, context))));
+		}
+	}
+
+	/**
+	 * Streams the matching statements of each shard in turn.  A statement held by more than one shard (e.g. of an
+	 * Agent) is passed to the action once per shard.
+	 */
+	@Override
+	public long forEachStatement(Resource subj, IRI pred, Value obj, Consumer<Statement> action)
+			throws RepositoryException {
+		long count = 0;
+		for (Shard shard : shards) {
+			count += shard.forEachStatement(subj, pred, obj, action);
+		}
+		return count;
+	}
+
+	/**
+	 * @return false: each transaction is routed to the shard of the one lineage it writes
+	 */
+	@Override
+	public boolean supportsMultiLineageTransactions() {
+		return false;
+	}
+
+	@Override
+	public boolean hasContext(Resource context) throws RepositoryException {
+		return scatterRepository(shard -> shard.hasContext(context)).contains(true);
+	}
+
+	@Override
+	public boolean hasStatement(Resource subj, IRI pred, Value obj, Resource context) throws RepositoryException {
+		return scatterRepository(shard -> shard.hasStatement(subj, pred, obj, context)).contains(true);
+	}
+
+	@Override
+	public List<Statement> getStatementListBySPARQL(String sparqlQuery) throws Exception {
+		long start = System.nanoTime();
+		long rows = -1;
+		try (OperationSample sample = sample("getStatementListBySPARQL")) {
+			List<Statement> stmts = new ArrayList<>();
+			for (BindingSet bindingSet : gather(sparqlQuery, null)) {
+				stmts.add(VALUE_FACTORY.createStatement((Resource) bindingSet.getValue("s"),
+						(IRI) bindingSet.getValue("p"), bindingSet.getValue("o"), (Resource) bindingSet.getValue("c")));
+			}
+			rows = stmts.size();
+			return sample.rows(stmts);
+		} finally {
+			if (slowQueries != null) {
+				slowQueries.sparql("getStatementListBySPARQL", sparqlQuery, start, rows);
+			}
+		}
+	}
+
+	@Override
+	public List<BindingSet> getSPARQLQueryResults(String sparqlQuery, Map<String, ? extends Value> bindings)
+			throws Exception {
+		long start = System.nanoTime();
+		long rows = -1;
+		try (OperationSample sample = sample("getSPARQLQueryResults")) {
+			List<BindingSet> bs = gather(sparqlQuery, bindings);
+			rows = bs.size();
+			return sample.rows(bs);
+		} finally {
+			if (slowQueries != null) {
+				slowQueries.sparql("getSPARQLQueryResults", sparqlQuery, start, rows);
+			}
+		}
+	}
+
+	/**
+	 * Evaluates a query against every shard, and merges the results.  A trailing LIMIT and OFFSET are applied to the
+	 * merged results, after they are ordered by the variables of a trailing ORDER BY.
+	 *
+	 * @param sparqlQuery the SPARQL query
+	 * @param bindings the value bound to each variable, by variable name; may be null
+	 * @return the page of merged results
+	 * @throws Exception the exception
+	 */
+	private List<BindingSet> gather(String sparqlQuery, Map<String, ? extends Value> bindings) throws Exception {
+		Matcher page = LIMIT_OFFSET.matcher(sparqlQuery);
+		page.find();
+		String query = sparqlQuery.substring(0, page.start());
+		long limit = (page.group(1) != null) ? Long.parseLong(page.group(1)) : Long.MAX_VALUE;
+		long offset = (page.group(2) != null) ? Long.parseLong(page.group(2)) : 0;
+		String shardQuery = (limit != Long.MAX_VALUE) ? query + " LIMIT " + (offset + limit) : query;
+
+		List<BindingSet> merged = new ArrayList<>();
+		scatter(shard -> shard.getSPARQLQueryResults(shardQuery, bindings)).forEach(merged::addAll);
+
+		Comparator<BindingSet> order = orderOf(query);
+		if (order != null) {
+			// each shard's results are already ordered, so this is a merge of the runs
+			merged.sort(order);
+		}
+		return new LinkedHashSet<>(merged).stream()
+				.skip(offset)
+				.limit(limit)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * @param query a SPARQL query, without LIMIT and OFFSET
+	 * @return the order given by the trailing ORDER BY of the query, or null if it has none
+	 */
+	static Comparator<BindingSet> orderOf(String query) {
+		Matcher orderBy = ORDER_BY.matcher(query);
+		if (!orderBy.find()) {
+			return null;
+		}
+		ValueComparator values = new ValueComparator();
+		Comparator<BindingSet> order = null;
+		Matcher condition = ORDER_CONDITION.matcher(orderBy.group(1));
+		while (condition.find()) {
+			String name = condition.group(2);
+			Comparator<BindingSet> byName = (a, b) -> {
+				Value x = a.getValue(name);
+				Value y = b.getValue(name);
+				if (x == null || y == null) {
+					return (x == null) ? ((y == null) ? 0 : -1) : 1;
+				}
+				return values.compare(x, y);
+			};
+			if ("DESC".equalsIgnoreCase(condition.group(1))) {
+				byName = byName.reversed();
+			}
+			order = (order == null) ? byName : order.thenComparing(byName);
+		}
+		return order;
+	}
+
+	private void buffer(Write write) throws RepositoryException {
+		if (hasTransactionOpen()) {
+			writes.add(write);
+		} else {
+			write(singletonList(write));
+		}
+	}
+
+	/**
+	 * Routes writes to shards by the lineage progenitor they carry, and writes them.
+	 *
+	 * @param writes the writes of a transaction
+	 * @return the number of statements written
+	 * @throws RepositoryException if the writes carry more than one lineage progenitor, or a shard could not be 
+	 * written to
+	 */
+	private int write(List<Write> writes) throws RepositoryException {
+		IRI progenitor = null;
+		Statement source = null;
+		for (Write write : writes) {
+			if (!write.remove) {
+				for (Statement stmt : write.stmts) {
+					if (RMAP.LINEAGE_PROGENITOR.equals(stmt.getPredicate()) && stmt.getObject() instanceof IRI) {
+						if (progenitor != null && !progenitor.equals(stmt.getObject())) {
+							throw new RepositoryException("A transaction against a sharded triplestore must not "
+									+ "write more than one lineage, but wrote " + progenitor + " and " 
+									+ stmt.getObject());
+						}
+						progenitor = (IRI) stmt.getObject();
+					} else if (RMAP.HASSOURCEOBJECT.equals(stmt.getPredicate())) {
+						source = stmt;
+					}
+				}
+			}
+		}
+
+		Map<Integer, List<Write>> targets = new TreeMap<>();
+		if (progenitor == null) {
+			for (int i = 0; i < shards.size(); i++) {
+				targets.put(i, writes);
+			}
+		} else {
+			targets.put(shardSet.shardOf(progenitor), writes);
+			if (source != null && source.getObject() instanceof Resource) {
+				Resource sourceDisco = (Resource) source.getObject();
+				int sourceShard = scatterRepository(shard -> shard.hasContext(sourceDisco)).indexOf(true);
+				if (sourceShard >= 0 && !targets.containsKey(sourceShard)) {
+					targets.put(sourceShard, graphOf(writes, source.getContext()));
+				}
+			}
+		}
+
+		int written = 0;
+		List<Integer> committed = new ArrayList<>();
+		for (Map.Entry<Integer, List<Write>> target : targets.entrySet()) {
+			Shard shard = shards.get(target.getKey());
+			try {
+				shard.beginTransaction();
+				for (Write write : target.getValue()) {
+					written += write.applyTo(shard);
+				}
+				shard.commitTransaction();
+				committed.add(target.getKey());
+			} catch (RepositoryException e) {
+				try {
+					shard.rollbackTransaction();
+				} catch (RepositoryException rollback) {
+					LOG.debug("Unable to roll back shard {}: {}", target.getKey(), rollback.getMessage());
+				}
+				if (!committed.isEmpty()) {
+					LOG.error("A write was committed to shard(s) {}, but could not be written to shard {}",
+							committed, target.getKey(), e);
+				}
+				throw e;
+			}
+		}
+		return written;
+	}
+
+	/**
+	 * @param writes buffered writes
+	 * @param context a named graph
+	 * @return the statements added to the named graph by the writes
+	 */
+	private static List<Write> graphOf(List<Write> writes, Resource context) {
+		Set<Statement> stmts = new LinkedHashSet<>();
+		for (Write write : writes) {
+			if (!write.remove) {
+				write.stmts.stream().filter(stmt -> context.equals(stmt.getContext())).forEach(stmts::add);
+			}
+		}
+		return singletonList(new Write(false, stmts));
+	}
+
+	/**
+	 * Evaluates a call against every shard, in parallel when there is more than one.
+	 *
+	 * @param call the call
+	 * @return the result from each shard, in shard order
+	 * @throws Exception the exception thrown by the call against a shard
+	 */
+	private <T> List<T> scatter(ShardCall<T> call) throws Exception {
+		if (shards.size() == 1) {
+			return singletonList(call.call(shards.get(0)));
+		}
+		QueryContext context = QueryContext.current();
+		List<Future<T>> futures = new ArrayList<>(shards.size());
+		for (Shard shard : shards) {
+			futures.add(shardSet.getExecutor().submit(() -> {
+				if (context == null) {
+					return call.call(shard);
+				}
+				try (QueryContext.Scope scope = context.attach()) {
+					return call.call(shard);
+				}
+			}));
+		}
+		List<T> results = new ArrayList<>(shards.size());
+		try {
+			for (Future<T> future : futures) {
+				results.add(future.get());
+			}
+		} catch (ExecutionException e) {
+			futures.forEach(future -> future.cancel(true));
+			throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+		} catch (InterruptedException e) {
+			futures.forEach(future -> future.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new RepositoryException("Interrupted while querying shards", e);
+		}
+		return results;
+	}
+
+	private <T> List<T> scatterRepository(ShardCall<T> call) throws RepositoryException {
+		try {
+			return scatter(call);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RepositoryException(e);
+		}
+	}
+
+	private static <T> T first(List<T> results) {
+		return results.stream().filter(result -> result != null).findFirst().orElse(null);
+	}
+
+	/**
+	 * A call made against a shard
+	 */
+	@FunctionalInterface
+	private interface ShardCall<T> {
+		T call(Rdf4jTriplestore shard) throws Exception;
+	}
+
+	/**
+	 * A buffered addition or removal of statements
+	 */
+	private static class Write {
+
+		private final boolean remove;
+
+		private final Set<Statement> stmts;
+
+		private final Resource[] contexts;
+
+		Write(boolean remove, Set<Statement> stmts, Resource... contexts) {
+			this.remove = remove;
+			this.stmts = stmts;
+			this.contexts = contexts;
+		}
+
+		int applyTo(Rdf4jTriplestore shard) throws RepositoryException {
+			if (remove) {
+				shard.removeStatements(stmts, contexts);
+			} else {
+				for (Statement stmt : stmts) {
+					shard.addStatement(stmt);
+				}
+			}
+			return stmts.size();
+		}
+
+	}
+
+	/**
+	 * The connection to one shard
+	 */
+	private static class Shard extends Rdf4jTriplestore {
+
+		private final Rdf4jShardSet shardSet;
+
+		private final int index;
+
+		Shard(Rdf4jShardSet shardSet, int index) {
+			this.shardSet = shardSet;
+			this.index = index;
+		}
+
+		@Override
+		protected Repository getRepository() throws RepositoryException {
+			return shardSet.getRepository(index);
+		}
+
+		@Override
+		protected Repository intitializeRepository() throws RepositoryException {
+			return getRepository();
+		}
+
+	}
+
+}
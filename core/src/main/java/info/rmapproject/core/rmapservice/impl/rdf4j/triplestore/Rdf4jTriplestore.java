@@ -23,7 +23,10 @@ package info.rmapproject.core.rmapservice.impl.rdf4j.triplestore;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.eclipse.rdf4j.model.IRI;
@@ -32,6 +35,8 @@ import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
 import org.eclipse.rdf4j.query.QueryLanguage;
 import org.eclipse.rdf4j.query.QueryResults;
 import org.eclipse.rdf4j.query.TupleQuery;
@@ -40,6 +45,14 @@ import org.eclipse.rdf4j.repository.Repository;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.RepositoryException;
 import org.eclipse.rdf4j.repository.RepositoryResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import info.rmapproject.core.exception.RMapQueryTimeoutException;
+import info.rmapproject.core.metrics.OperationMetrics;
+import info.rmapproject.core.metrics.OperationSample;
+import info.rmapproject.core.metrics.SlowQueryLog;
 
 /**
  * The abstract class for  RDF4J Triplestore
@@ -48,6 +61,8 @@ import org.eclipse.rdf4j.repository.RepositoryResult;
  */
 public abstract class Rdf4jTriplestore  {
 
+    private static final Logger LOG = LoggerFactory.getLogger(Rdf4jTriplestore.class);
+
     /** true if the triplestore connection is open. */
     protected boolean connectionOpen = false;
 
@@ -62,6 +77,18 @@ public abstract class Rdf4jTriplestore  {
 
     /** An instance of the RDF4J Value Factory for instantiating RDF4J types (e.g. BNode). */
     protected ValueFactory valueFactory = null;
+
+    /** Times triplestore calls; may be null, in which case calls are not timed. */
+    protected OperationMetrics metrics = null;
+
+    /** Records queries that take longer than a threshold; may be null, in which case slow queries are not recorded. */
+    protected SlowQueryLog slowQueries = null;
+
+    /** The maximum execution time of queries; may be null, in which case only the request context limits queries. */
+    protected Rdf4jQueryTimeouts queryTimeouts = null;
+
+    /** Resources, such as lineage locks, held until the open transaction ends. */
+    private final List<AutoCloseable> transactionResources = new ArrayList<>();
 	
 	/**
 	 * Instantiates a new RDF4J triplestore.
@@ -70,6 +97,8 @@ public abstract class Rdf4jTriplestore  {
 
 	/**
 	 * Gets the respository instance. Initiates it if it's not already initialized.
+	 * All connections are obtained from this repository, so subclasses that connect to a repository other than the 
+	 * shared instance override this method.
 	 *
 	 * @return the RDF4J repository instance
 	 * @throws RepositoryException the repository exception
@@ -100,11 +129,8 @@ public abstract class Rdf4jTriplestore  {
 	 * @throws RepositoryException the repository exception
 	 */
 	public void openConnection() throws RepositoryException {
-    	if (repository == null)	{
-    		intitializeRepository();
-    	}    	    	
     	if (connection == null || !hasConnectionOpen()) {
-    		connection = repository.getConnection();
+    		connection = getRepository().getConnection();
     	}	    
 		setConnectionOpen(true);
 	}
@@ -115,10 +141,14 @@ public abstract class Rdf4jTriplestore  {
 	 * @throws RepositoryException the repository exception
 	 */
 	public void closeConnection() throws RepositoryException {
-		if (connection != null)	{
-			connection.close(); 
-			setConnectionOpen(false);
-			}
+		try {
+			if (connection != null)	{
+				connection.close(); 
+				setConnectionOpen(false);
+				}
+		} finally {
+			releaseTransactionResources();
+		}
 	}
 	
 	/**
@@ -137,10 +167,14 @@ public abstract class Rdf4jTriplestore  {
 	 * @throws RepositoryException the repository exception
 	 */
 	public void rollbackTransaction() throws RepositoryException{
-		if (hasTransactionOpen()){
-			getConnection().rollback();
+		try {
+			if (hasTransactionOpen()){
+				getConnection().rollback();
+			}
+			setTransactionOpen(false);
+		} finally {
+			releaseTransactionResources();
 		}
-		setTransactionOpen(false);
 	}
 	
 	/**
@@ -150,9 +184,38 @@ public abstract class Rdf4jTriplestore  {
 	 */
 	public void commitTransaction() throws RepositoryException{
 		if (hasTransactionOpen()){
-			getConnection().commit();
+			try (OperationSample sample = sample("commitTransaction")) {
+				getConnection().commit();
+				sample.written(0);
+			}
 		}
 		setTransactionOpen(false);
+		releaseTransactionResources();
+	}
+
+	/**
+	 * Holds a resource until the open transaction is committed or rolled back, or the connection is closed, so that
+	 * a lock taken by one write of a batch is held until the whole batch is committed.
+	 *
+	 * @param resource the resource, closed when the transaction ends
+	 */
+	public void releaseOnTransactionEnd(AutoCloseable resource) {
+		transactionResources.add(resource);
+	}
+
+	/**
+	 * Closes the resources held until the end of the transaction, most recently held first.  Subclasses that 
+	 * override {@link #commitTransaction()}, {@link #rollbackTransaction()} or {@link #closeConnection()} without 
+	 * calling the overridden method must call this once the transaction has ended.
+	 */
+	protected void releaseTransactionResources() {
+		for (int i = transactionResources.size() - 1; i >= 0; i--) {
+			try {
+				transactionResources.remove(i).close();
+			} catch (Exception e) {
+				LOG.warn("Unable to release a resource held by the transaction: {}", e.getMessage());
+			}
+		}
 	}
 
 	/**
@@ -162,8 +225,10 @@ public abstract class Rdf4jTriplestore  {
 	 * @throws RepositoryException the repository exception
 	 */
 	public void addStatement(Statement stmt) throws RepositoryException {
-		getConnection().add(stmt);
-		return;
+		try (OperationSample sample = sample("addStatement")) {
+			getConnection().add(stmt);
+			sample.written(1);
+		}
 	}
 	
 	/**
@@ -175,8 +240,10 @@ public abstract class Rdf4jTriplestore  {
 	 * @throws RepositoryException the repository exception
 	 */
 	public void addStatement(Resource subj, IRI pred, Value obj) throws RepositoryException	{
-		getConnection().add(subj,pred,obj);
-		return;
+		try (OperationSample sample = sample("addStatement")) {
+			getConnection().add(subj,pred,obj);
+			sample.written(1);
+		}
 	}
 	
 	/**
@@ -189,8 +256,10 @@ public abstract class Rdf4jTriplestore  {
 	 * @throws RepositoryException the repository exception
 	 */
 	public void addStatement(Resource subj, IRI pred, Value obj, Resource context) throws RepositoryException	{
-		getConnection().add(subj,pred,obj,context);
-		return;
+		try (OperationSample sample = sample("addStatement")) {
+			getConnection().add(subj,pred,obj,context);
+			sample.written(1);
+		}
 	}
 	
 	/**
@@ -221,23 +290,33 @@ public abstract class Rdf4jTriplestore  {
 	 */
 	public Set<Statement> getStatements(Resource subj, IRI pred, Value obj, boolean includeInferred, 
 			Resource context) throws RepositoryException {
-		RepositoryResult<Statement> resultset = null;
-		Set <Statement> stmts = new HashSet <Statement>();
-		if (context==null)	{
-			resultset = getConnection().getStatements(subj, pred, obj, includeInferred);
-		}
-		else	{
-		    if (getConnection().size(context)>0) {
-		        resultset = getConnection().getStatements(subj, pred, obj, includeInferred, context);
-		    }
-		}
-		if (resultset!=null) {
-    		while (resultset.hasNext()) {
-    			Statement stmt = resultset.next();
-    			stmts.add(stmt);
-    		}	
+		long start = System.nanoTime();
+		long rows = -1;
+		try (OperationSample sample = sample("getStatements")) {
+			checkContext();
+			RepositoryResult<Statement> resultset = null;
+			Set <Statement> stmts = new HashSet <Statement>();
+			if (context==null)	{
+				resultset = getConnection().getStatements(subj, pred, obj, includeInferred);
+			}
+			else	{
+			    if (getConnection().size(context)>0) {
+			        resultset = getConnection().getStatements(subj, pred, obj, includeInferred, context);
+			    }
+			}
+			if (resultset!=null) {
+	    		while (resultset.hasNext()) {
+	    			Statement stmt = resultset.next();
+	    			stmts.add(stmt);
+	    		}	
+			}
+			rows = stmts.size();
+			return sample.rows(stmts);
+		} finally {
+			if (slowQueries != null) {
+				slowQueries.statements("getStatements", subj, pred, obj, context, start, rows);
+			}
 		}
-		return stmts;
 	}
 	
 	/**
@@ -268,16 +347,61 @@ public abstract class Rdf4jTriplestore  {
 	 */
 	public List<Statement> getStatementsAnyContext(Resource subj, IRI pred, Value obj, boolean includeInferred) 
 			throws Exception {
-		RepositoryResult<Statement> resultset = null;
-		List <Statement> stmts = new ArrayList <Statement>();
-		resultset = getConnection().getStatements(subj, pred, obj, includeInferred);
-		while (resultset.hasNext()) {
-		Statement stmt = resultset.next();
-		stmts.add(stmt);
-		}		
-		return stmts;
+		long start = System.nanoTime();
+		long rows = -1;
+		try (OperationSample sample = sample("getStatementsAnyContext")) {
+			checkContext();
+			RepositoryResult<Statement> resultset = null;
+			List <Statement> stmts = new ArrayList <Statement>();
+			resultset = getConnection().getStatements(subj, pred, obj, includeInferred);
+			while (resultset.hasNext()) {
+			Statement stmt = resultset.next();
+			stmts.add(stmt);
+			}		
+			rows = stmts.size();
+			return sample.rows(stmts);
+		} finally {
+			if (slowQueries != null) {
+				slowQueries.statements("getStatementsAnyContext", subj, pred, obj, null, start, rows);
+			}
+		}
 	}
 	
+	/**
+	 * Streams the statements matching a subject, predicate, object in any context to an action, without holding 
+	 * them all in memory.  Nulls can be used as wildcards for s, p, o.
+	 *
+	 * @param subj the statement subject
+	 * @param pred the statement predicate
+	 * @param obj the statement object
+	 * @param action receives each statement
+	 * @return the number of statements passed to the action
+	 * @throws RepositoryException the repository exception
+	 */
+	public long forEachStatement(Resource subj, IRI pred, Value obj, Consumer<Statement> action) 
+			throws RepositoryException {
+		try (OperationSample sample = sample("forEachStatement")) {
+			long count = 0;
+			try (RepositoryResult<Statement> resultset = getConnection().getStatements(subj, pred, obj, false)) {
+				while (resultset.hasNext()) {
+					action.accept(resultset.next());
+					count++;
+				}
+			}
+			return sample.streamed(count);
+		}
+	}
+
+	/**
+	 * Answers whether a transaction may write the objects of more than one DiSCO lineage, as a group commit or a 
+	 * chunk of new DiSCOs does.
+	 *
+	 * @return true, unless the triplestore routes each transaction by the lineage it writes
+	 */
+	public boolean supportsMultiLineageTransactions() {
+		return true;
+	}
+
 	/**
 	 * Retrieves a statement matching a subject, predicate, object.
 	 *
@@ -289,13 +413,15 @@ public abstract class Rdf4jTriplestore  {
 	 */
 	//TODO  does this make sense?  you are looking for a single statement
 	public Statement getStatementAnyContext (Resource subj, IRI pred, Value obj) throws RepositoryException {
-		RepositoryResult<Statement> resultset = null;
-		Statement stmt = null;
-		resultset = getConnection().getStatements(subj, pred, obj, false);// might eventually want true here, or option for default
-		if (resultset.hasNext()) {
-			stmt = resultset.next();
-		}		
-		return stmt;
+		try (OperationSample sample = sample("getStatementAnyContext")) {
+			RepositoryResult<Statement> resultset = null;
+			Statement stmt = null;
+			resultset = getConnection().getStatements(subj, pred, obj, false);// might eventually want true here, or option for default
+			if (resultset.hasNext()) {
+				stmt = resultset.next();
+			}		
+			return sample.row(stmt);
+		}
 	}
 
 	/**
@@ -310,13 +436,15 @@ public abstract class Rdf4jTriplestore  {
 	 */
 	//TODO  does this make sense?  you are looking for a single statement - what if wildcards used?
 	public Statement getStatement(Resource subj, IRI pred, Value obj, Resource context) throws RepositoryException {
-		RepositoryResult<Statement> resultset = null;
-		Statement stmt = null;
-		resultset = getConnection().getStatements(subj, pred, obj, false, context);// I think we want true here
-		if (resultset.hasNext()) {
-			stmt = resultset.next();
-		}		
-		return stmt;
+		try (OperationSample sample = sample("getStatement")) {
+			RepositoryResult<Statement> resultset = null;
+			Statement stmt = null;
+			resultset = getConnection().getStatements(subj, pred, obj, false, context);// I think we want true here
+			if (resultset.hasNext()) {
+				stmt = resultset.next();
+			}		
+			return sample.row(stmt);
+		}
 	}
 	
 	/**
@@ -333,6 +461,35 @@ public abstract class Rdf4jTriplestore  {
 		return getStatement(subj,pred,obj,null);
 	}
 	
+	/**
+	 * Checks whether a named graph contains any statements.
+	 *
+	 * @param context the named graph
+	 * @return true, if the named graph contains at least one statement
+	 * @throws RepositoryException the repository exception
+	 */
+	public boolean hasContext(Resource context) throws RepositoryException {
+		return getConnection().size(context)>0;
+	}
+
+	/**
+	 * Checks whether a statement matching a subject, predicate, object, and context exists.
+	 * Nulls can be used as wildcards for s, p, o, and c.
+	 *
+	 * @param subj the statement subject
+	 * @param pred the statement predicate
+	 * @param obj the statement object
+	 * @param context the statement context
+	 * @return true, if a matching statement exists
+	 * @throws RepositoryException the repository exception
+	 */
+	public boolean hasStatement(Resource subj, IRI pred, Value obj, Resource context) throws RepositoryException {
+		if (context==null) {
+			return getConnection().hasStatement(subj, pred, obj, false);
+		}
+		return getConnection().hasStatement(subj, pred, obj, false, context);
+	}
+
 	/**
 	 * Executes SPARQL query against triplestore.  Note, the query must return a list containing spoc in order to convert 
 	 * the results to a list of statements.
@@ -343,19 +500,29 @@ public abstract class Rdf4jTriplestore  {
 	 */
 	public List<Statement> getStatementListBySPARQL(String sparqlQuery) 
 			throws Exception {
-		List <Statement> stmts = new ArrayList <Statement>();
-		TupleQuery tupleQuery = getConnection().prepareTupleQuery(QueryLanguage.SPARQL, sparqlQuery);
-		TupleQueryResult resultset = tupleQuery.evaluate();
-		while (resultset.hasNext()) {
-			BindingSet bindingSet = resultset.next();
-			Statement stmt = getValueFactory().createStatement((Resource) bindingSet.getBinding("s").getValue(),
-												(IRI)bindingSet.getBinding("p").getValue(),
-												bindingSet.getBinding("o").getValue(),
-												(Resource) bindingSet.getBinding("c").getValue());
-			stmts.add(stmt);
-			
-		}		
-		return stmts;
+		long start = System.nanoTime();
+		long rows = -1;
+		try (OperationSample sample = sample("getStatementListBySPARQL")) {
+			TupleQuery tupleQuery = getConnection().prepareTupleQuery(QueryLanguage.SPARQL, sparqlQuery);
+			List <Statement> stmts = evaluate("getStatementListBySPARQL", tupleQuery, resultset -> {
+				List <Statement> results = new ArrayList <Statement>();
+				while (resultset.hasNext()) {
+					BindingSet bindingSet = resultset.next();
+					Statement stmt = getValueFactory().createStatement((Resource) bindingSet.getBinding("s").getValue(),
+														(IRI)bindingSet.getBinding("p").getValue(),
+														bindingSet.getBinding("o").getValue(),
+														(Resource) bindingSet.getBinding("c").getValue());
+					results.add(stmt);
+				}
+				return results;
+			});
+			rows = stmts.size();
+			return sample.rows(stmts);
+		} finally {
+			if (slowQueries != null) {
+				slowQueries.sparql("getStatementListBySPARQL", sparqlQuery, start, rows);
+			}
+		}
 	}
 	
 	/**
@@ -367,11 +534,92 @@ public abstract class Rdf4jTriplestore  {
 	 */
 	public List<BindingSet> getSPARQLQueryResults(String sparqlQuery)
 			throws Exception {
-		
-		TupleQuery tupleQuery = getConnection().prepareTupleQuery(QueryLanguage.SPARQL, sparqlQuery);
-		TupleQueryResult resultset = tupleQuery.evaluate();
-		List<BindingSet> bs = QueryResults.stream(resultset).collect(Collectors.toList());
-		return bs;
+		return getSPARQLQueryResults(sparqlQuery, null);
+	}
+
+	/**
+	 * Executes SPARQL query against triplestore, with values bound to some of its variables.
+	 *
+	 * @param sparqlQuery the SPARQL query
+	 * @param bindings the value bound to each variable, by variable name; may be null
+	 * @return list of values returned by SPARQL query
+	 * @throws Exception the exception
+	 */
+	public List<BindingSet> getSPARQLQueryResults(String sparqlQuery, Map<String, ? extends Value> bindings)
+			throws Exception {
+		long start = System.nanoTime();
+		long rows = -1;
+		try (OperationSample sample = sample("getSPARQLQueryResults")) {
+			TupleQuery tupleQuery = getConnection().prepareTupleQuery(QueryLanguage.SPARQL, sparqlQuery);
+			if (bindings!=null) {
+				bindings.forEach(tupleQuery::setBinding);
+			}
+			List<BindingSet> bs = evaluate("getSPARQLQueryResults", tupleQuery,
+					resultset -> QueryResults.stream(resultset).collect(Collectors.toList()));
+			rows = bs.size();
+			return sample.rows(bs);
+		} finally {
+			if (slowQueries != null) {
+				slowQueries.sparql("getSPARQLQueryResults", sparqlQuery, start, rows);
+			}
+		}
+	}
+
+	/**
+	 * Evaluates a prepared query and reads its results.  The maximum execution time of the query is the time allowed 
+	 * to the current operation, limited to the time remaining to the {@link QueryContext} of the current thread, if 
+	 * any; the results are closed when they have been read, or when the context is cancelled.
+	 *
+	 * @param call the name of the triplestore call issuing the query
+	 * @param tupleQuery the prepared query
+	 * @param reader reads the query results
+	 * @return the value read
+	 * @throws RMapQueryTimeoutException if the query timed out, or the request it was issued for was cancelled
+	 */
+	protected <T> T evaluate(String call, TupleQuery tupleQuery, Function<TupleQueryResult, T> reader) {
+		QueryContext context = QueryContext.current();
+		int seconds = (queryTimeouts != null) ? queryTimeouts.getMaxExecutionTime() : 0;
+		if (context != null) {
+			seconds = context.limit(seconds);
+		}
+		if (seconds > 0) {
+			tupleQuery.setMaxExecutionTime(seconds);
+		}
+		try (TupleQueryResult resultset = tupleQuery.evaluate()) {
+			if (context == null) {
+				return reader.apply(resultset);
+			}
+			context.register(resultset);
+			try {
+				T value = reader.apply(resultset);
+				context.check();
+				return value;
+			} finally {
+				context.unregister(resultset);
+			}
+		} catch (QueryInterruptedException ex) {
+			throw (queryTimeouts != null) 
+					? queryTimeouts.timedOut(call, seconds, ex)
+					: new RMapQueryTimeoutException("Query issued by " + call + " was interrupted", ex);
+		} catch (QueryEvaluationException ex) {
+			if (context != null && context.isCancelled()) {
+				throw new RMapQueryTimeoutException("Query issued by " + call + " was cancelled", ex);
+			}
+			throw ex;
+		}
+	}
+
+	/**
+	 * Fails a triplestore call issued for a request that was cancelled or has run out of time.
+	 *
+	 * @throws RMapQueryTimeoutException if the {@link QueryContext} of the current thread was cancelled or has run out 
+	 * of time
+	 */
+	protected void checkContext() {
+		QueryContext context = QueryContext.current();
+		if (context != null) {
+			context.check();
+		}
 	}
 
 	/**
@@ -382,7 +630,10 @@ public abstract class Rdf4jTriplestore  {
 	 * @throws RepositoryException the repository exception
 	 */
 	public void removeStatements(Set<Statement> stmts, Resource...contexts) throws RepositoryException{
-		this.getConnection().remove(stmts, contexts);
+		try (OperationSample sample = sample("removeStatements")) {
+			this.getConnection().remove(stmts, contexts);
+			sample.written(stmts.size());
+		}
 	}
 	
 	/**
@@ -412,14 +663,51 @@ public abstract class Rdf4jTriplestore  {
 	 */
 	private ValueFactory getValueFactory() throws RepositoryException{
 		if (valueFactory==null){
-			if (repository==null){
-				this.intitializeRepository();
-			}			
-			valueFactory = repository.getValueFactory();
+			valueFactory = getRepository().getValueFactory();
 		}			
 		return valueFactory;
 	}
 		
+	/**
+	 * Sets the metrics used to time triplestore calls.
+	 *
+	 * @param metrics the operation metrics, or null to disable timing
+	 */
+	@Autowired(required = false)
+	public void setMetrics(OperationMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Sets the log of queries that take longer than a threshold.
+	 *
+	 * @param slowQueries the slow query log, or null to disable recording slow queries
+	 */
+	@Autowired(required = false)
+	public void setSlowQueries(SlowQueryLog slowQueries) {
+		this.slowQueries = slowQueries;
+	}
+
+	/**
+	 * Sets the maximum execution time of the queries issued by each operation.
+	 *
+	 * @param queryTimeouts the query timeouts, or null to limit queries only by the request context
+	 */
+	@Autowired(required = false)
+	public void setQueryTimeouts(Rdf4jQueryTimeouts queryTimeouts) {
+		this.queryTimeouts = queryTimeouts;
+	}
+
+	/**
+	 * Starts timing a triplestore call.
+	 *
+	 * @param call the name of the call
+	 * @return the sample, to be closed when the call completes
+	 */
+	protected OperationSample sample(String call) {
+		return (metrics != null) ? metrics.sample(call) : OperationSample.NOOP;
+	}
+
 	/**
 	 * Checks to see if the triplestore connection is open
 	 *
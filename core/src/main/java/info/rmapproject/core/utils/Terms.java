@@ -116,6 +116,9 @@ public final class Terms  {
     /** Progenitor DiSCO as lineage ID */
  	public static final String RMAP_LINEAGE_PROGENITOR = "lineageProgenitor";
 
+ 	/** The term for the contentHash property of a creation Event. */
+ 	public static final String RMAP_CONTENTHASH = "contentHash";
+
  	/*Path requests...*/
 	 /** The full path for the RMap Object class. */
 	 public static final String RMAP_OBJECT_PATH = RMAP_NAMESPACE + RMAP_OBJECT;
@@ -138,6 +138,9 @@ public class RMAP {
 	/** IRI for naming lineage via its progenitor DiSCO*/
 	public static final IRI LINEAGE_PROGENITOR;
 	
+	/** IRI for the content hash of the DiSCO created by an Event*/
+	public static final IRI CONTENTHASH;
+	
 	static {
 		final ValueFactory f = SimpleValueFactory.getInstance();
 
@@ -184,5 +187,6 @@ public class RMAP {
 		
 		//Other properties
 		LINEAGE_PROGENITOR = f.createIRI(NAMESPACE, Terms.RMAP_LINEAGE_PROGENITOR);
+		CONTENTHASH = f.createIRI(NAMESPACE, Terms.RMAP_CONTENTHASH);
 	}
 }
\ No newline at end of file
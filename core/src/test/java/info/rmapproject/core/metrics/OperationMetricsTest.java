@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import info.rmapproject.core.rmapservice.impl.rdf4j.ORMapDiSCOMgr;
+import info.rmapproject.core.rmapservice.impl.rdf4j.ORMapService;
+
+/**
+ * Tests for {@link OperationMetrics}.
+ */
+public class OperationMetricsTest {
+
+	private OperationMetrics metrics;
+
+	@Before
+	public void setUp() throws Exception {
+		metrics = new OperationMetrics();
+		metrics.setJmxEnabled(false);
+	}
+
+	/**
+	 * Triplestore calls are attributed to the operation that was current when they were made.
+	 */
+	@Test
+	public void testSampleIsTaggedWithCurrentOperation() {
+		String previous = metrics.enter("disco.getDiSCOStatus");
+		try (OperationSample sample = metrics.sample("getStatements")) {
+			sample.rows(Arrays.asList("a", "b", "c"));
+		}
+		metrics.exit(previous);
+
+		try (OperationSample sample = metrics.sample("addStatement")) {
+			sample.written(1);
+		}
+
+		String scrape = metrics.scrape();
+		assertTrue(scrape.contains(
+				"rmap_triplestore_rows_total{call=\"getStatements\",operation=\"disco.getDiSCOStatus\"} 3\n"));
+		assertTrue(scrape.contains(
+				"rmap_triplestore_statements_written_total{call=\"addStatement\",operation=\"none\"} 1\n"));
+		assertTrue(scrape.contains(
+				"rmap_triplestore_seconds_count{call=\"getStatements\",operation=\"disco.getDiSCOStatus\"} 1\n"));
+	}
+
+	/**
+	 * A sample closed without reporting a result is recorded as an error.
+	 */
+	@Test
+	public void testSampleWithoutResultIsAnError() {
+		try (OperationSample sample = metrics.sample("getSPARQLQueryResults")) {
+			throw new IllegalStateException("Triplestore unavailable");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		assertTrue(metrics.scrape().contains(
+				"rmap_triplestore_errors_total{call=\"getSPARQLQueryResults\",operation=\"none\"} 1\n"));
+	}
+
+	/**
+	 * Samples are recorded in cumulative histogram buckets.
+	 */
+	@Test
+	public void testHistogramBuckets() {
+		OperationStats stats = metrics.operation("resource.getResourceRelatedDiSCOS");
+		stats.record(500_000, false, 0, 0);        // 0.5 ms
+		stats.record(20_000_000, false, 0, 0);     // 20 ms
+		stats.record(60_000_000_000L, true, 0, 0); // 60 s
+
+		long[] buckets = stats.getCumulativeBuckets();
+		assertEquals(1, buckets[0]);
+		assertEquals(2, buckets[4]);
+		assertEquals(2, buckets[buckets.length - 1]);
+		assertEquals(3, stats.getCount());
+		assertEquals(1, stats.getErrorCount());
+		assertEquals(60000, stats.getMaxTimeMs(), 0.001);
+
+		String scrape = metrics.scrape();
+		assertTrue(scrape.contains(
+				"rmap_operation_seconds_bucket{operation=\"resource.getResourceRelatedDiSCOS\",le=\"+Inf\"} 3\n"));
+	}
+
+	/**
+	 * Disabled metrics record nothing.
+	 */
+	@Test
+	public void testDisabled() {
+		metrics.setEnabled(false);
+		try (OperationSample sample = metrics.sample("getStatements")) {
+			sample.rows(Arrays.asList("a"));
+		}
+		assertEquals("", metrics.scrape());
+	}
+
+	/**
+	 * A counter published again under the same name replaces the earlier one, so its header and value are written
+	 * once.
+	 */
+	@Test
+	public void testCounterPublishedTwiceIsWrittenOnce() {
+		metrics.counter("rmap_test_total", "test counter", () -> 1);
+		metrics.counter("rmap_test_total", "test counter", () -> 2);
+
+		String scrape = metrics.scrape();
+		assertEquals(scrape.indexOf("# TYPE rmap_test_total counter\n"),
+				scrape.lastIndexOf("# TYPE rmap_test_total counter\n"));
+		assertTrue(scrape.contains("rmap_test_total 2\n"));
+		assertFalse(scrape.contains("rmap_test_total 1\n"));
+	}
+
+	@Test
+	public void testObjectName() {
+		assertEquals("disco", OperationMetricsInterceptor.objectName(ORMapDiSCOMgr.class));
+		assertEquals("service", OperationMetricsInterceptor.objectName(ORMapService.class));
+	}
+
+}
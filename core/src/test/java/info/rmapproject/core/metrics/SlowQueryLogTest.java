@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SlowQueryLog}.
+ */
+public class SlowQueryLogTest {
+
+	/** A query start time far enough in the past to exceed the threshold */
+	private static final long SLOW = System.nanoTime() - TimeUnit.SECONDS.toNanos(5);
+
+	private SlowQueryLog log;
+
+	@Before
+	public void setUp() throws Exception {
+		log = new SlowQueryLog();
+		log.setEnabled(true);
+		log.setThresholdMs(1000);
+		log.setCapacity(3);
+	}
+
+	/**
+	 * Instance IRIs, literals and LIMIT and OFFSET values are replaced by placeholders; vocabulary IRIs are kept.
+	 */
+	@Test
+	public void testNormalize() {
+		Map<String, String> bindings = new LinkedHashMap<>();
+		String query = SlowQueryLog.normalize("SELECT ?type WHERE {\n\t<http://example.org/a> <" + RDF.TYPE + "> ?type ."
+				+ "\n\tFILTER (?date >= \"2011-03-22T10:20:13\"^^xsd:dateTime)"
+				+ "\n\tFILTER (?type != <http://example.org/a>) } limit 30 OFFSET 0", bindings);
+
+		assertEquals("SELECT ?type WHERE { ?_1 <" + RDF.TYPE + "> ?type . FILTER (?date >= ?_2) "
+				+ "FILTER (?type != ?_1) } LIMIT ?_3 OFFSET ?_4", query);
+		assertEquals(4, bindings.size());
+		assertEquals("<http://example.org/a>", bindings.get("_1"));
+		assertEquals("\"2011-03-22T10:20:13\"^^xsd:dateTime", bindings.get("_2"));
+		assertEquals("30", bindings.get("_3"));
+		assertEquals("0", bindings.get("_4"));
+	}
+
+	/**
+	 * Only queries that took at least the threshold are recorded, and only when the log is enabled.
+	 */
+	@Test
+	public void testThreshold() {
+		log.sparql("getSPARQLQueryResults", "SELECT ?s WHERE { ?s ?p ?o }", System.nanoTime(), 1);
+		assertTrue(log.getQueries().isEmpty());
+
+		log.setEnabled(false);
+		log.sparql("getSPARQLQueryResults", "SELECT ?s WHERE { ?s ?p ?o }", SLOW, 1);
+		assertTrue(log.getQueries().isEmpty());
+
+		log.setEnabled(true);
+		log.sparql("getSPARQLQueryResults", "SELECT ?s WHERE { ?s ?p ?o }", SLOW, 1);
+		assertEquals(1, log.getQueries().size());
+
+		SlowQuery query = log.getQueries().get(0);
+		assertEquals("getSPARQLQueryResults", query.getCall());
+		assertEquals(OperationMetrics.NO_OPERATION, query.getOperation());
+		assertTrue(query.getDurationMs() >= 5000);
+		assertEquals(1, query.getRows());
+		assertFalse(query.isFailed());
+		assertNull(query.getPlan());
+	}
+
+	/**
+	 * The most recent queries are retained, most recent first.
+	 */
+	@Test
+	public void testRingBuffer() {
+		for (int i = 0; i < 5; i++) {
+			log.sparql("getSPARQLQueryResults", "SELECT ?s WHERE { ?s ?p ?o } LIMIT " + i, SLOW, i);
+		}
+
+		List<SlowQuery> queries = log.getQueries();
+		assertEquals(3, queries.size());
+		assertEquals(4, queries.get(0).getRows());
+		assertEquals(3, queries.get(1).getRows());
+		assertEquals(2, queries.get(2).getRows());
+		assertEquals(5, log.getRecordedCount());
+
+		log.clear();
+		assertTrue(log.getQueries().isEmpty());
+	}
+
+	/**
+	 * Statement pattern lookups are recorded with their bound positions; failed lookups are recorded too.
+	 */
+	@Test
+	public void testStatements() {
+		ValueFactory vf = SimpleValueFactory.getInstance();
+		log.statements("getStatements", vf.createIRI("http://example.org/a"), RDF.TYPE, null,
+				vf.createIRI("http://example.org/disco"), SLOW, -1);
+
+		SlowQuery query = log.getQueries().get(0);
+		assertEquals(SlowQueryLog.STATEMENT_PATTERN, query.getQuery());
+		assertEquals(3, query.getBindings().size());
+		assertEquals("http://example.org/a", query.getBindings().get("s"));
+		assertEquals(RDF.TYPE.toString(), query.getBindings().get("p"));
+		assertNull(query.getBindings().get("o"));
+		assertTrue(query.isFailed());
+	}
+
+	/**
+	 * The parsed query algebra is captured as the plan when explain is enabled.
+	 */
+	@Test
+	public void testExplain() {
+		log.setExplain(true);
+		log.sparql("getSPARQLQueryResults", "SELECT ?s WHERE { ?s <" + RDF.TYPE + "> ?o }", SLOW, 0);
+
+		String plan = log.getQueries().get(0).getPlan();
+		assertNotNull(plan);
+		assertTrue(plan.contains("StatementPattern"));
+	}
+
+}
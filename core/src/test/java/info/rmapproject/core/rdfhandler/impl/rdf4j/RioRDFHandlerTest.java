@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rdfhandler.impl.rdf4j;
+
+import static java.net.URI.create;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFParser;
+import org.eclipse.rdf4j.rio.Rio;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import info.rmapproject.core.exception.RMapDefectiveArgumentException;
+import info.rmapproject.core.exception.RMapException;
+import info.rmapproject.core.exception.RMapRequestTooLargeException;
+import info.rmapproject.core.model.RMapDelta;
+import info.rmapproject.core.model.disco.RMapDiSCO;
+import info.rmapproject.core.model.impl.rdf4j.ORMapDiSCO;
+import info.rmapproject.core.model.impl.rdf4j.OStatementsAdapter;
+import info.rmapproject.core.rdfhandler.RDFType;
+import info.rmapproject.core.vocabulary.impl.rdf4j.RMAP;
+import info.rmapproject.testdata.service.TestDataHandler;
+import info.rmapproject.testdata.service.TestFile;
+
+/**
+ * Tests for the limits {@link RioRDFHandler} places on the RDF it parses, and for reading RDF Patches and RDF
+ * describing several DiSCOs.
+ */
+public class RioRDFHandlerTest {
+
+	private static final String RDF_TYPE = "http://www.w3.org/1999/02/22-rdf-syntax-ns#type";
+
+	private static final String AGGREGATES = "http://www.openarchives.org/ore/terms/aggregates";
+
+	/**
+	 * RDF is accepted up to the maximum number of statements, in each format.
+	 */
+	@Test
+	public void testMaxStatements() throws Exception {
+		for (TestFile file : new TestFile[] {TestFile.DISCOA_XML, TestFile.DISCOA_JSONLD}) {
+			RioRDFHandler handler = new RioRDFHandler();
+			int size = parse(handler, file).size();
+			assertTrue(size > 1);
+
+			handler.setMaxStatements(size);
+			assertEquals(size, parse(handler, file).size());
+
+			handler.setMaxStatements(size - 1);
+			try {
+				parse(handler, file);
+				fail("Expected an RMapRequestTooLargeException for " + file);
+			} catch (RMapRequestTooLargeException e) {
+				assertTrue(e.getMessage().contains(String.valueOf(size - 1)));
+			}
+		}
+	}
+
+	/**
+	 * RDF is accepted up to the maximum number of bytes.
+	 */
+	@Test
+	public void testMaxBytes() throws Exception {
+		RioRDFHandler handler = new RioRDFHandler();
+		handler.setMaxBytes(100000);
+		assertTrue(parse(handler, TestFile.DISCOA_XML).size() > 1);
+
+		handler.setMaxBytes(1000);
+		try {
+			parse(handler, TestFile.DISCOA_XML);
+			fail("Expected an RMapRequestTooLargeException");
+		} catch (RMapRequestTooLargeException e) {
+			assertTrue(e.getMessage().contains("1000 bytes"));
+		}
+	}
+
+	/**
+	 * Parsing stops as soon as a limit is exceeded, rather than after the RDF has been read.
+	 */
+	@Test
+	public void testParsingStopsAtLimit() throws Exception {
+		RioRDFHandler handler = new RioRDFHandler();
+		handler.setMaxStatements(1000);
+		try {
+			handler.convertRDFToStmtList(new EndlessNQuads(), RDFType.NQUADS, "");
+			fail("Expected an RMapRequestTooLargeException");
+		} catch (RMapRequestTooLargeException e) {
+			// expected
+		}
+
+		handler = new RioRDFHandler();
+		handler.setMaxBytes(1000000);
+		try {
+			handler.convertRDFToStmtList(new EndlessNQuads(), RDFType.NQUADS, "");
+			fail("Expected an RMapRequestTooLargeException");
+		} catch (RMapRequestTooLargeException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * The statement typing the DiSCO is noted while parsing, and identifies the DiSCO built from the statements.
+	 */
+	@Test
+	public void testDiscoTypeStatement() throws Exception {
+		BoundedStatementHandler handler = new BoundedStatementHandler(0, 0, RMAP.DISCO);
+		RDFParser parser = Rio.createParser(RDFFormat.RDFXML);
+		parser.setRDFHandler(handler);
+		try (InputStream in = TestDataHandler.getTestData(TestFile.DISCOA_XML)) {
+			parser.parse(handler.limit(in), "");
+		}
+		Statement typeStmt = handler.getTypeStatement();
+		assertNotNull(typeStmt);
+		assertEquals(RMAP.DISCO, typeStmt.getObject());
+
+		ORMapDiSCO disco = OStatementsAdapter.asDisco(handler.getStatements(), typeStmt,
+				() -> create("http://example.org/disco/1"));
+		assertEquals("http://example.org/disco/1", disco.getId().toString());
+		assertEquals(OStatementsAdapter.asDisco(handler.getStatements(),
+				() -> create("http://example.org/disco/1")).getAggregatedResources(), disco.getAggregatedResources());
+	}
+
+	/**
+	 * An RDF Patch is read as the triples to remove and the triples to add, and is subject to the same limits.
+	 */
+	@Test
+	public void testRdfPatch() throws Exception {
+		String patch = "H id <uuid:1234> .\n"
+				+ "TX .\n"
+				+ "# a comment\n"
+				+ "D <http://example.org/disco> <http://purl.org/dc/terms/description> \"old\" .\n"
+				+ "A <http://example.org/disco> <http://purl.org/dc/terms/description> \"new\" .\n"
+				+ "A <http://example.org/disco> <http://www.openarchives.org/ore/terms/aggregates> <http://example.org/a> .\n"
+				+ "TC .\n";
+		RioRDFHandler handler = new RioRDFHandler();
+		RMapDelta delta = handler.rdfPatch2RMapDelta(new ByteArrayInputStream(patch.getBytes(StandardCharsets.UTF_8)), "");
+		assertEquals(1, delta.getRemovals().size());
+		assertEquals("old", delta.getRemovals().get(0).getObject().getStringValue());
+		assertEquals(2, delta.getAdditions().size());
+
+		handler.setMaxStatements(1);
+		try {
+			handler.rdfPatch2RMapDelta(new ByteArrayInputStream(patch.getBytes(StandardCharsets.UTF_8)), "");
+			fail("Expected an RMapRequestTooLargeException");
+		} catch (RMapRequestTooLargeException e) {
+			// expected
+		}
+
+		try {
+			handler.rdfPatch2RMapDelta(new ByteArrayInputStream("X <a> <b> <c> .".getBytes(StandardCharsets.UTF_8)), "");
+			fail("Expected an RMapException");
+		} catch (RMapException e) {
+			assertTrue(e.getMessage().contains("Unrecognized"));
+		}
+	}
+
+	/**
+	 * Each graph of a multi-DiSCO payload is read as a DiSCO, in the order the graphs appear, and given a new id.
+	 */
+	@Test
+	public void testRdf2RMapDiSCOs() throws Exception {
+		String nquads = "<http://example.org/d1> <" + RDF_TYPE + "> <" + RMAP.DISCO + "> <http://example.org/g1> .\n"
+				+ "<http://example.org/d1> <" + AGGREGATES + "> <http://example.org/a1> <http://example.org/g1> .\n"
+				+ "_:d2 <" + RDF_TYPE + "> <" + RMAP.DISCO + "> <http://example.org/g2> .\n"
+				+ "_:d2 <" + AGGREGATES + "> <http://example.org/a2> <http://example.org/g2> .\n"
+				+ "_:d2 <" + AGGREGATES + "> <http://example.org/a3> <http://example.org/g2> .\n";
+		RioRDFHandler handler = new RioRDFHandler();
+		AtomicInteger count = new AtomicInteger();
+		Supplier<URI> idSupplier = () -> create("rmap:disco" + count.incrementAndGet());
+		ReflectionTestUtils.setField(handler, "idSupplier", idSupplier);
+
+		List<RMapDiSCO> discos = handler.rdf2RMapDiSCOs(
+				new ByteArrayInputStream(nquads.getBytes(StandardCharsets.UTF_8)), RDFType.NQUADS, "");
+		assertEquals(2, discos.size());
+		assertEquals("rmap:disco1", discos.get(0).getId().toString());
+		assertEquals(1, discos.get(0).getAggregatedResources().size());
+		assertEquals("rmap:disco2", discos.get(1).getId().toString());
+		assertEquals(2, discos.get(1).getAggregatedResources().size());
+
+		String untyped = "<http://example.org/d3> <" + AGGREGATES + "> <http://example.org/a1> <http://example.org/g3> .\n";
+		try {
+			handler.rdf2RMapDiSCOs(new ByteArrayInputStream((nquads + untyped).getBytes(StandardCharsets.UTF_8)), 
+					RDFType.NQUADS, "");
+			fail("Expected an RMapDefectiveArgumentException");
+		} catch (RMapDefectiveArgumentException e) {
+			assertTrue(e.getMessage().contains("http://example.org/g3"));
+		}
+	}
+
+	/**
+	 * A multi-DiSCO payload is held to the bulk limits, rather than the limits on a single DiSCO, while each DiSCO in 
+	 * it is still held to the maximum number of statements.
+	 */
+	@Test
+	public void testRdf2RMapDiSCOsLimits() throws Exception {
+		StringBuilder nquads = new StringBuilder();
+		for (int i = 1; i <= 3; i++) {
+			String graph = " <http://example.org/g" + i + "> .\n";
+			nquads.append("_:d" + i + " <" + RDF_TYPE + "> <" + RMAP.DISCO + ">" + graph);
+			nquads.append("_:d" + i + " <" + AGGREGATES + "> <http://example.org/a" + i + ">" + graph);
+		}
+		byte[] bulk = nquads.toString().getBytes(StandardCharsets.UTF_8);
+		RioRDFHandler handler = new RioRDFHandler();
+		AtomicInteger count = new AtomicInteger();
+		Supplier<URI> idSupplier = () -> create("rmap:disco" + count.incrementAndGet());
+		ReflectionTestUtils.setField(handler, "idSupplier", idSupplier);
+		handler.setMaxStatements(2);
+		handler.setMaxBytes(100);
+		assertEquals(3, handler.rdf2RMapDiSCOs(new ByteArrayInputStream(bulk), RDFType.NQUADS, "").size());
+
+		handler.setBulkMaxStatements(5);
+		try {
+			handler.rdf2RMapDiSCOs(new ByteArrayInputStream(bulk), RDFType.NQUADS, "");
+			fail("Expected an RMapRequestTooLargeException");
+		} catch (RMapRequestTooLargeException e) {
+			assertTrue(e.getMessage().contains("5 statements"));
+		}
+
+		handler.setBulkMaxStatements(0);
+		handler.setMaxStatements(1);
+		try {
+			handler.rdf2RMapDiSCOs(new ByteArrayInputStream(bulk), RDFType.NQUADS, "");
+			fail("Expected an RMapRequestTooLargeException");
+		} catch (RMapRequestTooLargeException e) {
+			assertTrue(e.getMessage().contains("http://example.org/g1"));
+		}
+	}
+
+	private static Set<Statement> parse(RioRDFHandler handler, TestFile file) throws Exception {
+		try (InputStream in = TestDataHandler.getTestData(file)) {
+			return handler.convertRDFToStmtList(in, RDFType.get(file.getType()), "");
+		}
+	}
+
+	/**
+	 * N-Quads that never end.
+	 */
+	private static class EndlessNQuads extends InputStream {
+
+		private byte[] line = new byte[0];
+
+		private int pos = 0;
+
+		private long count = 0;
+
+		@Override
+		public int read() {
+			if (pos == line.length) {
+				line = ("<http://example.org/s> <http://example.org/p> \"" + count++ + "\" .\n")
+						.getBytes(StandardCharsets.UTF_8);
+				pos = 0;
+			}
+			return line[pos++];
+		}
+	}
+
+}
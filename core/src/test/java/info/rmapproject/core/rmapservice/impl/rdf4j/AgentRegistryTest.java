@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Collections;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.FOAF;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryException;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import info.rmapproject.core.model.event.RMapEventTargetType;
+import info.rmapproject.core.model.impl.rdf4j.ORMapEventUpdateWithReplace;
+import info.rmapproject.core.model.request.RequestEventDetails;
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore;
+import info.rmapproject.core.vocabulary.impl.rdf4j.RMAP;
+
+/**
+ * Tests for {@link AgentRegistry}.
+ */
+public class AgentRegistryTest {
+
+	private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+	private static final IRI AGENT = VF.createIRI("rmap:agent1");
+
+	private Repository repository;
+
+	private Rdf4jTriplestore ts;
+
+	private AgentRegistry registry;
+
+	@Before
+	public void setUp() throws Exception {
+		repository = new SailRepository(new MemoryStore());
+		repository.initialize();
+		ts = new Rdf4jTriplestore() {
+			@Override
+			protected Repository getRepository() throws RepositoryException {
+				return repository;
+			}
+
+			@Override
+			protected Repository intitializeRepository() throws RepositoryException {
+				return repository;
+			}
+		};
+		ts.addStatement(AGENT, RDF.TYPE, RMAP.AGENT, AGENT);
+		ts.addStatement(AGENT, FOAF.NAME, VF.createLiteral("Agent 1"), AGENT);
+		// a resource described as an agent outside its own graph is not an agent
+		IRI disco = VF.createIRI("rmap:disco1");
+		ts.addStatement(VF.createIRI("rmap:notAnAgent"), RDF.TYPE, RMAP.AGENT, disco);
+
+		registry = new AgentRegistry();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		ts.closeConnection();
+		repository.shutDown();
+	}
+
+	/**
+	 * Loading registers the statements of every agent in its own graph.
+	 */
+	@Test
+	public void testLoad() throws Exception {
+		registry.load(ts);
+		assertEquals(1, registry.size());
+		assertEquals(2, registry.get(AGENT).size());
+		assertFalse(registry.contains(VF.createIRI("rmap:notAnAgent")));
+		assertEquals(1, registry.getHitCount());
+		assertEquals(1, registry.getMissCount());
+	}
+
+	/**
+	 * An agent updated by any node is read again when next used.
+	 */
+	@Test
+	public void testUpdateEventInvalidates() throws Exception {
+		registry.load(ts);
+		ORMapEventUpdateWithReplace event = new ORMapEventUpdateWithReplace(VF.createIRI("rmap:event1"),
+				new RequestEventDetails(new URI(AGENT.stringValue())), RMapEventTargetType.AGENT, AGENT);
+		registry.onEvent(event);
+		assertNull(registry.get(AGENT));
+	}
+
+	/**
+	 * A version of an agent read before the agent was unregistered, e.g. by an update committed while it was being 
+	 * read, is not registered; one read afterwards is.
+	 */
+	@Test
+	public void testStaleReadNotRegistered() throws Exception {
+		long generation = registry.generation(AGENT);
+		registry.invalidate(AGENT);
+		registry.put(AGENT, ts.getStatements(null, null, null, false, AGENT), generation);
+		assertFalse(registry.contains(AGENT));
+
+		registry.put(AGENT, ts.getStatements(null, null, null, false, AGENT), registry.generation(AGENT));
+		assertTrue(registry.contains(AGENT));
+	}
+
+	/**
+	 * Nothing is registered while the registry is disabled, and disabling it forgets the agents registered.
+	 */
+	@Test
+	public void testDisabled() throws Exception {
+		registry.load(ts);
+		registry.setEnabled(false);
+		assertEquals(0, registry.size());
+		registry.put(AGENT, Collections.singleton(VF.createStatement(AGENT, RDF.TYPE, RMAP.AGENT, AGENT)));
+		assertFalse(registry.contains(AGENT));
+
+		registry.setEnabled(true);
+		registry.put(AGENT, Collections.singleton(VF.createStatement(AGENT, RDF.TYPE, RMAP.AGENT, AGENT)));
+		assertTrue(registry.contains(AGENT));
+	}
+
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j;
+
+import static info.rmapproject.core.rmapservice.impl.rdf4j.ORMapMgrTest.getRMapDiSCO;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Test;
+
+import info.rmapproject.core.model.impl.rdf4j.ORMapDiSCO;
+import info.rmapproject.testdata.service.TestFile;
+
+/**
+ * Tests for {@link DiSCOContentIndex}.
+ */
+public class DiSCOContentIndexTest {
+
+	private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+	/**
+	 * The same RDF has the same hash each time it is submitted, whatever the DiSCO id and blank node labels.
+	 */
+	@Test
+	public void testSameContentSameHash() throws Exception {
+		for (TestFile file : new TestFile[] {TestFile.DISCOA_XML, TestFile.DISCOA_XML_WITH_BNODES,
+				TestFile.DISCOA_TURTLE_WITH_BNODES}) {
+			ORMapDiSCO disco1 = getRMapDiSCO(file);
+			ORMapDiSCO disco2 = getRMapDiSCO(file);
+			assertNotEquals(disco1.getId(), disco2.getId());
+			assertEquals(DiSCOContentIndex.hash(disco1), DiSCOContentIndex.hash(disco2));
+		}
+	}
+
+	/**
+	 * Different content has a different hash.
+	 */
+	@Test
+	public void testDifferentContentDifferentHash() throws Exception {
+		assertNotEquals(DiSCOContentIndex.hash(getRMapDiSCO(TestFile.DISCOA_XML)),
+				DiSCOContentIndex.hash(getRMapDiSCO(TestFile.DISCOA_XML_WITH_BNODES)));
+		assertNotEquals(DiSCOContentIndex.hash(getRMapDiSCO(TestFile.DISCOB_V1_XML)),
+				DiSCOContentIndex.hash(getRMapDiSCO(TestFile.DISCOB_V2_XML)));
+	}
+
+	/**
+	 * DiSCOs are indexed by the agent that created them, up to the capacity of the index.
+	 */
+	@Test
+	public void testIndexedByAgent() throws Exception {
+		DiSCOContentIndex index = new DiSCOContentIndex();
+		index.setCapacity(2);
+		IRI agent1 = VF.createIRI("rmap:agent1");
+		IRI agent2 = VF.createIRI("rmap:agent2");
+		IRI disco1 = VF.createIRI("rmap:disco1");
+
+		index.put(agent1, "hash1", disco1);
+		assertEquals(disco1, index.find(agent1, "hash1"));
+		assertNull(index.find(agent2, "hash1"));
+
+		index.put(agent1, "hash2", VF.createIRI("rmap:disco2"));
+		index.put(agent2, "hash1", VF.createIRI("rmap:disco3"));
+		assertEquals(2, index.size());
+		assertNull(index.find(agent1, "hash1"));
+
+		index.remove(agent2, "hash1");
+		assertNull(index.find(agent2, "hash1"));
+	}
+
+}
@@ -29,8 +29,14 @@ import static org.junit.Assert.fail;
 import java.io.FileNotFoundException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
 
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.repository.RepositoryException;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
 import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import info.rmapproject.core.exception.RMapAgentNotFoundException;
 import info.rmapproject.core.exception.RMapDefectiveArgumentException;
@@ -38,6 +44,11 @@ import info.rmapproject.core.exception.RMapException;
 import info.rmapproject.core.model.RMapObjectType;
 import info.rmapproject.core.model.agent.RMapAgent;
 import info.rmapproject.core.model.event.RMapEvent;
+import info.rmapproject.core.model.impl.rdf4j.ORAdapter;
+import info.rmapproject.core.model.impl.rdf4j.ORMapAgent;
+import info.rmapproject.core.model.request.RequestEventDetails;
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jShardSet;
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jShardedTriplestore;
 import info.rmapproject.testdata.service.TestConstants;
 
 /**
@@ -46,6 +57,9 @@ import info.rmapproject.testdata.service.TestConstants;
  *
  */
 public class ORMapAgentMgrTest extends ORMapMgrTest{
+
+	@Autowired
+	ORMapAgentMgr agentmgr;
 	
 	/**
 	 * Test method for {@link info.rmapproject.core.rmapservice.impl.rdf4j.ORMapAgentMgr#readAgent(org.eclipse.rdf4j.model.IRI, info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore)}.
@@ -137,4 +151,46 @@ public class ORMapAgentMgrTest extends ORMapMgrTest{
 	}
 	
 
+	/**
+	 * An agent read by another request while it is being updated on a sharded triplestore is read again once the
+	 * update is committed, rather than the version read being kept.
+	 * @throws Exception
+	 */
+	@Test
+	public void testUpdateAgentThenReadOnShardedTriplestore() throws Exception {
+		Rdf4jShardSet shardSet = new Rdf4jShardSet(Arrays.asList(
+				new SailRepository(new MemoryStore()), new SailRepository(new MemoryStore())));
+		Rdf4jShardedTriplestore reader = new Rdf4jShardedTriplestore(shardSet);
+		try {
+			URI agentUri = randomURI();
+			IRI agentIri = ORAdapter.uri2Rdf4jIri(agentUri);
+			IRI idProvider = ORAdapter.getValueFactory().createIRI(TestConstants.SYSAGENT_ID_PROVIDER);
+			IRI authId = ORAdapter.uri2Rdf4jIri(randomURI());
+			RequestEventDetails agentRequest = new RequestEventDetails(agentUri);
+			agentmgr.createAgent(new ORMapAgent(agentIri, idProvider, authId, 
+					ORAdapter.getValueFactory().createLiteral("Before update")), agentRequest, reader);
+			assertEquals("Before update", agentmgr.readAgent(agentIri, reader).getName().getStringValue());
+
+			Rdf4jShardedTriplestore writer = new Rdf4jShardedTriplestore(shardSet) {
+				@Override
+				public void commitTransaction() throws RepositoryException {
+					// another request reads the agent before the update is committed
+					agentmgr.readAgent(agentIri, reader);
+					super.commitTransaction();
+				}
+			};
+			try {
+				agentmgr.updateAgent(new ORMapAgent(agentIri, idProvider, authId, 
+						ORAdapter.getValueFactory().createLiteral("After update")), agentRequest, writer);
+			} finally {
+				writer.closeConnection();
+			}
+
+			assertEquals("After update", agentmgr.readAgent(agentIri, reader).getName().getStringValue());
+		} finally {
+			reader.closeConnection();
+			shardSet.destroy();
+		}
+	}
+
 }
@@ -25,6 +25,7 @@ package info.rmapproject.core.rmapservice.impl.rdf4j;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static info.rmapproject.core.model.impl.rdf4j.ORAdapter.rMapIri2Rdf4jIri;
@@ -34,20 +35,28 @@ import static info.rmapproject.core.rmapservice.impl.rdf4j.ORMapQueriesLineage.f
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.TestPropertySource;
 
 import info.rmapproject.core.exception.RMapDefectiveArgumentException;
 import info.rmapproject.core.exception.RMapDeletedObjectException;
+import info.rmapproject.core.exception.RMapDuplicateDiSCOException;
 import info.rmapproject.core.exception.RMapException;
 import info.rmapproject.core.exception.RMapNotLatestVersionException;
 import info.rmapproject.core.exception.RMapTombstonedObjectException;
@@ -60,9 +69,12 @@ import info.rmapproject.core.model.event.RMapEventTombstone;
 import info.rmapproject.core.model.impl.rdf4j.ORAdapter;
 import info.rmapproject.core.model.impl.rdf4j.ORMapAgent;
 import info.rmapproject.core.model.impl.rdf4j.ORMapDiSCO;
+import info.rmapproject.core.model.request.DiSCOCreateResult;
 import info.rmapproject.core.model.request.RequestEventDetails;
 import info.rmapproject.core.rmapservice.impl.rdf4j.ORMapDiSCOMgr;
 import info.rmapproject.core.rmapservice.impl.rdf4j.ORMapEventMgr;
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jShardSet;
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jShardedTriplestore;
 import info.rmapproject.testdata.service.TestConstants;
 import info.rmapproject.testdata.service.TestFile;
 
@@ -76,6 +88,15 @@ public class ORMapDiSCOMgrTest extends ORMapMgrTest {
 	
 	@Autowired 
 	ORMapDiSCOMgr discomgr;
+
+	@Autowired
+	DiSCOContentIndex contentIndex;
+
+	@Autowired
+	ORMapAgentMgr agentmgr;
+
+	@Autowired
+	LineageLocks lineageLocks;
 	
 	/**
 	 * Test method for {@link info.rmapproject.core.rmapservice.impl.rdf4j.ORMapDiSCOMgr#readDiSCO(org.eclipse.rdf4j.model.IRI, boolean, Map, Map, ORMapEventMgr, info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore)}.
@@ -708,4 +729,188 @@ public class ORMapDiSCOMgrTest extends ORMapMgrTest {
 	
 	
 
+	/**
+	 * Test that a DiSCO submitted again by the agent that created it is answered with the existing DiSCO, when
+	 * duplicates are detected, and is only answered while the existing DiSCO is active
+	 * @throws Exception
+	 */
+	@Test
+	public void testCreateDuplicateDiSCO() throws Exception {
+		contentIndex.setEnabled(true);
+		try {
+			ORMapDiSCO disco = getRMapDiSCO(TestFile.DISCOA_XML_WITH_BNODES);
+			discomgr.createDiSCO(disco, reqEventDetails, triplestore);
+
+			ORMapDiSCO duplicate = getRMapDiSCO(TestFile.DISCOA_XML_WITH_BNODES);
+			try {
+				discomgr.createDiSCO(duplicate, reqEventDetails, triplestore);
+				fail("Expected an RMapDuplicateDiSCOException");
+			} catch (RMapDuplicateDiSCOException ex) {
+				assertEquals(disco.getId().getIri(), ex.getDiscoId());
+			}
+			assertFalse(discomgr.isDiscoId(rMapIri2Rdf4jIri(duplicate.getId()), triplestore));
+
+			//once the original is inactive, the same content makes a new DiSCO
+			discomgr.updateDiSCO(rMapIri2Rdf4jIri(disco.getId()), null, reqEventDetails, true, triplestore);
+			discomgr.createDiSCO(duplicate, reqEventDetails, triplestore);
+			assertTrue(discomgr.isDiscoId(rMapIri2Rdf4jIri(duplicate.getId()), triplestore));
+		} finally {
+			contentIndex.setEnabled(false);
+		}
+	}
+
+	/**
+	 * Test that a duplicate DiSCO is still detected once the in-memory index is dropped, e.g. after a restart or on
+	 * another node, from the content hash recorded on the creation event; and only for the agent that created it
+	 * @throws Exception
+	 */
+	@Test
+	public void testCreateDuplicateDiSCOAfterIndexDropped() throws Exception {
+		contentIndex.setEnabled(true);
+		try {
+			ORMapDiSCO disco = getRMapDiSCO(TestFile.DISCOA_XML_WITH_BNODES);
+			discomgr.createDiSCO(disco, reqEventDetails, triplestore);
+			contentIndex.clear();
+			assertEquals(0, contentIndex.size());
+
+			ORMapDiSCO duplicate = getRMapDiSCO(TestFile.DISCOA_XML_WITH_BNODES);
+			try {
+				discomgr.createDiSCO(duplicate, reqEventDetails, triplestore);
+				fail("Expected an RMapDuplicateDiSCOException");
+			} catch (RMapDuplicateDiSCOException ex) {
+				assertEquals(disco.getId().getIri(), ex.getDiscoId());
+			}
+			assertFalse(discomgr.isDiscoId(rMapIri2Rdf4jIri(duplicate.getId()), triplestore));
+			assertEquals(1, contentIndex.size());
+
+			//the hash recorded for one agent does not match the DiSCOs of another
+			contentIndex.clear();
+			IRI otherAgent = uri2Rdf4jIri(new URI("rmap:otheragent"));
+			assertNull(discomgr.findCreatedDiSCO(otherAgent, DiSCOContentIndex.hash(duplicate), triplestore));
+		} finally {
+			contentIndex.setEnabled(false);
+		}
+	}
+
+	/**
+	 * Test that several DiSCOs are created in chunks, with a result for each in order, and that a DiSCO rejected as a
+	 * duplicate fails without failing the rest of its chunk
+	 * @throws Exception
+	 */
+	@Test
+	public void testCreateDiSCOs() throws Exception {
+		ORMapService service = (ORMapService) rmapService;
+		service.setBulkChunkSize(2);
+		contentIndex.setEnabled(true);
+		try {
+			ORMapDiSCO disco1 = getRMapDiSCO(TestFile.DISCOA_XML);
+			ORMapDiSCO disco2 = getRMapDiSCO(TestFile.DISCOA_XML_WITH_BNODES);
+			ORMapDiSCO duplicate = getRMapDiSCO(TestFile.DISCOA_XML);
+			List<DiSCOCreateResult> results = 
+					rmapService.createDiSCOs(Arrays.asList(disco1, disco2, duplicate), reqEventDetails);
+
+			assertEquals(3, results.size());
+			assertTrue(results.get(0).isCreated());
+			assertEquals(disco1.getId().getIri(), results.get(0).getDiscoId());
+			assertTrue(results.get(1).isCreated());
+			assertEquals(disco2.getId().getIri(), results.get(1).getDiscoId());
+			assertFalse(results.get(2).isCreated());
+			assertTrue(results.get(2).getError() instanceof RMapDuplicateDiSCOException);
+
+			assertTrue(discomgr.isDiscoId(rMapIri2Rdf4jIri(disco1.getId()), triplestore));
+			assertTrue(discomgr.isDiscoId(rMapIri2Rdf4jIri(disco2.getId()), triplestore));
+			assertFalse(discomgr.isDiscoId(rMapIri2Rdf4jIri(duplicate.getId()), triplestore));
+			RMapEvent event = rmapService.readEvent(results.get(1).getEvent().getId().getIri());
+			assertEquals(reqEventDetails.getSystemAgent(), event.getAssociatedAgent().getIri());
+		} finally {
+			contentIndex.setEnabled(false);
+			service.setBulkChunkSize(500);
+		}
+	}
+
+	/**
+	 * Test that a delta applied to a DiSCO makes a new version with the existing statements, less those removed and
+	 * plus those added, that can be written as an update
+	 * @throws Exception
+	 */
+	@Test
+	public void testApplyDelta() throws Exception {
+		ORMapDiSCO disco = getRMapDiSCO(TestFile.DISCOA_XML);
+		discomgr.createDiSCO(disco, reqEventDetails, triplestore);
+		IRI discoIri = rMapIri2Rdf4jIri(disco.getId());
+
+		Statement description = disco.getDescriptonStatement();
+		Literal newDescription = ORAdapter.getValueFactory().createLiteral("A patched description");
+		Set<Statement> removals = new HashSet<Statement>(Arrays.asList(ORAdapter.getValueFactory()
+				.createStatement(discoIri, description.getPredicate(), description.getObject())));
+		Set<Statement> additions = new HashSet<Statement>(Arrays.asList(ORAdapter.getValueFactory()
+				.createStatement(discoIri, description.getPredicate(), newDescription)));
+
+		ORMapDiSCO disco2 = discomgr.applyDelta(discoIri, removals, additions, triplestore);
+		assertNotEquals(disco.getId(), disco2.getId());
+		assertEquals(newDescription.stringValue(), disco2.getDescription().getStringValue());
+		assertEquals(new HashSet<URI>(disco.getAggregatedResources()), 
+				new HashSet<URI>(disco2.getAggregatedResources()));
+		assertEquals(disco.getRelatedStatements().size(), disco2.getRelatedStatements().size());
+
+		discomgr.updateDiSCO(discoIri, disco2, reqEventDetails, false, triplestore);
+		RMapDiSCO rDisco = discomgr.readDiSCO(rMapIri2Rdf4jIri(disco2.getId()), triplestore);
+		assertEquals(newDescription.stringValue(), rDisco.getDescription().getStringValue());
+
+		//a delta that changes nothing is refused
+		try {
+			discomgr.applyDelta(rMapIri2Rdf4jIri(disco2.getId()), removals, new HashSet<Statement>(), triplestore);
+			fail("Expected an RMapDefectiveArgumentException");
+		} catch (RMapDefectiveArgumentException ex) {
+			assertTrue(ex.getMessage().contains("as it is"));
+		}
+	}
+
+	/**
+	 * A lineage updated on one thread against a sharded triplestore is released once the update is committed, so the
+	 * lineage can be updated again from another thread.
+	 * @throws Exception
+	 */
+	@Test
+	public void testUpdateLineageFromTwoThreadsOnShardedTriplestore() throws Exception {
+		Rdf4jShardSet shardSet = new Rdf4jShardSet(Arrays.asList(
+				new SailRepository(new MemoryStore()), new SailRepository(new MemoryStore())));
+		StripedLineageLocks locks = new StripedLineageLocks();
+		locks.setTimeoutMs(2000);
+		discomgr.setLineageLocks(locks);
+		try {
+			ORMapDiSCO disco = getRMapDiSCO(TestFile.DISCOA_XML);
+			ORMapDiSCO disco2 = getRMapDiSCO(TestFile.DISCOA_XML);
+			ORMapDiSCO disco3 = getRMapDiSCO(TestFile.DISCOA_XML);
+			CompletableFuture.runAsync(() -> {
+				Rdf4jShardedTriplestore ts = new Rdf4jShardedTriplestore(shardSet);
+				try {
+					agentmgr.createAgent(sysagent, reqEventDetails, ts);
+					discomgr.createDiSCO(disco, reqEventDetails, ts);
+					discomgr.updateDiSCO(rMapIri2Rdf4jIri(disco.getId()), disco2, reqEventDetails, false, ts);
+				} finally {
+					ts.closeConnection();
+				}
+			}).get(30, TimeUnit.SECONDS);
+			CompletableFuture.runAsync(() -> {
+				Rdf4jShardedTriplestore ts = new Rdf4jShardedTriplestore(shardSet);
+				try {
+					discomgr.updateDiSCO(rMapIri2Rdf4jIri(disco2.getId()), disco3, reqEventDetails, false, ts);
+				} finally {
+					ts.closeConnection();
+				}
+			}).get(30, TimeUnit.SECONDS);
+
+			Rdf4jShardedTriplestore ts = new Rdf4jShardedTriplestore(shardSet);
+			try {
+				assertEquals(disco.getId().getIri(), findLineageProgenitor(disco3.getId().getIri(), ts));
+			} finally {
+				ts.closeConnection();
+			}
+		} finally {
+			discomgr.setLineageLocks(lineageLocks);
+			shardSet.destroy();
+		}
+	}
+
 }
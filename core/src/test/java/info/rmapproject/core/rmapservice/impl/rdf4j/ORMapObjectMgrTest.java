@@ -24,6 +24,7 @@ package info.rmapproject.core.rmapservice.impl.rdf4j;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -46,6 +47,7 @@ import info.rmapproject.core.exception.RMapDefectiveArgumentException;
 import info.rmapproject.core.exception.RMapException;
 import info.rmapproject.core.idservice.IdService;
 import info.rmapproject.core.model.RMapIri;
+import info.rmapproject.core.model.RMapObjectType;
 import info.rmapproject.core.model.event.RMapEventTargetType;
 import info.rmapproject.core.model.impl.rdf4j.ORAdapter;
 import info.rmapproject.core.model.impl.rdf4j.ORMapDiSCO;
@@ -139,6 +141,22 @@ public class ORMapObjectMgrTest extends ORMapMgrTest {
 	}
 
 
+	/**
+	 * Test method for {@link info.rmapproject.core.rmapservice.impl.rdf4j.ORMapObjectMgr#getRMapObjectType(info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore, org.eclipse.rdf4j.model.IRI)}.
+	 */
+	@Test
+	public void testGetRMapObjectType() throws Exception {
+		assertEquals(RMapObjectType.AGENT, rmapService.getRMapObjectType(reqEventDetails.getSystemAgent()));
+
+		ORMapDiSCO disco = getRMapDiSCO(TestFile.DISCOA_XML);
+		ORMapEvent event = discomgr.createDiSCO(disco, reqEventDetails, triplestore);
+		assertEquals(RMapObjectType.DISCO, discomgr.getRMapObjectType(triplestore, disco.getDiscoContext()));
+		assertEquals(RMapObjectType.EVENT, rmapService.getRMapObjectType(event.getId().getIri()));
+
+		assertNull(rmapService.getRMapObjectType(new URI("http://rmap-info.org")));
+	}
+
+
 	/**
 	 * Test method for {@link info.rmapproject.core.rmapservice.impl.rdf4j.ORMapObjectMgr#isEventId(org.eclipse.rdf4j.model.IRI, info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore)}.
 	 * @throws RMapDefectiveArgumentException 
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryException;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore;
+import info.rmapproject.core.vocabulary.impl.rdf4j.RMAP;
+
+/**
+ * Tests for {@link ObjectTypeCache}, and its use by {@link ORMapObjectMgr#isRMapType(Rdf4jTriplestore, IRI, IRI)}.
+ */
+public class ObjectTypeCacheTest {
+
+	private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+	private static final IRI DISCO = VF.createIRI("rmap:disco1");
+
+	private static final IRI RESOURCE = VF.createIRI("http://example.org/resource1");
+
+	private Repository repository;
+
+	private Rdf4jTriplestore ts;
+
+	private ObjectTypeCache cache;
+
+	private ORMapObjectMgr mgr;
+
+	/**
+	 * A triplestore over a repository of its own.
+	 */
+	public static class MemoryTriplestore extends Rdf4jTriplestore {
+
+		private final Repository repository;
+
+		public MemoryTriplestore(Repository repository) {
+			this.repository = repository;
+		}
+
+		@Override
+		protected Repository getRepository() throws RepositoryException {
+			return repository;
+		}
+
+		@Override
+		protected Repository intitializeRepository() throws RepositoryException {
+			return repository;
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		repository = new SailRepository(new MemoryStore());
+		repository.initialize();
+		ts = spy(new MemoryTriplestore(repository));
+		ts.addStatement(DISCO, RDF.TYPE, RMAP.DISCO, DISCO);
+		ts.addStatement(DISCO, RDF.TYPE, VF.createIRI("http://example.org/Thing"), DISCO);
+
+		cache = new ObjectTypeCache();
+		cache.setEnabled(true);
+		cache.setExpectedObjects(1000);
+		mgr = new ORMapObjectMgr() { };
+		mgr.setTypeCache(cache);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		ts.closeConnection();
+		repository.shutDown();
+	}
+
+	/**
+	 * Types found are answered from the cache; an IRI has one RMap type.
+	 */
+	@Test
+	public void testTypesAreCached() throws Exception {
+		assertTrue(mgr.isDiscoId(DISCO, ts));
+		assertTrue(mgr.isDiscoId(DISCO, ts));
+		assertFalse(mgr.isEventId(DISCO, ts));
+		assertEquals(2, cache.getHitCount());
+		verify(ts).hasContext(DISCO);
+	}
+
+	/**
+	 * Once the filter is loaded, IRIs that were never written as RMap objects are not looked up, and RMap objects
+	 * written since are.
+	 */
+	@Test
+	public void testFilterAnswersNegatives() throws Exception {
+		// not trusted until loaded
+		assertFalse(cache.isNeverWritten(RESOURCE));
+		assertEquals(1, cache.load(ts));
+
+		assertFalse(mgr.isDiscoId(RESOURCE, ts));
+		assertFalse(mgr.isAgentId(RESOURCE, ts));
+		verify(ts, never()).hasContext(RESOURCE);
+		assertEquals(2, cache.getFilteredCount());
+
+		IRI disco2 = VF.createIRI("rmap:disco2");
+		mgr.createStatement(ts, VF.createStatement(disco2, RDF.TYPE, RMAP.DISCO, disco2));
+		assertTrue(mgr.isDiscoId(disco2, ts));
+		assertFalse(cache.isNeverWritten(disco2));
+	}
+
+	/**
+	 * The filter is not trusted for IRIs in the RMap id namespace, which another node may have written before its 
+	 * Event arrives, so they are looked up in the triplestore.
+	 */
+	@Test
+	public void testFilterNotTrustedForRMapIds() throws Exception {
+		cache.load(ts);
+		IRI disco3 = VF.createIRI("rmap:disco3");
+		assertFalse(cache.isNeverWritten(disco3));
+		ts.addStatement(disco3, RDF.TYPE, RMAP.DISCO, disco3);
+		assertTrue(mgr.isDiscoId(disco3, ts));
+		verify(ts).hasContext(disco3);
+
+		cache.setIdPrefix("ark:/99999/");
+		assertTrue(cache.isNeverWritten(VF.createIRI("rmap:disco4")));
+	}
+
+	/**
+	 * The filter is not trusted once the objects written by other nodes can no longer be seen.
+	 */
+	@Test
+	public void testFilterNotTrustedWhenStreamLost() throws Exception {
+		cache.load(ts);
+		assertTrue(cache.isNeverWritten(RESOURCE));
+		cache.onStreamLost();
+		assertFalse(cache.isNeverWritten(RESOURCE));
+		assertFalse(mgr.isDiscoId(RESOURCE, ts));
+		verify(ts).hasContext(any());
+	}
+
+}
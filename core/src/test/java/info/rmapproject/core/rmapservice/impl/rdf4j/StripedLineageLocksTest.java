@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import info.rmapproject.core.exception.RMapException;
+import info.rmapproject.core.rmapservice.impl.rdf4j.LineageLocks.LineageLock;
+
+/**
+ * Tests for {@link StripedLineageLocks}.
+ */
+public class StripedLineageLocksTest {
+
+	private static final URI LINEAGE_A = URI.create("rmap:lineageA");
+
+	private static final URI LINEAGE_B = URI.create("rmap:lineageB");
+
+	private StripedLineageLocks locks;
+
+	@Before
+	public void setUp() {
+		locks = new StripedLineageLocks();
+		locks.setStripes(1024);
+		locks.setTimeoutMs(100);
+		assertNotEquals(Math.floorMod(LINEAGE_A.toString().hashCode(), 1024),
+				Math.floorMod(LINEAGE_B.toString().hashCode(), 1024));
+	}
+
+	/**
+	 * A writer waits for the lock of a lineage held by another writer, and times out if it is not released.
+	 */
+	@Test
+	public void testSameLineageIsSerialized() throws Exception {
+		try (LineageLock lock = locks.lock(LINEAGE_A)) {
+			try {
+				CompletableFuture.runAsync(() -> locks.lock(LINEAGE_A).close()).get(5, TimeUnit.SECONDS);
+				fail("Expected an RMapException");
+			} catch (ExecutionException e) {
+				assertEquals(RMapException.class, e.getCause().getClass());
+			}
+		}
+		CompletableFuture.runAsync(() -> locks.lock(LINEAGE_A).close()).get(5, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * The lock of one lineage does not hold up writes to another.
+	 */
+	@Test
+	public void testOtherLineagesProceed() throws Exception {
+		try (LineageLock lock = locks.lock(LINEAGE_A)) {
+			CompletableFuture.runAsync(() -> locks.lock(LINEAGE_B).close()).get(5, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * The writer holding the lock of a lineage can lock it again, and holds it until it has released every lock.
+	 */
+	@Test
+	public void testLocksAreReentrant() throws Exception {
+		LineageLock outer = locks.lock(LINEAGE_A);
+		locks.lock(LINEAGE_A).close();
+		try {
+			CompletableFuture.runAsync(() -> locks.lock(LINEAGE_A).close()).get(5, TimeUnit.SECONDS);
+			fail("Expected an RMapException");
+		} catch (ExecutionException e) {
+			assertEquals(RMapException.class, e.getCause().getClass());
+		}
+		outer.close();
+		CompletableFuture.runAsync(() -> locks.lock(LINEAGE_A).close()).get(5, TimeUnit.SECONDS);
+	}
+
+}
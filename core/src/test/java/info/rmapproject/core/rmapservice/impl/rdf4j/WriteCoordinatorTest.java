@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import info.rmapproject.core.exception.RMapDefectiveArgumentException;
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore;
+
+/**
+ * Tests for {@link WriteCoordinator}.
+ */
+public class WriteCoordinatorTest {
+
+	private Rdf4jTriplestore ts;
+
+	private ORMapEventMgr eventmgr;
+
+	private WriteCoordinator coordinator;
+
+	private ExecutorService callers;
+
+	@Before
+	public void setUp() throws Exception {
+		ts = mock(Rdf4jTriplestore.class);
+		when(ts.supportsMultiLineageTransactions()).thenReturn(true);
+		eventmgr = mock(ORMapEventMgr.class);
+		coordinator = new WriteCoordinator();
+		coordinator.setTriplestore(ts);
+		coordinator.setEventmgr(eventmgr);
+		coordinator.setEnabled(true);
+		coordinator.setWindowMs(10000);
+		coordinator.setMaxWrites(3);
+		callers = Executors.newFixedThreadPool(3);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		callers.shutdownNow();
+		coordinator.destroy();
+	}
+
+	/**
+	 * Concurrent writes are committed together, and each caller is answered with the result of its own write once
+	 * the group has been committed.
+	 */
+	@Test
+	public void testWritesAreGrouped() throws Exception {
+		List<Future<String>> results = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			String result = "write" + i;
+			results.add(callers.submit(() -> coordinator.write(triplestore -> result)));
+		}
+		for (int i = 0; i < 3; i++) {
+			assertEquals("write" + i, results.get(i).get());
+		}
+
+		InOrder order = inOrder(ts, eventmgr);
+		order.verify(eventmgr).beginSendBatch();
+		order.verify(ts).beginTransaction();
+		order.verify(ts).commitTransaction();
+		order.verify(eventmgr).endSendBatch();
+		assertEquals(1, coordinator.getCommitCount());
+		assertEquals(3, coordinator.getWriteCount());
+	}
+
+	/**
+	 * A failure to send the Events of a committed group does not fail its writes, or run them again.
+	 */
+	@Test
+	public void testSendFailureAfterCommit() throws Exception {
+		doThrow(new IllegalStateException("Kafka is unavailable")).when(eventmgr).endSendBatch();
+		List<Future<String>> results = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			String result = "write" + i;
+			results.add(callers.submit(() -> coordinator.write(triplestore -> result)));
+		}
+		for (int i = 0; i < 3; i++) {
+			assertEquals("write" + i, results.get(i).get());
+		}
+
+		verify(ts).commitTransaction();
+		verify(ts, never()).rollbackTransaction();
+		verify(eventmgr, never()).discardSendBatch();
+		assertEquals(1, coordinator.getCommitCount());
+	}
+
+	/**
+	 * Writes are not group committed against a triplestore that writes one lineage per transaction.
+	 */
+	@Test
+	public void testDisabledForSingleLineageTransactions() throws Exception {
+		assertTrue(coordinator.isEnabled());
+		when(ts.supportsMultiLineageTransactions()).thenReturn(false);
+		assertFalse(coordinator.isEnabled());
+	}
+
+	/**
+	 * A write that fails fails alone: its group is rolled back, and the other writes are committed on their own.
+	 */
+	@Test
+	public void testFailedWriteIsAttributed() throws Exception {
+		List<Future<String>> results = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			String result = "write" + i;
+			boolean fails = (i == 1);
+			results.add(callers.submit(() -> coordinator.write(triplestore -> {
+				if (fails) {
+					throw new RMapDefectiveArgumentException("bad write");
+				}
+				return result;
+			})));
+		}
+		assertEquals("write0", results.get(0).get());
+		assertEquals("write2", results.get(2).get());
+		try {
+			results.get(1).get();
+			fail("Expected an RMapDefectiveArgumentException");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RMapDefectiveArgumentException);
+		}
+
+		//the group and the failed write are rolled back, and the other two writes committed
+		verify(ts, times(2)).rollbackTransaction();
+		verify(ts, times(2)).commitTransaction();
+		verify(eventmgr, times(2)).endSendBatch();
+		assertEquals(2, coordinator.getCommitCount());
+		assertEquals(2, coordinator.getWriteCount());
+	}
+
+}
@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j.triplestore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
+import org.eclipse.rdf4j.query.TupleQuery;
+import org.eclipse.rdf4j.query.TupleQueryResult;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryException;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import info.rmapproject.core.exception.RMapQueryTimeoutException;
+import info.rmapproject.core.vocabulary.impl.rdf4j.RMAP;
+
+/**
+ * Tests for {@link QueryContext} and {@link Rdf4jQueryTimeouts}, and their use by {@link Rdf4jTriplestore}.
+ */
+public class QueryContextTest {
+
+	private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+	private static final String DISCOS = "SELECT ?s WHERE { GRAPH ?g { ?s a <" + RMAP.DISCO + "> } }";
+
+	private Repository repository;
+
+	private Rdf4jTriplestore ts;
+
+	private Rdf4jQueryTimeouts timeouts;
+
+	@Before
+	public void setUp() throws Exception {
+		repository = new SailRepository(new MemoryStore());
+		repository.initialize();
+		ts = new Rdf4jTriplestore() {
+			@Override
+			protected Repository getRepository() throws RepositoryException {
+				return repository;
+			}
+
+			@Override
+			protected Repository intitializeRepository() throws RepositoryException {
+				return repository;
+			}
+		};
+		timeouts = new Rdf4jQueryTimeouts();
+		timeouts.setDefaultSeconds(30);
+		ts.setQueryTimeouts(timeouts);
+
+		IRI disco = VF.createIRI("rmap:disco1");
+		ts.addStatement(disco, RDF.TYPE, RMAP.DISCO, disco);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		ts.closeConnection();
+		repository.shutDown();
+	}
+
+	/**
+	 * Timeouts are configured per operation, with a default for the rest.
+	 */
+	@Test
+	public void testOperationTimeouts() throws Exception {
+		timeouts.setOperations(" resource.getRelatedTriples=10, statement.getRelatedDiSCOs = 0 ,");
+		assertEquals(2, timeouts.getOperationSeconds().size());
+		assertEquals(Integer.valueOf(10), timeouts.getOperationSeconds().get("resource.getRelatedTriples"));
+		assertEquals(Integer.valueOf(0), timeouts.getOperationSeconds().get("statement.getRelatedDiSCOs"));
+		// no operation metrics, so no current operation
+		assertEquals(30, timeouts.getMaxExecutionTime());
+
+		try {
+			timeouts.setOperations("resource.getRelatedTriples");
+			fail("Expected an IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * The maximum execution time of a query is the lesser of its timeout and the time remaining to the request,
+	 * rounded up.
+	 */
+	@Test
+	public void testLimitIsTimeRemaining() throws Exception {
+		QueryContext context = new QueryContext(4500);
+		assertEquals(3, context.limit(3));
+		assertEquals(5, context.limit(0));
+		assertEquals(5, context.limit(60));
+	}
+
+	/**
+	 * The maximum execution time is set on each prepared query.
+	 */
+	@Test
+	public void testMaxExecutionTimeIsSet() throws Exception {
+		TupleQuery query = mock(TupleQuery.class);
+		when(query.evaluate()).thenReturn(mock(TupleQueryResult.class));
+
+		ts.evaluate("test", query, result -> null);
+		verify(query).setMaxExecutionTime(30);
+
+		query = mock(TupleQuery.class);
+		when(query.evaluate()).thenReturn(mock(TupleQueryResult.class));
+		try (QueryContext.Scope scope = new QueryContext(10000).attach()) {
+			ts.evaluate("test", query, result -> null);
+		}
+		verify(query).setMaxExecutionTime(10);
+		assertNull(QueryContext.current());
+	}
+
+	/**
+	 * A query interrupted by the triplestore fails with a timeout, and is counted.
+	 */
+	@Test
+	public void testInterruptedQueryTimesOut() throws Exception {
+		TupleQuery query = mock(TupleQuery.class);
+		QueryInterruptedException interrupted = new QueryInterruptedException("took too long");
+		when(query.evaluate()).thenThrow(interrupted);
+
+		try {
+			ts.evaluate("test", query, result -> null);
+			fail("Expected an RMapQueryTimeoutException");
+		} catch (RMapQueryTimeoutException e) {
+			assertSame(interrupted, e.getCause());
+		}
+		assertEquals(1, timeouts.getTimedOutCount());
+	}
+
+	/**
+	 * Queries issued for a cancelled request fail without being evaluated.
+	 */
+	@Test
+	public void testCancelledContextFailsQueries() throws Exception {
+		assertEquals(1, ts.getSPARQLQueryResults(DISCOS).size());
+
+		QueryContext context = new QueryContext(10000);
+		context.cancel();
+		TupleQuery query = mock(TupleQuery.class);
+		try (QueryContext.Scope scope = context.attach()) {
+			try {
+				ts.evaluate("test", query, result -> null);
+				fail("Expected an RMapQueryTimeoutException");
+			} catch (RMapQueryTimeoutException e) {
+				// expected
+			}
+			try {
+				ts.getStatements(null, RDF.TYPE, null, false, null);
+				fail("Expected an RMapQueryTimeoutException");
+			} catch (RMapQueryTimeoutException e) {
+				// expected
+			}
+		}
+		verify(query, never()).evaluate();
+	}
+
+	/**
+	 * Cancelling a request closes the results of its running queries, and the query fails rather than answering the
+	 * results read so far.
+	 */
+	@Test
+	public void testCancelClosesRunningResults() throws Exception {
+		QueryContext context = new QueryContext(10000);
+		TupleQuery query = mock(TupleQuery.class);
+		TupleQueryResult results = mock(TupleQueryResult.class);
+		when(query.evaluate()).thenReturn(results);
+
+		try (QueryContext.Scope scope = context.attach()) {
+			ts.evaluate("test", query, result -> {
+				context.cancel();
+				return null;
+			});
+			fail("Expected an RMapQueryTimeoutException");
+		} catch (RMapQueryTimeoutException e) {
+			assertTrue(context.isCancelled());
+		}
+		verify(results, atLeastOnce()).close();
+	}
+
+}
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j.triplestore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Arrays;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryException;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jReplicaPool.Replica;
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jReplicaPool.Selection;
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jReplicaPool.StalenessPolicy;
+
+/**
+ * Tests for {@link Rdf4jReplicaPool} and {@link Rdf4jReplicaTriplestore}.
+ */
+public class Rdf4jReplicaPoolTest {
+
+	private static final URI DISCO = URI.create("rmap:disco1");
+
+	private static final URI AGENT = URI.create("rmap:agent1");
+
+	private Repository replica1;
+
+	private Repository replica2;
+
+	private Rdf4jReplicaPool pool;
+
+	@Before
+	public void setUp() throws Exception {
+		replica1 = new SailRepository(new MemoryStore());
+		replica2 = new SailRepository(new MemoryStore());
+		pool = new Rdf4jReplicaPool(Arrays.asList(replica1, replica2));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		pool.destroy();
+	}
+
+	/**
+	 * Round robin selection uses each replica in turn.
+	 */
+	@Test
+	public void testRoundRobin() throws Exception {
+		Replica first = pool.acquire();
+		Replica second = pool.acquire();
+		Replica third = pool.acquire();
+		assertNotSame(first, second);
+		assertSame(first, third);
+	}
+
+	/**
+	 * Least loaded selection uses the replica with the fewest open connections.
+	 */
+	@Test
+	public void testLeastLoaded() throws Exception {
+		pool.setSelection(Selection.LEAST_LOADED);
+		Replica busy = pool.acquire();
+		Replica idle = pool.acquire();
+		pool.release(idle);
+
+		for (int i = 0; i < 4; i++) {
+			Replica selected = pool.acquire();
+			assertSame(idle, selected);
+			pool.release(selected);
+		}
+		assertEquals(1, busy.getConnections());
+		assertEquals(0, idle.getConnections());
+	}
+
+	/**
+	 * A replica that failed is skipped until its backoff elapses; if every replica failed, none can be acquired.
+	 */
+	@Test(expected = RepositoryException.class)
+	public void testFailedReplicaIsSkipped() throws Exception {
+		Replica failed = pool.acquire();
+		pool.release(failed);
+		pool.failed(failed, new RepositoryException("Connection refused"));
+
+		for (int i = 0; i < 4; i++) {
+			Replica selected = pool.acquire();
+			assertNotSame(failed, selected);
+			pool.release(selected);
+		}
+
+		Replica other = pool.acquire();
+		pool.release(other);
+		pool.failed(other, new RepositoryException("Connection refused"));
+		pool.acquire();
+	}
+
+	/**
+	 * With the RECENT_WRITES policy, only reads of recently written objects are stale.
+	 */
+	@Test
+	public void testRecentWritesStaleness() throws Exception {
+		assertFalse(pool.isStale(DISCO));
+
+		pool.written(DISCO, null, AGENT);
+		assertTrue(pool.isStale(DISCO));
+		assertTrue(pool.isStale(null, AGENT));
+		assertFalse(pool.isStale(URI.create("rmap:disco2")));
+
+		pool.setMaxLagMs(0);
+		Thread.sleep(5);
+		assertFalse(pool.isStale(DISCO));
+	}
+
+	/**
+	 * With the ANY_RECENT_WRITE policy all reads are stale after a write; with NONE, no read is.
+	 */
+	@Test
+	public void testOtherStalenessPolicies() throws Exception {
+		pool.setStalenessPolicy(StalenessPolicy.ANY_RECENT_WRITE);
+		assertFalse(pool.isStale(DISCO));
+		pool.written(DISCO);
+		assertTrue(pool.isStale(URI.create("rmap:disco2")));
+
+		pool.setStalenessPolicy(StalenessPolicy.NONE);
+		assertFalse(pool.isStale(DISCO));
+	}
+
+	/**
+	 * Reads that are not keyed by the objects written are stale after any write, unless the policy is NONE.
+	 */
+	@Test
+	public void testAnyWriteRecent() throws Exception {
+		assertFalse(pool.isAnyWriteRecent());
+		pool.written(DISCO);
+		assertTrue(pool.isAnyWriteRecent());
+
+		pool.setStalenessPolicy(StalenessPolicy.NONE);
+		assertFalse(pool.isAnyWriteRecent());
+
+		pool.setStalenessPolicy(StalenessPolicy.RECENT_WRITES);
+		pool.setMaxLagMs(0);
+		Thread.sleep(5);
+		assertFalse(pool.isAnyWriteRecent());
+	}
+
+	/**
+	 * A replica triplestore reads from the replica it selected, releases it when the connection is closed, and 
+	 * does not support transactions.
+	 */
+	@Test
+	public void testReplicaTriplestore() throws Exception {
+		ValueFactory vf = SimpleValueFactory.getInstance();
+		IRI subject = vf.createIRI("http://example.org/a");
+		replica1.initialize();
+		try (RepositoryConnection conn = replica1.getConnection()) {
+			conn.add(subject, RDF.TYPE, vf.createIRI("http://example.org/Thing"));
+		}
+
+		Rdf4jReplicaTriplestore ts = new Rdf4jReplicaTriplestore(pool);
+		assertEquals(1, ts.getStatements(subject, RDF.TYPE, null).size());
+		ts.closeConnection();
+
+		// the next connection is made to the other replica, which has not received the statement
+		assertEquals(0, ts.getStatements(subject, RDF.TYPE, null).size());
+		ts.closeConnection();
+
+		try {
+			ts.beginTransaction();
+			assertTrue("Expected transactions to be rejected", false);
+		} catch (RepositoryException e) {
+			// expected
+		}
+	}
+
+}
@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.core.rmapservice.impl.rdf4j.triplestore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryException;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import info.rmapproject.core.vocabulary.impl.rdf4j.RMAP;
+
+/**
+ * Tests for {@link Rdf4jShardSet} and {@link Rdf4jShardedTriplestore}.
+ */
+public class Rdf4jShardedTriplestoreTest {
+
+	private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+	private static final String DISCOS = "SELECT DISTINCT ?s WHERE { GRAPH ?g { ?s a <" + RMAP.DISCO + "> } } ";
+
+	private List<Repository> repositories;
+
+	private Rdf4jShardSet shardSet;
+
+	private Rdf4jShardedTriplestore ts;
+
+	@Before
+	public void setUp() throws Exception {
+		repositories = Arrays.asList(new SailRepository(new MemoryStore()), new SailRepository(new MemoryStore()), 
+				new SailRepository(new MemoryStore()));
+		shardSet = new Rdf4jShardSet(repositories);
+		ts = new Rdf4jShardedTriplestore(shardSet);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		ts.closeConnection();
+		shardSet.destroy();
+	}
+
+	/**
+	 * The DiSCO and Event graphs of a lineage are written to the shard selected by the lineage progenitor, and are 
+	 * not visible until the transaction is committed.
+	 */
+	@Test
+	public void testLineageIsWrittenToOneShard() throws Exception {
+		IRI disco = VF.createIRI("rmap:disco1");
+		ts.beginTransaction();
+		createLineage(disco);
+		assertFalse(ts.hasContext(disco));
+		ts.commitTransaction();
+
+		assertTrue(ts.hasContext(disco));
+		int shard = shardSet.shardOf(disco);
+		for (int i = 0; i < repositories.size(); i++) {
+			assertEquals(i == shard, size(i, disco) > 0);
+		}
+	}
+
+	/**
+	 * A write without a lineage progenitor, such as an Agent, is written to every shard, and read once.
+	 */
+	@Test
+	public void testAgentIsWrittenToEveryShard() throws Exception {
+		IRI agent = VF.createIRI("rmap:agent1");
+		ts.beginTransaction();
+		ts.addStatement(agent, RDF.TYPE, RMAP.AGENT, agent);
+		ts.commitTransaction();
+
+		for (int i = 0; i < repositories.size(); i++) {
+			assertEquals(1, size(i, agent));
+		}
+		assertEquals(1, ts.getStatements(agent, RDF.TYPE, null).size());
+		assertEquals(1, ts.getSPARQLQueryResults(
+				"SELECT ?a WHERE { GRAPH ?g { ?a a <" + RMAP.AGENT + "> } }").size());
+	}
+
+	/**
+	 * The Event graph of a derivation is also written to the shard that holds the source DiSCO, but the derived
+	 * DiSCO is not.
+	 */
+	@Test
+	public void testDerivationEventIsWrittenToSourceShard() throws Exception {
+		IRI source = VF.createIRI("rmap:disco0");
+		IRI derived = source;
+		for (int i = 1; shardSet.shardOf(derived) == shardSet.shardOf(source); i++) {
+			derived = VF.createIRI("rmap:disco" + i);
+		}
+		createLineage(source);
+
+		IRI event = VF.createIRI("rmap:derivation");
+		ts.beginTransaction();
+		ts.addStatement(derived, RDF.TYPE, RMAP.DISCO, derived);
+		ts.addStatement(event, RMAP.LINEAGE_PROGENITOR, derived, event);
+		ts.addStatement(event, RMAP.HASSOURCEOBJECT, source, event);
+		ts.addStatement(event, RMAP.DERIVEDOBJECT, derived, event);
+		ts.commitTransaction();
+
+		assertEquals(4, size(shardSet.shardOf(source), event) + size(shardSet.shardOf(source), source));
+		assertEquals(0, size(shardSet.shardOf(source), derived));
+		assertEquals(3, size(shardSet.shardOf(derived), event));
+		assertEquals(1, size(shardSet.shardOf(derived), derived));
+		assertEquals(3, ts.getStatements(null, null, null, event).size());
+	}
+
+	/**
+	 * A transaction that writes more than one lineage is rejected without writing to any shard, and the triplestore 
+	 * does not claim to support such transactions.
+	 */
+	@Test
+	public void testTransactionSpanningLineagesRejected() throws Exception {
+		assertFalse(ts.supportsMultiLineageTransactions());
+		IRI disco1 = VF.createIRI("rmap:disco1");
+		IRI disco2 = VF.createIRI("rmap:disco2");
+		ts.beginTransaction();
+		createLineage(disco1);
+		createLineage(disco2);
+		try {
+			ts.commitTransaction();
+			assertTrue("Expected a transaction spanning lineages to be rejected", false);
+		} catch (RepositoryException e) {
+			// expected
+		}
+
+		for (int i = 0; i < repositories.size(); i++) {
+			assertEquals(0, size(i, disco1) + size(i, disco2));
+		}
+	}
+
+	/**
+	 * Statements are streamed from every shard.
+	 */
+	@Test
+	public void testForEachStatement() throws Exception {
+		createLineage(VF.createIRI("rmap:disco1"));
+		createLineage(VF.createIRI("rmap:disco2"));
+		createLineage(VF.createIRI("rmap:disco3"));
+
+		List<String> discos = new ArrayList<>();
+		assertEquals(3, ts.forEachStatement(null, RDF.TYPE, RMAP.DISCO, 
+				stmt -> discos.add(stmt.getSubject().stringValue())));
+		assertEquals(new HashSet<>(Arrays.asList("rmap:disco1", "rmap:disco2", "rmap:disco3")), 
+				new HashSet<>(discos));
+	}
+
+	/**
+	 * Pages of an ordered query are the same as if every DiSCO were held by one repository.
+	 */
+	@Test
+	public void testOrderedPages() throws Exception {
+		List<String> expected = new ArrayList<>();
+		for (int i = 10; i < 30; i++) {
+			createLineage(VF.createIRI("rmap:disco" + i));
+			expected.add("rmap:disco" + i);
+		}
+
+		List<String> found = new ArrayList<>();
+		for (int offset = 0; offset < 25; offset += 6) {
+			List<String> page = values(ts.getSPARQLQueryResults(DISCOS + "ORDER BY ?s LIMIT 6  OFFSET " + offset + " "));
+			assertTrue(page.size() <= 6);
+			found.addAll(page);
+		}
+		assertEquals(expected, found);
+
+		List<String> descending = values(ts.getSPARQLQueryResults(DISCOS + "ORDER BY DESC(?s) LIMIT 3"));
+		assertEquals(Arrays.asList("rmap:disco29", "rmap:disco28", "rmap:disco27"), descending);
+	}
+
+	/**
+	 * Pages of an unordered query cover every result once.
+	 */
+	@Test
+	public void testUnorderedPages() throws Exception {
+		for (int i = 10; i < 30; i++) {
+			createLineage(VF.createIRI("rmap:disco" + i));
+		}
+
+		List<String> found = new ArrayList<>();
+		for (int offset = 0; offset < 25; offset += 7) {
+			found.addAll(values(ts.getSPARQLQueryResults(DISCOS + "LIMIT 7 OFFSET " + offset)));
+		}
+		assertEquals(20, found.size());
+		assertEquals(20, new HashSet<>(found).size());
+	}
+
+	/**
+	 * Writes a DiSCO, and the Event that names it as its lineage progenitor, joining an open transaction if there is 
+	 * one.
+	 */
+	private void createLineage(IRI disco) throws Exception {
+		boolean commit = !ts.hasTransactionOpen();
+		if (commit) {
+			ts.beginTransaction();
+		}
+		IRI event = VF.createIRI(disco.stringValue() + "-event");
+		ts.addStatement(disco, RDF.TYPE, RMAP.DISCO, disco);
+		ts.addStatement(event, RDF.TYPE, RMAP.EVENT, event);
+		ts.addStatement(event, RMAP.LINEAGE_PROGENITOR, disco, event);
+		if (commit) {
+			ts.commitTransaction();
+		}
+	}
+
+	private long size(int shard, IRI context) throws Exception {
+		try (RepositoryConnection conn = shardSet.getRepository(shard).getConnection()) {
+			return conn.size(context);
+		}
+	}
+
+	private static List<String> values(List<BindingSet> results) {
+		return results.stream().map(result -> result.getValue("s").stringValue()).collect(Collectors.toList());
+	}
+
+}
@@ -23,6 +23,8 @@
 package info.rmapproject.core.idservice;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Interface for ID creation. 
@@ -38,6 +40,22 @@ public interface IdService {
 	 * @throws Exception the exception
 	 */
 	public URI createId() throws Exception;
+
+	/**
+	 * Creates several ids at once.  Implementations that can mint ids more cheaply in bulk than one at a time 
+	 * should override this method.
+	 *
+	 * @param count the number of ids to create
+	 * @return the newly minted IDs as URIs
+	 * @throws Exception the exception
+	 */
+	public default List<URI> createIds(int count) throws Exception {
+		List<URI> ids = new ArrayList<URI>(count);
+		for (int i = 0; i < count; i++) {
+			ids.add(createId());
+		}
+		return ids;
+	}
 	
 	/**
 	 * Checks if is valid id.
@@ -20,7 +20,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
@@ -120,6 +122,31 @@ public class ConcurrentCachingIdService implements IdService {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <h3>Implementation note</h3>
+     * The identifiers are removed from the cache under a single acquisition of the lock, rather than one acquisition
+     * per identifier.
+     *
+     * @return identifiers from the cache
+     * @throws IllegalStateException if a {@code LockHolder} or {@code ConcurrentMap} of identifiers are not present
+     */
+    @Override
+    public List<URI> createIds(int count) throws Exception {
+        if (idCache == null) {
+            throw new IllegalStateException("Missing an idCache (was setIdCache(ConcurrentMap) invoked?)");
+        }
+        try {
+            List<URI> ids = new ArrayList<>(count);
+            for (String id : getEzids(idCache, count)) {
+                ids.add(new URI(id));
+            }
+            return ids;
+        } catch (Exception e) {
+            throw new Exception("Failed to create new IDs: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Obtains an EZID from the cache, and removes it.  If the cache is empty, this method will pause and signal the
      * replenisher to fill the cache before allocating an identifier.
@@ -129,44 +156,58 @@ public class ConcurrentCachingIdService implements IdService {
      * @throws Exception if the cache is empty or could not be filled
      */
     private String getEzid(ConcurrentMap<Integer, String> ezidCache) throws Exception {
+        return getEzids(ezidCache, 1).get(0);
+    }
+
+    /**
+     * Obtains EZIDs from the cache, and removes them.  Whenever the cache is empty, this method will pause and signal
+     * the replenisher to fill the cache before allocating further identifiers.
+     *
+     * @param ezidCache the cache of identifiers
+     * @param count the number of identifiers to obtain
+     * @return identifiers from the cache
+     * @throws Exception if the cache is empty or could not be filled
+     */
+    private List<String> getEzids(ConcurrentMap<Integer, String> ezidCache, int count) throws Exception {
         if (lockHolder == null) {
             throw new IllegalStateException("Missing a LockHolder (was setLockHolder(LockHolder) invoked?)");
         }
 
-        // Wait for ids to become available if the id store is empty
+        List<String> ids = new ArrayList<>(count);
+
         LOG.debug("Obtaining a read-write reentrant lock over the ID store.");
         lockHolder.idStoreLock.lock();
-        String id;
         try {
+            while (ids.size() < count) {
+                // Wait for ids to become available if the id store is empty
+                while (ezidCache.size() == 0) {
+                    LOG.debug("ID store is empty.  Signalling replenisher thread to wake up.");
+                    lockHolder.idStoreEmptyCondition.signal();
+                    LOG.debug("Waiting for the replenisher thread to populate the ID store.");
+                    lockHolder.idStoreNotEmptyCondition.await(60000, TimeUnit.MILLISECONDS);
+                    LOG.debug("Waking up now that the replenisher has populated the ID store!");
+                }
 
-            while (ezidCache.size() == 0) {
-                LOG.debug("ID store is empty.  Signalling replenisher thread to wake up.");
-                lockHolder.idStoreEmptyCondition.signal();
-                LOG.debug("Waiting for the replenisher thread to populate the ID store.");
-                lockHolder.idStoreNotEmptyCondition.await(60000, TimeUnit.MILLISECONDS);
-                LOG.debug("Waking up now that the replenisher has populated the ID store!");
+                // remove as many of the ids as are needed from the map
+                Iterator<Integer> keys = ezidCache.keySet().iterator();
+                while (keys.hasNext() && ids.size() < count) {
+                    String id = ezidCache.remove(keys.next());
+                    if (id != null) {
+                        ids.add(id);
+                    }
+                }
             }
-
-            // find the first key for which we have an EZID
-
-            int key = -1;
-            Set<Integer> keys = ezidCache.keySet();
-            key = keys.stream().filter(ezidCache::containsKey).findAny()
-                    .orElseThrow(() -> new RuntimeException("EZID cache is empty, unable to provide one"));
-
-            // remove the id from the map
-            LOG.debug("Obtained ID from the idStore.");
-            id = ezidCache.remove(key);
+            LOG.debug("Obtained {} ID(s) from the idStore.", ids.size());
         } finally {
             LOG.debug("Freeing the ID store lock.");
             lockHolder.idStoreLock.unlock();
         }
 
-        // return the id
+        // return the ids
 
-        LOG.debug("Returning the ID.");
+        LOG.debug("Returning the ID(s).");
 
-        return id;
+        return ids;
     }
 
     /**
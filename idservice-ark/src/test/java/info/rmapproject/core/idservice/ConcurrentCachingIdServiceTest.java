@@ -244,4 +244,36 @@ public class ConcurrentCachingIdServiceTest {
         t.interrupt();
         t.join(10000);
     }
+
+    /**
+     * Test method for {@link ConcurrentCachingIdService#createIds(int)}.
+     * Creates more IDs at once than the store holds, which requires refills part way through.
+     * Ensures returned IDs are formatted as expected.
+     **/
+    @Test
+    public void createIdsInBulkWithReplenish() throws Exception {
+        EZIDClient client = mock(EZIDClient.class);
+        when(client.mintIdentifier(any(), any())).thenReturn(idPrefix + randomString(7).toLowerCase());
+        ConcurrentMap<Integer, String> map = new ConcurrentHashMap<>();
+        final LockHolder lockHolder = new LockHolder();
+        replenisher = new ConcurrentEzidReplenisher("http://example.org/idservice", client);
+        replenisher.setLockHolder(lockHolder);
+        replenisher.setMaxStoreSize(4);
+        Thread t = new Thread(() -> replenisher.replenish(map));
+        t.start();
+
+        idService = new ConcurrentCachingIdService();
+        configure();
+        idService.setIdCache(map);
+        idService.setLockHolder(lockHolder);
+
+        List<URI> ids = idService.createIds(10);
+        assertEquals(10, ids.size());
+        for (URI id : ids) {
+            assertTrue(idService.isValidId(id));
+        }
+
+        t.interrupt();
+        t.join(10000);
+    }
 }
@@ -0,0 +1,112 @@
+package info.rmapproject.indexing.kafka;
+
+import info.rmapproject.core.model.event.RMapEvent;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static info.rmapproject.indexing.IndexUtils.assertNotNull;
+import static info.rmapproject.indexing.IndexUtils.assertPositive;
+import static info.rmapproject.indexing.IndexUtils.iae;
+import static info.rmapproject.indexing.kafka.KafkaUtils.commitOffsets;
+import static info.rmapproject.indexing.kafka.KafkaUtils.snapshotOf;
+import static java.util.Collections.singleton;
+
+/**
+ * Replays the events on the {@link RetryQueue#getDeadLetterTopic() dead-letter topic}, by parking each of them on the
+ * retry topic with a fresh count of attempts.  Intended to be run once the cause of the failures (e.g. an unavailable
+ * Solr core) has been corrected.  Events are replayed in the order they were dead-lettered, and the offsets of the
+ * dead-letter topic are committed as they are replayed, so that an event is replayed at most once.
+ * <p>
+ * Replayed events are retried by the {@link RetryTopicConsumer} of a running indexer.
+ * </p>
+ */
+public class DeadLetterReplayer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DeadLetterReplayer.class);
+
+    private static final String[] CONFIG_LOCATIONS = {
+            "classpath*:/rmap-indexing-solr.xml", "classpath*:/spring-rmapcore-context.xml" };
+
+    private final Consumer<String, RMapEvent> consumer;
+
+    private final RetryQueue retryQueue;
+
+    private int pollTimeoutMs = 10000;
+
+    /**
+     * @param consumer consumes the dead-letter topic
+     * @param retryQueue the queue to replay events to
+     */
+    public DeadLetterReplayer(Consumer<String, RMapEvent> consumer, RetryQueue retryQueue) {
+        this.consumer = assertNotNull(consumer, iae("Consumer must not be null."));
+        this.retryQueue = assertNotNull(retryQueue, iae("Retry queue must not be null."));
+    }
+
+    /**
+     * Replays the events on the dead-letter topic using the Spring configuration of the indexer.  The {@code prod},
+     * {@code prod-kafka} and Solr profiles must be active, e.g.
+     * {@code -Dspring.profiles.active=prod,prod-kafka,http-solr}.
+     *
+     * @param args ignored
+     */
+    public static void main(String[] args) {
+        try (ClassPathXmlApplicationContext ctx = new ClassPathXmlApplicationContext(CONFIG_LOCATIONS)) {
+            long replayed = ctx.getBean("deadLetterReplayer", DeadLetterReplayer.class).replay();
+            LOG.info("Replayed {} event(s)", replayed);
+        }
+    }
+
+    /**
+     * Replays events until a poll of the dead-letter topic answers no records, then closes the consumer.
+     *
+     * @return the number of events replayed
+     * @throws RuntimeException if an event cannot be published to the retry topic; events replayed up to that point
+     *                          are committed
+     */
+    public long replay() {
+        consumer.subscribe(singleton(retryQueue.getDeadLetterTopic()));
+        long replayed = 0;
+
+        try {
+            ConsumerRecords<String, RMapEvent> records;
+            while (!(records = consumer.poll(pollTimeoutMs)).isEmpty()) {
+                Map<TopicPartition, OffsetAndMetadata> offsetsToCommit = new HashMap<>();
+                try {
+                    for (ConsumerRecord<String, RMapEvent> record : records) {
+                        LOG.debug("Replaying event {} from {}/{}/{} after {} failed attempt(s)",
+                                record.value().getId().getStringValue(), record.topic(), record.partition(),
+                                record.offset(), RetryQueue.attemptsOf(record));
+                        retryQueue.replay(record.value(), snapshotOf(record));
+                        offsetsToCommit.put(new TopicPartition(record.topic(), record.partition()),
+                                new OffsetAndMetadata(record.offset() + 1));
+                        replayed++;
+                    }
+                } finally {
+                    commitOffsets(consumer, offsetsToCommit, false);
+                }
+            }
+        } finally {
+            consumer.close();
+        }
+
+        return replayed;
+    }
+
+    public int getPollTimeoutMs() {
+        return pollTimeoutMs;
+    }
+
+    public void setPollTimeoutMs(int pollTimeoutMs) {
+        this.pollTimeoutMs = assertPositive(pollTimeoutMs, iae("Poll timeout ms must be a positive integer."));
+    }
+
+}
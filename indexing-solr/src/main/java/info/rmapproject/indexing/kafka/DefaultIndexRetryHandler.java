@@ -4,6 +4,7 @@ import info.rmapproject.core.model.RMapIri;
 import info.rmapproject.core.model.agent.RMapAgent;
 import info.rmapproject.core.model.disco.RMapDiSCO;
 import info.rmapproject.core.model.event.RMapEvent;
+import info.rmapproject.core.model.event.RMapEventSnapshot;
 import info.rmapproject.core.model.event.RMapEventType;
 import info.rmapproject.core.rmapservice.RMapService;
 import info.rmapproject.indexing.IndexingInterruptedException;
@@ -149,8 +150,30 @@ public class DefaultIndexRetryHandler implements IndexingRetryHandler, EventTupl
     @Override
     public void retry(RMapEvent event, KafkaMetadata metadata, Consumer<DiscoSolrDocument> documentDecorator)
             throws IndexingTimeoutException, IndexingInterruptedException {
+        retry(event, null, metadata, documentDecorator);
+    }
 
-        assertNotNull(rmapService, ise("RMapService must not be null.  Was setRmapService(...) invoked?"));
+    /**
+     * Attempts to index the supplied {@code event} until the operation succeeds, or exceeds
+     * {@link #getIndexRetryMaxMs()}.  If a {@code snapshot} is supplied, the DiSCOs and agent it carries are indexed
+     * without being read from the {@code RMapService}.
+     *
+     * @param event the RMap event being indexed
+     * @param snapshot the DiSCOs and agent referenced by the event when it was created, may be {@code null}
+     * @param documentDecorator decorates the solr document prior to indexing
+     * @throws IndexingTimeoutException if {@code indexRetryMaxMs} is exceeded prior to successfully indexing the
+     *                                  {@code event}
+     * @throws IndexingInterruptedException if the thread performing the indexing is interrupted before successfully
+     *                                      indexing the {@code event}
+     */
+    @Override
+    public void retry(RMapEvent event, RMapEventSnapshot snapshot, KafkaMetadata metadata,
+                      Consumer<DiscoSolrDocument> documentDecorator)
+            throws IndexingTimeoutException, IndexingInterruptedException {
+
+        if (snapshot == null) {
+            assertNotNull(rmapService, ise("RMapService must not be null.  Was setRmapService(...) invoked?"));
+        }
 
         long start = currentTimeMillis();
         int attempt = 1;
@@ -188,7 +211,7 @@ public class DefaultIndexRetryHandler implements IndexingRetryHandler, EventTupl
 
                 LOG.trace("Indexing event {}, attempt {} (total elapsed time {} ms)",
                         event.getId().getStringValue(), attempt, (currentTimeMillis() - start));
-                KafkaDTO dto = composeDTO(event, rmapService);
+                KafkaDTO dto = (snapshot != null) ? composeDTO(event, snapshot) : composeDTO(event, rmapService);
 
                 // Store offsets in the index
                 dto.setTopic(metadata.getKafkaTopic());
@@ -242,6 +265,12 @@ public class DefaultIndexRetryHandler implements IndexingRetryHandler, EventTupl
         return new KafkaDTO(event, agent, sourceDisco, targetDisco);
     }
 
+    private KafkaDTO composeDTO(RMapEvent event, RMapEventSnapshot snapshot) {
+        LOG.trace("Composing KafkaDTO for event (id '{}', type '{}') from its snapshot: {}", event.getId(),
+                event.getEventType(), event);
+        return new KafkaDTO(event, snapshot.getAgent(), snapshot.getSourceDisco(), snapshot.getTargetDisco());
+    }
+
     private static RMapDiSCO getDisco(Optional<RMapIri> optionalIri, RMapService rmapService) {
         RMapDiSCO disco = null;
         if (optionalIri.isPresent()) {
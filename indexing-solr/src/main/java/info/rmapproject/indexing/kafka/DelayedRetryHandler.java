@@ -0,0 +1,96 @@
+package info.rmapproject.indexing.kafka;
+
+import info.rmapproject.core.model.event.RMapEvent;
+import info.rmapproject.core.model.event.RMapEventSnapshot;
+import info.rmapproject.indexing.IndexingInterruptedException;
+import info.rmapproject.indexing.IndexingTimeoutException;
+import info.rmapproject.indexing.solr.model.DiscoSolrDocument;
+import info.rmapproject.indexing.solr.model.KafkaMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Consumer;
+
+import static info.rmapproject.indexing.IndexUtils.assertNotNull;
+import static info.rmapproject.indexing.IndexUtils.iae;
+
+/**
+ * Indexes events using a delegate {@link IndexingRetryHandler}, parking events that the delegate fails to index on a
+ * {@link RetryQueue} instead of blocking the consumer until they can be indexed.  The delegate should be configured
+ * with a short {@code indexRetryMaxMs}, so that transient failures (e.g. an event that is consumed before the
+ * transaction that created it is visible) are absorbed without parking, but an event that cannot be indexed only
+ * holds up its partition briefly.
+ * <p>
+ * Events of a lineage that has a parked event are parked without being attempted, so that events of a lineage are
+ * indexed in order.  A record that an event has already been parked from (e.g. because the consumer rewound after
+ * failing to write its batch) is skipped: the parked copy of the event will be retried.
+ * </p>
+ */
+public class DelayedRetryHandler implements IndexingRetryHandler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DelayedRetryHandler.class);
+
+    private final IndexingRetryHandler delegate;
+
+    private final RetryQueue retryQueue;
+
+    /**
+     * @param delegate makes a bounded attempt to index each event
+     * @param retryQueue parks events the delegate could not index
+     */
+    public DelayedRetryHandler(IndexingRetryHandler delegate, RetryQueue retryQueue) {
+        this.delegate = assertNotNull(delegate, iae("Delegate retry handler must not be null."));
+        this.retryQueue = assertNotNull(retryQueue, iae("Retry queue must not be null."));
+    }
+
+    @Override
+    public void retry(RMapEvent event, KafkaMetadata metadata, Consumer<DiscoSolrDocument> documentDecorator)
+            throws IndexingTimeoutException, IndexingInterruptedException {
+        retry(event, null, metadata, documentDecorator);
+    }
+
+    /**
+     * Attempts to index the supplied {@code event} with the delegate, parking it if the delegate times out.  Does
+     * nothing if the event has already been parked from the record at {@code metadata}.
+     *
+     * @param event the RMap event being indexed
+     * @param snapshot the DiSCOs and agent referenced by the event when it was created, may be {@code null}
+     * @param metadata the Kafka metadata of the event
+     * @param documentDecorator decorates the solr document prior to indexing
+     * @throws IndexingInterruptedException if the thread performing the indexing is interrupted
+     * @throws RuntimeException if the event could not be indexed, and could not be parked
+     */
+    @Override
+    public void retry(RMapEvent event, RMapEventSnapshot snapshot, KafkaMetadata metadata,
+                      Consumer<DiscoSolrDocument> documentDecorator)
+            throws IndexingTimeoutException, IndexingInterruptedException {
+        if (retryQueue.isParked(metadata)) {
+            LOG.debug("Skipping event {}: it has already been parked from record {}/{}/{}",
+                    event.getId().getStringValue(), metadata.getKafkaTopic(), metadata.getKafkaPartition(),
+                    metadata.getKafkaOffset());
+            return;
+        }
+
+        if (retryQueue.isPending(event)) {
+            LOG.debug("Parking event {} behind an earlier parked event of lineage {}", event.getId().getStringValue(),
+                    RetryQueue.lineageOf(event));
+            retryQueue.park(event, snapshot, 0, null, metadata);
+            return;
+        }
+
+        try {
+            delegate.retry(event, snapshot, metadata, documentDecorator);
+        } catch (IndexingTimeoutException e) {
+            retryQueue.park(event, snapshot, 1, e, metadata);
+        }
+    }
+
+    public IndexingRetryHandler getDelegate() {
+        return delegate;
+    }
+
+    public RetryQueue getRetryQueue() {
+        return retryQueue;
+    }
+
+}
@@ -1,6 +1,7 @@
 package info.rmapproject.indexing.kafka;
 
 import info.rmapproject.core.model.event.RMapEvent;
+import info.rmapproject.core.model.event.RMapEventSnapshot;
 import info.rmapproject.core.model.event.RMapEventTargetType;
 import info.rmapproject.core.rmapservice.RMapService;
 import info.rmapproject.indexing.IndexUtils;
@@ -8,10 +9,13 @@ import info.rmapproject.indexing.IndexingInterruptedException;
 import info.rmapproject.indexing.IndexingTimeoutException;
 import info.rmapproject.indexing.solr.model.DiscoSolrDocument;
 import info.rmapproject.indexing.solr.model.KafkaMetadata;
+import info.rmapproject.indexing.solr.repository.DiscosIndexBatch;
+import info.rmapproject.indexing.solr.repository.DiscosSolrOperations;
 import info.rmapproject.indexing.solr.repository.EventTupleIndexingRepository;
 import info.rmapproject.indexing.solr.repository.IndexDTOMapper;
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
@@ -19,23 +23,59 @@ import org.apache.kafka.common.errors.InterruptException;
 import org.apache.kafka.common.errors.WakeupException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 
 import static info.rmapproject.indexing.IndexUtils.ise;
 import static info.rmapproject.indexing.kafka.KafkaUtils.commitOffsets;
+import static info.rmapproject.indexing.kafka.KafkaUtils.snapshotOf;
 import static java.util.Collections.singleton;
 
 /**
+ * Consumes RMap events from a Kafka topic and indexes them.
+ * <p>
+ * By default the records returned by each poll are indexed one after the other on the polling thread.  If a
+ * {@link #setPartitionExecutor(ExecutorService) partition executor} is configured, the records for each partition are
+ * instead handed to a worker running on the executor.  Records within a partition are still indexed in order (the
+ * {@link LineagePartitioner} places all events for a lineage on the same partition), but partitions are indexed in
+ * parallel.  A partition is paused while its worker is running, so that no further records are fetched for it, and
+ * resumed once the worker completes and the partition's offsets have been committed.  All interaction with the Kafka
+ * {@code Consumer} remains on the polling thread.
+ * </p>
+ * <p>
+ * When partitions are revoked, their workers are cancelled and given up to {@link #setPartitionDrainTimeoutMs(int)
+ * partitionDrainTimeoutMs} to stop, before the {@link #setRebalanceListener(ConsumerAwareRebalanceListener) rebalance
+ * listener} is notified.  A cancelled worker stops before indexing its next record, and does not write its batch.  The
+ * consumer is rewound to the first record that was not indexed, so the offsets saved for the revoked partitions do not
+ * cover records handed to a worker but never written.  The partition executor is shut down when the consumer stops.
+ * </p>
+ *
  * @author Elliot Metsger (emetsger@jhu.edu)
  */
 public class IndexingConsumer {
 
     private static final Logger LOG = LoggerFactory.getLogger(IndexingConsumer.class);
 
+    /**
+     * Maximum time to block in poll while partition workers are running, so that completed workers are noticed
+     */
+    private static final long IN_FLIGHT_POLL_TIMEOUT_MS = 100;
+
     private static final ConsumerRecords<String, RMapEvent> EMPTY_RECORDS =
             new ConsumerRecords<>(Collections.emptyMap());
 
@@ -60,6 +100,26 @@ public class IndexingConsumer {
 
     private IndexDTOMapper dtoMapper;
 
+    private DiscosSolrOperations solrOperations;
+
+    private int batchCommitWithinMs = 1000;
+
+    private ExecutorService partitionExecutor;
+
+    private ObjectFactory<IndexingRetryHandler> retryHandlerFactory;
+
+    private int partitionDrainTimeoutMs = 30000;
+
+    /**
+     * Retry handlers used by partition workers, one per partition, because retry handlers are not thread safe
+     */
+    private final Map<TopicPartition, IndexingRetryHandler> partitionRetryHandlers = new HashMap<>();
+
+    /**
+     * Partitions that have a worker running
+     */
+    private final Map<TopicPartition, PartitionWork> inFlight = new HashMap<>();
+
     void consumeLatest(String topic) throws UnknownOffsetException {
         consume(topic, Seek.LATEST);
     }
@@ -76,70 +136,304 @@ public class IndexingConsumer {
         rebalanceListener.setConsumer(consumer);
         rebalanceListener.setSeekBehavior(seek);
 
-        consumer.subscribe(singleton(topic), rebalanceListener);
+        consumer.subscribe(singleton(topic), new PartitionWorkRebalanceListener());
 
-        // join consumer group, get partitions, seek to correct offset, and obtain any records in the buffer
-        ConsumerRecords<String, RMapEvent> records = EMPTY_RECORDS;
         try {
-            records = consumer.poll(0);
-        } catch (WakeupException e) {
-            LOG.info("WakeupException encountered on initial poll (with timeout of 0 ms), closing consumer.");
-            consumer.close();
-            return;
-        } catch (InterruptException e) {
-            LOG.info("InterruptException encountered, exiting initial consumer.poll(0) early.");
-            Thread.interrupted();
-            return;
-        }
-
-        while (true) {
+            // join consumer group, get partitions, seek to correct offset, and obtain any records in the buffer
+            ConsumerRecords<String, RMapEvent> records = EMPTY_RECORDS;
             try {
-                if (records != EMPTY_RECORDS) {
-                    processRecords(records);
-                }
-
-                LOG.trace("Entering poll for {} ms", pollTimeoutMs);
-                records = consumer.poll(pollTimeoutMs);
+                records = consumer.poll(0);
             } catch (WakeupException e) {
-                LOG.info("WakeupException encountered, closing consumer.");
+                LOG.info("WakeupException encountered on initial poll (with timeout of 0 ms), closing consumer.");
                 consumer.close();
-                break;
+                return;
             } catch (InterruptException e) {
-                LOG.info("InterruptException encountered, exiting consumer.poll({}) early.", pollTimeoutMs);
+                LOG.info("InterruptException encountered, exiting initial consumer.poll(0) early.");
                 Thread.interrupted();
-                // guard against null records
-                records = EMPTY_RECORDS;
+                return;
             }
+
+            while (true) {
+                try {
+                    if (records != EMPTY_RECORDS) {
+                        if (partitionExecutor != null) {
+                            dispatchRecords(records);
+                        } else {
+                            processRecords(records);
+                        }
+                    }
+
+                    completePartitionWork();
+
+                    long timeout = inFlight.isEmpty() ?
+                            pollTimeoutMs : Math.min(pollTimeoutMs, IN_FLIGHT_POLL_TIMEOUT_MS);
+                    LOG.trace("Entering poll for {} ms", timeout);
+                    records = consumer.poll(timeout);
+                } catch (WakeupException e) {
+                    LOG.info("WakeupException encountered, closing consumer.");
+                    cancelPartitionWork();
+                    consumer.close();
+                    break;
+                } catch (InterruptException e) {
+                    LOG.info("InterruptException encountered, exiting consumer.poll({}) early.", pollTimeoutMs);
+                    Thread.interrupted();
+                    // guard against null records
+                    records = EMPTY_RECORDS;
+                }
+            }
+        } finally {
+            stopPartitionWork();
         }
     }
 
+    /**
+     * Indexes the records returned by a poll on the polling thread, and commits the offsets of the records that were
+     * indexed.
+     *
+     * @param records the records returned by a poll
+     */
     private void processRecords(ConsumerRecords<String, RMapEvent> records) {
-        Map<TopicPartition, OffsetAndMetadata> offsetsToCommit = new HashMap<>(1);
         LOG.trace("Processing {} records", records.count());
-        records.forEach(record -> {
-            RMapEvent event = record.value();
+        IndexingResult result = indexRecords(records, retryHandler, () -> false);
+        completeIndexing(result, null);
+    }
 
-            if (event.getEventTargetType() != null &&
-                    !event.getEventTargetType().equals(RMapEventTargetType.DISCO)) {
-                LOG.debug("Skipping event {} because it does not target a DISCO (was {} instead)",
-                        event, event.getEventTargetType());
-                return;
+    /**
+     * Hands the records for each partition returned by a poll to a worker on the {@link #partitionExecutor}, and
+     * pauses the partition until the worker completes.  If a worker is still running for a partition (which can
+     * happen if the partition was revoked and re-assigned while its worker was running), the consumer is rewound to
+     * the first record returned for the partition so that the records are fetched again after the worker completes.
+     *
+     * @param records the records returned by a poll
+     */
+    private void dispatchRecords(ConsumerRecords<String, RMapEvent> records) {
+        for (TopicPartition partition : records.partitions()) {
+            List<ConsumerRecord<String, RMapEvent>> partitionRecords = records.records(partition);
+            long firstOffset = partitionRecords.get(0).offset();
+            consumer.pause(singleton(partition));
+
+            if (inFlight.containsKey(partition)) {
+                LOG.debug("Partition {} already has a worker running, rewinding to offset {}", partition, firstOffset);
+                consumer.seek(partition, firstOffset);
+                continue;
             }
 
-            String recordTopic = record.topic();
-            long recordOffset = record.offset();
-            int recordPartition = record.partition();
+            IndexingRetryHandler handler = partitionRetryHandlers.computeIfAbsent(partition, (tp) ->
+                    IndexUtils.assertNotNull(retryHandlerFactory,
+                            ise("A retry handler factory is required to index partitions in parallel.")).getObject());
+
+            LOG.trace("Dispatching {} records for partition {}", partitionRecords.size(), partition);
+            PartitionWork work = new PartitionWork(firstOffset);
+            work.future = partitionExecutor.submit(() -> {
+                if (!work.start()) {
+                    return null;
+                }
+                try {
+                    work.result = indexRecords(partitionRecords, handler, () -> work.cancelled);
+                    return work.result;
+                } finally {
+                    work.done.countDown();
+                }
+            });
+            inFlight.put(partition, work);
+        }
+    }
+
+    /**
+     * Commits offsets for (or rewinds) each partition whose worker has completed, and resumes the partition.  Must be
+     * invoked on the polling thread.
+     */
+    private void completePartitionWork() {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+
+        Set<TopicPartition> assigned = consumer.assignment();
+        Iterator<Map.Entry<TopicPartition, PartitionWork>> itr = inFlight.entrySet().iterator();
+        while (itr.hasNext()) {
+            Map.Entry<TopicPartition, PartitionWork> entry = itr.next();
+            TopicPartition partition = entry.getKey();
+            PartitionWork work = entry.getValue();
+            if (!work.future.isDone()) {
+                continue;
+            }
+            itr.remove();
 
-            LOG.trace("Processing record {}/{}/{} for event: {}", recordTopic, recordPartition, recordOffset, event);
+            if (!assigned.contains(partition)) {
+                LOG.debug("Partition {} was revoked while its worker was running; its offsets will not be committed",
+                        partition);
+                continue;
+            }
 
             try {
-                indexEvent(recordTopic, recordPartition, recordOffset, event);
-                offsetsToCommit.put(new TopicPartition(recordTopic, recordPartition),
-                        new OffsetAndMetadata(recordOffset));
-            } catch (Exception e) {
-                LOG.warn("Unable to index event {}: {}", event, e.getMessage(), e);
+                completeIndexing(work.future.get(), assigned);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                consumer.seek(partition, work.firstOffset);
+            } catch (ExecutionException e) {
+                LOG.warn("Unable to index records for partition {}, rewinding to offset {}: {}",
+                        partition, work.firstOffset, e.getCause().getMessage(), e.getCause());
+                consumer.seek(partition, work.firstOffset);
             }
-        });
+
+            consumer.resume(singleton(partition));
+        }
+    }
+
+    /**
+     * Cancels any running partition workers.  Offsets for their records are not committed.
+     */
+    private void cancelPartitionWork() {
+        inFlight.values().forEach(PartitionWork::cancel);
+        inFlight.clear();
+    }
+
+    /**
+     * Cancels the workers of revoked partitions and waits for them to stop, then commits the offsets of a worker that
+     * completed its batch, or rewinds the consumer to the first record handed to a worker that did not.  The retry
+     * handlers of the revoked partitions are discarded.  Invoked on the polling thread, before the revoked partitions'
+     * offsets are saved by the rebalance listener.
+     *
+     * @param partitions the revoked partitions
+     */
+    private void revokePartitionWork(Collection<TopicPartition> partitions) {
+        Set<TopicPartition> assigned = null;
+        for (TopicPartition partition : partitions) {
+            partitionRetryHandlers.remove(partition);
+            PartitionWork work = inFlight.remove(partition);
+            if (work == null) {
+                continue;
+            }
+
+            work.cancel();
+            if (!work.awaitDone(partitionDrainTimeoutMs)) {
+                LOG.warn("Worker for revoked partition {} did not stop within {} ms", partition,
+                        partitionDrainTimeoutMs);
+            }
+
+            IndexingResult result = work.result;
+            if (result != null && !result.rewind) {
+                if (assigned == null) {
+                    assigned = consumer.assignment();
+                }
+                LOG.debug("Worker for revoked partition {} completed, committing its offsets", partition);
+                completeIndexing(result, assigned);
+            } else {
+                LOG.debug("Worker for revoked partition {} was cancelled, rewinding to offset {}", partition,
+                        work.firstOffset);
+                consumer.seek(partition, work.firstOffset);
+            }
+        }
+    }
+
+    /**
+     * Cancels any running partition workers, and shuts down the {@link #partitionExecutor} waiting up to
+     * {@link #partitionDrainTimeoutMs} for the workers to stop.  Invoked when the consumer stops.
+     */
+    private void stopPartitionWork() {
+        cancelPartitionWork();
+        partitionRetryHandlers.clear();
+        if (partitionExecutor == null) {
+            return;
+        }
+
+        partitionExecutor.shutdownNow();
+        try {
+            if (!partitionExecutor.awaitTermination(partitionDrainTimeoutMs, TimeUnit.MILLISECONDS)) {
+                LOG.warn("Partition workers did not stop within {} ms", partitionDrainTimeoutMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Indexes records, and answers the offsets to be committed.  May be invoked by any thread; does not interact with
+     * the Kafka {@code Consumer}.
+     * <p>
+     * If {@link #setSolrOperations(DiscosSolrOperations) Solr operations} are configured, the Solr writes for all of
+     * the records are accumulated in a {@link DiscosIndexBatch batch} and sent to the index together once every record
+     * has been processed.  If the batch cannot be written, the result carries no offsets to commit, and instead
+     * carries the offset of the first record for each partition so that the consumer may be rewound.
+     * </p>
+     * <p>
+     * If {@code cancelled} answers {@code true} before all of the records are indexed, indexing stops, the batch is
+     * not written, and the result carries the offsets to rewind to.
+     * </p>
+     *
+     * @param records the records to index
+     * @param handler the retry handler used to index each record
+     * @param cancelled answers whether indexing has been cancelled
+     * @return the offsets to commit, or the offsets to rewind to
+     */
+    private IndexingResult indexRecords(Iterable<ConsumerRecord<String, RMapEvent>> records,
+                                        IndexingRetryHandler handler, BooleanSupplier cancelled) {
+        IndexingResult result = new IndexingResult();
+
+        DiscosIndexBatch batch = (solrOperations != null) ? solrOperations.openBatch(batchCommitWithinMs) : null;
+        try {
+            for (ConsumerRecord<String, RMapEvent> record : records) {
+                result.firstOffsets.putIfAbsent(new TopicPartition(record.topic(), record.partition()),
+                        record.offset());
+                if (cancelled.getAsBoolean()) {
+                    LOG.debug("Indexing cancelled at record {}/{}/{}", record.topic(), record.partition(),
+                            record.offset());
+                    result.offsetsToCommit.clear();
+                    result.rewind = true;
+                    return result;
+                }
+                processRecord(record.topic(), record.partition(), record.offset(), record.value(),
+                        snapshotOf(record), result.offsetsToCommit, handler);
+            }
+
+            if (cancelled.getAsBoolean()) {
+                LOG.debug("Indexing cancelled before writing the index batch");
+                result.offsetsToCommit.clear();
+                result.rewind = true;
+                return result;
+            }
+
+            if (batch != null) {
+                try {
+                    batch.flush();
+                } catch (Exception e) {
+                    LOG.warn("Unable to write the index batch, rewinding to offset(s) {}: {}",
+                            result.firstOffsets, e.getMessage(), e);
+                    result.offsetsToCommit.clear();
+                    result.rewind = true;
+                }
+            }
+        } finally {
+            if (batch != null) {
+                batch.close();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Commits the offsets of indexed records, or rewinds the consumer if the records could not be written.  Must be
+     * invoked on the polling thread.
+     *
+     * @param result the result of indexing
+     * @param assigned the partitions currently assigned to the consumer, or {@code null} to act on all partitions in
+     *                 the result
+     */
+    private void completeIndexing(IndexingResult result, Set<TopicPartition> assigned) {
+        if (result.rewind) {
+            result.firstOffsets.forEach((partition, offset) -> {
+                if (assigned == null || assigned.contains(partition)) {
+                    consumer.seek(partition, offset);
+                }
+            });
+            return;
+        }
+
+        Map<TopicPartition, OffsetAndMetadata> offsetsToCommit = result.offsetsToCommit;
+        if (assigned != null) {
+            offsetsToCommit.keySet().retainAll(assigned);
+        }
 
         if (!offsetsToCommit.isEmpty()) {
             LOG.trace("Committing offset(s) for {} TopicPartition(s): {}", offsetsToCommit.size(),
@@ -148,7 +442,30 @@ public class IndexingConsumer {
         }
     }
 
-    private void indexEvent(String recordTopic, int recordPartition, long recordOffset, RMapEvent event) throws IndexingTimeoutException, IndexingInterruptedException {
+    private void processRecord(String recordTopic, int recordPartition, long recordOffset, RMapEvent event,
+                               RMapEventSnapshot snapshot, Map<TopicPartition, OffsetAndMetadata> offsetsToCommit,
+                               IndexingRetryHandler handler) {
+        if (event.getEventTargetType() != null &&
+                !event.getEventTargetType().equals(RMapEventTargetType.DISCO)) {
+            LOG.debug("Skipping event {} because it does not target a DISCO (was {} instead)",
+                    event, event.getEventTargetType());
+            return;
+        }
+
+        LOG.trace("Processing record {}/{}/{} for event: {}", recordTopic, recordPartition, recordOffset, event);
+
+        try {
+            indexEvent(recordTopic, recordPartition, recordOffset, event, snapshot, handler);
+            offsetsToCommit.put(new TopicPartition(recordTopic, recordPartition),
+                    new OffsetAndMetadata(recordOffset));
+        } catch (Exception e) {
+            LOG.warn("Unable to index event {}: {}", event, e.getMessage(), e);
+        }
+    }
+
+    private void indexEvent(String recordTopic, int recordPartition, long recordOffset, RMapEvent event,
+                            RMapEventSnapshot snapshot, IndexingRetryHandler handler)
+            throws IndexingTimeoutException, IndexingInterruptedException {
         KafkaMetadata md = new KafkaMetadata() {
             @Override
             public long getKafkaOffset() {
@@ -166,7 +483,7 @@ public class IndexingConsumer {
             }
         };
 
-        retryHandler.retry(event, md, (doc) -> {
+        handler.retry(event, snapshot, md, (doc) -> {
             doc.setKafkaOffset(recordOffset);
             doc.setKafkaPartition(recordPartition);
             doc.setKafkaTopic(recordTopic);
@@ -246,4 +563,178 @@ public class IndexingConsumer {
     public void setOffsetLookup(OffsetLookup offsetLookup) {
         this.offsetLookup = offsetLookup;
     }
+
+    /**
+     * Operations used to open a {@link DiscosIndexBatch batch} for each poll.  If {@code null}, each record is written
+     * to the index, and committed, as it is processed.
+     *
+     * @return the Solr operations, may be {@code null}
+     */
+    public DiscosSolrOperations getSolrOperations() {
+        return solrOperations;
+    }
+
+    public void setSolrOperations(DiscosSolrOperations solrOperations) {
+        this.solrOperations = solrOperations;
+    }
+
+    /**
+     * The maximum amount of time, in ms, after a batch is written before it is committed by the index.  Each batch is
+     * soft committed once written, so its documents are visible to searches before the poll's offsets are committed.
+     *
+     * @return the commit within time, in ms
+     */
+    public int getBatchCommitWithinMs() {
+        return batchCommitWithinMs;
+    }
+
+    public void setBatchCommitWithinMs(int batchCommitWithinMs) {
+        this.batchCommitWithinMs = IndexUtils.assertPositive(batchCommitWithinMs,
+                IndexUtils.iae("Batch commit within ms must be a positive integer."));
+    }
+
+    /**
+     * Executor used to index the records of each partition in parallel.  If {@code null}, records are indexed on the
+     * polling thread.  Each partition uses its own retry handler, obtained from the
+     * {@link #setRetryHandlerFactory(ObjectFactory) retry handler factory}.
+     *
+     * @return the partition executor, may be {@code null}
+     */
+    public ExecutorService getPartitionExecutor() {
+        return partitionExecutor;
+    }
+
+    public void setPartitionExecutor(ExecutorService partitionExecutor) {
+        this.partitionExecutor = partitionExecutor;
+    }
+
+    /**
+     * Provides a new retry handler for each partition when indexing partitions in parallel.
+     *
+     * @return the retry handler factory, may be {@code null}
+     */
+    public ObjectFactory<IndexingRetryHandler> getRetryHandlerFactory() {
+        return retryHandlerFactory;
+    }
+
+    public void setRetryHandlerFactory(ObjectFactory<IndexingRetryHandler> retryHandlerFactory) {
+        this.retryHandlerFactory = retryHandlerFactory;
+    }
+
+    /**
+     * The maximum amount of time, in ms, to wait for the workers of revoked partitions to stop, and for the
+     * {@link #setPartitionExecutor(ExecutorService) partition executor} to terminate when the consumer stops.
+     *
+     * @return the drain timeout, in ms
+     */
+    public int getPartitionDrainTimeoutMs() {
+        return partitionDrainTimeoutMs;
+    }
+
+    public void setPartitionDrainTimeoutMs(int partitionDrainTimeoutMs) {
+        this.partitionDrainTimeoutMs = IndexUtils.assertPositive(partitionDrainTimeoutMs,
+                IndexUtils.iae("Partition drain timeout ms must be a positive integer."));
+    }
+
+    /**
+     * The offsets resulting from indexing a set of records
+     */
+    private static class IndexingResult {
+
+        /**
+         * Offsets of the records that were indexed
+         */
+        private final Map<TopicPartition, OffsetAndMetadata> offsetsToCommit = new HashMap<>(1);
+
+        /**
+         * Offset of the first record for each partition
+         */
+        private final Map<TopicPartition, Long> firstOffsets = new HashMap<>(1);
+
+        /**
+         * Whether the consumer should be rewound to the {@link #firstOffsets first offsets}
+         */
+        private boolean rewind = false;
+    }
+
+    /**
+     * Cancels and drains partition workers when partitions are revoked, before notifying the configured
+     * {@link #rebalanceListener}.
+     */
+    private class PartitionWorkRebalanceListener implements ConsumerRebalanceListener {
+
+        @Override
+        public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+            revokePartitionWork(partitions);
+            rebalanceListener.onPartitionsRevoked(partitions);
+        }
+
+        @Override
+        public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+            rebalanceListener.onPartitionsAssigned(partitions);
+        }
+    }
+
+    /**
+     * A running partition worker
+     */
+    private static class PartitionWork {
+
+        private final long firstOffset;
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private Future<IndexingResult> future;
+
+        /**
+         * The result of the worker, set by the worker before it completes
+         */
+        private volatile IndexingResult result;
+
+        private volatile boolean cancelled = false;
+
+        /**
+         * Claimed by the worker when it starts, or by {@link #cancel()} if the worker has not started
+         */
+        private final AtomicBoolean started = new AtomicBoolean(false);
+
+        private PartitionWork(long firstOffset) {
+            this.firstOffset = firstOffset;
+        }
+
+        /**
+         * Invoked by the worker when it starts running.
+         *
+         * @return {@code false} if the work was cancelled before it started, and must not run
+         */
+        private boolean start() {
+            return started.compareAndSet(false, true);
+        }
+
+        /**
+         * Cancels the worker.  A worker that has not started will not run, and is done immediately.
+         */
+        private void cancel() {
+            cancelled = true;
+            if (started.compareAndSet(false, true)) {
+                done.countDown();
+            }
+            future.cancel(true);
+        }
+
+        /**
+         * Waits for the worker to stop running, whether it completed or was cancelled.
+         *
+         * @param timeoutMs the maximum time to wait, in ms
+         * @return {@code true} if the worker stopped
+         */
+        private boolean awaitDone(long timeoutMs) {
+            try {
+                return done.await(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package info.rmapproject.indexing.kafka;
 
 import info.rmapproject.core.model.event.RMapEvent;
+import info.rmapproject.core.model.event.RMapEventSnapshot;
 import info.rmapproject.indexing.IndexingInterruptedException;
 import info.rmapproject.indexing.IndexingTimeoutException;
 import info.rmapproject.indexing.solr.model.DiscoSolrDocument;
@@ -17,4 +18,21 @@ public interface IndexingRetryHandler {
     void retry(RMapEvent event, KafkaMetadata metadata,  Consumer<DiscoSolrDocument> documentDecorator)
             throws IndexingTimeoutException, IndexingInterruptedException;
 
+    /**
+     * Indexes the supplied {@code event} using the DiSCOs and agent captured in {@code snapshot}, if the snapshot is
+     * present.  Implementations that cannot make use of a snapshot ignore it.
+     *
+     * @param event the RMap event being indexed
+     * @param snapshot the DiSCOs and agent referenced by the event when it was created, may be {@code null}
+     * @param metadata the Kafka metadata of the event
+     * @param documentDecorator decorates the solr document prior to indexing
+     * @throws IndexingTimeoutException if the event could not be indexed before a timeout was exceeded
+     * @throws IndexingInterruptedException if the thread performing the indexing is interrupted
+     */
+    default void retry(RMapEvent event, RMapEventSnapshot snapshot, KafkaMetadata metadata,
+                       Consumer<DiscoSolrDocument> documentDecorator)
+            throws IndexingTimeoutException, IndexingInterruptedException {
+        retry(event, metadata, documentDecorator);
+    }
+
 }
@@ -1,9 +1,13 @@
 package info.rmapproject.indexing.kafka;
 
+import info.rmapproject.core.model.event.RMapEventSnapshot;
+import info.rmapproject.kafka.shared.GenericJvmObjectDeserializer;
 import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.consumer.OffsetCommitCallback;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,4 +60,25 @@ class KafkaUtils {
                 .map(TopicPartition::toString)
                 .collect(Collectors.joining(","));
     }
+
+    /**
+     * Answers the snapshot of the DiSCOs and agent published with the event in the record, if there is one.
+     *
+     * @param record the record
+     * @return the snapshot, or {@code null} if the record has none, or it cannot be deserialized
+     */
+    static RMapEventSnapshot snapshotOf(ConsumerRecord<String, ?> record) {
+        Header header = record.headers().lastHeader(RMapEventSnapshot.KAFKA_HEADER);
+        if (header == null) {
+            return null;
+        }
+
+        try {
+            return new GenericJvmObjectDeserializer<RMapEventSnapshot>().deserialize(record.topic(), header.value());
+        } catch (RuntimeException e) {
+            LOG.warn("Ignoring the snapshot of record {}/{}/{}: {}", record.topic(), record.partition(),
+                    record.offset(), e.getMessage(), e);
+            return null;
+        }
+    }
 }
@@ -0,0 +1,535 @@
+package info.rmapproject.indexing.kafka;
+
+import info.rmapproject.core.metrics.OperationMetrics;
+import info.rmapproject.core.model.RMapIri;
+import info.rmapproject.core.model.event.RMapEvent;
+import info.rmapproject.core.model.event.RMapEventSnapshot;
+import info.rmapproject.indexing.solr.model.KafkaMetadata;
+import info.rmapproject.kafka.shared.GenericJvmObjectSerializer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static info.rmapproject.indexing.IndexUtils.assertNotNull;
+import static info.rmapproject.indexing.IndexUtils.assertNotNullOrEmpty;
+import static info.rmapproject.indexing.IndexUtils.assertPositive;
+import static info.rmapproject.indexing.IndexUtils.iae;
+import static java.lang.System.currentTimeMillis;
+
+/**
+ * Parks events that could not be indexed on a Kafka retry topic, so that the consumer of the event topic can carry
+ * on consuming instead of blocking its partition while the event is retried.  Parked events are retried by a
+ * {@link RetryTopicConsumer} once their retry delay has elapsed.  Events that still cannot be indexed after
+ * {@code maxAttempts} attempts are moved to a dead-letter topic, from which they may be replayed by the
+ * {@link DeadLetterReplayer}.
+ * <p>
+ * The number of attempts, and the time before which the event must not be retried, are carried in the headers of
+ * each record on the retry topic.  Records are published with the producer's partitioner, so events for a lineage
+ * remain on the same partition of the retry topic, in the order they were parked.
+ * </p>
+ * <p>
+ * The order of events within a lineage matters to the index: the status of a DiSCO's documents depends on the events
+ * that precede it.  So, while an event of a lineage is parked, later events of the same lineage are parked behind it
+ * rather than indexed.  The lineages with parked events are tracked in memory, so this ordering is only guaranteed
+ * while the process is running.
+ * </p>
+ * <p>
+ * A consumer that cannot write its batch rewinds, and processes the same records again.  So that an event is not
+ * parked twice (which would index it twice, and hold back its lineage until both copies were retried), the position
+ * of the record each event was parked from is remembered, and a record is only parked once.  The most recent
+ * {@code trackedPositions} positions are remembered.
+ * </p>
+ * <p>
+ * Shared by the indexing consumers and the retry topic consumer of a process; thread safe.
+ * </p>
+ */
+public class RetryQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RetryQueue.class);
+
+    /**
+     * Header carrying the number of failed attempts to index the event
+     */
+    static final String ATTEMPTS_HEADER = "rmap-retry-attempts";
+
+    /**
+     * Header carrying the time, in epoch ms, before which the event must not be retried
+     */
+    static final String NOT_BEFORE_HEADER = "rmap-retry-not-before";
+
+    /**
+     * Header carrying the cause of the last failed attempt
+     */
+    static final String ERROR_HEADER = "rmap-retry-error";
+
+    private static final int MAX_ERROR_LENGTH = 1024;
+
+    private static final long SEND_TIMEOUT_MS = 30000;
+
+    private final KafkaTemplate<String, RMapEvent> template;
+
+    private final String retryTopic;
+
+    private final String deadLetterTopic;
+
+    private int maxAttempts = 5;
+
+    private long initialDelayMs = 30000;
+
+    private float backoffFactor = 2.0F;
+
+    private long maxDelayMs = 3600000;
+
+    private int trackedPositions = 100000;
+
+    /**
+     * Positions (topic, partition and offset) of the records events were parked from, oldest first
+     */
+    private final Map<String, Boolean> parkedPositions = Collections.synchronizedMap(
+            new LinkedHashMap<String, Boolean>() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > trackedPositions;
+                }
+            });
+
+    /**
+     * Number of parked events for each lineage, keyed by lineage progenitor IRI
+     */
+    private final ConcurrentHashMap<String, AtomicInteger> pendingLineages = new ConcurrentHashMap<>();
+
+    private final AtomicLong parkedCount = new AtomicLong();
+
+    private final AtomicLong pendingCount = new AtomicLong();
+
+    private final AtomicLong retriedCount = new AtomicLong();
+
+    private final AtomicLong deadLetteredCount = new AtomicLong();
+
+    private final AtomicLong replayedCount = new AtomicLong();
+
+    private final AtomicLong retryLagMs = new AtomicLong();
+
+    /**
+     * @param template publishes events to the retry and dead-letter topics
+     * @param retryTopic the topic parked events are published to
+     * @param deadLetterTopic the topic events are published to once {@code maxAttempts} is exceeded
+     */
+    public RetryQueue(KafkaTemplate<String, RMapEvent> template, String retryTopic, String deadLetterTopic) {
+        this.template = assertNotNull(template, iae("Kafka template must not be null."));
+        this.retryTopic = assertNotNullOrEmpty(retryTopic, "Retry topic must not be null or empty.");
+        this.deadLetterTopic = assertNotNullOrEmpty(deadLetterTopic, "Dead letter topic must not be null or empty.");
+    }
+
+    /**
+     * Parks an event that has not been indexed.  The event will be retried once its retry delay has elapsed, and
+     * later events of its lineage will be parked behind it until it has been indexed or dead-lettered.
+     *
+     * @param event the event
+     * @param snapshot the snapshot of the event, may be {@code null}
+     * @param attempts the number of failed attempts to index the event; if {@code 0}, the event is parked behind an
+     *                 earlier event of its lineage and may be retried as soon as that event has been
+     * @param cause the cause of the last failed attempt, may be {@code null}
+     * @throws RuntimeException if the event cannot be published to the retry topic
+     */
+    public void park(RMapEvent event, RMapEventSnapshot snapshot, int attempts, Exception cause) {
+        park(event, snapshot, attempts, cause, null);
+    }
+
+    /**
+     * Parks an event that has not been indexed, unless it has already been parked from the same record.  The event
+     * will be retried once its retry delay has elapsed, and later events of its lineage will be parked behind it until
+     * it has been indexed or dead-lettered.
+     *
+     * @param event the event
+     * @param snapshot the snapshot of the event, may be {@code null}
+     * @param attempts the number of failed attempts to index the event; if {@code 0}, the event is parked behind an
+     *                 earlier event of its lineage and may be retried as soon as that event has been
+     * @param cause the cause of the last failed attempt, may be {@code null}
+     * @param source the position of the record the event was read from, may be {@code null}
+     * @return {@code false} if the event was already parked from {@code source}, and was not parked again
+     * @throws RuntimeException if the event cannot be published to the retry topic
+     */
+    public boolean park(RMapEvent event, RMapEventSnapshot snapshot, int attempts, Exception cause,
+                        KafkaMetadata source) {
+        String position = (source != null) ? positionOf(source) : null;
+        if (position != null && parkedPositions.putIfAbsent(position, Boolean.TRUE) != null) {
+            LOG.debug("Not parking event {}: it was already parked from record {}", idOf(event), position);
+            return false;
+        }
+
+        try {
+            send(retryTopic, event, snapshot, attempts, currentTimeMillis() + delayFor(attempts), cause);
+        } catch (RuntimeException e) {
+            if (position != null) {
+                parkedPositions.remove(position);
+            }
+            throw e;
+        }
+        lineageCounter(event).incrementAndGet();
+        parkedCount.incrementAndGet();
+        pendingCount.incrementAndGet();
+        LOG.info("Parked event {} on topic {} after {} failed attempt(s)", idOf(event), retryTopic, attempts);
+        return true;
+    }
+
+    /**
+     * Answers whether an event has been parked from the record at the supplied position.
+     *
+     * @param source the position of a record
+     * @return {@code true} if an event was parked from the record, and must not be indexed or parked again
+     */
+    public boolean isParked(KafkaMetadata source) {
+        return source != null && parkedPositions.containsKey(positionOf(source));
+    }
+
+    /**
+     * Publishes an event that is already parked back onto the retry topic, to be retried after its retry delay.
+     *
+     * @param event the event
+     * @param snapshot the snapshot of the event, may be {@code null}
+     * @param attempts the number of failed attempts to index the event
+     * @param cause the cause of the last failed attempt, may be {@code null}
+     * @throws RuntimeException if the event cannot be published to the retry topic
+     */
+    void reschedule(RMapEvent event, RMapEventSnapshot snapshot, int attempts, Exception cause) {
+        send(retryTopic, event, snapshot, attempts, currentTimeMillis() + delayFor(attempts), cause);
+        LOG.debug("Rescheduled event {} after {} failed attempt(s)", idOf(event), attempts);
+    }
+
+    /**
+     * Moves a parked event to the dead-letter topic.  Later events of its lineage are no longer held back.
+     *
+     * @param event the event
+     * @param snapshot the snapshot of the event, may be {@code null}
+     * @param attempts the number of failed attempts to index the event
+     * @param cause the cause of the last failed attempt, may be {@code null}
+     * @throws RuntimeException if the event cannot be published to the dead-letter topic
+     */
+    void deadLetter(RMapEvent event, RMapEventSnapshot snapshot, int attempts, Exception cause) {
+        send(deadLetterTopic, event, snapshot, attempts, 0, cause);
+        release(event);
+        deadLetteredCount.incrementAndGet();
+        LOG.warn("Moved event {} to dead letter topic {} after {} failed attempt(s): {}", idOf(event),
+                deadLetterTopic, attempts, (cause != null) ? cause.getMessage() : "");
+    }
+
+    /**
+     * Records that a parked event has been indexed.  Later events of its lineage are no longer held back.
+     *
+     * @param event the event
+     */
+    void retried(RMapEvent event) {
+        release(event);
+        retriedCount.incrementAndGet();
+    }
+
+    /**
+     * Parks an event read from the dead-letter topic, so that it is retried immediately, with a fresh count of
+     * attempts.
+     *
+     * @param event the event
+     * @param snapshot the snapshot of the event, may be {@code null}
+     * @throws RuntimeException if the event cannot be published to the retry topic
+     */
+    void replay(RMapEvent event, RMapEventSnapshot snapshot) {
+        park(event, snapshot, 0, null);
+        replayedCount.incrementAndGet();
+    }
+
+    /**
+     * Answers whether an earlier event of the supplied event's lineage is parked in this process.
+     *
+     * @param event the event
+     * @return {@code true} if the event must be parked behind an earlier event
+     */
+    public boolean isPending(RMapEvent event) {
+        AtomicInteger counter = pendingLineages.get(lineageOf(event));
+        return counter != null && counter.get() > 0;
+    }
+
+    /**
+     * Records how late a parked event was retried, relative to the time it was due.
+     *
+     * @param lagMs the difference between the time the event was retried, and the time it was due, in ms
+     */
+    void recordRetryLag(long lagMs) {
+        retryLagMs.set(Math.max(0, lagMs));
+    }
+
+    /**
+     * Answers the delay before an event that has failed {@code attempts} times is retried:
+     * {@code initialDelayMs * backoffFactor^(attempts - 1)}, up to {@code maxDelayMs}.
+     *
+     * @param attempts the number of failed attempts
+     * @return the delay, in ms
+     */
+    long delayFor(int attempts) {
+        if (attempts < 1) {
+            return 0;
+        }
+        double delay = initialDelayMs * Math.pow(backoffFactor, attempts - 1);
+        return (long) Math.min(delay, maxDelayMs);
+    }
+
+    /**
+     * @param record a record from the retry or dead-letter topic
+     * @return the number of failed attempts to index the record's event
+     */
+    static int attemptsOf(ConsumerRecord<String, ?> record) {
+        return (int) longHeader(record, ATTEMPTS_HEADER);
+    }
+
+    /**
+     * @param record a record from the retry topic
+     * @return the time, in epoch ms, before which the record's event must not be retried
+     */
+    static long notBeforeOf(ConsumerRecord<String, ?> record) {
+        return longHeader(record, NOT_BEFORE_HEADER);
+    }
+
+    /**
+     * @param event the event
+     * @return the IRI of the event's lineage progenitor, or the event IRI if it has no lineage
+     */
+    static String lineageOf(RMapEvent event) {
+        RMapIri lineage = event.getLineageProgenitor();
+        return (lineage != null) ? lineage.getStringValue() : idOf(event);
+    }
+
+    private static String idOf(RMapEvent event) {
+        return event.getId().getStringValue();
+    }
+
+    private static String positionOf(KafkaMetadata source) {
+        return source.getKafkaTopic() + "/" + source.getKafkaPartition() + "/" + source.getKafkaOffset();
+    }
+
+    private static long longHeader(ConsumerRecord<String, ?> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        if (header == null || header.value() == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(new String(header.value(), StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            LOG.warn("Ignoring invalid header {} of record {}/{}/{}", name, record.topic(), record.partition(),
+                    record.offset());
+            return 0;
+        }
+    }
+
+    private AtomicInteger lineageCounter(RMapEvent event) {
+        return pendingLineages.computeIfAbsent(lineageOf(event), lineage -> new AtomicInteger());
+    }
+
+    private void release(RMapEvent event) {
+        pendingLineages.computeIfPresent(lineageOf(event),
+                (lineage, counter) -> (counter.decrementAndGet() > 0) ? counter : null);
+        pendingCount.updateAndGet(count -> Math.max(0, count - 1));
+    }
+
+    private void send(String topic, RMapEvent event, RMapEventSnapshot snapshot, int attempts, long notBefore,
+                      Exception cause) {
+        List<Header> headers = new ArrayList<>();
+        headers.add(new RecordHeader(ATTEMPTS_HEADER, bytes(String.valueOf(attempts))));
+        headers.add(new RecordHeader(NOT_BEFORE_HEADER, bytes(String.valueOf(notBefore))));
+        if (cause != null) {
+            String error = String.valueOf(cause.getMessage());
+            headers.add(new RecordHeader(ERROR_HEADER,
+                    bytes(error.substring(0, Math.min(error.length(), MAX_ERROR_LENGTH)))));
+        }
+        if (snapshot != null) {
+            headers.add(new RecordHeader(RMapEventSnapshot.KAFKA_HEADER,
+                    new GenericJvmObjectSerializer<RMapEventSnapshot>().serialize(topic, snapshot)));
+        }
+
+        try {
+            template.send(new ProducerRecord<>(topic, null, idOf(event), event, headers))
+                    .get(SEND_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted publishing event " + idOf(event) + " to topic " + topic, e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new RuntimeException("Unable to publish event " + idOf(event) + " to topic " + topic + ": " +
+                    e.getMessage(), e);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Publishes the counters of this queue with the supplied operation metrics.
+     *
+     * @param metrics the operation metrics, or null if there are none
+     */
+    @Autowired(required = false)
+    public void setOperationMetrics(OperationMetrics metrics) {
+        if (metrics == null) {
+            return;
+        }
+        metrics.counter("rmap_retry_parked_total", "Index events parked on the retry topic", this::getParkedCount);
+        metrics.gauge("rmap_retry_pending", "Parked index events not yet indexed or dead-lettered",
+                this::getPendingCount);
+        metrics.counter("rmap_retry_retried_total", "Parked index events indexed", this::getRetriedCount);
+        metrics.counter("rmap_retry_dead_lettered_total", "Index events moved to the dead-letter topic",
+                this::getDeadLetteredCount);
+        metrics.counter("rmap_retry_replayed_total", "Index events replayed from the dead-letter topic",
+                this::getReplayedCount);
+        metrics.gauge("rmap_retry_lag_ms", "Delay between the due time and retry of the last retried index event",
+                this::getRetryLagMs);
+    }
+
+    public String getRetryTopic() {
+        return retryTopic;
+    }
+
+    public String getDeadLetterTopic() {
+        return deadLetterTopic;
+    }
+
+    /**
+     * @return the number of attempts after which an event is moved to the dead-letter topic
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @param maxAttempts the number of attempts after which an event is moved to the dead-letter topic
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = assertPositive(maxAttempts, iae("Max attempts must be a positive integer."));
+    }
+
+    /**
+     * @return the delay before an event is retried for the first time, in ms
+     */
+    public long getInitialDelayMs() {
+        return initialDelayMs;
+    }
+
+    /**
+     * @param initialDelayMs the delay before an event is retried for the first time, in ms
+     */
+    public void setInitialDelayMs(long initialDelayMs) {
+        if (initialDelayMs < 1) {
+            throw new IllegalArgumentException("Initial delay ms must be a positive integer.");
+        }
+        this.initialDelayMs = initialDelayMs;
+    }
+
+    /**
+     * @return multiplied by the delay on each attempt
+     */
+    public float getBackoffFactor() {
+        return backoffFactor;
+    }
+
+    /**
+     * @param backoffFactor multiplied by the delay on each attempt, must be 1 or greater
+     */
+    public void setBackoffFactor(float backoffFactor) {
+        if (backoffFactor < 1) {
+            throw new IllegalArgumentException("Backoff factor must be a float greater than or equal to one.");
+        }
+        this.backoffFactor = backoffFactor;
+    }
+
+    /**
+     * @return the maximum delay before an event is retried, in ms
+     */
+    public long getMaxDelayMs() {
+        return maxDelayMs;
+    }
+
+    /**
+     * @param maxDelayMs the maximum delay before an event is retried, in ms
+     */
+    public void setMaxDelayMs(long maxDelayMs) {
+        if (maxDelayMs < 1) {
+            throw new IllegalArgumentException("Max delay ms must be a positive integer.");
+        }
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    /**
+     * @return the number of record positions remembered, so that events are not parked twice from the same record
+     */
+    public int getTrackedPositions() {
+        return trackedPositions;
+    }
+
+    /**
+     * @param trackedPositions the number of record positions remembered, so that events are not parked twice from the
+     *                         same record
+     */
+    public void setTrackedPositions(int trackedPositions) {
+        this.trackedPositions = assertPositive(trackedPositions, iae("Tracked positions must be a positive integer."));
+    }
+
+    /**
+     * @return the number of events parked since startup, including replayed events
+     */
+    public long getParkedCount() {
+        return parkedCount.get();
+    }
+
+    /**
+     * @return the number of events parked by this process that have not yet been indexed or dead-lettered
+     */
+    public long getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * @return the number of parked events indexed since startup
+     */
+    public long getRetriedCount() {
+        return retriedCount.get();
+    }
+
+    /**
+     * @return the number of events moved to the dead-letter topic since startup
+     */
+    public long getDeadLetteredCount() {
+        return deadLetteredCount.get();
+    }
+
+    /**
+     * @return the number of events replayed from the dead-letter topic since startup
+     */
+    public long getReplayedCount() {
+        return replayedCount.get();
+    }
+
+    /**
+     * @return how late, in ms, the most recently retried event was retried relative to the time it was due
+     */
+    public long getRetryLagMs() {
+        return retryLagMs.get();
+    }
+
+}
@@ -0,0 +1,229 @@
+package info.rmapproject.indexing.kafka;
+
+import info.rmapproject.core.model.event.RMapEvent;
+import info.rmapproject.core.model.event.RMapEventSnapshot;
+import info.rmapproject.indexing.IndexingTimeoutException;
+import info.rmapproject.indexing.solr.model.KafkaMetadata;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.errors.WakeupException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static info.rmapproject.indexing.IndexUtils.assertNotNull;
+import static info.rmapproject.indexing.IndexUtils.assertPositive;
+import static info.rmapproject.indexing.IndexUtils.iae;
+import static info.rmapproject.indexing.kafka.KafkaUtils.commitOffsets;
+import static info.rmapproject.indexing.kafka.KafkaUtils.snapshotOf;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Collections.singleton;
+
+/**
+ * Consumes events parked on the {@link RetryQueue#getRetryTopic() retry topic}, and retries them once they are due.
+ * <p>
+ * A partition whose next record is not yet due is paused, and rewound to that record, until the record is due; the
+ * consumer keeps polling meanwhile, so it remains a live member of its group.  Events that fail again are published
+ * back to the retry topic with a longer delay, or moved to the dead-letter topic once the maximum number of attempts
+ * is reached.  Later records for the lineage of an event that failed again are published back behind it, so events of
+ * a lineage are retried in order.
+ * </p>
+ * <p>
+ * Must run in the same process as the {@link IndexingConsumer}s that park events, because the lineages with parked
+ * events are tracked by the shared {@code RetryQueue}.  Not thread safe: invoke {@link #consume()} on a single thread,
+ * and stop it with {@code Consumer.wakeup()}.
+ * </p>
+ */
+public class RetryTopicConsumer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RetryTopicConsumer.class);
+
+    private final Consumer<String, RMapEvent> consumer;
+
+    private final IndexingRetryHandler retryHandler;
+
+    private final RetryQueue retryQueue;
+
+    private int pollTimeoutMs = 30000;
+
+    /**
+     * Paused partitions, and the time in epoch ms at which each is due to be resumed
+     */
+    private final Map<TopicPartition, Long> pausedUntil = new HashMap<>();
+
+    /**
+     * Lineages whose events are published back behind an event that failed again, and the IRI of that event
+     */
+    private final Map<String, String> blockedLineages = new HashMap<>();
+
+    /**
+     * @param consumer consumes the retry topic
+     * @param retryHandler makes a bounded attempt to index each event; must not itself park events
+     * @param retryQueue the queue events were parked on
+     */
+    public RetryTopicConsumer(Consumer<String, RMapEvent> consumer, IndexingRetryHandler retryHandler,
+                              RetryQueue retryQueue) {
+        this.consumer = assertNotNull(consumer, iae("Consumer must not be null."));
+        this.retryHandler = assertNotNull(retryHandler, iae("Retry handler must not be null."));
+        this.retryQueue = assertNotNull(retryQueue, iae("Retry queue must not be null."));
+    }
+
+    /**
+     * Subscribes to the retry topic and retries parked events until the consumer is woken up.
+     */
+    public void consume() {
+        consumer.subscribe(singleton(retryQueue.getRetryTopic()));
+
+        while (true) {
+            try {
+                resumeDuePartitions();
+                ConsumerRecords<String, RMapEvent> records = consumer.poll(nextPollTimeout());
+                processRecords(records);
+            } catch (WakeupException e) {
+                LOG.info("WakeupException encountered, closing retry consumer.");
+                consumer.close();
+                break;
+            } catch (InterruptException e) {
+                LOG.info("InterruptException encountered, exiting consumer.poll({}) early.", pollTimeoutMs);
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private void processRecords(ConsumerRecords<String, RMapEvent> records) {
+        Map<TopicPartition, OffsetAndMetadata> offsetsToCommit = new HashMap<>();
+
+        for (TopicPartition partition : records.partitions()) {
+            List<ConsumerRecord<String, RMapEvent>> partitionRecords = records.records(partition);
+            Iterator<ConsumerRecord<String, RMapEvent>> itr = partitionRecords.iterator();
+            while (itr.hasNext()) {
+                ConsumerRecord<String, RMapEvent> record = itr.next();
+                long notBefore = RetryQueue.notBeforeOf(record);
+                if (notBefore > currentTimeMillis()) {
+                    LOG.trace("Pausing {} until {}: record {} is not yet due", partition, notBefore, record.offset());
+                    consumer.seek(partition, record.offset());
+                    consumer.pause(singleton(partition));
+                    pausedUntil.put(partition, notBefore);
+                    break;
+                }
+
+                try {
+                    processRecord(record, notBefore);
+                } catch (RuntimeException e) {
+                    // the record could not be rescheduled or dead-lettered: leave it on the topic and try again later
+                    LOG.warn("Unable to process retry record {}/{}/{}, will try again in {} ms: {}", record.topic(),
+                            record.partition(), record.offset(), retryQueue.getInitialDelayMs(), e.getMessage(), e);
+                    consumer.seek(partition, record.offset());
+                    consumer.pause(singleton(partition));
+                    pausedUntil.put(partition, currentTimeMillis() + retryQueue.getInitialDelayMs());
+                    break;
+                }
+                offsetsToCommit.put(partition, new OffsetAndMetadata(record.offset() + 1));
+            }
+        }
+
+        commitOffsets(consumer, offsetsToCommit, false);
+    }
+
+    private void processRecord(ConsumerRecord<String, RMapEvent> record, long notBefore) {
+        RMapEvent event = record.value();
+        String eventId = event.getId().getStringValue();
+        String lineage = RetryQueue.lineageOf(event);
+        int attempts = RetryQueue.attemptsOf(record);
+        RMapEventSnapshot snapshot = snapshotOf(record);
+
+        String blockedBy = blockedLineages.get(lineage);
+        if (blockedBy != null) {
+            if (!blockedBy.equals(eventId)) {
+                LOG.debug("Rescheduling event {} behind event {} of lineage {}", eventId, blockedBy, lineage);
+                retryQueue.reschedule(event, snapshot, attempts, null);
+                return;
+            }
+            blockedLineages.remove(lineage);
+        }
+
+        if (notBefore > 0) {
+            retryQueue.recordRetryLag(currentTimeMillis() - notBefore);
+        }
+
+        try {
+            retryHandler.retry(event, snapshot, metadataOf(record), (doc) -> {
+                doc.setKafkaOffset(record.offset());
+                doc.setKafkaPartition(record.partition());
+                doc.setKafkaTopic(record.topic());
+            });
+            retryQueue.retried(event);
+            LOG.info("Indexed parked event {} after {} failed attempt(s)", eventId, attempts);
+        } catch (IndexingTimeoutException e) {
+            int failed = attempts + 1;
+            if (failed >= retryQueue.getMaxAttempts()) {
+                retryQueue.deadLetter(event, snapshot, failed, e);
+            } else {
+                retryQueue.reschedule(event, snapshot, failed, e);
+                blockedLineages.put(lineage, eventId);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Unable to retry event " + eventId + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void resumeDuePartitions() {
+        long now = currentTimeMillis();
+        Iterator<Map.Entry<TopicPartition, Long>> itr = pausedUntil.entrySet().iterator();
+        while (itr.hasNext()) {
+            Map.Entry<TopicPartition, Long> paused = itr.next();
+            if (paused.getValue() <= now) {
+                if (consumer.assignment().contains(paused.getKey())) {
+                    consumer.resume(singleton(paused.getKey()));
+                }
+                itr.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the time to block in poll: no longer than it takes for the next paused partition to become due
+     */
+    private long nextPollTimeout() {
+        long now = currentTimeMillis();
+        return pausedUntil.values().stream()
+                .mapToLong(until -> Math.max(0, until - now))
+                .reduce(pollTimeoutMs, Math::min);
+    }
+
+    private static KafkaMetadata metadataOf(ConsumerRecord<String, RMapEvent> record) {
+        return new KafkaMetadata() {
+            @Override
+            public long getKafkaOffset() {
+                return record.offset();
+            }
+
+            @Override
+            public int getKafkaPartition() {
+                return record.partition();
+            }
+
+            @Override
+            public String getKafkaTopic() {
+                return record.topic();
+            }
+        };
+    }
+
+    public int getPollTimeoutMs() {
+        return pollTimeoutMs;
+    }
+
+    public void setPollTimeoutMs(int pollTimeoutMs) {
+        this.pollTimeoutMs = assertPositive(pollTimeoutMs, iae("Poll timeout ms must be a positive integer."));
+    }
+
+}
@@ -54,6 +54,10 @@ public class SpringAwareConsumerInitializer<T> implements ApplicationContextAwar
 
     private String solrCoreName;
 
+    private String retryConsumerBeanName;
+
+    private ExecutorService retryConsumerThread;
+
     public SpringAwareConsumerInitializer(String solrUrl, String solrCoreName) {
         this.solrUrl = assertNotNullOrEmpty(solrUrl, "Solr URL must not be null or empty");
         this.solrCoreName = assertNotNull(solrCoreName, "Solr Core name must not be null or empty");
@@ -165,6 +169,18 @@ public class SpringAwareConsumerInitializer<T> implements ApplicationContextAwar
         this.brokerBootstrapServers = brokerBootstrapServers;
     }
 
+    public String getRetryConsumerBeanName() {
+        return retryConsumerBeanName;
+    }
+
+    /**
+     * @param retryConsumerBeanName the name of a {@link RetryTopicConsumer} bean, started alongside the consumers;
+     *                              may be {@code null} if parked events are not retried by this process
+     */
+    public void setRetryConsumerBeanName(String retryConsumerBeanName) {
+        this.retryConsumerBeanName = retryConsumerBeanName;
+    }
+
     public void start() {
         LOG.info("Beginning Kafka consumer startup procedure for topic '{}' using Kafka bootstrap server(s) {}", kafkaTopic, brokerBootstrapServers);
 
@@ -184,9 +200,13 @@ public class SpringAwareConsumerInitializer<T> implements ApplicationContextAwar
 
         try {
             startConsumers();
+            startRetryConsumer();
         } catch (Exception e) {
             LOG.error("Unable to start Kafka consumers; aborting consumer startup procedure: {}", e.getMessage(), e);
             this.consumerThreads.shutdownNow();
+            if (this.retryConsumerThread != null) {
+                this.retryConsumerThread.shutdownNow();
+            }
             return;
         }
 
@@ -208,6 +228,17 @@ public class SpringAwareConsumerInitializer<T> implements ApplicationContextAwar
         }
     }
 
+    private void startRetryConsumer() {
+        if (retryConsumerBeanName == null) {
+            return;
+        }
+
+        RetryTopicConsumer retryConsumer = appCtx.getBean(retryConsumerBeanName, RetryTopicConsumer.class);
+        LOG.info("Starting retry consumer");
+        retryConsumerThread = Executors.newSingleThreadExecutor();
+        retryConsumerThread.submit(retryConsumer::consume);
+    }
+
     private boolean waitForConditions() {
         // Create the conditions (TODO: inject)
         createConditions();
@@ -0,0 +1,160 @@
+package info.rmapproject.indexing.reindex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+import static info.rmapproject.indexing.IndexUtils.assertNotNull;
+import static info.rmapproject.indexing.IndexUtils.assertNotNullOrEmpty;
+import static info.rmapproject.indexing.IndexUtils.iae;
+
+/**
+ * The position of a {@link TriplestoreReindexer reindex} in the chronological sequence of events: the start time and
+ * IRI of the last event applied to the index, and the number of events applied so far.  Events are ordered by start
+ * time, and then by IRI, so the pair identifies a unique position even when events share a start time.
+ * <p>
+ * Checkpoints are persisted as a properties file.  The file is replaced atomically, so a reindex that is killed while
+ * saving a checkpoint resumes from the previous one.
+ * </p>
+ */
+public class ReindexCheckpoint {
+
+    static final String STARTED_AT_TIME = "startedAtTime";
+
+    static final String EVENT_IRI = "eventIri";
+
+    static final String EVENT_COUNT = "eventCount";
+
+    /**
+     * The position before the first event
+     */
+    public static final ReindexCheckpoint START = new ReindexCheckpoint();
+
+    private final String startedAtTime;
+
+    private final URI eventIri;
+
+    private final long eventCount;
+
+    private ReindexCheckpoint() {
+        this.startedAtTime = null;
+        this.eventIri = null;
+        this.eventCount = 0;
+    }
+
+    /**
+     * Constructs a checkpoint positioned after the identified event.
+     *
+     * @param startedAtTime the lexical form of the event's {@code prov:startedAtTime}, an {@code xsd:dateTime}
+     * @param eventIri the IRI of the event
+     * @param eventCount the number of events applied to the index, including this one
+     */
+    public ReindexCheckpoint(String startedAtTime, URI eventIri, long eventCount) {
+        this.startedAtTime = assertNotNullOrEmpty(startedAtTime, "Started at time must not be null or empty.");
+        this.eventIri = assertNotNull(eventIri, iae("Event IRI must not be null."));
+        if (eventCount < 1) {
+            throw new IllegalArgumentException("Event count must be a positive integer.");
+        }
+        this.eventCount = eventCount;
+    }
+
+    /**
+     * Loads the checkpoint saved to {@code file}.
+     *
+     * @param file the checkpoint file
+     * @return the checkpoint, or {@link #START} if the file does not exist
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid checkpoint
+     */
+    public static ReindexCheckpoint load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return START;
+        }
+
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            props.load(in);
+        }
+
+        String eventIri = props.getProperty(EVENT_IRI);
+        if (eventIri == null) {
+            return START;
+        }
+
+        try {
+            return new ReindexCheckpoint(props.getProperty(STARTED_AT_TIME), URI.create(eventIri),
+                    Long.parseLong(props.getProperty(EVENT_COUNT, "0")));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid checkpoint file " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Saves this checkpoint to {@code file}, replacing any existing checkpoint.
+     *
+     * @param file the checkpoint file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        Properties props = new Properties();
+        if (!isStart()) {
+            props.setProperty(STARTED_AT_TIME, startedAtTime);
+            props.setProperty(EVENT_IRI, eventIri.toString());
+            props.setProperty(EVENT_COUNT, String.valueOf(eventCount));
+        }
+
+        Path dir = file.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                props.store(out, "RMap reindex checkpoint");
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * @return {@code true} if no events have been applied
+     */
+    public boolean isStart() {
+        return eventIri == null;
+    }
+
+    /**
+     * @return the lexical form of the last event's {@code prov:startedAtTime}, {@code null} if {@link #isStart()}
+     */
+    public String getStartedAtTime() {
+        return startedAtTime;
+    }
+
+    /**
+     * @return the IRI of the last event, {@code null} if {@link #isStart()}
+     */
+    public URI getEventIri() {
+        return eventIri;
+    }
+
+    /**
+     * @return the number of events applied to the index
+     */
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    @Override
+    public String toString() {
+        return "ReindexCheckpoint{" +
+                "startedAtTime='" + startedAtTime + '\'' +
+                ", eventIri=" + eventIri +
+                ", eventCount=" + eventCount +
+                '}';
+    }
+
+}
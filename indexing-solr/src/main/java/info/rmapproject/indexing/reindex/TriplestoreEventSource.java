@@ -0,0 +1,173 @@
+package info.rmapproject.indexing.reindex;
+
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.TupleQueryResult;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import static info.rmapproject.core.utils.Terms.PROV_STARTEDATTIME_PATH;
+import static info.rmapproject.core.utils.Terms.RMAP_EVENT_PATH;
+import static info.rmapproject.indexing.IndexUtils.assertNotNull;
+import static info.rmapproject.indexing.IndexUtils.assertPositive;
+import static info.rmapproject.indexing.IndexUtils.iae;
+
+/**
+ * Enumerates the RMap events in a triplestore in chronological order, a page at a time.
+ * <p>
+ * Each event is stored in a named graph identified by the event IRI.  Events are ordered by their
+ * {@code prov:startedAtTime}, and then by IRI.  The events following a checkpoint are selected by a single query,
+ * with a filter that resumes after the checkpoint (keyset pagination), and each page is read from the results of that
+ * query as long as the next page follows on from the last event answered.  The triplestore therefore sorts the
+ * remaining events once, rather than once per page, and a reindex can still be resumed from a
+ * {@link ReindexCheckpoint} saved by an earlier run.
+ * </p>
+ * <p>
+ * The query results, and the connection of the {@code Rdf4jTriplestore}, stay open between pages, until the events
+ * are exhausted or the source is {@link #close() closed}.  Not thread safe: each instance uses the connection state
+ * of its {@code Rdf4jTriplestore}.  If the connection is closed by another user of the same {@code Rdf4jTriplestore}
+ * instance, the events following the requested checkpoint are queried again, so the single query is only kept when
+ * the source has a triplestore instance of its own (as it does when the triplestore bean is a prototype).
+ * </p>
+ */
+public class TriplestoreEventSource implements AutoCloseable {
+
+    private static final String EVENT = "e";
+
+    private static final String STARTED_AT_TIME = "start";
+
+    private static final String EVENTS_QUERY =
+            "SELECT ?" + EVENT + " ?" + STARTED_AT_TIME + " " +
+            "WHERE { " +
+            "  GRAPH ?" + EVENT + " { " +
+            "    ?" + EVENT + " a <" + RMAP_EVENT_PATH + "> . " +
+            "    ?" + EVENT + " <" + PROV_STARTEDATTIME_PATH + "> ?" + STARTED_AT_TIME + " " +
+            "  } " +
+            "  %s" +
+            "} " +
+            "ORDER BY ?" + STARTED_AT_TIME + " STR(?" + EVENT + ")";
+
+    private static final String AFTER_FILTER =
+            "FILTER (?" + STARTED_AT_TIME + " > \"%1$s\"^^<" + XMLSchema.DATETIME + "> || " +
+            "(?" + STARTED_AT_TIME + " = \"%1$s\"^^<" + XMLSchema.DATETIME + "> && STR(?" + EVENT + ") > \"%2$s\")) ";
+
+    private final Rdf4jTriplestore triplestore;
+
+    private final int pageSize;
+
+    /**
+     * The results of the query the next page is read from, or {@code null} if no query is open
+     */
+    private TupleQueryResult events;
+
+    /**
+     * The connection {@link #events} are read from
+     */
+    private RepositoryConnection connection;
+
+    /**
+     * The last event answered from {@link #events}
+     */
+    private ReindexCheckpoint position;
+
+    /**
+     * @param triplestore the triplestore containing the events
+     * @param pageSize the maximum number of events returned by {@link #nextPage(ReindexCheckpoint)}
+     */
+    public TriplestoreEventSource(Rdf4jTriplestore triplestore, int pageSize) {
+        this.triplestore = assertNotNull(triplestore, iae("Triplestore must not be null."));
+        this.pageSize = assertPositive(pageSize, iae("Page size must be a positive integer."));
+    }
+
+    /**
+     * Answers the events following {@code after}, in chronological order.  Each event is answered as the checkpoint
+     * that would be reached once the event, and those preceding it, are applied to the index.
+     * <p>
+     * If {@code after} is the last event answered by the previous page, and the connection the previous page was read
+     * from is still open, the page is read from the open query results.  Otherwise the open results are closed, and
+     * the events following {@code after} are queried.
+     * </p>
+     *
+     * @param after the position to read from
+     * @return up to {@code pageSize} events; an empty list when there are no more events
+     * @throws RuntimeException if the triplestore cannot be queried; the query results are closed
+     */
+    public List<ReindexCheckpoint> nextPage(ReindexCheckpoint after) {
+        assertNotNull(after, iae("Checkpoint must not be null."));
+
+        List<ReindexCheckpoint> page = new ArrayList<>(pageSize);
+        try {
+            if (events == null || after != position || !triplestore.hasConnectionOpen() ||
+                    triplestore.getConnection() != connection) {
+                close();
+                connection = triplestore.getConnection();
+                events = connection.prepareTupleQuery(QueryLanguage.SPARQL, prepareQuery(after)).evaluate();
+            }
+
+            long count = after.getEventCount();
+            while (page.size() < pageSize && events.hasNext()) {
+                BindingSet result = events.next();
+                Value event = result.getValue(EVENT);
+                Value startedAtTime = result.getValue(STARTED_AT_TIME);
+                page.add(new ReindexCheckpoint(startedAtTime.stringValue(), URI.create(event.stringValue()), ++count));
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+
+        if (page.isEmpty()) {
+            close();
+        } else {
+            position = page.get(page.size() - 1);
+        }
+
+        return page;
+    }
+
+    /**
+     * Closes the open query results, if any, and the connection of the triplestore.
+     */
+    @Override
+    public void close() {
+        try {
+            if (events != null) {
+                events.close();
+            }
+        } catch (RuntimeException e) {
+            // the results are closed with their connection, which may already have been closed
+        } finally {
+            events = null;
+            connection = null;
+            position = null;
+            triplestore.closeConnection();
+        }
+    }
+
+    /**
+     * @return the maximum number of events answered by each page
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    String prepareQuery(ReindexCheckpoint after) {
+        String filter = "";
+        if (!after.isStart()) {
+            filter = String.format(AFTER_FILTER,
+                    escape(after.getStartedAtTime()), escape(after.getEventIri().toString()));
+        }
+        return String.format(EVENTS_QUERY, filter);
+    }
+
+    private static String escape(String literal) {
+        return literal.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+}
@@ -0,0 +1,344 @@
+package info.rmapproject.indexing.reindex;
+
+import info.rmapproject.core.exception.RMapDeletedObjectException;
+import info.rmapproject.core.exception.RMapTombstonedObjectException;
+import info.rmapproject.core.model.RMapIri;
+import info.rmapproject.core.model.agent.RMapAgent;
+import info.rmapproject.core.model.disco.RMapDiSCO;
+import info.rmapproject.core.model.event.RMapEvent;
+import info.rmapproject.core.model.event.RMapEventType;
+import info.rmapproject.core.rmapservice.RMapService;
+import info.rmapproject.indexing.IndexingInterruptedException;
+import info.rmapproject.indexing.solr.model.DiscoSolrDocument;
+import info.rmapproject.indexing.solr.repository.DiscosIndexBatch;
+import info.rmapproject.indexing.solr.repository.DiscosSolrOperations;
+import info.rmapproject.indexing.solr.repository.EventDiscoTuple;
+import info.rmapproject.indexing.solr.repository.EventTupleIndexingRepository;
+import info.rmapproject.indexing.solr.repository.IndexDTO;
+import info.rmapproject.indexing.solr.repository.IndexDTOMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static info.rmapproject.indexing.IndexUtils.EventDirection.SOURCE;
+import static info.rmapproject.indexing.IndexUtils.EventDirection.TARGET;
+import static info.rmapproject.indexing.IndexUtils.assertNotNull;
+import static info.rmapproject.indexing.IndexUtils.assertPositive;
+import static info.rmapproject.indexing.IndexUtils.findEventIri;
+import static info.rmapproject.indexing.IndexUtils.iae;
+import static info.rmapproject.indexing.IndexUtils.ise;
+import static java.lang.System.currentTimeMillis;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Rebuilds the {@code discos} core from the events in the triplestore, without replaying the Kafka topic.
+ * <p>
+ * Events are read from a {@link TriplestoreEventSource} in chronological order, a page at a time, from the results of
+ * a single query that is closed when the reindex ends.  The events of a page are read from the triplestore, and mapped
+ * to {@link EventDiscoTuple}s, in parallel by {@code parallelism} threads, each with its own {@link RMapService}.  The
+ * tuples are then applied to the index in chronological order by the calling thread, because the status of documents
+ * written for an event depends on the documents written for earlier events in the same lineage.  The writes for each page are sent to the index in one
+ * {@link DiscosIndexBatch batch}, and the core is committed before a {@link ReindexCheckpoint checkpoint} is saved.  A
+ * reindex that is interrupted resumes from the last checkpoint when it is run again.
+ * </p>
+ * <p>
+ * Events are handled as they are by {@link info.rmapproject.indexing.kafka.DefaultIndexRetryHandler}: documents for
+ * the source DiSCO of {@code DELETION} and {@code TOMBSTONE} events are removed from the index.  Events that refer to
+ * a DiSCO that has since been deleted or tombstoned are skipped, because the DiSCO can no longer be read.
+ * </p>
+ * <p>
+ * Kafka offsets are not recorded in the documents written by a reindex.  Stop the indexing consumers before reindexing
+ * an existing core, and restart them from the latest offset afterwards.
+ * </p>
+ */
+public class TriplestoreReindexer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TriplestoreReindexer.class);
+
+    private static final String[] CONFIG_LOCATIONS = {
+            "classpath*:/rmap-indexing-solr.xml", "classpath*:/spring-rmapcore-context.xml" };
+
+    private static final Runnable SKIP = () -> { };
+
+    private final EventTupleIndexingRepository<DiscoSolrDocument> indexer;
+
+    private final IndexDTOMapper dtoMapper;
+
+    private final DiscosSolrOperations solrOperations;
+
+    private final TriplestoreEventSource eventSource;
+
+    private ObjectFactory<RMapService> rmapServiceFactory;
+
+    private ThreadLocal<RMapService> rmapServices;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private int batchCommitWithinMs = 60000;
+
+    private Path checkpointFile = Paths.get("rmap-reindex.checkpoint");
+
+    /**
+     * @param indexer writes documents for each event to the index
+     * @param dtoMapper maps the event, and the DiSCOs and agent it refers to, to {@code EventDiscoTuple}s
+     * @param solrOperations provides batches, deletes, and commits
+     * @param eventSource enumerates events in chronological order
+     */
+    public TriplestoreReindexer(EventTupleIndexingRepository<DiscoSolrDocument> indexer, IndexDTOMapper dtoMapper,
+                                DiscosSolrOperations solrOperations, TriplestoreEventSource eventSource) {
+        this.indexer = assertNotNull(indexer, iae("Indexer must not be null."));
+        this.dtoMapper = assertNotNull(dtoMapper, iae("DTO Mapper must not be null."));
+        this.solrOperations = assertNotNull(solrOperations, iae("Disco Solr Operations must not be null."));
+        this.eventSource = assertNotNull(eventSource, iae("Event source must not be null."));
+    }
+
+    /**
+     * Reindexes events from the triplestore, configured by {@code rmap-indexing-solr.xml} and
+     * {@code spring-rmapcore-context.xml}.  Activate the {@code reindex} profile, along with the triplestore and Solr
+     * profiles, using the {@code spring.profiles.active} system property.  The checkpoint file may be supplied as the
+     * first argument.
+     *
+     * @param args optionally, the path of the checkpoint file
+     * @throws IOException if the checkpoint file cannot be read or written
+     * @throws IndexingInterruptedException if the reindex is interrupted
+     */
+    public static void main(String[] args) throws IOException, IndexingInterruptedException {
+        try (ClassPathXmlApplicationContext ctx = new ClassPathXmlApplicationContext(CONFIG_LOCATIONS)) {
+            TriplestoreReindexer reindexer = ctx.getBean(TriplestoreReindexer.class);
+            if (args.length > 0) {
+                reindexer.setCheckpointFile(Paths.get(args[0]));
+            }
+            reindexer.reindex();
+        }
+    }
+
+    /**
+     * Applies the events following the saved checkpoint to the index, until there are no more events.
+     *
+     * @return the final checkpoint
+     * @throws IOException if the checkpoint file cannot be read or written
+     * @throws IndexingInterruptedException if the calling thread is interrupted
+     * @throws RuntimeException if an event cannot be read or indexed; the reindex may be resumed from the last
+     *                          checkpoint
+     */
+    public ReindexCheckpoint reindex() throws IOException, IndexingInterruptedException {
+        assertNotNull(rmapServiceFactory, ise("RMapService factory must not be null.  Was setRmapServiceFactory(...) " +
+                "invoked?"));
+
+        ReindexCheckpoint checkpoint = ReindexCheckpoint.load(checkpointFile);
+        if (checkpoint.isStart()) {
+            LOG.info("Reindexing all events from the triplestore");
+        } else {
+            LOG.info("Resuming reindex after {} events, from event {} started at {}", checkpoint.getEventCount(),
+                    checkpoint.getEventIri(), checkpoint.getStartedAtTime());
+        }
+
+        ExecutorService executor = newExecutor();
+        long start = currentTimeMillis();
+        long startCount = checkpoint.getEventCount();
+
+        try {
+            List<ReindexCheckpoint> page;
+            while (!(page = eventSource.nextPage(checkpoint)).isEmpty()) {
+                indexPage(page, executor);
+                checkpoint = page.get(page.size() - 1);
+                checkpoint.save(checkpointFile);
+
+                long elapsed = currentTimeMillis() - start;
+                LOG.info("Reindexed {} events ({} events/s), last event {} started at {}", checkpoint.getEventCount(),
+                        ((checkpoint.getEventCount() - startCount) * 1000) / Math.max(elapsed, 1),
+                        checkpoint.getEventIri(), checkpoint.getStartedAtTime());
+            }
+        } finally {
+            eventSource.close();
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+
+        LOG.info("Reindex complete: {} events, elapsed time {} ms", checkpoint.getEventCount(),
+                currentTimeMillis() - start);
+        return checkpoint;
+    }
+
+    /**
+     * Prepares the events of a page in parallel, applies them to the index in order, and commits the core.
+     *
+     * @param page the events to index
+     * @param executor prepares the events, or {@code null} to prepare them on the calling thread
+     */
+    private void indexPage(List<ReindexCheckpoint> page, ExecutorService executor)
+            throws IndexingInterruptedException {
+        List<Future<Runnable>> prepared = new ArrayList<>(page.size());
+        for (ReindexCheckpoint event : page) {
+            Callable<Runnable> task = () -> prepare(event.getEventIri());
+            if (executor != null) {
+                prepared.add(executor.submit(task));
+            } else {
+                FutureTask<Runnable> inline = new FutureTask<>(task);
+                inline.run();
+                prepared.add(inline);
+            }
+        }
+
+        try (DiscosIndexBatch batch = solrOperations.openBatch(batchCommitWithinMs)) {
+            for (int i = 0; i < page.size(); i++) {
+                await(prepared.get(i), page.get(i).getEventIri()).run();
+            }
+            batch.flush();
+        } finally {
+            prepared.forEach(future -> future.cancel(true));
+        }
+
+        solrOperations.commit();
+    }
+
+    /**
+     * Reads the event, and the DiSCOs and agent it refers to, answering the write that will apply it to the index.
+     * Invoked by the worker threads, so it must not write to the index: writes are made by the calling thread, in
+     * order, within the batch.
+     *
+     * @param eventIri the event to read
+     * @return applies the event to the index
+     */
+    private Runnable prepare(URI eventIri) {
+        RMapService rmapService = rmapServices.get();
+        RMapEvent event = rmapService.readEvent(eventIri);
+
+        if (event.getEventType() == RMapEventType.DELETION || event.getEventType() == RMapEventType.TOMBSTONE) {
+            Optional<RMapIri> sourceDiscoUri = findEventIri(event, SOURCE);
+            if (!sourceDiscoUri.isPresent()) {
+                LOG.warn("Unable to index event of type {}: no source DiSCO URI was found: {}",
+                        event.getEventType(), event);
+                return SKIP;
+            }
+            return () -> solrOperations.deleteDocumentsForDiscoUri(sourceDiscoUri.get().getStringValue());
+        }
+
+        IndexDTO dto;
+        try {
+            RMapDiSCO sourceDisco = getDisco(findEventIri(event, SOURCE), rmapService);
+            RMapDiSCO targetDisco = getDisco(findEventIri(event, TARGET), rmapService);
+            RMapAgent agent = rmapService.readAgent(event.getAssociatedAgent().getIri());
+            dto = new IndexDTO(event, agent, sourceDisco, targetDisco);
+        } catch (RMapDeletedObjectException | RMapTombstonedObjectException e) {
+            LOG.debug("Skipping event {}: a DiSCO it refers to can no longer be read: {}", eventIri, e.getMessage());
+            return SKIP;
+        }
+
+        List<EventDiscoTuple> tuples = dtoMapper.apply(dto).collect(toList());
+        return () -> indexer.index(tuples.stream());
+    }
+
+    private static RMapDiSCO getDisco(Optional<RMapIri> optionalIri, RMapService rmapService) {
+        RMapDiSCO disco = null;
+        if (optionalIri.isPresent()) {
+            disco = rmapService.readDiSCO(optionalIri.get().getIri());
+        }
+
+        return disco;
+    }
+
+    private static Runnable await(Future<Runnable> prepared, URI eventIri) throws IndexingInterruptedException {
+        try {
+            return prepared.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IndexingInterruptedException("Reindex was interrupted while preparing event " + eventIri, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw new RuntimeException("Unable to prepare event " + eventIri + " for indexing: " + cause.getMessage(),
+                    cause);
+        }
+    }
+
+    private ExecutorService newExecutor() {
+        if (parallelism < 2) {
+            return null;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread t = new Thread(runnable, "rmap-reindex-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public ObjectFactory<RMapService> getRmapServiceFactory() {
+        return rmapServiceFactory;
+    }
+
+    /**
+     * {@code RMapService} is not thread safe, so each thread preparing events obtains its own instance from this
+     * factory.
+     *
+     * @param rmapServiceFactory supplies a new {@code RMapService} on each invocation
+     */
+    @Autowired
+    public void setRmapServiceFactory(ObjectFactory<RMapService> rmapServiceFactory) {
+        this.rmapServiceFactory = assertNotNull(rmapServiceFactory, iae("RMapService factory must not be null."));
+        this.rmapServices = ThreadLocal.withInitial(rmapServiceFactory::getObject);
+    }
+
+    /**
+     * @return the number of threads preparing events; events are prepared on the calling thread if less than 2
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param parallelism the number of threads preparing events; events are prepared on the calling thread if less
+     *                    than 2.  Must be 1 when using a triplestore that cannot be shared by multiple threads.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = assertPositive(parallelism, iae("Parallelism must be a positive integer."));
+    }
+
+    /**
+     * @return the maximum time, in ms, before the writes for a page are visible to searches if the explicit commit at
+     *         the end of the page fails
+     */
+    public int getBatchCommitWithinMs() {
+        return batchCommitWithinMs;
+    }
+
+    /**
+     * @param batchCommitWithinMs the maximum time, in ms, before the writes for a page are visible to searches if the
+     *                            explicit commit at the end of the page fails
+     */
+    public void setBatchCommitWithinMs(int batchCommitWithinMs) {
+        this.batchCommitWithinMs = assertPositive(batchCommitWithinMs,
+                iae("Batch commit within ms must be a positive integer."));
+    }
+
+    public Path getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * @param checkpointFile the file the checkpoint is loaded from, and saved to after each page
+     */
+    public void setCheckpointFile(Path checkpointFile) {
+        this.checkpointFile = assertNotNull(checkpointFile, iae("Checkpoint file must not be null."));
+    }
+
+}
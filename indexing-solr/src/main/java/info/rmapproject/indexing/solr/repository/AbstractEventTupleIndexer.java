@@ -128,8 +128,19 @@ public abstract class AbstractEventTupleIndexer<T, ID extends Serializable> impl
                 .peek(this::preIndex)
                 .map(tuple -> documentMapper.apply(tuple))
                 .peek(decorator)
-                .map(document -> repository.save(document))
+                .map(this::save)
                 .forEach(this::postIndex);
     }
 
+    /**
+     * Deposits a Solr document in the {@link #repository repository}.  Sub classes may override this method to
+     * defer or batch the deposit.
+     *
+     * @param document the Solr document to deposit
+     * @return the deposited document
+     */
+    protected T save(T document) {
+        return repository.save(document);
+    }
+
 }
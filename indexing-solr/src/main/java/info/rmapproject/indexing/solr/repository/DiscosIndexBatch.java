@@ -0,0 +1,317 @@
+package info.rmapproject.indexing.solr.repository;
+
+import info.rmapproject.core.model.RMapStatus;
+import info.rmapproject.indexing.solr.model.DiscoSolrDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.solr.core.SolrTemplate;
+import org.springframework.data.solr.core.query.SimpleQuery;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static info.rmapproject.indexing.IndexUtils.assertNotNull;
+import static info.rmapproject.indexing.IndexUtils.assertNotNullOrEmpty;
+import static info.rmapproject.indexing.IndexUtils.assertPositive;
+import static info.rmapproject.indexing.IndexUtils.iae;
+import static info.rmapproject.indexing.IndexUtils.ise;
+import static info.rmapproject.indexing.solr.model.DiscoSolrDocument.DISCO_STATUS;
+import static info.rmapproject.indexing.solr.model.DiscoSolrDocument.DOC_ID;
+import static info.rmapproject.indexing.solr.model.DiscoSolrDocument.DOC_LAST_UPDATED;
+import static info.rmapproject.indexing.solr.repository.DiscosSolrOperations.prepareDiscoLineageUriQuery;
+import static info.rmapproject.indexing.solr.repository.DiscosSolrOperations.prepareDiscoUriQuery;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Accumulates writes to a Solr core so they can be sent to the index in a single request.
+ * <p>
+ * While a batch is open it is bound to the thread that opened it.  {@link DiscosIndexer} and
+ * {@link DiscosSolrOperations} check for a bound batch, and add documents, status updates and deletions to it instead
+ * of writing them to the index immediately.  Nothing is written until {@link #flush()} is invoked, which sends new
+ * documents and partial updates in one {@code saveBeans} request, followed by one delete request, and then issues a
+ * single soft commit.  The soft commit makes the writes searchable before {@code flush()} returns, so that the
+ * status updates and deletions of the next batch find documents written by this one; a soft commit opens a new
+ * searcher without flushing the index to disk, which is left to the index's {@code commitWithin} and auto commit
+ * settings.
+ * </p>
+ * <p>
+ * Because pending writes are not visible to queries against the index, each operation is applied to the pending
+ * writes as well as to the documents found in the index: a status update made to a document added earlier in the
+ * batch changes the pending document, and a status update or deletion is evaluated against documents as they will be
+ * after the batch is written.
+ * </p>
+ * <p>
+ * Instances are not thread safe, and must be {@link #close() closed} by the thread that opened them.  Typical usage:
+ * </p>
+ * <pre>
+ * try (DiscosIndexBatch batch = solrOperations.openBatch(commitWithinMs)) {
+ *     // index events
+ *     batch.flush();
+ * }
+ * </pre>
+ */
+public class DiscosIndexBatch implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DiscosIndexBatch.class);
+
+    /**
+     * Batches bound to the current thread, keyed by core name
+     */
+    private static final ThreadLocal<Map<String, DiscosIndexBatch>> BOUND = ThreadLocal.withInitial(HashMap::new);
+
+    private final SolrTemplate template;
+
+    private final String coreName;
+
+    private final int commitWithinMs;
+
+    /**
+     * New documents to be added to the index, keyed by document id, in the order they were added
+     */
+    private final Map<String, DiscoSolrDocument> documents = new LinkedHashMap<>();
+
+    /**
+     * Partial updates to documents already in the index, keyed by document id
+     */
+    private final Map<String, DiscoPartialUpdate> statusUpdates = new HashMap<>();
+
+    /**
+     * Pending status of documents already in the index, keyed by document id
+     */
+    private final Map<String, String> pendingStatus = new HashMap<>();
+
+    /**
+     * Ids of documents already in the index that are to be deleted
+     */
+    private final Set<String> deletes = new HashSet<>();
+
+    DiscosIndexBatch(SolrTemplate template, String coreName, int commitWithinMs) {
+        this.template = assertNotNull(template, iae("Solr template must not be null."));
+        this.coreName = assertNotNullOrEmpty(coreName, "Core name must not be null or empty.");
+        this.commitWithinMs = assertPositive(commitWithinMs, iae("Commit within ms must be a positive integer."));
+    }
+
+    /**
+     * Binds a new batch to the current thread.
+     *
+     * @param template the template used to query and write to the index
+     * @param coreName the name of the Solr core
+     * @param commitWithinMs the maximum time, in ms, before written documents are visible to searches
+     * @return the batch
+     * @throws IllegalStateException if a batch for the core is already bound to the current thread
+     */
+    static DiscosIndexBatch open(SolrTemplate template, String coreName, int commitWithinMs) {
+        Map<String, DiscosIndexBatch> bound = BOUND.get();
+        if (bound.containsKey(coreName)) {
+            throw new IllegalStateException("A batch for core " + coreName + " is already open on this thread.");
+        }
+        DiscosIndexBatch batch = new DiscosIndexBatch(template, coreName, commitWithinMs);
+        bound.put(coreName, batch);
+        return batch;
+    }
+
+    /**
+     * Answers the batch bound to the current thread for the named core.
+     *
+     * @param coreName the name of the Solr core
+     * @return the batch, or {@code null} if no batch is open
+     */
+    static DiscosIndexBatch current(String coreName) {
+        return BOUND.get().get(coreName);
+    }
+
+    /**
+     * Adds a new document to the batch.  The document is assigned an id if it doesn't have one, so that it can be
+     * distinguished from other documents by later operations in the batch.
+     *
+     * @param document the document to add
+     * @return the document
+     */
+    public DiscoSolrDocument add(DiscoSolrDocument document) {
+        assertNotNull(document, iae("Document must not be null."));
+        if (document.getDocId() == null) {
+            document.setDocId(UUID.randomUUID().toString());
+        }
+        documents.put(document.getDocId(), document);
+        return document;
+    }
+
+    /**
+     * Batched equivalent of {@link DiscosSolrOperations#updateStatus(String, RMapStatus, Predicate)}.
+     *
+     * @param discoUri  the URI of the DiSCO
+     * @param status the status matching DiSCOs will be updated to
+     * @param matching    an optional {@code Predicate} used to selectively apply status updates, may be {@code null}
+     */
+    public void updateStatus(String discoUri, RMapStatus status, Predicate<DiscoSolrDocument> matching) {
+        Predicate<DiscoSolrDocument> filter = (matching != null) ? matching : (doc) -> true;
+        long now = System.currentTimeMillis();
+
+        documents.values().stream()
+                .filter(doc -> discoUri.equals(doc.getDiscoUri()))
+                .filter(filter)
+                .forEach(doc -> {
+                    doc.setDiscoStatus(status.toString());
+                    doc.setDocLastUpdated(now);
+                    LOG.debug("Set pending document id {} status to {}", doc.getDocId(), status);
+                });
+
+        try (Stream<DiscoSolrDocument> indexed = queryIndex(prepareDiscoUriQuery(discoUri))) {
+            indexed.filter(filter).forEach(doc -> {
+                DiscoPartialUpdate update = new DiscoPartialUpdate(DOC_ID, doc.getDocId(), doc.getDiscoUri());
+                update.setValueOfField(DISCO_STATUS, status.toString());
+                update.setValueOfField(DOC_LAST_UPDATED, now);
+                statusUpdates.put(doc.getDocId(), update);
+                pendingStatus.put(doc.getDocId(), status.toString());
+                LOG.debug("Set document id {} status to {}", doc.getDocId(), status);
+            });
+        }
+    }
+
+    /**
+     * Batched equivalent of {@link DiscosSolrOperations#deleteDocumentsForDiscoUri(String)}.
+     *
+     * @param discoUri the disco URI that identifies documents to be deleted
+     */
+    public void deleteDocumentsForDiscoUri(String discoUri) {
+        documents.values().removeIf(doc -> discoUri.equals(doc.getDiscoUri()));
+        try (Stream<DiscoSolrDocument> indexed = queryIndex(prepareDiscoUriQuery(discoUri))) {
+            indexed.forEach(doc -> delete(doc.getDocId()));
+        }
+    }
+
+    /**
+     * Batched equivalent of {@link DiscosSolrOperations#deleteDocumentsForLineage(String)}.
+     *
+     * @param lineageUri the lineage to delete from the index
+     */
+    public void deleteDocumentsForLineage(String lineageUri) {
+        documents.values().removeIf(doc -> lineageUri.equals(doc.getEventLineageProgenitorUri()));
+        try (Stream<DiscoSolrDocument> indexed = queryIndex(prepareDiscoLineageUriQuery(lineageUri))) {
+            indexed.forEach(doc -> delete(doc.getDocId()));
+        }
+    }
+
+    /**
+     * Writes the pending documents and partial updates to the index in one request, followed by the pending
+     * deletions in another, and soft commits so the writes are visible to queries made by later batches.  The batch
+     * is empty afterwards, and may continue to be used.
+     *
+     * @throws RuntimeException if the index could not be written to; pending writes are discarded
+     */
+    public void flush() {
+        if (current(coreName) != this) {
+            throw ise("Batch for core " + coreName + " has been closed.").get();
+        }
+
+        List<Object> beans = new ArrayList<>(documents.size() + statusUpdates.size());
+        beans.addAll(documents.values());
+        beans.addAll(statusUpdates.values());
+        List<String> ids = new ArrayList<>(deletes);
+
+        LOG.debug("Writing {} documents, {} partial updates, and {} deletions to core {}",
+                documents.size(), statusUpdates.size(), ids.size(), coreName);
+
+        clear();
+
+        if (!beans.isEmpty()) {
+            template.saveBeans(coreName, beans, Duration.ofMillis(commitWithinMs));
+        }
+
+        if (!ids.isEmpty()) {
+            template.execute(solrClient -> solrClient.deleteById(coreName, ids, commitWithinMs));
+        }
+
+        if (!beans.isEmpty() || !ids.isEmpty()) {
+            template.softCommit(coreName);
+        }
+    }
+
+    /**
+     * Discards any writes that have not been {@link #flush() flushed}, and unbinds the batch from the current thread.
+     */
+    @Override
+    public void close() {
+        if (!isEmpty()) {
+            LOG.debug("Discarding {} unwritten documents, {} partial updates, and {} deletions for core {}",
+                    documents.size(), statusUpdates.size(), deletes.size(), coreName);
+        }
+        clear();
+        if (current(coreName) == this) {
+            BOUND.get().remove(coreName);
+        }
+    }
+
+    /**
+     * @return {@code true} if there are no pending writes
+     */
+    public boolean isEmpty() {
+        return documents.isEmpty() && statusUpdates.isEmpty() && deletes.isEmpty();
+    }
+
+    /**
+     * @return the new documents to be added to the index
+     */
+    Collection<DiscoSolrDocument> getDocuments() {
+        return documents.values();
+    }
+
+    /**
+     * @return the partial updates to be applied to documents already in the index
+     */
+    Collection<DiscoPartialUpdate> getStatusUpdates() {
+        return statusUpdates.values();
+    }
+
+    /**
+     * @return the ids of the documents to be deleted from the index
+     */
+    Set<String> getDeletes() {
+        return deletes;
+    }
+
+    private void delete(String docId) {
+        deletes.add(docId);
+        statusUpdates.remove(docId);
+        pendingStatus.remove(docId);
+    }
+
+    private void clear() {
+        documents.clear();
+        statusUpdates.clear();
+        pendingStatus.clear();
+        deletes.clear();
+    }
+
+    /**
+     * Queries the index, answering documents as they will be once the pending writes are applied: documents pending
+     * deletion are excluded, and documents with a pending status update carry the updated status.
+     *
+     * @param query the query string
+     * @return the matching documents
+     */
+    private Stream<DiscoSolrDocument> queryIndex(String query) {
+        Page<DiscoSolrDocument> results = template.query(coreName, new SimpleQuery(query), DiscoSolrDocument.class);
+        List<DiscoSolrDocument> matches = results.stream()
+                .filter(doc -> !deletes.contains(doc.getDocId()))
+                .peek(doc -> {
+                    if (pendingStatus.containsKey(doc.getDocId())) {
+                        doc.setDiscoStatus(pendingStatus.get(doc.getDocId()));
+                    }
+                })
+                .collect(toList());
+        return matches.stream();
+    }
+
+}
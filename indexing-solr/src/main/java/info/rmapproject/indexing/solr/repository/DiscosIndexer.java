@@ -57,6 +57,25 @@ public class DiscosIndexer extends AbstractEventTupleIndexer<DiscoSolrDocument,
         // no-op
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Implementation notes: if a {@link DiscosIndexBatch batch} is open on the current thread, the document is added
+     * to the batch instead of being deposited in the repository.
+     * </p>
+     *
+     * @param document {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    protected DiscoSolrDocument save(DiscoSolrDocument document) {
+        DiscosIndexBatch batch = DiscosIndexBatch.current(CORE_NAME);
+        if (batch != null) {
+            return batch.add(document);
+        }
+        return super.save(document);
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -36,6 +36,20 @@ public class DiscosSolrOperations {
         this.coreName = coreName;
     }
 
+    /**
+     * Opens a {@link DiscosIndexBatch batch} bound to the current thread.  Until the batch is closed, the operations
+     * on this class (and documents indexed by {@link DiscosIndexer}) invoked by the current thread are added to the
+     * batch rather than written to the index immediately.
+     *
+     * @param commitWithinMs the maximum time, in ms, before flushed writes are committed by the index; flushed writes
+     *                       are soft committed, and so visible to searches, when the flush completes
+     * @return the batch, which must be closed by the caller
+     * @throws IllegalStateException if a batch is already open on the current thread
+     */
+    public DiscosIndexBatch openBatch(int commitWithinMs) {
+        return DiscosIndexBatch.open(template, coreName, commitWithinMs);
+    }
+
     /**
      * Updates the {@link DiscoSolrDocument#DISCO_STATUS disco_status} of Solr documents that have a
      * {@link DiscoSolrDocument#DISCO_URI disco_uri} matching the supplied {@code discoUri}.  The matching Solr
@@ -49,6 +63,9 @@ public class DiscosSolrOperations {
      * {@code filter}.
      * </p>
      * <p>
+     * If a {@link #openBatch(int) batch} is open on the current thread, the status update is added to the batch.
+     * </p>
+     * <p>
      * Implementation note: this method uses the {@link SolrTemplate} in order to perform a <em>partial update</em> of
      * the matching documents.  This is for two reasons: 1) partial updates are more efficient, 2) round-tripping the
      * entire {@link DiscoSolrDocument} is not possible due to how the {@link org.apache.solr.common.util.JavaBinCodec}
@@ -62,6 +79,12 @@ public class DiscosSolrOperations {
     public void updateStatus(String discoUri, RMapStatus status, Predicate<DiscoSolrDocument> matching) {
         LOG.debug("Updating the status of the following documents with DiSCO iri {} to {}", discoUri, status);
 
+        DiscosIndexBatch batch = DiscosIndexBatch.current(coreName);
+        if (batch != null) {
+            batch.updateStatus(discoUri, status, matching);
+            return;
+        }
+
         Set<DiscoPartialUpdate> statusUpdates;
 
         Page<DiscoSolrDocument> results = template.query(coreName,
@@ -90,10 +113,17 @@ public class DiscosSolrOperations {
 
     /**
      * Delete all documents in the index that have a {@link DiscoSolrDocument#DISCO_URI} equal to {@code discoUri}.
+     * If a {@link #openBatch(int) batch} is open on the current thread, the deletion is added to the batch.
      *
      * @param discoUri the disco URI that identifies documents to be deleted
      */
     public void deleteDocumentsForDiscoUri(String discoUri) {
+        DiscosIndexBatch batch = DiscosIndexBatch.current(coreName);
+        if (batch != null) {
+            batch.deleteDocumentsForDiscoUri(discoUri);
+            return;
+        }
+
         Page<DiscoSolrDocument> results = template.query(coreName,
                 new SimpleQuery(prepareDiscoUriQuery(discoUri)), DiscoSolrDocument.class);
 
@@ -115,11 +145,18 @@ public class DiscosSolrOperations {
     /**
      * Removes {@link DiscoSolrDocument documents} from the index that participate in the specified lineage. All
      * documents with a {@link DiscoSolrDocument#EVENT_LINEAGE_PROGENITOR_URI lineage URI} equal to {@code lineageUri}
-     * will be deleted from the index, regardless of the document {@link DiscoSolrDocument#DISCO_STATUS status}.
+     * will be deleted from the index, regardless of the document {@link DiscoSolrDocument#DISCO_STATUS status}.  If a
+     * {@link #openBatch(int) batch} is open on the current thread, the deletion is added to the batch.
      *
      * @param lineageUri the lineage to delete from the index
      */
     public void deleteDocumentsForLineage(String lineageUri) {
+        DiscosIndexBatch batch = DiscosIndexBatch.current(coreName);
+        if (batch != null) {
+            batch.deleteDocumentsForLineage(lineageUri);
+            return;
+        }
+
         Page<DiscoSolrDocument> results = template.query(coreName,
                 new SimpleQuery(prepareDiscoLineageUriQuery(lineageUri)), DiscoSolrDocument.class);
 
@@ -138,6 +175,13 @@ public class DiscosSolrOperations {
         }
     }
 
+    /**
+     * Commits the core, making all writes visible to searches and durable.
+     */
+    public void commit() {
+        template.commit(coreName);
+    }
+
     /**
      * Creates a {@link PartialUpdate} instance for each {@code DiscoSolrDocument}. The supplied {@code Consumer} is
      * applied to each {@code PartialUpdate}, setting the state of each update in preparation for being sent to the
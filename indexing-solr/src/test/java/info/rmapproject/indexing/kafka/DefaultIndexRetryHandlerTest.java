@@ -0,0 +1,87 @@
+package info.rmapproject.indexing.kafka;
+
+import info.rmapproject.core.model.RMapIri;
+import info.rmapproject.core.model.agent.RMapAgent;
+import info.rmapproject.core.model.disco.RMapDiSCO;
+import info.rmapproject.core.model.event.RMapEvent;
+import info.rmapproject.core.model.event.RMapEventSnapshot;
+import info.rmapproject.core.model.event.RMapEventType;
+import info.rmapproject.indexing.solr.model.DiscoSolrDocument;
+import info.rmapproject.indexing.solr.model.KafkaMetadata;
+import info.rmapproject.indexing.solr.repository.DiscosSolrOperations;
+import info.rmapproject.indexing.solr.repository.EventTupleIndexingRepository;
+import info.rmapproject.indexing.solr.repository.IndexDTO;
+import info.rmapproject.indexing.solr.repository.IndexDTOMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.net.URI;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Insures that events published with a snapshot are indexed without reading from the {@code RMapService}.
+ */
+@SuppressWarnings("unchecked")
+public class DefaultIndexRetryHandlerTest {
+
+    private EventTupleIndexingRepository<DiscoSolrDocument> indexer;
+
+    private IndexDTOMapper dtoMapper;
+
+    private DefaultIndexRetryHandler underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        indexer = mock(EventTupleIndexingRepository.class);
+        dtoMapper = mock(IndexDTOMapper.class);
+        when(dtoMapper.apply(any())).thenReturn(Stream.empty());
+        underTest = new DefaultIndexRetryHandler(indexer, dtoMapper, mock(DiscosSolrOperations.class), 1, 10);
+    }
+
+    /**
+     * The DTO is composed from the snapshot, and no RMapService is required.
+     */
+    @Test
+    public void testRetryWithSnapshot() throws Exception {
+        RMapEvent event = mock(RMapEvent.class);
+        when(event.getEventType()).thenReturn(RMapEventType.CREATION);
+        when(event.getId()).thenReturn(new RMapIri(URI.create("rmap:event")));
+        RMapDiSCO target = mock(RMapDiSCO.class);
+        RMapAgent agent = mock(RMapAgent.class);
+        KafkaMetadata md = mock(KafkaMetadata.class);
+        when(md.getKafkaTopic()).thenReturn("topic");
+        when(md.getKafkaPartition()).thenReturn(2);
+        when(md.getKafkaOffset()).thenReturn(42L);
+        Consumer<DiscoSolrDocument> decorator = doc -> { };
+
+        underTest.retry(event, new RMapEventSnapshot(null, target, agent), md, decorator);
+
+        ArgumentCaptor<IndexDTO> dto = ArgumentCaptor.forClass(IndexDTO.class);
+        verify(dtoMapper).apply(dto.capture());
+        assertSame(event, dto.getValue().getEvent());
+        assertSame(agent, dto.getValue().getAgent());
+        assertSame(target, dto.getValue().getTargetDisco());
+        assertNull(dto.getValue().getSourceDisco());
+        assertEquals(42L, ((KafkaDTO) dto.getValue()).getOffset());
+        verify(indexer).index(any(Stream.class), any(Consumer.class));
+    }
+
+    /**
+     * Without a snapshot, an RMapService is required.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testRetryWithoutSnapshotRequiresRMapService() throws Exception {
+        underTest.retry(mock(RMapEvent.class), null, mock(KafkaMetadata.class), doc -> { });
+    }
+
+}
@@ -0,0 +1,265 @@
+package info.rmapproject.indexing.kafka;
+
+import info.rmapproject.core.model.event.RMapEvent;
+import info.rmapproject.indexing.IndexingInterruptedException;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Insures that partitions are indexed in parallel when a partition executor is configured, and that the workers of
+ * revoked partitions are cancelled and drained before the revoked partitions' offsets are saved.
+ */
+@SuppressWarnings("unchecked")
+public class IndexingConsumerTest {
+
+    private static final String TOPIC = "topic";
+
+    private static final long TIMEOUT_MS = 10000;
+
+    private final TopicPartition p0 = new TopicPartition(TOPIC, 0);
+
+    private final TopicPartition p1 = new TopicPartition(TOPIC, 1);
+
+    private final Set<TopicPartition> assignment = ConcurrentHashMap.newKeySet();
+
+    private final Map<TopicPartition, Long> committed = new ConcurrentHashMap<>();
+
+    private final AtomicReference<ConsumerRebalanceListener> subscribedListener = new AtomicReference<>();
+
+    private final AtomicInteger handlersCreated = new AtomicInteger();
+
+    private Consumer<String, RMapEvent> consumer;
+
+    private ConsumerAwareRebalanceListener<String, RMapEvent> rebalanceListener;
+
+    private ExecutorService executor;
+
+    private IndexingConsumer underTest;
+
+    /**
+     * Answers the handler invoked for each record by the retry handlers obtained from the retry handler factory
+     */
+    private IndexingRetryHandler recordHandler;
+
+    @Before
+    public void setUp() throws Exception {
+        consumer = mock(Consumer.class);
+        rebalanceListener = mock(ConsumerAwareRebalanceListener.class);
+        executor = Executors.newFixedThreadPool(2);
+
+        when(consumer.assignment()).thenAnswer(inv -> new HashSet<>(assignment));
+        doAnswer(inv -> {
+            subscribedListener.set(inv.getArgument(1));
+            return null;
+        }).when(consumer).subscribe(anyCollection(), any(ConsumerRebalanceListener.class));
+        doAnswer(inv -> {
+            Map<TopicPartition, OffsetAndMetadata> offsets = inv.getArgument(0);
+            offsets.forEach((tp, md) -> committed.put(tp, md.offset()));
+            return null;
+        }).when(consumer).commitAsync(anyMap(), any());
+
+        underTest = new IndexingConsumer();
+        underTest.setConsumer(consumer);
+        underTest.setRebalanceListener(rebalanceListener);
+        underTest.setPollTimeoutMs(100);
+        underTest.setPartitionExecutor(executor);
+        underTest.setPartitionDrainTimeoutMs((int) TIMEOUT_MS);
+        underTest.setRetryHandlerFactory(() -> {
+            handlersCreated.incrementAndGet();
+            return (event, md, decorator) -> recordHandler.retry(event, md, decorator);
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Records for each assigned partition are indexed concurrently by their own workers, each using its own retry
+     * handler.  Partitions are paused while their worker runs, and resumed once its offsets are committed.  The
+     * executor is shut down when the consumer stops.
+     */
+    @Test
+    public void testAssignedPartitionsIndexedInParallel() throws Exception {
+        assignment.addAll(asList(p0, p1));
+        CyclicBarrier bothRunning = new CyclicBarrier(2);
+        AtomicBoolean parallel = new AtomicBoolean(true);
+        recordHandler = (event, md, decorator) -> {
+            try {
+                bothRunning.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                parallel.set(false);
+            }
+        };
+
+        List<Supplier<ConsumerRecords<String, RMapEvent>>> polls = new ArrayList<>();
+        polls.add(() -> records(record(p0, 5), record(p1, 7)));
+        polls.add(() -> wakeupWhen(committed.containsKey(p0) && committed.containsKey(p1)));
+        script(polls);
+
+        underTest.consumeEarliest(TOPIC);
+
+        assertTrue("Partitions were not indexed in parallel", parallel.get());
+        assertEquals(5L, (long) committed.get(p0));
+        assertEquals(7L, (long) committed.get(p1));
+        assertEquals(2, handlersCreated.get());
+        verify(consumer).pause(singleton(p0));
+        verify(consumer).pause(singleton(p1));
+        verify(consumer).resume(singleton(p0));
+        verify(consumer).resume(singleton(p1));
+        verify(consumer, never()).seek(any(TopicPartition.class), anyLong());
+        assertTrue(executor.isShutdown());
+    }
+
+    /**
+     * When a partition is revoked while its worker is running, the worker is interrupted and stops before indexing its
+     * next record, and the consumer is rewound to the worker's first record before the rebalance listener saves the
+     * partition's offset.  The partition's retry handler is discarded, so a new one is used once it is re-assigned.
+     */
+    @Test
+    public void testRevokedPartitionWorkCancelled() throws Exception {
+        assignment.addAll(asList(p0, p1));
+        CountDownLatch p1Started = new CountDownLatch(1);
+        CountDownLatch p1Interrupted = new CountDownLatch(1);
+        AtomicInteger p1Indexed = new AtomicInteger();
+        recordHandler = (event, md, decorator) -> {
+            if (md.getKafkaPartition() != 1 || p1Indexed.incrementAndGet() > 1) {
+                return;
+            }
+            p1Started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                p1Interrupted.countDown();
+                throw new IndexingInterruptedException(e);
+            }
+        };
+
+        List<Supplier<ConsumerRecords<String, RMapEvent>>> polls = new ArrayList<>();
+        polls.add(() -> records(record(p0, 5), record(p1, 7), record(p1, 8)));
+        polls.add(() -> {
+            if (!committed.containsKey(p0) || p1Started.getCount() > 0) {
+                return null;
+            }
+            subscribedListener.get().onPartitionsRevoked(singleton(p1));
+            assignment.remove(p1);
+            return records();
+        });
+        polls.add(() -> {
+            assignment.add(p1);
+            subscribedListener.get().onPartitionsAssigned(singleton(p1));
+            return records(record(p1, 7), record(p1, 8));
+        });
+        polls.add(() -> wakeupWhen(committed.containsKey(p1)));
+        script(polls);
+
+        underTest.consumeEarliest(TOPIC);
+
+        assertEquals(0, p1Interrupted.getCount());
+        assertEquals("Cancelled worker indexed another record", 3, p1Indexed.get());
+        assertEquals(5L, (long) committed.get(p0));
+        assertEquals(8L, (long) committed.get(p1));
+        assertEquals(3, handlersCreated.get());
+
+        InOrder revoke = inOrder(consumer, rebalanceListener);
+        revoke.verify(consumer).seek(p1, 7);
+        revoke.verify(rebalanceListener).onPartitionsRevoked(singleton(p1));
+        verify(rebalanceListener).onPartitionsAssigned(singleton(p1));
+        assertTrue(executor.isShutdown());
+    }
+
+    /**
+     * Answers the result of each supplier in turn from successive polls.  A supplier answers {@code null} if the test
+     * is not ready to move on, in which case the poll answers no records and the supplier is asked again on the next
+     * poll.  A {@code WakeupException} is thrown once the suppliers are used up, or if the test does not move on
+     * within {@link #TIMEOUT_MS}.
+     *
+     * @param polls the results of each poll
+     */
+    private void script(List<Supplier<ConsumerRecords<String, RMapEvent>>> polls) {
+        AtomicInteger step = new AtomicInteger();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        when(consumer.poll(anyLong())).thenAnswer(inv -> {
+            if (step.get() >= polls.size() || System.currentTimeMillis() > deadline) {
+                throw new WakeupException();
+            }
+            ConsumerRecords<String, RMapEvent> result = polls.get(step.get()).get();
+            if (result == null) {
+                Thread.sleep(10);
+                return records();
+            }
+            step.incrementAndGet();
+            return result;
+        });
+    }
+
+    /**
+     * Stops the consumer if {@code condition} holds.
+     *
+     * @param condition whether the test has completed
+     * @return {@code null} if the test has not completed
+     */
+    private static ConsumerRecords<String, RMapEvent> wakeupWhen(boolean condition) {
+        if (condition) {
+            throw new WakeupException();
+        }
+        return null;
+    }
+
+    private static ConsumerRecord<String, RMapEvent> record(TopicPartition tp, long offset) {
+        return new ConsumerRecord<>(tp.topic(), tp.partition(), offset, "key", mock(RMapEvent.class));
+    }
+
+    @SafeVarargs
+    private static ConsumerRecords<String, RMapEvent> records(ConsumerRecord<String, RMapEvent>... records) {
+        Map<TopicPartition, List<ConsumerRecord<String, RMapEvent>>> byPartition = new HashMap<>();
+        for (ConsumerRecord<String, RMapEvent> record : records) {
+            byPartition.computeIfAbsent(new TopicPartition(record.topic(), record.partition()),
+                    tp -> new ArrayList<>()).add(record);
+        }
+        return new ConsumerRecords<>(byPartition);
+    }
+
+}
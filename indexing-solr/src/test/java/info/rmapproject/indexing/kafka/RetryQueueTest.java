@@ -0,0 +1,150 @@
+package info.rmapproject.indexing.kafka;
+
+import info.rmapproject.core.model.RMapIri;
+import info.rmapproject.core.model.event.RMapEvent;
+import info.rmapproject.indexing.solr.model.KafkaMetadata;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.net.URI;
+
+import static java.lang.System.currentTimeMillis;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Insures parked events hold back their lineage, and carry their attempts and retry time in the record headers.
+ */
+@SuppressWarnings("unchecked")
+public class RetryQueueTest {
+
+    private static final String RETRY_TOPIC = "events.retry";
+
+    private static final String DLT_TOPIC = "events.dlt";
+
+    private KafkaTemplate<String, RMapEvent> template;
+
+    private RetryQueue underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        template = mock(KafkaTemplate.class);
+        SettableListenableFuture sent = new SettableListenableFuture();
+        sent.set(null);
+        when(template.send(any(ProducerRecord.class))).thenReturn(sent);
+        underTest = new RetryQueue(template, RETRY_TOPIC, DLT_TOPIC);
+        underTest.setInitialDelayMs(1000);
+        underTest.setBackoffFactor(2);
+        underTest.setMaxDelayMs(5000);
+    }
+
+    @Test
+    public void testDelayFor() throws Exception {
+        assertEquals(0, underTest.delayFor(0));
+        assertEquals(1000, underTest.delayFor(1));
+        assertEquals(2000, underTest.delayFor(2));
+        assertEquals(4000, underTest.delayFor(3));
+        assertEquals(5000, underTest.delayFor(4));
+        assertEquals(5000, underTest.delayFor(20));
+    }
+
+    /**
+     * Parking an event holds back its lineage until each parked event of the lineage is retried or dead-lettered.
+     */
+    @Test
+    public void testParkHoldsBackLineage() throws Exception {
+        RMapEvent first = event("rmap:event1", "rmap:lineage");
+        RMapEvent second = event("rmap:event2", "rmap:lineage");
+        RMapEvent other = event("rmap:event3", "rmap:other");
+
+        assertFalse(underTest.isPending(second));
+
+        underTest.park(first, null, 1, new RuntimeException("Solr is unavailable"));
+        assertTrue(underTest.isPending(second));
+        assertFalse(underTest.isPending(other));
+
+        underTest.park(second, null, 0, null);
+        underTest.retried(first);
+        assertTrue(underTest.isPending(second));
+
+        underTest.deadLetter(second, null, 5, new RuntimeException("Solr is unavailable"));
+        assertFalse(underTest.isPending(second));
+
+        assertEquals(2, underTest.getParkedCount());
+        assertEquals(0, underTest.getPendingCount());
+        assertEquals(1, underTest.getRetriedCount());
+        assertEquals(1, underTest.getDeadLetteredCount());
+    }
+
+    /**
+     * An event is parked only once from the same record, e.g. when the consumer rewinds after failing to write its
+     * batch, so its lineage is held back only until the one parked copy is retried.
+     */
+    @Test
+    public void testParkOncePerRecord() throws Exception {
+        RMapEvent event = event("rmap:event1", "rmap:lineage");
+        KafkaMetadata source = source("events", 0, 5);
+
+        assertFalse(underTest.isParked(source));
+        assertTrue(underTest.park(event, null, 1, null, source));
+        assertTrue(underTest.isParked(source));
+        assertFalse(underTest.park(event, null, 1, null, source("events", 0, 5)));
+        assertFalse(underTest.isParked(source("events", 0, 6)));
+
+        verify(template, times(1)).send(any(ProducerRecord.class));
+        assertEquals(1, underTest.getParkedCount());
+
+        underTest.retried(event);
+        assertFalse(underTest.isPending(event));
+        assertTrue(underTest.isParked(source));
+    }
+
+    /**
+     * The attempts and retry time of a parked event are carried in the headers of the record, keyed by event IRI.
+     */
+    @Test
+    public void testParkHeaders() throws Exception {
+        RMapEvent event = event("rmap:event1", "rmap:lineage");
+        long before = currentTimeMillis();
+
+        underTest.park(event, null, 2, new RuntimeException("Solr is unavailable"));
+
+        ArgumentCaptor<ProducerRecord> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(template, times(1)).send(captor.capture());
+        ProducerRecord<String, RMapEvent> sent = captor.getValue();
+        assertEquals(RETRY_TOPIC, sent.topic());
+        assertEquals("rmap:event1", sent.key());
+
+        ConsumerRecord<String, RMapEvent> received = new ConsumerRecord<>(RETRY_TOPIC, 0, 0, sent.key(), event);
+        sent.headers().forEach(header -> received.headers().add(header));
+        assertEquals(2, RetryQueue.attemptsOf(received));
+        assertTrue(RetryQueue.notBeforeOf(received) >= before + 2000);
+    }
+
+    private static KafkaMetadata source(String topic, int partition, long offset) {
+        KafkaMetadata source = mock(KafkaMetadata.class);
+        when(source.getKafkaTopic()).thenReturn(topic);
+        when(source.getKafkaPartition()).thenReturn(partition);
+        when(source.getKafkaOffset()).thenReturn(offset);
+        return source;
+    }
+
+    private static RMapEvent event(String id, String lineage) {
+        RMapEvent event = mock(RMapEvent.class);
+        when(event.getId()).thenReturn(new RMapIri(URI.create(id)));
+        when(event.getLineageProgenitor()).thenReturn(new RMapIri(URI.create(lineage)));
+        return event;
+    }
+
+}
@@ -0,0 +1,212 @@
+package info.rmapproject.indexing.kafka;
+
+import info.rmapproject.core.model.RMapIri;
+import info.rmapproject.core.model.event.RMapEvent;
+import info.rmapproject.indexing.IndexingTimeoutException;
+import info.rmapproject.indexing.solr.model.KafkaMetadata;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.System.currentTimeMillis;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonMap;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Insures parked events are retried once they are due, that events failing again are rescheduled (holding back later
+ * events of their lineage) or dead-lettered, and that records which cannot be processed are left on the retry topic.
+ */
+@SuppressWarnings("unchecked")
+public class RetryTopicConsumerTest {
+
+    private static final String RETRY_TOPIC = "events.retry";
+
+    private final TopicPartition p0 = new TopicPartition(RETRY_TOPIC, 0);
+
+    private Consumer<String, RMapEvent> consumer;
+
+    private IndexingRetryHandler retryHandler;
+
+    private RetryQueue retryQueue;
+
+    private RetryTopicConsumer underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        consumer = mock(Consumer.class);
+        retryHandler = mock(IndexingRetryHandler.class);
+        retryQueue = mock(RetryQueue.class);
+        when(retryQueue.getRetryTopic()).thenReturn(RETRY_TOPIC);
+        when(retryQueue.getMaxAttempts()).thenReturn(3);
+        when(retryQueue.getInitialDelayMs()).thenReturn(1000L);
+        when(consumer.assignment()).thenReturn(singleton(p0));
+
+        underTest = new RetryTopicConsumer(consumer, retryHandler, retryQueue);
+        underTest.setPollTimeoutMs(100);
+    }
+
+    /**
+     * A record that is due is retried, the event is released from the queue, and the record's offset is committed.
+     */
+    @Test
+    public void testDueRecordRetried() throws Exception {
+        RMapEvent event = event("rmap:event1", "rmap:lineage");
+        polls(records(record(5, event, 1, currentTimeMillis() - 1000)));
+
+        underTest.consume();
+
+        verify(retryHandler).retry(eq(event), isNull(), any(KafkaMetadata.class), any());
+        verify(retryQueue).retried(event);
+        verify(retryQueue).recordRetryLag(anyLong());
+        verify(consumer).commitSync(singletonMap(p0, new OffsetAndMetadata(6)));
+        verify(consumer).close();
+    }
+
+    /**
+     * A record that is not yet due is not retried: its partition is rewound to the record and paused.
+     */
+    @Test
+    public void testRecordNotYetDuePaused() throws Exception {
+        RMapEvent event = event("rmap:event1", "rmap:lineage");
+        polls(records(record(5, event, 1, currentTimeMillis() + 60000)));
+
+        underTest.consume();
+
+        verify(consumer).seek(p0, 5);
+        verify(consumer).pause(singleton(p0));
+        verify(retryHandler, never()).retry(any(), any(), any(), any());
+        verify(consumer, never()).commitSync(anyMap());
+    }
+
+    /**
+     * An event that fails again is rescheduled with its attempts incremented, and later records of its lineage are
+     * rescheduled behind it without being retried.  Events of other lineages are retried as usual.
+     */
+    @Test
+    public void testFailedAgainBlocksLineage() throws Exception {
+        RMapEvent first = event("rmap:event1", "rmap:lineage");
+        RMapEvent second = event("rmap:event2", "rmap:lineage");
+        RMapEvent other = event("rmap:event3", "rmap:other");
+        IndexingTimeoutException timeout = new IndexingTimeoutException("Solr is unavailable");
+        doThrow(timeout).when(retryHandler).retry(eq(first), any(), any(), any());
+        long due = currentTimeMillis() - 1000;
+        polls(records(record(5, first, 1, due), record(6, second, 0, due), record(7, other, 0, due)));
+
+        underTest.consume();
+
+        verify(retryQueue).reschedule(first, null, 2, timeout);
+        verify(retryQueue).reschedule(second, null, 0, null);
+        verify(retryHandler, never()).retry(eq(second), any(), any(), any());
+        verify(retryQueue, never()).retried(first);
+        verify(retryQueue).retried(other);
+        verify(consumer).commitSync(singletonMap(p0, new OffsetAndMetadata(8)));
+    }
+
+    /**
+     * An event that fails for the last permitted time is dead-lettered rather than rescheduled.
+     */
+    @Test
+    public void testDeadLetteredAfterMaxAttempts() throws Exception {
+        RMapEvent event = event("rmap:event1", "rmap:lineage");
+        IndexingTimeoutException timeout = new IndexingTimeoutException("Solr is unavailable");
+        doThrow(timeout).when(retryHandler).retry(eq(event), any(), any(), any());
+        polls(records(record(5, event, 2, currentTimeMillis() - 1000)));
+
+        underTest.consume();
+
+        verify(retryQueue).deadLetter(event, null, 3, timeout);
+        verify(retryQueue, never()).reschedule(any(), any(), anyInt(), any());
+        verify(consumer).commitSync(singletonMap(p0, new OffsetAndMetadata(6)));
+    }
+
+    /**
+     * A record that cannot be rescheduled is left on the retry topic: its partition is rewound to the record and
+     * paused, and its offset is not committed.
+     */
+    @Test
+    public void testUnprocessableRecordRewound() throws Exception {
+        RMapEvent event = event("rmap:event1", "rmap:lineage");
+        IndexingTimeoutException timeout = new IndexingTimeoutException("Solr is unavailable");
+        doThrow(timeout).when(retryHandler).retry(eq(event), any(), any(), any());
+        doThrow(new RuntimeException("Kafka is unavailable"))
+                .when(retryQueue).reschedule(any(), any(), anyInt(), any());
+        polls(records(record(5, event, 1, currentTimeMillis() - 1000)));
+
+        underTest.consume();
+
+        verify(consumer).seek(p0, 5);
+        verify(consumer).pause(singleton(p0));
+        verify(consumer, never()).commitSync(anyMap());
+    }
+
+    /**
+     * Answers each of the supplied records from successive polls, then wakes up the consumer.
+     *
+     * @param polls the records answered by each poll
+     */
+    @SafeVarargs
+    private final void polls(ConsumerRecords<String, RMapEvent>... polls) {
+        List<ConsumerRecords<String, RMapEvent>> remaining = new ArrayList<>(Arrays.asList(polls));
+        when(consumer.poll(anyLong())).thenAnswer(inv -> {
+            if (remaining.isEmpty()) {
+                throw new WakeupException();
+            }
+            return remaining.remove(0);
+        });
+    }
+
+    private ConsumerRecord<String, RMapEvent> record(long offset, RMapEvent event, int attempts, long notBefore) {
+        ConsumerRecord<String, RMapEvent> record =
+                new ConsumerRecord<>(p0.topic(), p0.partition(), offset, event.getId().getStringValue(), event);
+        record.headers().add(new RecordHeader(RetryQueue.ATTEMPTS_HEADER, bytes(attempts)));
+        record.headers().add(new RecordHeader(RetryQueue.NOT_BEFORE_HEADER, bytes(notBefore)));
+        return record;
+    }
+
+    @SafeVarargs
+    private static ConsumerRecords<String, RMapEvent> records(ConsumerRecord<String, RMapEvent>... records) {
+        Map<TopicPartition, List<ConsumerRecord<String, RMapEvent>>> byPartition = new HashMap<>();
+        for (ConsumerRecord<String, RMapEvent> record : records) {
+            byPartition.computeIfAbsent(new TopicPartition(record.topic(), record.partition()),
+                    tp -> new ArrayList<>()).add(record);
+        }
+        return new ConsumerRecords<>(byPartition);
+    }
+
+    private static RMapEvent event(String id, String lineage) {
+        RMapEvent event = mock(RMapEvent.class);
+        when(event.getId()).thenReturn(new RMapIri(URI.create(id)));
+        when(event.getLineageProgenitor()).thenReturn(new RMapIri(URI.create(lineage)));
+        return event;
+    }
+
+    private static byte[] bytes(long value) {
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,72 @@
+package info.rmapproject.indexing.reindex;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Insures a {@link ReindexCheckpoint} survives being saved and loaded, so an interrupted reindex can be resumed.
+ */
+public class ReindexCheckpointTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /**
+     * A missing checkpoint file is the start of the events.
+     */
+    @Test
+    public void testLoadMissing() throws Exception {
+        Path file = new File(tmp.getRoot(), "missing.checkpoint").toPath();
+
+        assertSame(ReindexCheckpoint.START, ReindexCheckpoint.load(file));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Path file = new File(tmp.getRoot(), "reindex.checkpoint").toPath();
+        ReindexCheckpoint checkpoint = new ReindexCheckpoint("2018-03-01T12:00:00.000Z",
+                URI.create("rmap:rmd18m7mr7"), 42);
+
+        checkpoint.save(file);
+        ReindexCheckpoint loaded = ReindexCheckpoint.load(file);
+
+        assertFalse(loaded.isStart());
+        assertEquals(checkpoint.getStartedAtTime(), loaded.getStartedAtTime());
+        assertEquals(checkpoint.getEventIri(), loaded.getEventIri());
+        assertEquals(42, loaded.getEventCount());
+    }
+
+    /**
+     * Saving a checkpoint replaces the previous one, and leaves no temporary files behind.
+     */
+    @Test
+    public void testSaveReplaces() throws Exception {
+        Path file = new File(tmp.getRoot(), "reindex.checkpoint").toPath();
+
+        new ReindexCheckpoint("2018-03-01T12:00:00.000Z", URI.create("rmap:first"), 1).save(file);
+        new ReindexCheckpoint("2018-03-01T12:00:01.000Z", URI.create("rmap:second"), 2).save(file);
+
+        assertEquals(URI.create("rmap:second"), ReindexCheckpoint.load(file).getEventIri());
+        assertEquals(1, tmp.getRoot().list().length);
+    }
+
+    @Test
+    public void testSaveStart() throws Exception {
+        Path file = new File(tmp.getRoot(), "reindex.checkpoint").toPath();
+
+        ReindexCheckpoint.START.save(file);
+
+        assertTrue(ReindexCheckpoint.load(file).isStart());
+    }
+
+}
@@ -0,0 +1,160 @@
+package info.rmapproject.indexing.reindex;
+
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.TupleQuery;
+import org.eclipse.rdf4j.query.impl.IteratingTupleQueryResult;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Insures events are answered as checkpoints, that each page resumes after the supplied checkpoint, and that
+ * consecutive pages are read from the results of a single query.
+ */
+public class TriplestoreEventSourceTest {
+
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    private Rdf4jTriplestore triplestore;
+
+    private RepositoryConnection connection;
+
+    private TriplestoreEventSource underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        triplestore = mock(Rdf4jTriplestore.class);
+        connection = mock(RepositoryConnection.class);
+        when(triplestore.getConnection()).thenReturn(connection);
+        when(triplestore.hasConnectionOpen()).thenReturn(true);
+        underTest = new TriplestoreEventSource(triplestore, 2);
+    }
+
+    /**
+     * The query selects every remaining event, so that it only needs to be sorted once.
+     */
+    @Test
+    public void testQueryFromStart() {
+        String query = underTest.prepareQuery(ReindexCheckpoint.START);
+
+        assertFalse(query.contains("FILTER"));
+        assertFalse(query.contains("LIMIT"));
+        assertTrue(query.endsWith("ORDER BY ?start STR(?e)"));
+    }
+
+    @Test
+    public void testQueryAfterCheckpoint() {
+        String query = underTest.prepareQuery(
+                new ReindexCheckpoint("2018-03-01T12:00:00.000Z", URI.create("rmap:rmd18m7mr7"), 10));
+
+        assertTrue(query.contains("?start > \"2018-03-01T12:00:00.000Z\"^^<" + XMLSchema.DATETIME + ">"));
+        assertTrue(query.contains("STR(?e) > \"rmap:rmd18m7mr7\""));
+    }
+
+    /**
+     * Each event is answered as the checkpoint reached after applying it, counting on from the supplied checkpoint.
+     */
+    @Test
+    public void testNextPage() throws Exception {
+        ReindexCheckpoint after = new ReindexCheckpoint("2018-03-01T12:00:00.000Z", URI.create("rmap:a"), 10);
+        results(event("rmap:b", "2018-03-01T12:00:00.000Z"),
+                event("rmap:c", "2018-03-01T12:00:01.000Z"));
+
+        List<ReindexCheckpoint> page = underTest.nextPage(after);
+
+        assertEquals(2, page.size());
+        assertEquals(URI.create("rmap:b"), page.get(0).getEventIri());
+        assertEquals(11, page.get(0).getEventCount());
+        assertEquals(URI.create("rmap:c"), page.get(1).getEventIri());
+        assertEquals("2018-03-01T12:00:01.000Z", page.get(1).getStartedAtTime());
+        assertEquals(12, page.get(1).getEventCount());
+        verify(triplestore, never()).closeConnection();
+
+        underTest.close();
+        verify(triplestore).closeConnection();
+    }
+
+    /**
+     * A page that follows on from the previous page is read from the same query results, and the connection is closed
+     * once the events are exhausted.
+     */
+    @Test
+    public void testPagesReadFromOneQuery() throws Exception {
+        results(event("rmap:a", "2018-03-01T12:00:00.000Z"),
+                event("rmap:b", "2018-03-01T12:00:01.000Z"),
+                event("rmap:c", "2018-03-01T12:00:02.000Z"));
+
+        List<ReindexCheckpoint> first = underTest.nextPage(ReindexCheckpoint.START);
+        List<ReindexCheckpoint> second = underTest.nextPage(first.get(1));
+        List<ReindexCheckpoint> third = underTest.nextPage(second.get(0));
+
+        assertEquals(2, first.size());
+        assertEquals(1, second.size());
+        assertEquals(URI.create("rmap:c"), second.get(0).getEventIri());
+        assertEquals(3, second.get(0).getEventCount());
+        assertTrue(third.isEmpty());
+        verify(connection).prepareTupleQuery(eq(QueryLanguage.SPARQL), anyString());
+        verify(triplestore).closeConnection();
+    }
+
+    /**
+     * A page that does not follow on from the previous page, or whose connection has been closed, is read from a new
+     * query.
+     */
+    @Test
+    public void testNewQueryWhenNotFollowingOn() throws Exception {
+        results(event("rmap:a", "2018-03-01T12:00:00.000Z"),
+                event("rmap:b", "2018-03-01T12:00:01.000Z"),
+                event("rmap:c", "2018-03-01T12:00:02.000Z"));
+
+        List<ReindexCheckpoint> first = underTest.nextPage(ReindexCheckpoint.START);
+        underTest.nextPage(new ReindexCheckpoint(first.get(1).getStartedAtTime(), first.get(1).getEventIri(), 2));
+        verify(connection, times(2)).prepareTupleQuery(eq(QueryLanguage.SPARQL), anyString());
+
+        List<ReindexCheckpoint> restarted = underTest.nextPage(ReindexCheckpoint.START);
+        when(triplestore.hasConnectionOpen()).thenReturn(false);
+        underTest.nextPage(restarted.get(1));
+        verify(connection, times(4)).prepareTupleQuery(eq(QueryLanguage.SPARQL), anyString());
+    }
+
+    /**
+     * Answers a new result containing the supplied events each time a query is evaluated.
+     *
+     * @param events the events
+     */
+    private void results(BindingSet... events) {
+        TupleQuery query = mock(TupleQuery.class);
+        when(connection.prepareTupleQuery(eq(QueryLanguage.SPARQL), anyString())).thenReturn(query);
+        when(query.evaluate()).thenAnswer(inv ->
+                new IteratingTupleQueryResult(Arrays.asList("e", "start"), Arrays.asList(events)));
+    }
+
+    private static BindingSet event(String iri, String startedAtTime) {
+        MapBindingSet bindings = new MapBindingSet();
+        bindings.addBinding("e", VF.createIRI(iri));
+        bindings.addBinding("start", VF.createLiteral(startedAtTime, XMLSchema.DATETIME));
+        return bindings;
+    }
+
+}
@@ -0,0 +1,204 @@
+package info.rmapproject.indexing.reindex;
+
+import info.rmapproject.core.exception.RMapDeletedObjectException;
+import info.rmapproject.core.model.RMapIri;
+import info.rmapproject.core.model.agent.RMapAgent;
+import info.rmapproject.core.model.disco.RMapDiSCO;
+import info.rmapproject.core.model.event.RMapEventCreation;
+import info.rmapproject.core.model.event.RMapEventDeletion;
+import info.rmapproject.core.model.event.RMapEventType;
+import info.rmapproject.core.rmapservice.RMapService;
+import info.rmapproject.indexing.solr.model.DiscoSolrDocument;
+import info.rmapproject.indexing.solr.repository.DiscosIndexBatch;
+import info.rmapproject.indexing.solr.repository.DiscosSolrOperations;
+import info.rmapproject.indexing.solr.repository.EventDiscoTuple;
+import info.rmapproject.indexing.solr.repository.EventTupleIndexingRepository;
+import info.rmapproject.indexing.solr.repository.IndexDTO;
+import info.rmapproject.indexing.solr.repository.IndexDTOMapper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.InOrder;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Insures that events are applied to the index in chronological order a page at a time, that the core is committed and
+ * a checkpoint saved after each page, and that a reindex resumes from a saved checkpoint.
+ */
+@SuppressWarnings("unchecked")
+public class TriplestoreReindexerTest {
+
+    private static final RMapIri AGENT = new RMapIri(URI.create("rmap:agent"));
+
+    private static final RMapIri DISCO_1 = new RMapIri(URI.create("rmap:disco1"));
+
+    private static final RMapIri DISCO_2 = new RMapIri(URI.create("rmap:disco2"));
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private EventTupleIndexingRepository<DiscoSolrDocument> indexer;
+
+    private DiscosSolrOperations solrOperations;
+
+    private TriplestoreEventSource eventSource;
+
+    private RMapService rmapService;
+
+    private Path checkpointFile;
+
+    private TriplestoreReindexer underTest;
+
+    /**
+     * The tuples passed to the indexer, in the order they were indexed
+     */
+    private final List<EventDiscoTuple> indexed = new ArrayList<>();
+
+    /**
+     * The tuples mapped from each event, by event IRI
+     */
+    private final Map<URI, EventDiscoTuple> tuples = new HashMap<>();
+
+    /**
+     * The pages answered by the event source, by the event count of the checkpoint they follow
+     */
+    private final Map<Long, List<ReindexCheckpoint>> pages = new HashMap<>();
+
+    private final ReindexCheckpoint created1 = checkpoint("rmap:event1", "2018-03-01T12:00:00.000Z", 1);
+
+    private final ReindexCheckpoint created2 = checkpoint("rmap:event2", "2018-03-01T12:00:01.000Z", 2);
+
+    private final ReindexCheckpoint deleted1 = checkpoint("rmap:event3", "2018-03-01T12:00:02.000Z", 3);
+
+    @Before
+    public void setUp() throws Exception {
+        indexer = mock(EventTupleIndexingRepository.class);
+        IndexDTOMapper dtoMapper = mock(IndexDTOMapper.class);
+        solrOperations = mock(DiscosSolrOperations.class);
+        eventSource = mock(TriplestoreEventSource.class);
+        rmapService = mock(RMapService.class);
+        checkpointFile = tmp.getRoot().toPath().resolve("reindex.checkpoint");
+
+        doAnswer(inv -> {
+            indexed.addAll(((Stream<EventDiscoTuple>) inv.getArgument(0)).collect(toList()));
+            return null;
+        }).when(indexer).index(any());
+        when(dtoMapper.apply(any(IndexDTO.class))).thenAnswer(inv ->
+                Stream.of(tuples.get(((IndexDTO) inv.getArgument(0)).getEvent().getId().getIri())));
+        when(solrOperations.openBatch(anyInt())).thenReturn(mock(DiscosIndexBatch.class));
+        when(eventSource.nextPage(any(ReindexCheckpoint.class))).thenAnswer(inv ->
+                pages.getOrDefault(((ReindexCheckpoint) inv.getArgument(0)).getEventCount(),
+                        Collections.emptyList()));
+
+        RMapAgent agent = mock(RMapAgent.class);
+        when(agent.getId()).thenReturn(AGENT);
+        when(rmapService.readAgent(AGENT.getIri())).thenReturn(agent);
+
+        pages.put(0L, asList(created1, created2));
+        pages.put(2L, singletonList(deleted1));
+        creation(created1, DISCO_1);
+        creation(created2, DISCO_2);
+        deletion(deleted1, DISCO_1);
+
+        RMapDiSCO disco1 = mock(RMapDiSCO.class);
+        when(disco1.getId()).thenReturn(DISCO_1);
+        when(rmapService.readDiSCO(DISCO_1.getIri())).thenReturn(disco1);
+        when(rmapService.readDiSCO(DISCO_2.getIri())).thenThrow(new RMapDeletedObjectException("deleted"));
+
+        underTest = new TriplestoreReindexer(indexer, dtoMapper, solrOperations, eventSource);
+        underTest.setRmapServiceFactory(() -> rmapService);
+        underTest.setParallelism(4);
+        underTest.setCheckpointFile(checkpointFile);
+    }
+
+    /**
+     * Events are applied in order, a page at a time: the creation of a DiSCO is indexed, the creation of a DiSCO that
+     * has since been deleted is skipped, and the deletion removes the DiSCO's documents.  The core is committed, and
+     * the checkpoint saved, after each page.
+     */
+    @Test
+    public void testReindex() throws Exception {
+        ReindexCheckpoint result = underTest.reindex();
+
+        assertEquals(singletonList(tuples.get(created1.getEventIri())), indexed);
+        assertEquals(3, result.getEventCount());
+        assertEquals(deleted1.getEventIri(), ReindexCheckpoint.load(checkpointFile).getEventIri());
+
+        InOrder order = inOrder(indexer, solrOperations, eventSource);
+        order.verify(eventSource).nextPage(ReindexCheckpoint.START);
+        order.verify(indexer).index(any());
+        order.verify(solrOperations).commit();
+        order.verify(eventSource).nextPage(created2);
+        order.verify(solrOperations).deleteDocumentsForDiscoUri(DISCO_1.getStringValue());
+        order.verify(solrOperations).commit();
+        order.verify(eventSource).nextPage(deleted1);
+        order.verify(eventSource).close();
+        verify(solrOperations, times(2)).commit();
+    }
+
+    /**
+     * A reindex resumes from the saved checkpoint, rather than from the first event.
+     */
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+        created2.save(checkpointFile);
+
+        ReindexCheckpoint result = underTest.reindex();
+
+        assertEquals(3, result.getEventCount());
+        assertEquals(Collections.emptyList(), indexed);
+        verify(eventSource, never()).nextPage(ReindexCheckpoint.START);
+        verify(eventSource).nextPage(argThat(after -> after.getEventCount() == 2));
+        verify(solrOperations).deleteDocumentsForDiscoUri(DISCO_1.getStringValue());
+        verify(solrOperations, times(1)).commit();
+        verify(eventSource).close();
+    }
+
+    private void creation(ReindexCheckpoint checkpoint, RMapIri disco) {
+        RMapEventCreation event = mock(RMapEventCreation.class);
+        when(event.getId()).thenReturn(new RMapIri(checkpoint.getEventIri()));
+        when(event.getEventType()).thenReturn(RMapEventType.CREATION);
+        when(event.getCreatedObjectIds()).thenReturn(singletonList(disco));
+        when(event.getAssociatedAgent()).thenReturn(AGENT);
+        when(rmapService.readEvent(checkpoint.getEventIri())).thenReturn(event);
+        tuples.put(checkpoint.getEventIri(), mock(EventDiscoTuple.class));
+    }
+
+    private void deletion(ReindexCheckpoint checkpoint, RMapIri disco) {
+        RMapEventDeletion event = mock(RMapEventDeletion.class);
+        when(event.getId()).thenReturn(new RMapIri(checkpoint.getEventIri()));
+        when(event.getEventType()).thenReturn(RMapEventType.DELETION);
+        when(event.getDeletedObjectId()).thenReturn(disco);
+        when(event.getAssociatedAgent()).thenReturn(AGENT);
+        when(rmapService.readEvent(checkpoint.getEventIri())).thenReturn(event);
+    }
+
+    private static ReindexCheckpoint checkpoint(String eventIri, String startedAtTime, long count) {
+        return new ReindexCheckpoint(startedAtTime, URI.create(eventIri), count);
+    }
+
+}
@@ -0,0 +1,223 @@
+package info.rmapproject.indexing.solr.repository;
+
+import info.rmapproject.indexing.solr.model.DiscoSolrDocument;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.solr.core.SolrCallback;
+import org.springframework.data.solr.core.SolrTemplate;
+import org.springframework.data.solr.core.query.Query;
+import org.springframework.data.solr.core.query.QueryStringHolder;
+import org.springframework.data.solr.core.query.result.SolrResultPage;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+
+import static info.rmapproject.core.model.RMapStatus.ACTIVE;
+import static info.rmapproject.core.model.RMapStatus.INACTIVE;
+import static info.rmapproject.core.model.RMapStatus.TOMBSTONED;
+import static info.rmapproject.indexing.solr.model.DiscoSolrDocument.CORE_NAME;
+import static info.rmapproject.indexing.solr.repository.DiscosSolrOperations.prepareDiscoLineageUriQuery;
+import static info.rmapproject.indexing.solr.repository.DiscosSolrOperations.prepareDiscoUriQuery;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Insures that writes are accumulated by a {@link DiscosIndexBatch}, and sent to the index together followed by a
+ * single soft commit rather than a hard commit.
+ */
+public class DiscosIndexBatchTest {
+
+    private static final String DISCO_URI = "http://a/disco";
+
+    private static final String LINEAGE_URI = "http://a/lineage";
+
+    private SolrTemplate mockTemplate;
+
+    private DiscosSolrOperations operations;
+
+    private DiscosIndexBatch underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        mockTemplate = mock(SolrTemplate.class);
+        operations = new DiscosSolrOperations(mockTemplate, CORE_NAME);
+        when(mockTemplate.query(eq(CORE_NAME), any(Query.class), eq(DiscoSolrDocument.class)))
+                .thenReturn(new SolrResultPage<>(Collections.emptyList()));
+        underTest = operations.openBatch(1000);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        underTest.close();
+    }
+
+    /**
+     * The batch is bound to the thread that opened it until it is closed.
+     */
+    @Test
+    public void testBinding() {
+        assertSame(underTest, DiscosIndexBatch.current(CORE_NAME));
+        underTest.close();
+        assertNull(DiscosIndexBatch.current(CORE_NAME));
+    }
+
+    /**
+     * Opening a second batch on the same thread is an error.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testOpenTwice() {
+        operations.openBatch(1000);
+    }
+
+    /**
+     * Documents added to the batch are assigned an id, and a status update applies to documents added earlier in the
+     * batch even though they are not yet in the index.
+     */
+    @Test
+    public void testStatusUpdateOfPendingDocument() {
+        DiscoSolrDocument pending = new DiscoSolrDocument.Builder()
+                .discoUri(DISCO_URI)
+                .discoStatus(ACTIVE.name())
+                .build();
+
+        underTest.add(pending);
+        assertNotNull(pending.getDocId());
+
+        operations.updateStatus(DISCO_URI, INACTIVE, null);
+
+        assertEquals(INACTIVE.name(), pending.getDiscoStatus());
+        assertTrue(underTest.getStatusUpdates().isEmpty());
+        verify(mockTemplate, never()).saveBeans(eq(CORE_NAME), anyCollection());
+        verify(mockTemplate, never()).commit(CORE_NAME);
+    }
+
+    /**
+     * Status updates are evaluated against documents as they will be after the batch is written: a document
+     * tombstoned earlier in the batch is not inactivated by a later update.
+     */
+    @Test
+    public void testStatusUpdateSeesPendingStatus() {
+        DiscoSolrDocument indexed = new DiscoSolrDocument.Builder()
+                .docId("indexed")
+                .discoUri(DISCO_URI)
+                .discoStatus(ACTIVE.name())
+                .build();
+
+        when(mockTemplate.query(eq(CORE_NAME), argThat(query -> queryMatches(prepareDiscoUriQuery(DISCO_URI), query)),
+                eq(DiscoSolrDocument.class)))
+                .thenAnswer(inv -> new SolrResultPage<>(asList(new DiscoSolrDocument(indexed))));
+
+        underTest.updateStatus(DISCO_URI, TOMBSTONED, null);
+        underTest.updateStatus(DISCO_URI, INACTIVE, (doc) -> doc.getDiscoStatus().equals(ACTIVE.name()));
+
+        assertEquals(1, underTest.getStatusUpdates().size());
+        DiscoPartialUpdate update = underTest.getStatusUpdates().iterator().next();
+        assertEquals("indexed", update.getIdField().getValue());
+        assertTrue(update.getUpdates().stream().anyMatch(field -> TOMBSTONED.name().equals(field.getValue())));
+    }
+
+    /**
+     * Deleting a lineage removes matching pending documents, and discards pending updates to deleted documents.
+     */
+    @Test
+    public void testDeleteLineage() {
+        DiscoSolrDocument pending = new DiscoSolrDocument.Builder()
+                .discoUri(DISCO_URI)
+                .eventLineageUri(LINEAGE_URI)
+                .build();
+        DiscoSolrDocument indexed = new DiscoSolrDocument.Builder()
+                .docId("indexed")
+                .discoUri(DISCO_URI)
+                .discoStatus(ACTIVE.name())
+                .eventLineageUri(LINEAGE_URI)
+                .build();
+
+        when(mockTemplate.query(eq(CORE_NAME), any(Query.class), eq(DiscoSolrDocument.class)))
+                .thenAnswer(inv -> new SolrResultPage<>(asList(new DiscoSolrDocument(indexed))));
+
+        underTest.add(pending);
+        underTest.updateStatus(DISCO_URI, INACTIVE, null);
+        operations.deleteDocumentsForLineage(LINEAGE_URI);
+
+        verify(mockTemplate).query(eq(CORE_NAME),
+                argThat(query -> queryMatches(prepareDiscoLineageUriQuery(LINEAGE_URI), query)),
+                eq(DiscoSolrDocument.class));
+        assertTrue(underTest.getDocuments().isEmpty());
+        assertTrue(underTest.getStatusUpdates().isEmpty());
+        assertEquals(Collections.singleton("indexed"), underTest.getDeletes());
+        verify(mockTemplate, never()).deleteByIds(eq(CORE_NAME), anyCollection());
+    }
+
+    /**
+     * Flushing sends documents and partial updates in one request, and deletions in another, then soft commits so the
+     * writes are visible to the queries made by the next batch.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFlush() {
+        DiscoSolrDocument pending = new DiscoSolrDocument.Builder()
+                .discoUri("http://another/disco")
+                .build();
+        DiscoSolrDocument indexed = new DiscoSolrDocument.Builder()
+                .docId("indexed")
+                .discoUri(DISCO_URI)
+                .discoStatus(ACTIVE.name())
+                .build();
+
+        when(mockTemplate.query(eq(CORE_NAME), argThat(query -> queryMatches(prepareDiscoUriQuery(DISCO_URI), query)),
+                eq(DiscoSolrDocument.class)))
+                .thenAnswer(inv -> new SolrResultPage<>(asList(new DiscoSolrDocument(indexed))));
+        when(mockTemplate.query(eq(CORE_NAME),
+                argThat(query -> queryMatches(prepareDiscoLineageUriQuery(LINEAGE_URI), query)),
+                eq(DiscoSolrDocument.class)))
+                .thenAnswer(inv -> new SolrResultPage<>(asList(new DiscoSolrDocument.Builder()
+                        .docId("deleted").build())));
+
+        underTest.add(pending);
+        underTest.updateStatus(DISCO_URI, INACTIVE, null);
+        underTest.deleteDocumentsForLineage(LINEAGE_URI);
+        underTest.flush();
+
+        ArgumentCaptor<Collection> beans = ArgumentCaptor.forClass(Collection.class);
+        verify(mockTemplate).saveBeans(eq(CORE_NAME), beans.capture(), eq(Duration.ofMillis(1000)));
+        assertEquals(2, beans.getValue().size());
+        assertTrue(beans.getValue().contains(pending));
+        verify(mockTemplate).execute(any(SolrCallback.class));
+        verify(mockTemplate).softCommit(CORE_NAME);
+        verify(mockTemplate, never()).commit(CORE_NAME);
+        assertTrue(underTest.isEmpty());
+    }
+
+    /**
+     * Flushing an empty batch does not touch the index.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFlushEmpty() {
+        underTest.flush();
+
+        verify(mockTemplate, never()).saveBeans(eq(CORE_NAME), anyCollection(), any(Duration.class));
+        verify(mockTemplate, never()).execute(any(SolrCallback.class));
+        verify(mockTemplate, never()).softCommit(CORE_NAME);
+    }
+
+    private static boolean queryMatches(String expected, Query query) {
+        return query != null && ((QueryStringHolder) query.getCriteria()).getQueryString().equals(expected);
+    }
+
+}
@@ -0,0 +1,225 @@
+package info.rmapproject.integration.load;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+import org.eclipse.rdf4j.model.Model;
+
+import info.rmapproject.api.service.DiSCOApiService;
+import info.rmapproject.api.service.ResourceApiService;
+import info.rmapproject.core.rdfhandler.RDFType;
+import info.rmapproject.core.rdfhandler.impl.rdf4j.RioRDFHandler;
+
+/**
+ * Drives the JAX-RS {@link DiSCOApiService} and {@link ResourceApiService} in-process, as CXF would once it has
+ * authenticated a request.  DiSCOs are submitted and read as Turtle, and DiSCO listings are requested as JSON.
+ * Creates and updates include serializing the statements to Turtle, standing in for the client.  Listings are
+ * served asynchronously, so a listing waits for its suspended response to be resumed.
+ */
+class ApiServiceTarget implements LoadTarget {
+
+    private static final MediaType TURTLE = MediaType.valueOf("text/turtle");
+
+    /** Time a listing may take; the API's own request timeout is applied by the container, which is not used here */
+    private static final long RESUME_TIMEOUT_MS = 120000;
+
+    private final DiSCOApiService discoApiService;
+
+    private final ResourceApiService resourceApiService;
+
+    private final RioRDFHandler rdfHandler;
+
+    private final HttpHeaders turtleHeaders;
+
+    private final HttpHeaders jsonHeaders;
+
+    private final UriInfo uriInfo;
+
+    /**
+     * @param discoApiService the DiSCO API
+     * @param resourceApiService the resource API
+     * @param rdfHandler serializes DiSCOs to Turtle
+     */
+    ApiServiceTarget(DiSCOApiService discoApiService, ResourceApiService resourceApiService,
+                     RioRDFHandler rdfHandler) {
+        this.discoApiService = discoApiService;
+        this.resourceApiService = resourceApiService;
+        this.rdfHandler = rdfHandler;
+
+        // stub-only mocks do not record invocations, which would otherwise accumulate over a run
+        turtleHeaders = mock(HttpHeaders.class, withSettings().stubOnly());
+        when(turtleHeaders.getMediaType()).thenReturn(TURTLE);
+        when(turtleHeaders.getAcceptableMediaTypes()).thenReturn(Collections.singletonList(TURTLE));
+
+        jsonHeaders = mock(HttpHeaders.class, withSettings().stubOnly());
+        when(jsonHeaders.getAcceptableMediaTypes())
+                .thenReturn(Collections.singletonList(MediaType.APPLICATION_JSON_TYPE));
+
+        uriInfo = mock(UriInfo.class, withSettings().stubOnly());
+        when(uriInfo.getQueryParameters()).thenReturn(new MultivaluedHashMap<>());
+    }
+
+    @Override
+    public URI create(Model disco) throws Exception {
+        Response response = discoApiService.apiCreateRMapDiSCO(turtleHeaders, turtle(disco));
+        return URI.create(entity(response, Response.Status.CREATED));
+    }
+
+    @Override
+    public URI update(URI discoUri, Model disco) throws Exception {
+        Response response = discoApiService.apiUpdateRMapDiSCO(turtleHeaders, encode(discoUri), turtle(disco));
+        return URI.create(entity(response, Response.Status.CREATED));
+    }
+
+    @Override
+    public void read(URI discoUri) throws Exception {
+        entity(discoApiService.apiGetRMapDiSCO(turtleHeaders, encode(discoUri)), Response.Status.OK);
+    }
+
+    @Override
+    public void list(URI resourceUri) throws Exception {
+        CapturedResponse asyncResponse = new CapturedResponse();
+        resourceApiService.apiGetRMapResourceDiscos(jsonHeaders, encode(resourceUri), uriInfo, asyncResponse);
+        Response response = asyncResponse.get();
+        // a listing with more results than the default limit redirects to its first page
+        if (response.getStatus() != Response.Status.SEE_OTHER.getStatusCode()) {
+            entity(response, Response.Status.OK);
+        }
+    }
+
+    private ByteArrayInputStream turtle(Model disco) {
+        ByteArrayOutputStream out = (ByteArrayOutputStream) rdfHandler.convertStmtListToRDF(disco, RDFType.TURTLE);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    private static String encode(URI uri) throws Exception {
+        return URLEncoder.encode(uri.toString(), StandardCharsets.UTF_8.name());
+    }
+
+    private static String entity(Response response, Response.Status expected) {
+        if (response.getStatus() != expected.getStatusCode()) {
+            throw new IllegalStateException("Expected status " + expected.getStatusCode() + " but was "
+                    + response.getStatus() + ": " + response.getEntity());
+        }
+        return String.valueOf(response.getEntity());
+    }
+
+    /**
+     * Captures the response a suspended request is resumed with.  The API services only resume, time out and
+     * register a disconnect callback, so the other methods do nothing; a mock would record every call of a run.
+     */
+    private static class CapturedResponse implements AsyncResponse {
+
+        private final CompletableFuture<Object> resumed = new CompletableFuture<>();
+
+        /**
+         * @return the response the request was resumed with
+         * @throws Exception the exception the request was resumed with, or if it was not resumed in time
+         */
+        Response get() throws Exception {
+            Object result;
+            try {
+                result = resumed.get(RESUME_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw e;
+            }
+            return (Response) result;
+        }
+
+        @Override
+        public boolean resume(Object response) {
+            return resumed.complete(response);
+        }
+
+        @Override
+        public boolean resume(Throwable response) {
+            return resumed.completeExceptionally(response);
+        }
+
+        @Override
+        public boolean cancel() {
+            return resumed.cancel(false);
+        }
+
+        @Override
+        public boolean cancel(int retryAfter) {
+            return cancel();
+        }
+
+        @Override
+        public boolean cancel(Date retryAfter) {
+            return cancel();
+        }
+
+        @Override
+        public boolean isSuspended() {
+            return !resumed.isDone();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return resumed.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return resumed.isDone();
+        }
+
+        @Override
+        public boolean setTimeout(long time, TimeUnit unit) {
+            return true;
+        }
+
+        @Override
+        public void setTimeoutHandler(TimeoutHandler handler) {
+        }
+
+        @Override
+        public Collection<Class<?>> register(Class<?> callback) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Map<Class<?>, Collection<Class<?>>> register(Class<?> callback, Class<?>... callbacks) {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public Collection<Class<?>> register(Object callback) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Map<Class<?>, Collection<Class<?>>> register(Object callback, Object... callbacks) {
+            return Collections.emptyMap();
+        }
+
+    }
+
+}
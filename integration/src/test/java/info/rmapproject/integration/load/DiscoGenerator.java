@@ -0,0 +1,84 @@
+package info.rmapproject.integration.load;
+
+import static info.rmapproject.core.model.impl.rdf4j.ORAdapter.getValueFactory;
+
+import java.net.URI;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
+import org.eclipse.rdf4j.model.vocabulary.FOAF;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+
+import info.rmapproject.core.vocabulary.impl.rdf4j.ORE;
+import info.rmapproject.core.vocabulary.impl.rdf4j.RMAP;
+import info.rmapproject.testdata.service.TestConstants;
+
+/**
+ * Generates the statements of new DiSCOs, as a client would submit them: the DiSCO is identified by a blank node, and
+ * each aggregated resource has a type, a title, and a blank-node author.  The number of aggregated resources is drawn
+ * from the configured distribution of DiSCO sizes.  Half of the aggregated resources, on average, are drawn from a pool
+ * of shared resources, so that listing the DiSCOs of a shared resource has results; the others are unique to the DiSCO.
+ */
+class DiscoGenerator {
+
+    private static final ValueFactory VF = getValueFactory();
+
+    private static final String RESOURCE_PREFIX = "http://example.org/load/";
+
+    private static final IRI ARTICLE = VF.createIRI(TestConstants.TEST_DISCO_DOI_TYPE);
+
+    private static final IRI CREATOR = VF.createIRI(TestConstants.SYSAGENT_ID);
+
+    private final WeightedChoice<Integer> sizes;
+
+    private final int sharedResources;
+
+    private final AtomicLong uniqueResources = new AtomicLong();
+
+    DiscoGenerator(LoadSettings settings) {
+        this.sizes = new WeightedChoice<>(settings.getDiscoSizes());
+        this.sharedResources = settings.getSharedResources();
+    }
+
+    /**
+     * @param random the random source of the calling worker
+     * @return the statements of a new DiSCO
+     */
+    Model next(Random random) {
+        int aggregates = sizes.next(random);
+        Model model = new LinkedHashModel();
+        BNode disco = VF.createBNode();
+        model.add(disco, RDF.TYPE, RMAP.DISCO);
+        model.add(disco, DCTERMS.CREATOR, CREATOR);
+        model.add(disco, DCTERMS.DESCRIPTION, VF.createLiteral("Load test DiSCO with " + aggregates + " resources"));
+
+        for (int i = 0; i < aggregates; i++) {
+            IRI resource = random.nextBoolean()
+                    ? VF.createIRI(sharedResource(random).toString())
+                    : VF.createIRI(RESOURCE_PREFIX + "unique/" + uniqueResources.incrementAndGet());
+            BNode author = VF.createBNode();
+            model.add(disco, ORE.AGGREGATES, resource);
+            model.add(resource, RDF.TYPE, ARTICLE);
+            model.add(resource, DCTERMS.TITLE, VF.createLiteral("Resource " + i));
+            model.add(resource, DCTERMS.CREATOR, author);
+            model.add(author, FOAF.NAME, VF.createLiteral("Author " + random.nextInt(sharedResources)));
+        }
+
+        return model;
+    }
+
+    /**
+     * @param random the random source of the calling worker
+     * @return one of the shared resources, chosen uniformly
+     */
+    URI sharedResource(Random random) {
+        return URI.create(RESOURCE_PREFIX + "shared/" + random.nextInt(sharedResources));
+    }
+
+}
@@ -0,0 +1,113 @@
+package info.rmapproject.integration.load;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency of each operation performed by a worker.  Every sample is kept, so that percentiles are exact;
+ * a worker records a few million samples at most over a run, so the memory cost is modest.  Not thread safe: each
+ * worker has its own recorder, and the recorders are {@link #merge(Collection) merged} once the workers are done.
+ */
+class LatencyRecorder {
+
+    private final Map<Operation, Samples> samples = new EnumMap<>(Operation.class);
+
+    private final Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+
+    void success(Operation operation, long nanos) {
+        samples.computeIfAbsent(operation, op -> new Samples()).add(nanos);
+    }
+
+    void error(Operation operation) {
+        errors.merge(operation, 1L, Long::sum);
+    }
+
+    /**
+     * Summarizes the samples of the supplied recorders.
+     *
+     * @param recorders the recorders of the workers
+     * @param elapsedNanos the length of the measured run
+     * @return for each operation performed, the number of operations, errors, throughput and latency percentiles
+     */
+    static Map<String, Object> merge(Collection<LatencyRecorder> recorders, long elapsedNanos) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        double elapsedSeconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        for (Operation operation : Operation.values()) {
+            Samples merged = new Samples();
+            long errorCount = 0;
+            for (LatencyRecorder recorder : recorders) {
+                Samples s = recorder.samples.get(operation);
+                if (s != null) {
+                    merged.addAll(s);
+                }
+                errorCount += recorder.errors.getOrDefault(operation, 0L);
+            }
+            if (merged.size == 0 && errorCount == 0) {
+                continue;
+            }
+
+            long[] sorted = Arrays.copyOf(merged.values, merged.size);
+            Arrays.sort(sorted);
+            Map<String, Object> op = new LinkedHashMap<>();
+            op.put("count", sorted.length);
+            op.put("errors", errorCount);
+            op.put("throughputPerSecond", round(sorted.length / elapsedSeconds));
+            Map<String, Object> latency = new LinkedHashMap<>();
+            if (sorted.length > 0) {
+                latency.put("min", millis(sorted[0]));
+                latency.put("mean", millis((long) Arrays.stream(sorted).average().orElse(0)));
+                latency.put("p50", millis(percentile(sorted, 0.50)));
+                latency.put("p99", millis(percentile(sorted, 0.99)));
+                latency.put("p999", millis(percentile(sorted, 0.999)));
+                latency.put("max", millis(sorted[sorted.length - 1]));
+            }
+            op.put("latencyMs", latency);
+            summary.put(operation.label(), op);
+        }
+        return summary;
+    }
+
+    /**
+     * @return the nearest-rank percentile of the sorted samples
+     */
+    static long percentile(long[] sorted, double quantile) {
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000d;
+    }
+
+    private static class Samples {
+
+        private long[] values = new long[1024];
+
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(Samples other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+
+    }
+
+}
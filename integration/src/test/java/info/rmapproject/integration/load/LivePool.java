@@ -0,0 +1,46 @@
+package info.rmapproject.integration.load;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The live DiSCOs created by a run.  A DiSCO is {@link #take(Random) taken} out of the pool while it is updated, so
+ * that two workers never update the same DiSCO, and the new version is {@link #put(URI) put} back.
+ */
+class LivePool {
+
+    private final List<URI> discos = new ArrayList<>();
+
+    synchronized void put(URI disco) {
+        discos.add(disco);
+    }
+
+    /**
+     * @return a live DiSCO, chosen uniformly, or {@code null} if the pool is empty
+     */
+    synchronized URI peek(Random random) {
+        return discos.isEmpty() ? null : discos.get(random.nextInt(discos.size()));
+    }
+
+    /**
+     * @return a live DiSCO, chosen uniformly and removed from the pool, or {@code null} if the pool is empty
+     */
+    synchronized URI take(Random random) {
+        if (discos.isEmpty()) {
+            return null;
+        }
+        int i = random.nextInt(discos.size());
+        URI disco = discos.get(i);
+        // swap with the last element so removal is constant time
+        discos.set(i, discos.get(discos.size() - 1));
+        discos.remove(discos.size() - 1);
+        return disco;
+    }
+
+    synchronized int size() {
+        return discos.size();
+    }
+
+}
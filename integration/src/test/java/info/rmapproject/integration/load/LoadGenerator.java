@@ -0,0 +1,165 @@
+package info.rmapproject.integration.load;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.eclipse.rdf4j.model.Model;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drives a mixed create/update/read/list workload against a {@link LoadTarget} from a fixed number of concurrent
+ * workers, and summarizes the throughput and latency of each operation.
+ * <p>
+ * A run seeds the target with DiSCOs, then runs the workload for a warm-up period whose samples are discarded, then
+ * for the measured period.  Each worker chooses its operations and DiSCO sizes from its own random source, seeded from
+ * {@link LoadSettings#getSeed()}, so the mix of a run is repeatable; the interleaving of the workers is not.  Reads and
+ * updates fall back to creates while there is no live DiSCO to operate on.
+ * </p>
+ */
+public class LoadGenerator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private final LoadSettings settings;
+
+    private final WeightedChoice<Operation> mix;
+
+    private final DiscoGenerator discos;
+
+    public LoadGenerator(LoadSettings settings) {
+        this.settings = settings;
+        this.mix = new WeightedChoice<>(settings.getMix());
+        this.discos = new DiscoGenerator(settings);
+    }
+
+    /**
+     * Runs the workload against the supplied target.
+     *
+     * @param name the name of the target, used in log messages
+     * @param targets supplies a target for each worker
+     * @return the summary of the measured period
+     * @throws Exception if the target could not be seeded, or a worker failed unexpectedly
+     */
+    public Map<String, Object> run(String name, Supplier<LoadTarget> targets) throws Exception {
+        List<LoadTarget> workerTargets = new ArrayList<>();
+        for (int i = 0; i < settings.getThreads(); i++) {
+            workerTargets.add(targets.get());
+        }
+
+        LivePool pool = new LivePool();
+        Random seedRandom = new Random(settings.getSeed());
+        LOG.info("Seeding {} with {} DiSCOs", name, settings.getSeedDiscos());
+        for (int i = 0; i < settings.getSeedDiscos(); i++) {
+            pool.put(workerTargets.get(0).create(discos.next(seedRandom)));
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(settings.getThreads());
+        try {
+            List<Random> randoms = new ArrayList<>();
+            for (int i = 0; i < settings.getThreads(); i++) {
+                randoms.add(new Random(settings.getSeed() + i + 1));
+            }
+
+            if (settings.getWarmupSeconds() > 0) {
+                LOG.info("Warming up {} for {} s with {} workers", name, settings.getWarmupSeconds(),
+                        settings.getThreads());
+                runPhase(workers, workerTargets, randoms, pool, settings.getWarmupSeconds());
+            }
+
+            LOG.info("Measuring {} for {} s with {} workers", name, settings.getDurationSeconds(),
+                    settings.getThreads());
+            long start = System.nanoTime();
+            List<LatencyRecorder> recorders =
+                    runPhase(workers, workerTargets, randoms, pool, settings.getDurationSeconds());
+            long elapsed = System.nanoTime() - start;
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("threads", settings.getThreads());
+            summary.put("elapsedSeconds", Math.round(elapsed / 1e6) / 1e3);
+            summary.put("liveDiscos", pool.size());
+            summary.put("operations", LatencyRecorder.merge(recorders, elapsed));
+            return summary;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private List<LatencyRecorder> runPhase(ExecutorService workers, List<LoadTarget> targets, List<Random> randoms,
+                                           LivePool pool, int seconds) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<LatencyRecorder>> futures = new ArrayList<>();
+        for (int i = 0; i < targets.size(); i++) {
+            LoadTarget target = targets.get(i);
+            Random random = randoms.get(i);
+            futures.add(workers.submit(() -> work(target, random, pool, deadline)));
+        }
+
+        List<LatencyRecorder> recorders = new ArrayList<>();
+        for (Future<LatencyRecorder> future : futures) {
+            recorders.add(future.get());
+        }
+        return recorders;
+    }
+
+    private LatencyRecorder work(LoadTarget target, Random random, LivePool pool, long deadline) {
+        LatencyRecorder recorder = new LatencyRecorder();
+        while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+            Operation operation = mix.next(random);
+            URI disco = null;
+            if (operation == Operation.UPDATE) {
+                disco = pool.take(random);
+            } else if (operation == Operation.READ) {
+                disco = pool.peek(random);
+            }
+            if (disco == null && (operation == Operation.UPDATE || operation == Operation.READ)) {
+                operation = Operation.CREATE;
+            }
+
+            // generate inputs outside of the timed section
+            Model newDisco = operation == Operation.CREATE || operation == Operation.UPDATE ? discos.next(random) : null;
+            URI resource = operation == Operation.LIST ? discos.sharedResource(random) : null;
+
+            long start = System.nanoTime();
+            try {
+                switch (operation) {
+                    case CREATE:
+                        pool.put(target.create(newDisco));
+                        break;
+                    case UPDATE:
+                        URI updated = target.update(disco, newDisco);
+                        disco = null;
+                        pool.put(updated);
+                        break;
+                    case READ:
+                        target.read(disco);
+                        break;
+                    case LIST:
+                        target.list(resource);
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown operation " + operation);
+                }
+                recorder.success(operation, System.nanoTime() - start);
+            } catch (Exception e) {
+                LOG.debug("{} failed: {}", operation.label(), e.getMessage(), e);
+                recorder.error(operation);
+                if (operation == Operation.UPDATE && disco != null) {
+                    // the DiSCO was not updated, so it is still live
+                    pool.put(disco);
+                }
+            }
+        }
+        return recorder;
+    }
+
+}
@@ -0,0 +1,171 @@
+package info.rmapproject.integration.load;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Settings of a load test, read from system properties prefixed with {@code load.}, e.g.
+ * {@code -Dload.threads=16 -Dload.mix=create:10,update:10,read:60,list:20}.
+ * <dl>
+ *     <dt>load.targets</dt>
+ *     <dd>comma-separated targets to drive, in order: {@code service} ({@code RMapService}) and/or {@code api}
+ *         ({@code DiSCOApiService} and {@code ResourceApiService}); default {@code service,api}</dd>
+ *     <dt>load.threads</dt>
+ *     <dd>number of concurrent workers; default 4</dd>
+ *     <dt>load.warmupSeconds, load.durationSeconds</dt>
+ *     <dd>length of the un-measured warm-up and of the measured run, per target; default 10 and 60</dd>
+ *     <dt>load.seedDiscos</dt>
+ *     <dd>number of DiSCOs created before the warm-up, so reads and updates have something to work on; default 50</dd>
+ *     <dt>load.mix</dt>
+ *     <dd>relative weights of the operations; default {@code create:20,update:10,read:50,list:20}</dd>
+ *     <dt>load.discoSizes</dt>
+ *     <dd>distribution of DiSCO sizes, as relative weights of numbers of aggregated resources; default
+ *         {@code 5:70,50:25,500:5}</dd>
+ *     <dt>load.sharedResources</dt>
+ *     <dd>number of resources shared between DiSCOs, which are the subjects of list operations; default 1000</dd>
+ *     <dt>load.seed</dt>
+ *     <dd>seed of the random workload; default 42</dd>
+ *     <dt>load.report</dt>
+ *     <dd>file the JSON report is written to; default {@code target/load-test-report.json}</dd>
+ * </dl>
+ */
+public class LoadSettings {
+
+    static final String PREFIX = "load.";
+
+    private String[] targets = {"service", "api"};
+
+    private int threads = 4;
+
+    private int warmupSeconds = 10;
+
+    private int durationSeconds = 60;
+
+    private int seedDiscos = 50;
+
+    private Map<Operation, Integer> mix = parseWeights("create:20,update:10,read:50,list:20", Operation::parse);
+
+    private Map<Integer, Integer> discoSizes = parseWeights("5:70,50:25,500:5", Integer::parseInt);
+
+    private int sharedResources = 1000;
+
+    private long seed = 42;
+
+    private String report = "target/load-test-report.json";
+
+    /**
+     * @return settings with the defaults overridden by any {@code load.} system properties
+     */
+    public static LoadSettings fromSystemProperties() {
+        LoadSettings settings = new LoadSettings();
+        String value;
+        if ((value = property("targets")) != null) {
+            settings.targets = value.split("\\s*,\\s*");
+        }
+        if ((value = property("threads")) != null) {
+            settings.threads = positive("threads", value);
+        }
+        if ((value = property("warmupSeconds")) != null) {
+            settings.warmupSeconds = Integer.parseInt(value);
+        }
+        if ((value = property("durationSeconds")) != null) {
+            settings.durationSeconds = positive("durationSeconds", value);
+        }
+        if ((value = property("seedDiscos")) != null) {
+            settings.seedDiscos = positive("seedDiscos", value);
+        }
+        if ((value = property("mix")) != null) {
+            settings.mix = parseWeights(value, Operation::parse);
+        }
+        if ((value = property("discoSizes")) != null) {
+            settings.discoSizes = parseWeights(value, Integer::parseInt);
+        }
+        if ((value = property("sharedResources")) != null) {
+            settings.sharedResources = positive("sharedResources", value);
+        }
+        if ((value = property("seed")) != null) {
+            settings.seed = Long.parseLong(value);
+        }
+        if ((value = property("report")) != null) {
+            settings.report = value;
+        }
+        return settings;
+    }
+
+    /**
+     * Parses relative weights expressed as {@code key:weight} pairs separated by commas.
+     */
+    static <T> Map<T, Integer> parseWeights(String value, Function<String, T> keyParser) {
+        Map<T, Integer> weights = new LinkedHashMap<>();
+        for (String pair : value.split("\\s*,\\s*")) {
+            String[] keyAndWeight = pair.split("\\s*:\\s*");
+            if (keyAndWeight.length != 2) {
+                throw new IllegalArgumentException("Expected key:weight, but was '" + pair + "' in '" + value + "'");
+            }
+            int weight = Integer.parseInt(keyAndWeight[1]);
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weights must not be negative: '" + value + "'");
+            }
+            weights.put(keyParser.apply(keyAndWeight[0]), weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("At least one weight must be positive: '" + value + "'");
+        }
+        return weights;
+    }
+
+    private static String property(String name) {
+        String value = System.getProperty(PREFIX + name);
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    private static int positive(String name, String value) {
+        int i = Integer.parseInt(value);
+        if (i < 1) {
+            throw new IllegalArgumentException(PREFIX + name + " must be a positive integer, but was " + value);
+        }
+        return i;
+    }
+
+    public String[] getTargets() {
+        return targets;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getSeedDiscos() {
+        return seedDiscos;
+    }
+
+    public Map<Operation, Integer> getMix() {
+        return mix;
+    }
+
+    public Map<Integer, Integer> getDiscoSizes() {
+        return discoSizes;
+    }
+
+    public int getSharedResources() {
+        return sharedResources;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public String getReport() {
+        return report;
+    }
+
+}
@@ -0,0 +1,36 @@
+package info.rmapproject.integration.load;
+
+import java.net.URI;
+
+import org.eclipse.rdf4j.model.Model;
+
+/**
+ * The interface driven by the load generator.  Each worker thread of the generator uses its own instance, so
+ * implementations need not be thread safe.  Implementations throw an exception when an operation fails.
+ */
+public interface LoadTarget {
+
+    /**
+     * @param disco the statements of a new DiSCO, identified by a blank node
+     * @return the URI of the created DiSCO
+     */
+    URI create(Model disco) throws Exception;
+
+    /**
+     * @param discoUri the URI of the live DiSCO to update
+     * @param disco the statements of the new version of the DiSCO, identified by a blank node
+     * @return the URI of the new version of the DiSCO
+     */
+    URI update(URI discoUri, Model disco) throws Exception;
+
+    /**
+     * @param discoUri the URI of the DiSCO to read
+     */
+    void read(URI discoUri) throws Exception;
+
+    /**
+     * @param resourceUri the URI of a resource
+     */
+    void list(URI resourceUri) throws Exception;
+
+}
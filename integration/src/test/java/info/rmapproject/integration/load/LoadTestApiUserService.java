@@ -0,0 +1,32 @@
+package info.rmapproject.integration.load;
+
+import org.apache.cxf.configuration.security.AuthorizationPolicy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import info.rmapproject.api.auth.ApiUserServiceImpl;
+import info.rmapproject.auth.service.RMapAuthService;
+
+/**
+ * Authenticates every API request of a load test with a fixed API key, standing in for the credentials CXF would
+ * take from the HTTP request.  By default, the key of the test user created by {@code create-rmap-agent.sql}.
+ */
+public class LoadTestApiUserService extends ApiUserServiceImpl {
+
+    private final AuthorizationPolicy authorizationPolicy = new AuthorizationPolicy();
+
+    @Autowired
+    public LoadTestApiUserService(RMapAuthService rmapAuthService,
+                                  @Value("${load.accessKey:uah2CKDaBsEw3cEQ}") String accessKey,
+                                  @Value("${load.secret:NSbdzctrP46ZvhTi}") String secret) {
+        super(rmapAuthService);
+        authorizationPolicy.setUserName(accessKey);
+        authorizationPolicy.setPassword(secret);
+    }
+
+    @Override
+    public AuthorizationPolicy getCurrentAuthPolicy() {
+        return authorizationPolicy;
+    }
+
+}
@@ -0,0 +1,138 @@
+package info.rmapproject.integration.load;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import info.rmapproject.api.service.DiSCOApiService;
+import info.rmapproject.api.service.ResourceApiService;
+import info.rmapproject.core.model.impl.rdf4j.ORAdapter;
+import info.rmapproject.core.model.impl.rdf4j.ORMapAgent;
+import info.rmapproject.core.model.request.RMapSearchParams;
+import info.rmapproject.core.model.request.RequestEventDetails;
+import info.rmapproject.core.rdfhandler.impl.rdf4j.RioRDFHandler;
+import info.rmapproject.core.rmapservice.RMapService;
+import info.rmapproject.core.rmapservice.impl.rdf4j.triplestore.Rdf4jTriplestore;
+import info.rmapproject.testdata.service.TestConstants;
+
+/**
+ * Runs the load generator against the in-memory stack: the in-memory triplestore and id service, an embedded Solr, and
+ * a mocked Kafka template.  The API key used by the {@code api} target is read from the auth database, so the Docker
+ * database started by this module must be running.
+ * <p>
+ * Skipped unless {@code load.enabled} is {@code true}; see {@link LoadSettings} for the other settings, e.g.
+ * </p>
+ * <pre>
+ * mvn verify -pl integration -Dit.test=LoadTestIT -Dload.enabled=true -Dload.threads=8 -Dcargo.maven.skip
+ * </pre>
+ * <p>
+ * The throughput and p50/p99/p999 latency of each operation, per target, are logged and written as JSON to
+ * {@code load.report}.
+ * </p>
+ */
+@WebAppConfiguration
+@RunWith(SpringJUnit4ClassRunner.class)
+@ActiveProfiles({"default", "inmemory-triplestore", "inmemory-idservice", "inmemory-db", "embedded-solr", "mock-kafka"})
+@ContextConfiguration({"classpath:/beans.xml", "classpath:/load-test-context.xml"})
+public class LoadTestIT {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadTestIT.class);
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private Rdf4jTriplestore triplestore;
+
+    @BeforeClass
+    public static void onlyWhenEnabled() {
+        assumeTrue("Load test is disabled, enable with -D" + LoadSettings.PREFIX + "enabled=true",
+                Boolean.getBoolean(LoadSettings.PREFIX + "enabled"));
+    }
+
+    @Test
+    public void runLoadTest() throws Exception {
+        LoadSettings settings = LoadSettings.fromSystemProperties();
+        LoadGenerator generator = new LoadGenerator(settings);
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        for (String target : settings.getTargets()) {
+            // start each target from an empty triplestore, so their results are comparable
+            triplestore.getConnection().clear();
+            RequestEventDetails requestEventDetails = createSystemAgent();
+            results.put(target, generator.run(target, targets(target, requestEventDetails)));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("settings", settings);
+        report.put("targets", results);
+
+        ObjectMapper mapper = new ObjectMapper();
+        File reportFile = new File(settings.getReport());
+        if (reportFile.getParentFile() != null) {
+            reportFile.getParentFile().mkdirs();
+        }
+        mapper.writerWithDefaultPrettyPrinter().writeValue(reportFile, report);
+        LOG.info("Load test report written to {}:\n{}", reportFile.getAbsolutePath(),
+                mapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+
+        assertFalse(results.isEmpty());
+    }
+
+    private Supplier<LoadTarget> targets(String target, RequestEventDetails requestEventDetails) {
+        RioRDFHandler rdfHandler = context.getBean("rdfHandler", RioRDFHandler.class);
+        switch (target) {
+            case "service":
+                @SuppressWarnings("unchecked")
+                Supplier<URI> idSupplier = context.getBean("idSupplier", Supplier.class);
+                return () -> new RMapServiceTarget(context.getBean(RMapService.class), idSupplier,
+                        () -> context.getBean(RMapSearchParams.class), requestEventDetails);
+            case "api":
+                return () -> new ApiServiceTarget(
+                        context.getAutowireCapableBeanFactory().createBean(DiSCOApiService.class),
+                        context.getAutowireCapableBeanFactory().createBean(ResourceApiService.class),
+                        rdfHandler);
+            default:
+                throw new IllegalArgumentException("Unknown load target '" + target + "', expected service or api");
+        }
+    }
+
+    /**
+     * Creates the test system agent used by the {@code service} target.  The {@code api} target acts as the agent of
+     * its API key, which the API creates on first use.
+     */
+    private RequestEventDetails createSystemAgent() throws Exception {
+        RMapService rmapService = context.getBean(RMapService.class);
+        IRI agentIri = ORAdapter.getValueFactory().createIRI(TestConstants.SYSAGENT_ID);
+        if (!rmapService.isAgentId(URI.create(TestConstants.SYSAGENT_ID))) {
+            ORMapAgent sysagent = new ORMapAgent(agentIri,
+                    ORAdapter.getValueFactory().createIRI(TestConstants.SYSAGENT_ID_PROVIDER),
+                    ORAdapter.getValueFactory().createIRI(TestConstants.SYSAGENT_AUTH_ID),
+                    ORAdapter.getValueFactory().createLiteral(TestConstants.SYSAGENT_NAME));
+            rmapService.createAgent(sysagent, new RequestEventDetails(URI.create(TestConstants.SYSAGENT_ID),
+                    URI.create(TestConstants.SYSAGENT_KEY)));
+        }
+        return new RequestEventDetails(URI.create(TestConstants.SYSAGENT_ID), URI.create(TestConstants.SYSAGENT_KEY));
+    }
+
+}
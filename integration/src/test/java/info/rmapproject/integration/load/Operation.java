@@ -0,0 +1,31 @@
+package info.rmapproject.integration.load;
+
+/**
+ * Operations performed by the load generator.
+ */
+public enum Operation {
+
+    /** creates a DiSCO */
+    CREATE,
+
+    /** updates a live DiSCO, replacing it with a new version */
+    UPDATE,
+
+    /** reads a live DiSCO */
+    READ,
+
+    /** lists the DiSCOs that reference a shared resource */
+    LIST;
+
+    static Operation parse(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+
+    /**
+     * @return the name of the operation as it appears in settings and reports
+     */
+    public String label() {
+        return name().toLowerCase();
+    }
+
+}
@@ -0,0 +1,66 @@
+package info.rmapproject.integration.load;
+
+import java.net.URI;
+import java.util.function.Supplier;
+
+import org.eclipse.rdf4j.model.Model;
+
+import info.rmapproject.core.model.disco.RMapDiSCO;
+import info.rmapproject.core.model.impl.rdf4j.OStatementsAdapter;
+import info.rmapproject.core.model.request.RMapSearchParams;
+import info.rmapproject.core.model.request.RequestEventDetails;
+import info.rmapproject.core.rmapservice.RMapService;
+
+/**
+ * Drives {@link RMapService} directly.  Creates and updates include converting the statements to a DiSCO, as the
+ * API does once it has parsed a request.
+ */
+class RMapServiceTarget implements LoadTarget {
+
+    private final RMapService rmapService;
+
+    private final Supplier<URI> idSupplier;
+
+    private final Supplier<RMapSearchParams> searchParams;
+
+    private final RequestEventDetails requestEventDetails;
+
+    /**
+     * @param rmapService the service, used by a single worker
+     * @param idSupplier mints the ids of new DiSCOs
+     * @param searchParams supplies default search parameters
+     * @param requestEventDetails the agent responsible for creates and updates
+     */
+    RMapServiceTarget(RMapService rmapService, Supplier<URI> idSupplier, Supplier<RMapSearchParams> searchParams,
+                      RequestEventDetails requestEventDetails) {
+        this.rmapService = rmapService;
+        this.idSupplier = idSupplier;
+        this.searchParams = searchParams;
+        this.requestEventDetails = requestEventDetails;
+    }
+
+    @Override
+    public URI create(Model disco) throws Exception {
+        RMapDiSCO rmapDisco = OStatementsAdapter.asDisco(disco, idSupplier);
+        rmapService.createDiSCO(rmapDisco, requestEventDetails);
+        return rmapDisco.getId().getIri();
+    }
+
+    @Override
+    public URI update(URI discoUri, Model disco) throws Exception {
+        RMapDiSCO rmapDisco = OStatementsAdapter.asDisco(disco, idSupplier);
+        rmapService.updateDiSCO(discoUri, rmapDisco, requestEventDetails);
+        return rmapDisco.getId().getIri();
+    }
+
+    @Override
+    public void read(URI discoUri) throws Exception {
+        rmapService.readDiSCO(discoUri);
+    }
+
+    @Override
+    public void list(URI resourceUri) throws Exception {
+        rmapService.getResourceRelatedDiSCOs(resourceUri, searchParams.get());
+    }
+
+}
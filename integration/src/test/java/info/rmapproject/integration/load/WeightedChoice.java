@@ -0,0 +1,40 @@
+package info.rmapproject.integration.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Chooses between values with probabilities proportional to their weights.
+ */
+class WeightedChoice<T> {
+
+    private final List<T> values = new ArrayList<>();
+
+    private final int[] cumulativeWeights;
+
+    private final int totalWeight;
+
+    WeightedChoice(Map<T, Integer> weights) {
+        cumulativeWeights = new int[weights.size()];
+        int total = 0;
+        for (Map.Entry<T, Integer> weight : weights.entrySet()) {
+            total += weight.getValue();
+            cumulativeWeights[values.size()] = total;
+            values.add(weight.getKey());
+        }
+        totalWeight = total;
+    }
+
+    T next(Random random) {
+        int r = random.nextInt(totalWeight);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (r < cumulativeWeights[i]) {
+                return values.get(i);
+            }
+        }
+        throw new IllegalStateException("Unreachable: " + r + " >= " + totalWeight);
+    }
+
+}
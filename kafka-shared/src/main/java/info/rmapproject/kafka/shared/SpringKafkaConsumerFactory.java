@@ -25,4 +25,8 @@ public class SpringKafkaConsumerFactory {
     public static Consumer newConsumer(String clientIdSuffix) {
         return factory.createConsumer(clientIdSuffix);
     }
+
+    public static Consumer newConsumer(String groupId, String clientIdSuffix) {
+        return factory.createConsumer(groupId, clientIdSuffix);
+    }
 }
@@ -1,5 +1,6 @@
 package info.rmapproject.kafka.shared;
 
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.util.concurrent.SettableListenableFuture;
 
@@ -20,6 +21,7 @@ public class MockKafkaTemplateFactory {
         SettableListenableFuture future = mock(SettableListenableFuture.class);
         when(future.get(30000, TimeUnit.MILLISECONDS)).thenReturn(null);
         when(template.send(any(), any(), any())).thenReturn(future);
+        when(template.send(any(ProducerRecord.class))).thenReturn(future);
         return template;
     }
 
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.testdata.corpus;
+
+/**
+ * An agent of a generated corpus, with the properties required of an RMap Agent.
+ */
+public class CorpusAgent {
+
+	private final int index;
+
+	private final String iri;
+
+	private final String name;
+
+	private final String identityProvider;
+
+	private final String authId;
+
+	CorpusAgent(int index, String iri, String name, String identityProvider, String authId) {
+		this.index = index;
+		this.iri = iri;
+		this.name = name;
+		this.identityProvider = identityProvider;
+		this.authId = authId;
+	}
+
+	/**
+	 * @return the index of the agent in the corpus, from 0
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return the IRI of the agent
+	 */
+	public String getIri() {
+		return iri;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getIdentityProvider() {
+		return identityProvider;
+	}
+
+	public String getAuthId() {
+		return authId;
+	}
+
+}
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.testdata.corpus;
+
+import java.util.Arrays;
+
+/**
+ * A DiSCO of a generated corpus, in the form a client would submit it: the DiSCO is identified by a blank node
+ * ({@link #getNode()}), and its statements are terms in N-Triples syntax.  Blank node labels are unique within the
+ * corpus, so the statements of several DiSCOs can be written to the same document.
+ * <p>
+ * Instances are reused by the generator: a DiSCO is only valid until {@link CorpusSink#disco(CorpusDisco)} returns.
+ * </p>
+ */
+public class CorpusDisco {
+
+	/**
+	 * How a DiSCO relates to the DiSCOs generated before it.
+	 */
+	public enum Kind {
+
+		/** the first DiSCO of a new lineage */
+		CREATION,
+
+		/** a new version of the predecessor, by the agent of the predecessor */
+		UPDATE,
+
+		/** the first DiSCO of a new lineage, derived from the predecessor by a different agent */
+		DERIVATION
+
+	}
+
+	/**
+	 * Receives a statement, as three terms in N-Triples syntax.
+	 */
+	@FunctionalInterface
+	public interface StatementHandler {
+
+		void statement(String subject, String predicate, String object) throws Exception;
+
+	}
+
+	private long sequence;
+
+	private Kind kind;
+
+	private long predecessor;
+
+	private long lineage;
+
+	private CorpusAgent agent;
+
+	private String node;
+
+	private String[] terms = new String[3 * 64];
+
+	private int size;
+
+	void reset(long sequence, Kind kind, long predecessor, long lineage, CorpusAgent agent) {
+		this.sequence = sequence;
+		this.kind = kind;
+		this.predecessor = predecessor;
+		this.lineage = lineage;
+		this.agent = agent;
+		this.node = "_:d" + sequence;
+		this.size = 0;
+	}
+
+	void add(String subject, String predicate, String object) {
+		if (3 * (size + 1) > terms.length) {
+			terms = Arrays.copyOf(terms, terms.length * 2);
+		}
+		int i = 3 * size++;
+		terms[i] = subject;
+		terms[i + 1] = predicate;
+		terms[i + 2] = object;
+	}
+
+	/**
+	 * @return the position of the DiSCO in the corpus, from 0
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return the sequence of the DiSCO this DiSCO updates or is derived from, or -1 for a {@link Kind#CREATION}
+	 */
+	public long getPredecessor() {
+		return predecessor;
+	}
+
+	/**
+	 * @return the sequence of the first DiSCO of the lineage of this DiSCO; its own sequence unless this DiSCO is
+	 *         an {@link Kind#UPDATE}
+	 */
+	public long getLineage() {
+		return lineage;
+	}
+
+	/**
+	 * @return the agent creating the DiSCO
+	 */
+	public CorpusAgent getAgent() {
+		return agent;
+	}
+
+	/**
+	 * @return the blank node identifying the DiSCO in its statements, in N-Triples syntax
+	 */
+	public String getNode() {
+		return node;
+	}
+
+	public int getStatementCount() {
+		return size;
+	}
+
+	/**
+	 * @param handler receives each statement of the DiSCO
+	 * @throws Exception if thrown by the handler
+	 */
+	public void forEachStatement(StatementHandler handler) throws Exception {
+		for (int i = 0; i < 3 * size; i += 3) {
+			handler.statement(terms[i], terms[i + 1], terms[i + 2]);
+		}
+	}
+
+	/**
+	 * @return the statements of the DiSCO as an N-Triples document, which is also valid Turtle
+	 */
+	public String toNTriples() {
+		StringBuilder sb = new StringBuilder(size * 100);
+		for (int i = 0; i < 3 * size; i += 3) {
+			sb.append(terms[i]).append(' ').append(terms[i + 1]).append(' ').append(terms[i + 2]).append(" .\n");
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,520 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.testdata.corpus;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import info.rmapproject.testdata.corpus.CorpusDisco.Kind;
+
+/**
+ * Generates a synthetic corpus of agents and DiSCOs for benchmarks and capacity tests.  The corpus is determined by
+ * the settings and the seed, so the same corpus can be regenerated rather than stored.  DiSCOs are generated one at a
+ * time and handed to a {@link CorpusSink}, so corpora of millions of DiSCOs can be streamed in constant memory, apart
+ * from a few bytes per lineage.
+ * <p>
+ * The corpus is shaped after production data:
+ * </p>
+ * <ul>
+ *     <li>Agents create DiSCOs with Zipfian popularity, so a few agents create most DiSCOs.</li>
+ *     <li>A share of the DiSCOs are {@link Kind#UPDATE updates} of an earlier lineage by its agent, and a share are
+ *         {@link Kind#DERIVATION derivations} from an earlier lineage by another agent, so lineages have several
+ *         versions.</li>
+ *     <li>The number of aggregated works per DiSCO is geometrically distributed, so most DiSCOs are small and a few
+ *         are large.</li>
+ *     <li>Works are described by a type, a title, and one or more blank-node authors, who may have a blank-node
+ *         affiliation.</li>
+ *     <li>Works are part of, and reference, a pool of hot resources with Zipfian popularity, and some DiSCOs aggregate
+ *         a hot resource directly, so a few resources are referenced by a large share of the corpus.</li>
+ * </ul>
+ * <p>
+ * With the default settings a DiSCO has about 80 statements on average, so a corpus of 1 million DiSCOs has about
+ * 80 million statements.
+ * </p>
+ */
+public class CorpusGenerator {
+
+	/** Base of the IRIs of the agents, works and hot resources of a corpus */
+	public static final String BASE = "http://example.org/rmap-corpus/";
+
+	static final String RDF_TYPE = "<http://www.w3.org/1999/02/22-rdf-syntax-ns#type>";
+
+	static final String RMAP_DISCO = "<http://purl.org/ontology/rmap#DiSCO>";
+
+	static final String RMAP_AGENT = "<http://purl.org/ontology/rmap#Agent>";
+
+	static final String RMAP_IDENTITY_PROVIDER = "<http://purl.org/ontology/rmap#identityProvider>";
+
+	static final String RMAP_USER_AUTH_ID = "<http://purl.org/ontology/rmap#userAuthId>";
+
+	static final String ORE_AGGREGATES = "<http://www.openarchives.org/ore/terms/aggregates>";
+
+	static final String DCTERMS_CREATOR = "<http://purl.org/dc/terms/creator>";
+
+	static final String DCTERMS_DESCRIPTION = "<http://purl.org/dc/terms/description>";
+
+	static final String DCTERMS_TITLE = "<http://purl.org/dc/terms/title>";
+
+	static final String DCTERMS_IS_PART_OF = "<http://purl.org/dc/terms/isPartOf>";
+
+	static final String DCTERMS_REFERENCES = "<http://purl.org/dc/terms/references>";
+
+	static final String FOAF_NAME = "<http://xmlns.com/foaf/0.1/name>";
+
+	static final String FOAF_PERSON = "<http://xmlns.com/foaf/0.1/Person>";
+
+	static final String FOAF_ORGANIZATION = "<http://xmlns.com/foaf/0.1/Organization>";
+
+	static final String SCHEMA_AFFILIATION = "<http://schema.org/affiliation>";
+
+	private static final String[] WORK_TYPES = {
+			"<http://purl.org/spar/fabio/JournalArticle>", "<http://purl.org/spar/fabio/ConferencePaper>",
+			"<http://purl.org/spar/fabio/Dataset>", "<http://purl.org/spar/fabio/ComputerProgram>",
+			"<http://purl.org/spar/fabio/Preprint>" };
+
+	private static final int ORGANIZATIONS = 1000;
+
+	private final long seed;
+
+	private long discoCount = 1000;
+
+	private int agentCount = 10;
+
+	private int hotResourceCount = 10000;
+
+	private double zipfExponent = 1.0;
+
+	private double updateRatio = 0.2;
+
+	private double derivationRatio = 0.05;
+
+	private double meanAggregates = 5;
+
+	private int maxAggregates = 200;
+
+	private double hotAggregateRatio = 0.1;
+
+	private int maxAuthors = 4;
+
+	/**
+	 * @param seed the seed of the corpus
+	 */
+	public CorpusGenerator(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Creates a generator from command line options, given as {@code --option value} pairs: {@code --seed},
+	 * {@code --discos}, {@code --agents}, {@code --hotResources}, {@code --zipf}, {@code --updateRatio},
+	 * {@code --derivationRatio}, {@code --meanAggregates}, {@code --maxAggregates}, {@code --hotAggregateRatio}
+	 * and {@code --maxAuthors}.
+	 *
+	 * @param args the command line arguments
+	 * @param offset the index of the first option in {@code args}
+	 * @return the configured generator; the seed is 0 unless set
+	 * @throws IllegalArgumentException if an option is unknown, has no value, or has an invalid value
+	 */
+	public static CorpusGenerator fromOptions(String[] args, int offset) {
+		if ((args.length - offset) % 2 != 0) {
+			throw new IllegalArgumentException("Options must be given as --option value pairs.");
+		}
+		long seed = 0;
+		for (int i = offset; i < args.length; i += 2) {
+			if ("--seed".equals(args[i])) {
+				seed = Long.parseLong(args[i + 1]);
+			}
+		}
+		CorpusGenerator generator = new CorpusGenerator(seed);
+		for (int i = offset; i < args.length; i += 2) {
+			generator.configure(args[i], args[i + 1]);
+		}
+		return generator;
+	}
+
+	private void configure(String option, String value) {
+		switch (option) {
+			case "--seed":
+				break;
+			case "--discos":
+				setDiscoCount(Long.parseLong(value));
+				break;
+			case "--agents":
+				setAgentCount(Integer.parseInt(value));
+				break;
+			case "--hotResources":
+				setHotResourceCount(Integer.parseInt(value));
+				break;
+			case "--zipf":
+				setZipfExponent(Double.parseDouble(value));
+				break;
+			case "--updateRatio":
+				setUpdateRatio(Double.parseDouble(value));
+				break;
+			case "--derivationRatio":
+				setDerivationRatio(Double.parseDouble(value));
+				break;
+			case "--meanAggregates":
+				setMeanAggregates(Double.parseDouble(value));
+				break;
+			case "--maxAggregates":
+				setMaxAggregates(Integer.parseInt(value));
+				break;
+			case "--hotAggregateRatio":
+				setHotAggregateRatio(Double.parseDouble(value));
+				break;
+			case "--maxAuthors":
+				setMaxAuthors(Integer.parseInt(value));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option " + option);
+		}
+	}
+
+	/**
+	 * Generates the corpus, handing every agent and then every DiSCO to the sink.
+	 *
+	 * @param sink receives the corpus
+	 * @return the number of DiSCO statements generated
+	 * @throws Exception if thrown by the sink
+	 */
+	public long generate(CorpusSink sink) throws Exception {
+		SplittableRandom random = new SplittableRandom(seed);
+
+		CorpusAgent[] agents = new CorpusAgent[agentCount];
+		for (int i = 0; i < agentCount; i++) {
+			agents[i] = new CorpusAgent(i, BASE + "agent/" + i, "Corpus Agent " + i, BASE + "idp",
+					BASE + "auth/" + i);
+			sink.agent(agents[i]);
+		}
+
+		ZipfDistribution agentPopularity = new ZipfDistribution(agentCount, zipfExponent);
+		ZipfDistribution hotPopularity = new ZipfDistribution(hotResourceCount, zipfExponent);
+		Lineages lineages = new Lineages();
+		CorpusDisco disco = new CorpusDisco();
+		long statements = 0;
+
+		for (long sequence = 0; sequence < discoCount; sequence++) {
+			double r = random.nextDouble();
+			int lineage;
+			int aggregates;
+			long works;
+			if (lineages.size > 0 && r < updateRatio) {
+				lineage = random.nextInt(lineages.size);
+				disco.reset(sequence, Kind.UPDATE, lineages.heads[lineage], lineages.progenitors[lineage],
+						agents[lineages.owners[lineage]]);
+				lineages.heads[lineage] = sequence;
+				// a new version keeps the works of the previous version, and may add or drop one
+				aggregates = clamp(lineages.aggregates[lineage] + random.nextInt(3) - 1);
+				works = lineages.works[lineage];
+			} else if (lineages.size > 0 && agentCount > 1 && r < updateRatio + derivationRatio) {
+				int source = random.nextInt(lineages.size);
+				int agent = agentPopularity.sample(random);
+				if (agent == lineages.owners[source]) {
+					agent = (agent + 1) % agentCount;
+				}
+				disco.reset(sequence, Kind.DERIVATION, lineages.heads[source], sequence, agents[agent]);
+				aggregates = clamp(lineages.aggregates[source] + random.nextInt(3));
+				works = lineages.works[source];
+				lineage = lineages.add(sequence, agent, works);
+			} else {
+				int agent = agentPopularity.sample(random);
+				disco.reset(sequence, Kind.CREATION, -1, sequence, agents[agent]);
+				aggregates = sampleAggregates(random);
+				works = sequence;
+				lineage = lineages.add(sequence, agent, works);
+			}
+			lineages.aggregates[lineage] = aggregates;
+
+			describe(disco, aggregates, works, random, hotPopularity);
+			statements += disco.getStatementCount();
+			sink.disco(disco);
+		}
+
+		return statements;
+	}
+
+	private void describe(CorpusDisco disco, int aggregates, long works, SplittableRandom random,
+						  ZipfDistribution hotPopularity) {
+		String node = disco.getNode();
+		disco.add(node, RDF_TYPE, RMAP_DISCO);
+		disco.add(node, DCTERMS_CREATOR, iri(disco.getAgent().getIri()));
+		disco.add(node, DCTERMS_DESCRIPTION, literal(disco.getKind().name().toLowerCase() + " " +
+				disco.getSequence() + " of lineage " + disco.getLineage()));
+
+		int blankNodes = 0;
+		for (int i = 0; i < aggregates; i++) {
+			if (random.nextDouble() < hotAggregateRatio) {
+				disco.add(node, ORE_AGGREGATES, hotResource(hotPopularity.sample(random)));
+				continue;
+			}
+
+			String work = iri(BASE + "work/" + works + "/" + i);
+			disco.add(node, ORE_AGGREGATES, work);
+			disco.add(work, RDF_TYPE, WORK_TYPES[(int) ((works + i) % WORK_TYPES.length)]);
+			disco.add(work, DCTERMS_TITLE, literal("Work " + i + " of " + works + ", version " +
+					disco.getSequence()));
+			if (random.nextBoolean()) {
+				disco.add(work, DCTERMS_IS_PART_OF, hotResource(hotPopularity.sample(random)));
+			}
+			for (int ref = random.nextInt(3); ref > 0; ref--) {
+				disco.add(work, DCTERMS_REFERENCES, hotResource(hotPopularity.sample(random)));
+			}
+
+			for (int authors = 1 + random.nextInt(maxAuthors); authors > 0; authors--) {
+				String author = node + "b" + blankNodes++;
+				disco.add(work, DCTERMS_CREATOR, author);
+				disco.add(author, RDF_TYPE, FOAF_PERSON);
+				disco.add(author, FOAF_NAME, literal("Author " + random.nextInt(1000000)));
+				if (random.nextBoolean()) {
+					String organization = node + "b" + blankNodes++;
+					disco.add(author, SCHEMA_AFFILIATION, organization);
+					disco.add(organization, RDF_TYPE, FOAF_ORGANIZATION);
+					disco.add(organization, FOAF_NAME, literal("Organization " + random.nextInt(ORGANIZATIONS)));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return a number of aggregates, geometrically distributed with a mean of {@code meanAggregates}
+	 */
+	private int sampleAggregates(SplittableRandom random) {
+		if (meanAggregates <= 1) {
+			return 1;
+		}
+		double p = 1 / meanAggregates;
+		double u = 1 - random.nextDouble();
+		return clamp(1 + (int) (Math.log(u) / Math.log(1 - p)));
+	}
+
+	private int clamp(int aggregates) {
+		return Math.max(1, Math.min(maxAggregates, aggregates));
+	}
+
+	static String hotResource(int rank) {
+		return iri(BASE + "hot/" + rank);
+	}
+
+	static String iri(String iri) {
+		return "<" + iri + ">";
+	}
+
+	static String literal(String value) {
+		StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					sb.append("\\\"");
+					break;
+				case '\\':
+					sb.append("\\\\");
+					break;
+				case '\n':
+					sb.append("\\n");
+					break;
+				case '\r':
+					sb.append("\\r");
+					break;
+				default:
+					sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public long getDiscoCount() {
+		return discoCount;
+	}
+
+	/**
+	 * @param discoCount the number of DiSCOs to generate, including updates and derivations; default 1000
+	 */
+	public void setDiscoCount(long discoCount) {
+		if (discoCount < 0) {
+			throw new IllegalArgumentException("DiSCO count must not be negative.");
+		}
+		this.discoCount = discoCount;
+	}
+
+	public int getAgentCount() {
+		return agentCount;
+	}
+
+	/**
+	 * @param agentCount the number of agents; default 10
+	 */
+	public void setAgentCount(int agentCount) {
+		if (agentCount < 1) {
+			throw new IllegalArgumentException("Agent count must be positive.");
+		}
+		this.agentCount = agentCount;
+	}
+
+	public int getHotResourceCount() {
+		return hotResourceCount;
+	}
+
+	/**
+	 * @param hotResourceCount the number of hot resources referenced by works; default 10000
+	 */
+	public void setHotResourceCount(int hotResourceCount) {
+		if (hotResourceCount < 1) {
+			throw new IllegalArgumentException("Hot resource count must be positive.");
+		}
+		this.hotResourceCount = hotResourceCount;
+	}
+
+	public double getZipfExponent() {
+		return zipfExponent;
+	}
+
+	/**
+	 * @param zipfExponent the skew of the popularity of agents and hot resources, 0 being uniform; default 1
+	 */
+	public void setZipfExponent(double zipfExponent) {
+		if (zipfExponent < 0) {
+			throw new IllegalArgumentException("Zipf exponent must not be negative.");
+		}
+		this.zipfExponent = zipfExponent;
+	}
+
+	public double getUpdateRatio() {
+		return updateRatio;
+	}
+
+	/**
+	 * @param updateRatio the share of DiSCOs that update an earlier lineage; default 0.2
+	 */
+	public void setUpdateRatio(double updateRatio) {
+		this.updateRatio = ratio(updateRatio, derivationRatio);
+	}
+
+	public double getDerivationRatio() {
+		return derivationRatio;
+	}
+
+	/**
+	 * @param derivationRatio the share of DiSCOs derived from an earlier lineage; default 0.05
+	 */
+	public void setDerivationRatio(double derivationRatio) {
+		this.derivationRatio = ratio(derivationRatio, updateRatio);
+	}
+
+	public double getMeanAggregates() {
+		return meanAggregates;
+	}
+
+	/**
+	 * @param meanAggregates the mean number of aggregated resources of a new DiSCO; default 5
+	 */
+	public void setMeanAggregates(double meanAggregates) {
+		if (meanAggregates < 1) {
+			throw new IllegalArgumentException("Mean aggregates must be at least 1.");
+		}
+		this.meanAggregates = meanAggregates;
+	}
+
+	public int getMaxAggregates() {
+		return maxAggregates;
+	}
+
+	/**
+	 * @param maxAggregates the maximum number of aggregated resources of a DiSCO; default 200
+	 */
+	public void setMaxAggregates(int maxAggregates) {
+		if (maxAggregates < 1) {
+			throw new IllegalArgumentException("Max aggregates must be positive.");
+		}
+		this.maxAggregates = maxAggregates;
+	}
+
+	public double getHotAggregateRatio() {
+		return hotAggregateRatio;
+	}
+
+	/**
+	 * @param hotAggregateRatio the share of aggregated resources that are hot resources; default 0.1
+	 */
+	public void setHotAggregateRatio(double hotAggregateRatio) {
+		this.hotAggregateRatio = ratio(hotAggregateRatio, 0);
+	}
+
+	public int getMaxAuthors() {
+		return maxAuthors;
+	}
+
+	/**
+	 * @param maxAuthors the maximum number of blank-node authors of a work; default 4
+	 */
+	public void setMaxAuthors(int maxAuthors) {
+		if (maxAuthors < 1) {
+			throw new IllegalArgumentException("Max authors must be positive.");
+		}
+		this.maxAuthors = maxAuthors;
+	}
+
+	private static double ratio(double ratio, double other) {
+		if (ratio < 0 || ratio + other > 1) {
+			throw new IllegalArgumentException("Ratio must be between 0 and " + (1 - other) + ", but was " + ratio);
+		}
+		return ratio;
+	}
+
+	/**
+	 * The latest version, agent, works and size of each lineage, in parallel arrays.
+	 */
+	private static class Lineages {
+
+		private long[] progenitors = new long[1024];
+
+		private long[] heads = new long[1024];
+
+		private int[] owners = new int[1024];
+
+		private long[] works = new long[1024];
+
+		private int[] aggregates = new int[1024];
+
+		private int size;
+
+		int add(long sequence, int owner, long work) {
+			if (size == heads.length) {
+				int capacity = size * 2;
+				progenitors = Arrays.copyOf(progenitors, capacity);
+				heads = Arrays.copyOf(heads, capacity);
+				owners = Arrays.copyOf(owners, capacity);
+				works = Arrays.copyOf(works, capacity);
+				aggregates = Arrays.copyOf(aggregates, capacity);
+			}
+			progenitors[size] = sequence;
+			heads[size] = sequence;
+			owners[size] = owner;
+			works[size] = work;
+			return size++;
+		}
+
+	}
+
+}
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.testdata.corpus;
+
+/**
+ * Receives the agents and DiSCOs of a generated corpus, in the order they are generated: every agent, then every
+ * DiSCO.  A DiSCO is only emitted after its predecessor, so a sink can replay the corpus in order.
+ */
+public interface CorpusSink {
+
+	/**
+	 * @param agent a generated agent
+	 * @throws Exception if the agent cannot be consumed; generation stops
+	 */
+	void agent(CorpusAgent agent) throws Exception;
+
+	/**
+	 * @param disco a generated DiSCO, only valid until this method returns
+	 * @throws Exception if the DiSCO cannot be consumed; generation stops
+	 */
+	void disco(CorpusDisco disco) throws Exception;
+
+}
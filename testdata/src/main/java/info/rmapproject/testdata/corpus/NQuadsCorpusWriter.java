@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.testdata.corpus;
+
+import static info.rmapproject.testdata.corpus.CorpusGenerator.BASE;
+import static info.rmapproject.testdata.corpus.CorpusGenerator.FOAF_NAME;
+import static info.rmapproject.testdata.corpus.CorpusGenerator.RDF_TYPE;
+import static info.rmapproject.testdata.corpus.CorpusGenerator.RMAP_AGENT;
+import static info.rmapproject.testdata.corpus.CorpusGenerator.RMAP_IDENTITY_PROVIDER;
+import static info.rmapproject.testdata.corpus.CorpusGenerator.RMAP_USER_AUTH_ID;
+import static info.rmapproject.testdata.corpus.CorpusGenerator.iri;
+import static info.rmapproject.testdata.corpus.CorpusGenerator.literal;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a generated corpus as N-Quads.  Each agent and each DiSCO is written to a named graph identified by its IRI,
+ * as RMap stores them; DiSCOs are identified by {@code <BASE>disco/<sequence>}.  The lineages of the corpus are
+ * written to the {@code <BASE>lineage} graph: each DiSCO is {@code prov:wasAttributedTo} its agent, updates are
+ * {@code prov:wasRevisionOf} their predecessor, and derivations {@code prov:wasDerivedFrom} their predecessor.
+ * <p>
+ * RMap's events are not written; load the corpus through {@code RMapService} for a complete RMap triplestore.  The
+ * writer can be run from the command line, e.g. for a corpus of 1 million DiSCOs:
+ * </p>
+ * <pre>
+ * java -cp rmap-testdata.jar info.rmapproject.testdata.corpus.NQuadsCorpusWriter corpus.nq.gz --discos 1000000
+ * </pre>
+ */
+public class NQuadsCorpusWriter implements CorpusSink {
+
+	static final String LINEAGE_GRAPH = iri(BASE + "lineage");
+
+	static final String PROV_WAS_ATTRIBUTED_TO = "<http://www.w3.org/ns/prov#wasAttributedTo>";
+
+	static final String PROV_WAS_REVISION_OF = "<http://www.w3.org/ns/prov#wasRevisionOf>";
+
+	static final String PROV_WAS_DERIVED_FROM = "<http://www.w3.org/ns/prov#wasDerivedFrom>";
+
+	private final Writer out;
+
+	/**
+	 * @param out receives the N-Quads; not closed by the writer
+	 */
+	public NQuadsCorpusWriter(Writer out) {
+		if (out == null) {
+			throw new IllegalArgumentException("Writer must not be null.");
+		}
+		this.out = out;
+	}
+
+	/**
+	 * Writes a corpus to a file, gzipped if its name ends with {@code .gz}, or to standard out if the file is
+	 * {@code -}.
+	 *
+	 * @param args the output file, followed by {@link CorpusGenerator#fromOptions(String[], int) options}
+	 * @throws Exception if the corpus cannot be written
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1 || args.length % 2 != 1) {
+			System.err.println("Usage: NQuadsCorpusWriter <file|-> [--option value]...");
+			System.exit(1);
+		}
+
+		CorpusGenerator generator = CorpusGenerator.fromOptions(args, 1);
+
+		OutputStream os = "-".equals(args[0]) ? System.out : new FileOutputStream(args[0]);
+		if (args[0].endsWith(".gz")) {
+			os = new GZIPOutputStream(os, 1 << 16);
+		}
+		long start = System.currentTimeMillis();
+		long statements;
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 1 << 16)) {
+			statements = generator.generate(new NQuadsCorpusWriter(out));
+		}
+		System.err.printf("Wrote %d DiSCOs with %d statements in %d ms%n", generator.getDiscoCount(), statements,
+				System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * @param sequence the sequence of a generated DiSCO
+	 * @return the IRI identifying the DiSCO in the N-Quads, in N-Triples syntax
+	 */
+	public static String discoIri(long sequence) {
+		return iri(BASE + "disco/" + sequence);
+	}
+
+	@Override
+	public void agent(CorpusAgent agent) throws IOException {
+		String graph = iri(agent.getIri());
+		quad(graph, RDF_TYPE, RMAP_AGENT, graph);
+		quad(graph, FOAF_NAME, literal(agent.getName()), graph);
+		quad(graph, RMAP_IDENTITY_PROVIDER, iri(agent.getIdentityProvider()), graph);
+		quad(graph, RMAP_USER_AUTH_ID, iri(agent.getAuthId()), graph);
+	}
+
+	@Override
+	public void disco(CorpusDisco disco) throws Exception {
+		String graph = discoIri(disco.getSequence());
+		String node = disco.getNode();
+		disco.forEachStatement((s, p, o) -> quad(s.equals(node) ? graph : s, p, o.equals(node) ? graph : o, graph));
+
+		quad(graph, PROV_WAS_ATTRIBUTED_TO, iri(disco.getAgent().getIri()), LINEAGE_GRAPH);
+		switch (disco.getKind()) {
+			case UPDATE:
+				quad(graph, PROV_WAS_REVISION_OF, discoIri(disco.getPredecessor()), LINEAGE_GRAPH);
+				break;
+			case DERIVATION:
+				quad(graph, PROV_WAS_DERIVED_FROM, discoIri(disco.getPredecessor()), LINEAGE_GRAPH);
+				break;
+			default:
+				break;
+		}
+	}
+
+	private void quad(String subject, String predicate, String object, String graph) throws IOException {
+		out.write(subject);
+		out.write(' ');
+		out.write(predicate);
+		out.write(' ');
+		out.write(object);
+		out.write(' ');
+		out.write(graph);
+		out.write(" .\n");
+	}
+
+}
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.testdata.corpus;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Samples ranks 0 to n-1 with Zipfian probabilities: rank k is chosen with a probability proportional to
+ * 1/(k+1)^exponent, so that a few low ranks account for most samples.  The cumulative distribution is
+ * precomputed, so sampling is a binary search; memory is 8 bytes per rank.
+ */
+public class ZipfDistribution {
+
+	private final double[] cumulative;
+
+	/**
+	 * @param n the number of ranks, must be positive
+	 * @param exponent the skew of the distribution, must not be negative; 0 is uniform
+	 */
+	public ZipfDistribution(int n, double exponent) {
+		if (n < 1) {
+			throw new IllegalArgumentException("Number of ranks must be positive, but was " + n);
+		}
+		if (exponent < 0) {
+			throw new IllegalArgumentException("Exponent must not be negative, but was " + exponent);
+		}
+		cumulative = new double[n];
+		double sum = 0;
+		for (int k = 0; k < n; k++) {
+			sum += 1 / Math.pow(k + 1, exponent);
+			cumulative[k] = sum;
+		}
+		for (int k = 0; k < n; k++) {
+			cumulative[k] /= sum;
+		}
+	}
+
+	/**
+	 * @param random the source of randomness
+	 * @return a rank between 0 (the most popular) and n-1
+	 */
+	public int sample(SplittableRandom random) {
+		int i = Arrays.binarySearch(cumulative, random.nextDouble());
+		// binarySearch answers (-(insertion point) - 1) when there is no exact match
+		int rank = i >= 0 ? i : -i - 1;
+		return Math.min(rank, cumulative.length - 1);
+	}
+
+	/**
+	 * @return the number of ranks
+	 */
+	public int size() {
+		return cumulative.length;
+	}
+
+}
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.testdata.corpus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import info.rmapproject.testdata.corpus.CorpusDisco.Kind;
+
+/**
+ * Tests for the corpus generator
+ */
+public class CorpusGeneratorTest {
+
+	/**
+	 * The same seed and settings generate the same corpus; another seed generates another corpus.
+	 */
+	@Test
+	public void testDeterministic() throws Exception {
+		assertEquals(nquads(42), nquads(42));
+		assertNotEquals(nquads(42), nquads(43));
+	}
+
+	/**
+	 * Each update or derivation follows its predecessor; updates stay in the lineage and with the agent of their
+	 * predecessor, derivations start a new lineage with another agent.
+	 */
+	@Test
+	public void testLineages() throws Exception {
+		CorpusGenerator generator = new CorpusGenerator(7);
+		generator.setDiscoCount(2000);
+		generator.setUpdateRatio(0.3);
+		generator.setDerivationRatio(0.1);
+
+		Map<Long, Long> lineages = new HashMap<>();
+		Map<Long, Integer> agents = new HashMap<>();
+		Set<Long> heads = new HashSet<>();
+		Map<Kind, Integer> kinds = new HashMap<>();
+
+		generator.generate(new CorpusSink() {
+			@Override
+			public void agent(CorpusAgent agent) {
+			}
+
+			@Override
+			public void disco(CorpusDisco disco) {
+				kinds.merge(disco.getKind(), 1, Integer::sum);
+				int agent = disco.getAgent().getIndex();
+				switch (disco.getKind()) {
+					case CREATION:
+						assertEquals(-1, disco.getPredecessor());
+						assertEquals(disco.getSequence(), disco.getLineage());
+						break;
+					case UPDATE:
+						assertTrue(heads.remove(disco.getPredecessor()));
+						assertEquals(lineages.get(disco.getPredecessor()).longValue(), disco.getLineage());
+						assertEquals(agents.get(disco.getPredecessor()).intValue(), agent);
+						break;
+					case DERIVATION:
+						assertTrue(heads.contains(disco.getPredecessor()));
+						assertEquals(disco.getSequence(), disco.getLineage());
+						assertNotEquals(agents.get(disco.getPredecessor()).intValue(), agent);
+						break;
+				}
+				lineages.put(disco.getSequence(), disco.getLineage());
+				agents.put(disco.getSequence(), agent);
+				heads.add(disco.getSequence());
+			}
+		});
+
+		assertEquals(2000, lineages.size());
+		assertEquals(3, kinds.size());
+		assertTrue(kinds.get(Kind.UPDATE) > 400);
+		assertTrue(kinds.get(Kind.DERIVATION) > 100);
+	}
+
+	/**
+	 * Every statement of a DiSCO is connected to the DiSCO, and blank nodes are not shared between DiSCOs.
+	 */
+	@Test
+	public void testStatements() throws Exception {
+		CorpusGenerator generator = new CorpusGenerator(11);
+		generator.setDiscoCount(200);
+		Set<String> blankNodes = new HashSet<>();
+
+		long statements = generator.generate(new CorpusSink() {
+			@Override
+			public void agent(CorpusAgent agent) {
+			}
+
+			@Override
+			public void disco(CorpusDisco disco) throws Exception {
+				Set<String> connected = new HashSet<>();
+				connected.add(disco.getNode());
+				Set<String> local = new HashSet<>();
+				disco.forEachStatement((s, p, o) -> {
+					assertTrue(s + " is not connected to " + disco.getNode(), connected.contains(s));
+					connected.add(o);
+					if (s.startsWith("_:")) {
+						local.add(s);
+					}
+				});
+				for (String blankNode : local) {
+					assertTrue(blankNode + " is shared", blankNodes.add(blankNode));
+				}
+				assertTrue(disco.toNTriples().contains(CorpusGenerator.ORE_AGGREGATES));
+			}
+		});
+
+		assertTrue(statements > 200 * 10);
+	}
+
+	/**
+	 * Low ranks are sampled far more often than high ranks.
+	 */
+	@Test
+	public void testZipfDistribution() throws Exception {
+		ZipfDistribution zipf = new ZipfDistribution(1000, 1.0);
+		SplittableRandom random = new SplittableRandom(1);
+		int[] counts = new int[zipf.size()];
+		for (int i = 0; i < 100000; i++) {
+			counts[zipf.sample(random)]++;
+		}
+		assertTrue(counts[0] > 10 * counts[99]);
+		assertTrue(counts[0] > counts[1]);
+	}
+
+	private static String nquads(long seed) throws Exception {
+		CorpusGenerator generator = new CorpusGenerator(seed);
+		generator.setDiscoCount(100);
+		StringWriter out = new StringWriter();
+		generator.generate(new NQuadsCorpusWriter(out));
+		return out.toString();
+	}
+
+}
@@ -40,6 +40,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import info.rmapproject.auth.model.User;
+import info.rmapproject.core.metrics.SlowQueryLog;
 import info.rmapproject.core.model.event.RMapEvent;
 import info.rmapproject.webapp.auth.AdminLogin;
 import info.rmapproject.webapp.auth.AdminLoginRequired;
@@ -66,14 +67,19 @@ public class AdminToolController {
 	/**The admin login object created from properties for comparison against entry from user*/
 	private AdminLogin correctAdminLogin;
 	
+	/** log of triplestore queries that took longer than a threshold **/
+	private SlowQueryLog slowQueryLog;
+	
 	private final static String DISCO_DELFORM_ATTRIB = "deleteDiSCO";
 	
 	
 	@Autowired
-	public AdminToolController(UserMgtService userMgtService, RMapUpdateService rmapUpdateService, AdminLogin correctAdminLogin){
+	public AdminToolController(UserMgtService userMgtService, RMapUpdateService rmapUpdateService, AdminLogin correctAdminLogin,
+			SlowQueryLog slowQueryLog){
 		this.userMgtService=userMgtService;
 		this.rmapUpdateService=rmapUpdateService;
 		this.correctAdminLogin=correctAdminLogin;
+		this.slowQueryLog=slowQueryLog;
 	}	
 	
 	/**
@@ -393,4 +399,30 @@ public class AdminToolController {
 		}		
 	}			
 		
+	/**
+	 * Lists the most recent triplestore queries that took longer than the slow query threshold
+	 * @param model the Spring model
+	 * @return the slow queries page
+	 */
+	@AdminLoginRequired
+	@RequestMapping(value="/admin/slowqueries", method=RequestMethod.GET)
+	public String slowQueries(Model model) {
+		model.addAttribute("slowQueryLog", slowQueryLog);
+		model.addAttribute("slowQueries", slowQueryLog.getQueries());
+		return "admin/slowqueries";
+	}
+
+	/**
+	 * Discards the recorded slow queries
+	 * @param redirectAttributes
+	 * @return redirect to the slow queries page
+	 */
+	@AdminLoginRequired
+	@RequestMapping(value="/admin/slowqueries/clear", method=RequestMethod.POST)
+	public String clearSlowQueries(RedirectAttributes redirectAttributes) {
+		slowQueryLog.clear();
+		redirectAttributes.addFlashAttribute("notice", "The slow query log was cleared.");
+		return "redirect:/admin/slowqueries";
+	}
+		
 }
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.webapp.controllers;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import info.rmapproject.core.metrics.OperationMetrics;
+
+/**
+ * Exposes the RMap operation metrics for scraping by Prometheus.
+ */
+@Controller
+public class MetricsController {
+
+	/** Content type of the Prometheus text exposition format */
+	private static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+	private OperationMetrics metrics;
+
+	@Autowired
+	public MetricsController(OperationMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * GETs the latency, row counts and error counts of RMap operations in the Prometheus text format.
+	 *
+	 * @param response the HTTP response
+	 * @throws IOException if the metrics cannot be written
+	 */
+	@RequestMapping(value="/metrics", method=RequestMethod.GET)
+	public @ResponseBody void metrics(HttpServletResponse response) throws IOException {
+		response.setContentType(PROMETHEUS_TEXT);
+		Writer out = response.getWriter();
+		metrics.scrape(out);
+		out.flush();
+	}
+
+}
@@ -65,7 +65,10 @@ public enum ErrorCode {
 	ER_PROBLEM_LOADING_DISCOTABLE (4013011),
 	
 	/** User record not found*/
-	ER_USER_RECORD_NOT_FOUND (4013012); 
+	ER_USER_RECORD_NOT_FOUND (4013012),
+	
+	/** Data for the page could not be retrieved within the time allowed. */
+	ER_DATA_RETRIEVAL_TIMED_OUT (4013013);
 
 
 	/** The error number. */
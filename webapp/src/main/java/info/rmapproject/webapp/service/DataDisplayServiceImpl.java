@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +37,7 @@ import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
@@ -43,7 +45,9 @@ import org.springframework.data.domain.Pageable;
 
 import info.rmapproject.core.model.RMapIri;
 import info.rmapproject.core.model.RMapLiteral;
+import info.rmapproject.core.model.RMapObjectType;
 import info.rmapproject.core.model.RMapResource;
+import info.rmapproject.core.model.RMapStatus;
 import info.rmapproject.core.model.RMapTriple;
 import info.rmapproject.core.model.RMapValue;
 import info.rmapproject.core.model.agent.RMapAgent;
@@ -68,6 +72,7 @@ import info.rmapproject.webapp.domain.PaginatorType;
 import info.rmapproject.webapp.domain.ResourceDescription;
 import info.rmapproject.webapp.domain.TripleDisplayFormat;
 import info.rmapproject.webapp.exception.RMapWebException;
+import info.rmapproject.webapp.service.DisplayTaskExecutor.PendingResult;
 import info.rmapproject.webapp.service.dto.AgentDTO;
 import info.rmapproject.webapp.service.dto.DiSCODTO;
 import info.rmapproject.webapp.service.dto.EventDTO;
@@ -121,6 +126,12 @@ public class DataDisplayServiceImpl implements DataDisplayService {
 
 	private TripleDisplayFormatFactory tripleDisplayFactory;
 
+	/** Runs the independent reads needed for a DiSCO, Agent or Event page concurrently*/
+	private DisplayTaskExecutor displayTaskExecutor = new DisplayTaskExecutor(0, 0, Long.MAX_VALUE);
+	
+	/** Provides a new RMap Service for each concurrent read, since an RMap Service cannot be shared between threads*/
+	private ObjectFactory<RMapService> rmapServiceFactory;
+
 	/**
 	 * Instantiates a new data display service implementation.
 	 * @param rmapService
@@ -157,7 +168,15 @@ public class DataDisplayServiceImpl implements DataDisplayService {
 		URI discoUri = new URI(sDiscoUri);	
 		discoDTO.setUri(discoUri);
 		
-		RMapDiSCO disco = rmapService.readDiSCO(discoUri);
+		PendingResult<RMapDiSCO> pendingDisco = submit(service -> service.readDiSCO(discoUri));
+		PendingResult<List<URI>> pendingAgentVersions = submit(service -> service.getDiSCOVersions(discoUri));
+		PendingResult<List<URI>> pendingAllVersions = 
+				submit(service -> service.getDiSCODVersionsAndDerivatives(discoUri));
+		PendingResult<RMapStatus> pendingStatus = submit(service -> service.getDiSCOStatus(discoUri));
+		PendingResult<List<URI>> pendingEvents = submit(service -> service.getDiSCOEvents(discoUri));
+		
+		RMapDiSCO disco = displayTaskExecutor.getRequired(pendingDisco, 
+				pendingAgentVersions, pendingAllVersions, pendingStatus, pendingEvents);
     	List <URI> aggregatedResources = disco.getAggregatedResources(); 	
     	
 		discoDTO.setDescription(disco.getDescription());
@@ -165,11 +184,17 @@ public class DataDisplayServiceImpl implements DataDisplayService {
 		discoDTO.setProvGeneratedBy(disco.getProvGeneratedBy());
 		discoDTO.setProviderId(disco.getProviderId());
 		
-		discoDTO.setAgentVersions(rmapService.getDiSCOVersions(discoUri));
-		discoDTO.setAllVersions(rmapService.getDiSCODVersionsAndDerivatives(discoUri));
+		List<URI> agentVersions = displayTaskExecutor.getOptional(pendingAgentVersions, "DiSCO versions", null);
+		List<URI> allVersions = displayTaskExecutor.getOptional(pendingAllVersions, "DiSCO derivatives", null);
+		RMapStatus status = displayTaskExecutor.getOptional(pendingStatus, "DiSCO status", null);
+		List<URI> events = displayTaskExecutor.getOptional(pendingEvents, "DiSCO events", null);
+		discoDTO.setIncomplete(agentVersions==null || allVersions==null || status==null || events==null);
 		
-		discoDTO.setStatus(rmapService.getDiSCOStatus(discoUri));
-		discoDTO.setEvents(rmapService.getDiSCOEvents(discoUri));
+		discoDTO.setAgentVersions(agentVersions!=null ? agentVersions : new ArrayList<URI>());
+		discoDTO.setAllVersions(allVersions!=null ? allVersions : new ArrayList<URI>());
+		
+		discoDTO.setStatus(status);
+		discoDTO.setEvents(events!=null ? events : new ArrayList<URI>());
     	discoDTO.setAggregatedResources(aggregatedResources);
 	    discoDTO.setRelatedStatements(disco.getRelatedStatements());
 
@@ -542,10 +567,18 @@ public class DataDisplayServiceImpl implements DataDisplayService {
 		URI agentUri = new URI(sAgentUri);	
 		agentDTO.setUri(agentUri);
 		
-		RMapAgent agent = rmapService.readAgent(agentUri);
+		PendingResult<RMapAgent> pendingAgent = submit(service -> service.readAgent(agentUri));
+		PendingResult<RMapStatus> pendingStatus = submit(service -> service.getAgentStatus(agentUri));
+		PendingResult<List<URI>> pendingEvents = submit(service -> service.getAgentEvents(agentUri));
+		
+		RMapAgent agent = displayTaskExecutor.getRequired(pendingAgent, pendingStatus, pendingEvents);
+		RMapStatus status = displayTaskExecutor.getOptional(pendingStatus, "Agent status", null);
+		List<URI> events = displayTaskExecutor.getOptional(pendingEvents, "Agent events", null);
+		agentDTO.setIncomplete(status==null || events==null);
+		
 		agentDTO.setName(agent.getName());		
-		agentDTO.setStatus(rmapService.getAgentStatus(agentUri));
-		agentDTO.setEvents(rmapService.getAgentEvents(agentUri));
+		agentDTO.setStatus(status);
+		agentDTO.setEvents(events!=null ? events : new ArrayList<URI>());
 		agentDTO.setIdProvider(agent.getIdProvider().getStringValue());
 		agentDTO.setAuthId(agent.getAuthId().getStringValue());
 		
@@ -605,7 +638,7 @@ public class DataDisplayServiceImpl implements DataDisplayService {
 		RMapEventType eventType = event.getEventType();
 		eventDTO.setType(eventType);
 		
-	    Map<String, String> resourcesAffected = getEventResourcesAffected(event, eventType);
+	    Map<String, String> resourcesAffected = getEventResourcesAffected(event, eventType, eventDTO);
 	    eventDTO.setResourcesAffected(resourcesAffected);  
 	    return eventDTO;
 	}
@@ -766,106 +799,113 @@ public class DataDisplayServiceImpl implements DataDisplayService {
 	 * @return the Event Resources affected
 	 * @throws Exception the exception
 	 */
-	private Map<String, String> getEventResourcesAffected(RMapEvent event, RMapEventType eventType) throws Exception {
+	private Map<String, String> getEventResourcesAffected(RMapEvent event, RMapEventType eventType, EventDTO eventDTO) 
+			throws Exception {
 
-	    Map<String, String> resourcesAffected = new HashMap<String, String>();
+	    //resource IRI and how it was affected, in the order they will be displayed
+	    Map<RMapIri, String> actions = new LinkedHashMap<RMapIri, String>();
 	    if (eventType == RMapEventType.CREATION){
 	    	RMapEventCreation creationEvent = (RMapEventCreation) event;
 	    	List<RMapIri> uris = creationEvent.getCreatedObjectIds();
 	    	for (RMapIri uri : uris){
-	    		rmapService.isDiSCOId(new java.net.URI(uri.toString()));
-	    		String type = getRMapTypeDisplayName(uri);
-	    		resourcesAffected.put(uri.toString(), "Created " + type);
+	    		actions.put(uri, "Created");
 	    	}
 	    }
 	    else if (eventType == RMapEventType.DELETION)	{
 	    	RMapEventDeletion deletionEvent = (RMapEventDeletion) event;
 	    	RMapIri uri = deletionEvent.getDeletedObjectId();
-    		String type = getRMapTypeDisplayName(uri);
-    		resourcesAffected.put(uri.toString(), "Deleted " + type);
+    		actions.put(uri, "Deleted");
 	    }
 	    else if (eventType == RMapEventType.TOMBSTONE)	{
 	    	RMapEventTombstone tombstoneEvent = (RMapEventTombstone) event;
 	    	RMapIri uri = tombstoneEvent.getTombstonedObjectId();
-			String type = getRMapTypeDisplayName(uri);
-			resourcesAffected.put(uri.toString(), "Tombstoned " + type);
+			actions.put(uri, "Tombstoned");
 	    }
 	    else if (eventType == RMapEventType.DERIVATION)	{
 	    	RMapEventDerivation derivationEvent = (RMapEventDerivation) event;
 	    	List<RMapIri> createdUris = derivationEvent.getCreatedObjectIds();
 	    	for (RMapIri uri : createdUris){
-	    		String type = getRMapTypeDisplayName(uri);
-	    		resourcesAffected.put(uri.toString(), "Created " + type);
+	    		actions.put(uri, "Created");
 	    	}
 	    	RMapIri derivedUri = derivationEvent.getDerivedObjectId();
-			String type = getRMapTypeDisplayName(derivedUri);
-			resourcesAffected.put(derivedUri.toString(), "Derived " + type);	
+			actions.put(derivedUri, "Derived");	
 			
 	    	RMapIri sourceObjectUri = derivationEvent.getSourceObjectId();
-	    	type = getRMapTypeDisplayName(sourceObjectUri);
-			resourcesAffected.put(sourceObjectUri.toString(), "Source " + type);	    	
+			actions.put(sourceObjectUri, "Source");	    	
 	    }
 	    else if (eventType == RMapEventType.UPDATE)	{
 	    	RMapEventUpdate updateEvent = (RMapEventUpdate) event;	   
 	    	List<RMapIri> createdUris = updateEvent.getCreatedObjectIds();
 	    	for (RMapIri uri : createdUris){
-	    		String type = getRMapTypeDisplayName(uri);
-	    		resourcesAffected.put(uri.toString(), "Created " + type);
+	    		actions.put(uri, "Created");
 	    	}
 	    	RMapIri derivedUri = updateEvent.getDerivedObjectId();
-			String type = getRMapTypeDisplayName(derivedUri);
-			resourcesAffected.put(derivedUri.toString(), "Derived " + type);	
+			actions.put(derivedUri, "Derived");	
 			
 	    	RMapIri inactivatedUri = updateEvent.getInactivatedObjectId();
-	    	type = getRMapTypeDisplayName(inactivatedUri);
-			resourcesAffected.put(inactivatedUri.toString(), "Inactivated " + type);	  	    			    	
+			actions.put(inactivatedUri, "Inactivated");	  	    			    	
 	    }
 	    else if (eventType == RMapEventType.INACTIVATION)	{
 	    	RMapEventInactivation inactivateEvent = (RMapEventInactivation) event;	    
 	    	RMapIri uri = inactivateEvent.getInactivatedObjectId();
-			String type = getRMapTypeDisplayName(uri);
-			resourcesAffected.put(uri.toString(), "Inactivated " + type);	  
+			actions.put(uri, "Inactivated");	  
 	    }
 	    else if (eventType == RMapEventType.REPLACE)	{
 	    	RMapEventUpdateWithReplace replaceEvent = (RMapEventUpdateWithReplace) event;	    
 	    	RMapIri uri = replaceEvent.getUpdatedObjectId();
-			String type = getRMapTypeDisplayName(uri);
-			resourcesAffected.put(uri.toString(), "Replaced " + type);	  
+			actions.put(uri, "Replaced");	  
 	    }		
 
+	    //type lookups are independent, so run them concurrently
+	    Map<RMapIri, PendingResult<String>> pendingTypes = new LinkedHashMap<RMapIri, PendingResult<String>>();
+	    for (RMapIri uri : actions.keySet()) {
+	    	URI resourceUri = new URI(uri.toString());
+	    	pendingTypes.put(uri, submit(service -> getRMapTypeDisplayName(service, resourceUri)));
+	    }
+	    
+	    Map<String, String> resourcesAffected = new HashMap<String, String>();
+	    for (Map.Entry<RMapIri, String> action : actions.entrySet()) {
+	    	RMapIri uri = action.getKey();
+	    	String type = displayTaskExecutor.getOptional(pendingTypes.get(uri), "type of " + uri, null);
+	    	if (type==null) {
+	    		eventDTO.setIncomplete(true);
+	    		type = "";
+	    	}
+	    	resourcesAffected.put(uri.toString(), action.getValue() + " " + type);
+	    }
 	    return resourcesAffected;
 	}
 
-	/**
-	 * Gets the RMap Type display name.
-	 *
-	 * @param resourceUri the Resource URI
-	 * @return the RMap Type display name
-	 * @throws Exception the exception
-	 */
-	private String getRMapTypeDisplayName(RMapIri resourceUri) throws Exception {
-		URI uriResourceUri = new URI(resourceUri.toString());
-		return getRMapTypeDisplayName(uriResourceUri);
-	}
-	
 	/* (non-Javadoc)
 	 * @see info.rmapproject.webapp.service.DataDisplayService#getRMapTypeDisplayName(java.net.URI)
 	 */
 	@Override
 	public String getRMapTypeDisplayName(URI resourceUri) throws Exception {
+		return getRMapTypeDisplayName(rmapService, resourceUri);
+	}
+	
+	/**
+	 * Determines the RMap type of a resource using the RMap Service provided.
+	 *
+	 * @param service the RMap Service to use
+	 * @param resourceUri the resource URI
+	 * @return the type display name, or an empty string if the resource is not an RMap object
+	 * @throws Exception the exception
+	 */
+	private String getRMapTypeDisplayName(RMapService service, URI resourceUri) throws Exception {
 			
 		log.debug("Checking type for URI {}", ((resourceUri==null) ? "" : resourceUri.toString()));
 					
-		if (rmapService.isDiSCOId(resourceUri)) {
+		RMapObjectType type = service.getRMapObjectType(resourceUri);
+		if (type == RMapObjectType.DISCO) {
 			log.debug("Type identified as a rmap:DiSCO");
 			return Terms.RMAP_DISCO;			
 		}
-		
-		if (rmapService.isAgentId(resourceUri)) {
+		if (type == RMapObjectType.AGENT) {
 			log.debug("Type identified as a rmap:Agent");
 			return Terms.RMAP_AGENT;			
 		}
-		if (rmapService.isEventId(resourceUri)) {
+		if (type == RMapObjectType.EVENT) {
 			log.debug("Type identified as an rmap:Event");
 			return Terms.RMAP_EVENT;			
 		}		
@@ -972,4 +1012,55 @@ public class DataDisplayServiceImpl implements DataDisplayService {
 	public void setMaxNodeInfoRows(int maxNodeInfoRows) {
 		this.maxNodeInfoRows = maxNodeInfoRows;
 	}
+
+	/**
+	 * Executor used to run the reads for a DiSCO, Agent or Event page concurrently. By default the reads are
+	 * run one after the other on the calling thread. The executor is configured using the
+	 * {@code rmapweb.display-*} properties.
+	 *
+	 * @return
+	 */
+	public DisplayTaskExecutor getDisplayTaskExecutor() {
+		return displayTaskExecutor;
+	}
+
+	public void setDisplayTaskExecutor(DisplayTaskExecutor displayTaskExecutor) {
+		this.displayTaskExecutor = displayTaskExecutor;
+	}
+
+	/**
+	 * Sets the factory used to get a new RMap Service for each concurrent read. If not set, all reads use the
+	 * RMap Service provided to the constructor.
+	 *
+	 * @param rmapServiceFactory
+	 */
+	@Autowired
+	public void setRmapServiceFactory(ObjectFactory<RMapService> rmapServiceFactory) {
+		this.rmapServiceFactory = rmapServiceFactory;
+	}
+	
+	/**
+	 * Submits a read to the display task executor. When running concurrently, each read is given its own 
+	 * RMap Service, so that they do not share a triplestore connection.
+	 *
+	 * @param <T> the result type
+	 * @param read the read
+	 * @return the pending result
+	 */
+	private <T> PendingResult<T> submit(RMapRead<T> read) {
+		return displayTaskExecutor.submit(() -> {
+			RMapService service = (rmapServiceFactory!=null) ? rmapServiceFactory.getObject() : rmapService;
+			return read.apply(service);
+		});
+	}
+	
+	/**
+	 * A read performed using an RMap Service.
+	 *
+	 * @param <T> the result type
+	 */
+	@FunctionalInterface
+	private interface RMapRead<T> {
+		T apply(RMapService service) throws Exception;
+	}
 }
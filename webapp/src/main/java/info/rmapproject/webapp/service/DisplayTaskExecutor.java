@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.webapp.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import info.rmapproject.webapp.exception.ErrorCode;
+import info.rmapproject.webapp.exception.RMapWebException;
+
+/**
+ * Runs the independent RMap reads that make up a page (e.g. a DiSCO, its versions, status and events)
+ * concurrently on a bounded thread pool, so that page latency is that of the slowest read rather than
+ * the sum of all of them. Each task is given its own timeout, measured from when it was submitted.
+ * Callers decide whether a missing result is fatal ({@link #getRequired(PendingResult)}) or can be left
+ * off the page ({@link #getOptional(PendingResult, String, Object)}).
+ * <p>
+ * The pool size is configured using {@code rmapweb.display-thread-pool-size}. A pool size of 0 disables
+ * concurrency and every task is run on the calling thread. When the pool and its queue are full, tasks
+ * are run on the calling thread rather than rejected.
+ * </p>
+ */
+public class DisplayTaskExecutor {
+
+	private static final Logger log = LoggerFactory.getLogger(DisplayTaskExecutor.class);
+
+	/** Prefix for the names of pool threads */
+	private static final String THREAD_NAME_PREFIX = "rmap-display-";
+	
+	/** The thread pool, null if tasks are run on the calling thread. */
+	private final ExecutorService executor;
+	
+	/** Maximum time in milliseconds to wait for a single task to complete */
+	private final long callTimeoutMs;
+	
+	/**
+	 * Instantiates a new display task executor.
+	 *
+	 * @param poolSize number of threads available for running tasks, 0 to run tasks on the calling thread
+	 * @param queueSize number of tasks that can wait for a thread before tasks are run on the calling thread
+	 * @param callTimeoutMs maximum time in milliseconds to wait for each task
+	 */
+	public DisplayTaskExecutor(int poolSize, int queueSize, long callTimeoutMs) {
+		if (poolSize < 0) {
+			throw new IllegalArgumentException("Thread pool size cannot be negative");
+		}
+		if (callTimeoutMs <= 0) {
+			throw new IllegalArgumentException("Call timeout must be greater than 0");
+		}
+		this.callTimeoutMs = callTimeoutMs;
+		if (poolSize == 0) {
+			this.executor = null;
+		} else {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)), new DisplayThreadFactory(), 
+					new ThreadPoolExecutor.CallerRunsPolicy());
+			pool.allowCoreThreadTimeOut(true);
+			this.executor = pool;
+		}
+	}
+	
+	/**
+	 * Submits a task. The task starts immediately if a thread is available.
+	 *
+	 * @param <T> the result type
+	 * @param task the task
+	 * @return a handle on the pending result
+	 */
+	public <T> PendingResult<T> submit(Callable<T> task) {
+		long now = System.currentTimeMillis();
+		long deadline = (callTimeoutMs > Long.MAX_VALUE - now) ? Long.MAX_VALUE : now + callTimeoutMs;
+		Future<T> future;
+		if (executor == null) {
+			FutureTask<T> inline = new FutureTask<T>(task);
+			inline.run();
+			future = inline;
+		} else {
+			future = executor.submit(task);
+		}
+		return new PendingResult<T>(future, deadline);
+	}
+	
+	/**
+	 * Waits for a result that the page cannot be displayed without. Any exception thrown by the task 
+	 * is rethrown as is, so that e.g. not found exceptions are still handled by the usual error pages.
+	 * If the result is not available the page will not be displayed, so the other pending results for
+	 * the page are cancelled rather than left running.
+	 *
+	 * @param <T> the result type
+	 * @param pending the pending result
+	 * @param others the other pending results for the page, cancelled if this result is not available
+	 * @return the result
+	 * @throws Exception the exception thrown by the task, or an RMapWebException if it timed out
+	 */
+	public <T> T getRequired(PendingResult<T> pending, PendingResult<?>... others) throws Exception {
+		boolean completed = false;
+		try {
+			T result = pending.await();
+			completed = true;
+			return result;
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw RMapWebException.wrap(cause);
+		} catch (TimeoutException | CancellationException ex) {
+			pending.cancel();
+			throw new RMapWebException(ex, ErrorCode.ER_DATA_RETRIEVAL_TIMED_OUT);
+		} catch (InterruptedException ex) {
+			pending.cancel();
+			throw ex;
+		} finally {
+			if (!completed) {
+				for (PendingResult<?> other : others) {
+					other.cancel();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Waits for a result that can be left off the page. If the task fails or does not complete in time
+	 * the failure is logged and the fallback value is returned.
+	 *
+	 * @param <T> the result type
+	 * @param pending the pending result
+	 * @param description short description of the task, used in the log
+	 * @param fallback value to return if the result is not available
+	 * @return the result or the fallback value
+	 */
+	public <T> T getOptional(PendingResult<T> pending, String description, T fallback) {
+		try {
+			return pending.await();
+		} catch (ExecutionException ex) {
+			log.warn("Could not retrieve {}: {}", description, ex.getCause().getMessage(), ex.getCause());
+		} catch (TimeoutException | CancellationException ex) {
+			pending.cancel();
+			log.warn("Timed out after {}ms retrieving {}", callTimeoutMs, description);
+		} catch (InterruptedException ex) {
+			pending.cancel();
+			Thread.currentThread().interrupt();
+			log.warn("Interrupted while retrieving {}", description);
+		}
+		return fallback;
+	}
+	
+	/**
+	 * Stops accepting new tasks and interrupts any that are running.
+	 */
+	public void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return maximum time in milliseconds to wait for each task
+	 */
+	public long getCallTimeoutMs() {
+		return callTimeoutMs;
+	}
+	
+	/**
+	 * Handle on the result of a submitted task.
+	 *
+	 * @param <T> the result type
+	 */
+	public static final class PendingResult<T> {
+		
+		private final Future<T> future;
+		
+		private final long deadline;
+		
+		private PendingResult(Future<T> future, long deadline) {
+			this.future = future;
+			this.deadline = deadline;
+		}
+		
+		private T await() throws InterruptedException, ExecutionException, TimeoutException {
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0 && !future.isDone()) {
+				throw new TimeoutException();
+			}
+			return future.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+		}
+		
+		private void cancel() {
+			future.cancel(true);
+		}
+	}
+
+	/**
+	 * Creates named daemon threads so that the pool does not hold up container shutdown.
+	 */
+	private static final class DisplayThreadFactory implements ThreadFactory {
+		
+		private final AtomicInteger count = new AtomicInteger();
+		
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, THREAD_NAME_PREFIX + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+	
+}
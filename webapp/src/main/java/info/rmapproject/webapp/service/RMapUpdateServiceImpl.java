@@ -26,6 +26,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import info.rmapproject.auth.service.RMapAuthService;
+import info.rmapproject.core.model.RMapObjectType;
 import info.rmapproject.core.model.RMapStatus;
 import info.rmapproject.core.model.disco.RMapDiSCO;
 import info.rmapproject.core.model.event.RMapEvent;
@@ -74,7 +75,7 @@ public class RMapUpdateServiceImpl implements RMapUpdateService {
 	 */
 	@Override
 	public boolean isDeletableDiscoId(URI discoUri) {
-		if (rmapService.isDiSCOId(discoUri) 
+		if (rmapService.getRMapObjectType(discoUri) == RMapObjectType.DISCO 
 				&& (rmapService.getDiSCOStatus(discoUri) != RMapStatus.DELETED)){
 			return true;
 		}
@@ -51,6 +51,9 @@ public class AgentDTO {
 	
 	/** The Agent's Auth id. */
 	private String authId;
+
+	/** True if some of the Agent data could not be retrieved. */
+	private boolean incomplete = false;
 	
 	/**
 	 * Gets the Agent URI.
@@ -188,4 +191,22 @@ public class AgentDTO {
 		return numEvents;
 	}
 
+	/**
+	 * Checks whether some of the Agent data could not be retrieved, in which case the page is shown without it.
+	 *
+	 * @return true if the Agent data is incomplete
+	 */
+	public boolean isIncomplete() {
+		return incomplete;
+	}
+	
+	/**
+	 * Sets whether some of the Agent data could not be retrieved.
+	 *
+	 * @param incomplete true if the Agent data is incomplete
+	 */
+	public void setIncomplete(boolean incomplete) {
+		this.incomplete = incomplete;
+	}
+
 }
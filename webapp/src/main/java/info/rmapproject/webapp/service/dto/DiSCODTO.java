@@ -68,6 +68,9 @@ public class DiSCODTO {
 	
 	/** The DiSCO's related statements as a list of RMapTriples. */
 	private List <RMapTriple> relatedStatements; 
+
+	/** True if some of the DiSCO data could not be retrieved. */
+	private boolean incomplete = false;
 	
 	/**
 	 * Gets the DiSCO URI.
@@ -346,4 +349,22 @@ public class DiSCODTO {
 		this.relatedStatements = relatedStatements;
 	}	
 	
+	/**
+	 * Checks whether some of the DiSCO data could not be retrieved, in which case the page is shown without it.
+	 *
+	 * @return true if the DiSCO data is incomplete
+	 */
+	public boolean isIncomplete() {
+		return incomplete;
+	}
+	
+	/**
+	 * Sets whether some of the DiSCO data could not be retrieved.
+	 *
+	 * @param incomplete true if the DiSCO data is incomplete
+	 */
+	public void setIncomplete(boolean incomplete) {
+		this.incomplete = incomplete;
+	}
+
 }
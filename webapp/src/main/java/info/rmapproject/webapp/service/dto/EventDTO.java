@@ -60,6 +60,9 @@ public class EventDTO {
 	
 	/** The resources affected by the Event. */
 	private Map<String, String> resourcesAffected;
+
+	/** True if some of the Event data could not be retrieved. */
+	private boolean incomplete = false;
 	
 	/**
 	 * Gets the Event URI.
@@ -266,4 +269,22 @@ public class EventDTO {
 		this.endTime = endTime;
 	}
 	
+	/**
+	 * Checks whether some of the Event data could not be retrieved, in which case the page is shown without it.
+	 *
+	 * @return true if the Event data is incomplete
+	 */
+	public boolean isIncomplete() {
+		return incomplete;
+	}
+	
+	/**
+	 * Sets whether some of the Event data could not be retrieved.
+	 *
+	 * @param incomplete true if the Event data is incomplete
+	 */
+	public void setIncomplete(boolean incomplete) {
+		this.incomplete = incomplete;
+	}
+
 }
@@ -0,0 +1,73 @@
+<%@ page language="java" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8" %>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/core" prefix="c" %>
+<%@ taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt" %>
+<%@ taglib prefix="tl" tagdir="/WEB-INF/tags" %>
+
+<tl:pageStartStandard user="${null}" pageTitle="Slow Queries"/>
+
+	<h1>Slow Queries</h1>
+	<c:if test="${notice!=null}">
+		<p class="notice">
+			${notice}
+		</p>
+	</c:if>
+	<c:choose>
+		<c:when test="${slowQueryLog.enabled}">
+			<p>Showing the most recent of ${slowQueryLog.recordedCount} triplestore queries that took at least ${slowQueryLog.thresholdMs} ms 
+			(up to ${slowQueryLog.capacity} are kept). Instance IRIs, literals and LIMIT and OFFSET values are replaced by placeholders 
+			in the query text; their values are listed under bindings.</p>
+		</c:when>
+		<c:otherwise>
+			<p>The slow query log is disabled. Set <code>rmapcore.slowQueries.enabled=true</code> to record triplestore queries that take 
+			at least <code>rmapcore.slowQueries.thresholdMs</code> (currently ${slowQueryLog.thresholdMs} ms).</p>
+		</c:otherwise>
+	</c:choose>
+
+	<c:if test="${empty slowQueries}">
+		<fieldset style="text-align:center;">
+			<br/>No slow queries recorded.<br/><br/>
+		</fieldset>
+	</c:if>
+
+	<c:if test="${!empty slowQueries}">
+		<form method="post" action="<c:url value='/admin/slowqueries/clear'/>">
+			<input type="submit" value="Clear" style="float:right;margin-bottom:10px;">
+		</form>
+		<div class="CSSTableGenerator">
+		 	<table>
+			 	<tbody>
+				    <tr>
+				        <td>Time</td>
+				        <td>Operation</td>
+				        <td>Duration (ms)</td>
+				        <td>Rows</td>
+				        <td>Query</td>
+				    </tr>
+					<c:forEach items="${slowQueries}" var="slowQuery">
+						<tr>
+							<td><fmt:formatDate type="both" value="${slowQuery.time}" /></td>
+							<td><c:out value="${slowQuery.operation}"/><br/><c:out value="${slowQuery.call}"/></td>
+							<td style="text-align:right;">${slowQuery.durationMs}</td>
+							<td style="text-align:right;">${slowQuery.failed ? "failed" : slowQuery.rows}</td>
+							<td>
+								<code><c:out value="${slowQuery.query}"/></code>
+								<c:if test="${!empty slowQuery.bindings}">
+									<br/><br/>Bindings:
+									<c:forEach items="${slowQuery.bindings}" var="binding">
+										<br/><code>?<c:out value="${binding.key}"/> = <c:out value="${binding.value}"/></code>
+									</c:forEach>
+								</c:if>
+								<c:if test="${slowQuery.plan!=null}">
+									<br/><br/>Plan:
+									<pre><c:out value="${slowQuery.plan}"/></pre>
+								</c:if>
+							</td>
+						</tr>
+					</c:forEach>
+			    </tbody>
+			</table>
+		</div>
+	</c:if>
+	<br/>
+	<br/>
+<tl:pageEndStandard/>
@@ -19,6 +19,9 @@
 	<p>Users can create, update, and delete DiSCOs as needed. The user-driven deletion leaves the DiSCO data in the RMap database, though it is no longer 
 	visible through the API or GUI. The Administrator Tool provides the option to permanently delete a DiSCO from RMap, only leaving the Event data behind as 
 	a record of what happened to the DiSCO. Visit the <a href="<c:url value='/admin/disco/delete'/>">Delete a DiSCO</a> page to perform this function.</p>
+	<h3>Review slow queries</h3>
+	<p>When the slow query log is enabled, triplestore queries that take longer than a threshold are recorded along with the operation that issued them. 
+	Visit the <a href="<c:url value='/admin/slowqueries'/>">Slow Queries</a> page to review the most recent of them.</p>
 	<br/>
 	<br/>
 	<br/>
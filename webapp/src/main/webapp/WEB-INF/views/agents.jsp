@@ -17,6 +17,9 @@
 		<h1 class="lineContinues">RMap Agent</h1>
 		<tl:tooltip standardDescName="RMapAgent"/>
 		<h2>URI: ${agentUri}</h2>
+		<c:if test="${AGENT.isIncomplete()}">
+			<p><em>Some details could not be retrieved and are not shown. Refresh the page to try again.</em></p>
+		</c:if>
 	
 		<div id="graphview" class="tabcontent">
 			<tl:loadingIcon/>
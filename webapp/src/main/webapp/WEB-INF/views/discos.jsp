@@ -17,6 +17,9 @@
 		<h1 class="lineContinues">RMap DiSCO</h1>
 		<tl:tooltip standardDescName="RMapDiSCO"/>
 		<h2>URI: ${DISCO.getUri()}</h2>
+		<c:if test="${DISCO.isIncomplete()}">
+			<p><em>Some details could not be retrieved and are not shown. Refresh the page to try again.</em></p>
+		</c:if>
 		<p>
 			<c:set var="dProviderId" value="${DISCO.getProviderId()}"/>
 			<c:set var="dCreator" value="${DISCO.getCreator()}"/>
@@ -51,11 +54,13 @@
 	<aside class="four columns right-sidebar">
 	     
 		<div class="sidebar-widget">
+			<c:if test="${DISCO.getStatus()!=null}">
 			<div class="status${DISCO.getStatus().toString()}">
 				${DISCO.getStatus().toString()}
 				<tl:tooltip toolTipText="The DiSCO status. A DiSCO is ACTIVE if the data is considered valid and up to date. It is INACTIVE if there is a newer version, or it has been marked INACTIVE by the data provider." 
 							readMoreLink="/about/glossary#Status"/>
 			</div>
+			</c:if>
 			<h2>Related Events</h2>
 			<ul>
 				<c:forEach var="event" items="${DISCO.getEvents()}">
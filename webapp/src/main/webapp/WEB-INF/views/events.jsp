@@ -7,6 +7,9 @@
 <h1 class="lineContinues">RMap Event</h1>
 <tl:tooltip standardDescName="RMapEvent"/>
 <h2>URI: ${EVENT.getUri()}</h2>
+<c:if test="${EVENT.isIncomplete()}">
+	<p><em>Some details could not be retrieved and are not shown. Refresh the page to try again.</em></p>
+</c:if>
 <div class="CSSTableGenerator">
 	<table>
 		<tr>
@@ -22,13 +22,15 @@ package info.rmapproject.webapp;
 import org.junit.runner.RunWith;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 
 /**
  * Class for other test classes to inherit from. There are several annotations and settings required 
  * for most of the test classes, this sets them.  Note that the default class annotations can be 
- * overridden by defining them in the concrete class
+ * overridden by defining them in the concrete class. Page data is retrieved on the calling thread because
+ * the in-memory triplestore is a single instance with one connection.
  * @author khanson
  *
  */
@@ -36,6 +38,7 @@ import org.springframework.test.context.web.WebAppConfiguration;
 @RunWith(SpringJUnit4ClassRunner.class)
 @ActiveProfiles({"default", "inmemory-triplestore", "inmemory-idservice", "inmemory-db", "embedded-solr", "mock-kafka"})
 @ContextConfiguration({"classpath*:/servlet-context.xml", "classpath*:/rmap-kafka-shared-test.xml"})
+@TestPropertySource(properties = {"rmapweb.display-thread-pool-size=0"})
 public abstract class WebTestAbstractIT {
 
 }
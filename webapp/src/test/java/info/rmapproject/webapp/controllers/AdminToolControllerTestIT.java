@@ -250,7 +250,27 @@ public class AdminToolControllerTestIT extends WebDataRetrievalTestAbstractIT {
         //confirm delete, should throw expected exception
         rmapService.readDiSCO(new URI(discoUri));        
     }
-    
-    
+
+    /**
+     * Tests retrieval of the slow queries admin page, and clearing the slow query log
+     * @throws Exception
+     */
+    @Test
+    public void testSlowQueriesPage() throws Exception {
+        mockMvc.perform(get("/admin/slowqueries").sessionAttr(Constants.ADMIN_LOGGEDIN_SESSATTRIB, true))
+                .andExpect(status().isOk())
+                .andExpect(model().attributeExists("slowQueries"))
+                .andExpect(view().name("admin/slowqueries"));
+
+        mockMvc.perform(post("/admin/slowqueries/clear").sessionAttr(Constants.ADMIN_LOGGEDIN_SESSATTRIB, true))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/admin/slowqueries"))
+                .andExpect(flash().attributeExists("notice"));
+
+        //check redirected when not logged in
+        mockMvc.perform(get("/admin/slowqueries"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/admin/login"));
+    }
     
 }
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This software was produced as part of the RMap Project (http://rmap-project.info),
+ * The RMap Project was funded by the Alfred P. Sloan Foundation and is a 
+ * collaboration between Data Conservancy, Portico, and IEEE.
+ *******************************************************************************/
+package info.rmapproject.webapp.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import info.rmapproject.core.exception.RMapDiSCONotFoundException;
+import info.rmapproject.webapp.exception.ErrorCode;
+import info.rmapproject.webapp.exception.RMapWebException;
+import info.rmapproject.webapp.service.DisplayTaskExecutor.PendingResult;
+
+/**
+ * Tests for DisplayTaskExecutor
+ */
+public class DisplayTaskExecutorTest {
+
+	private DisplayTaskExecutor executor;
+	
+	private final CountDownLatch release = new CountDownLatch(1);
+	
+	@After
+	public void shutdown() {
+		release.countDown();
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+	
+	/**
+	 * Tests that results are returned when tasks complete in time
+	 * @throws Exception
+	 */
+	@Test
+	public void testResultsReturned() throws Exception {
+		executor = new DisplayTaskExecutor(2, 10, 5000);
+		PendingResult<String> first = executor.submit(() -> "first");
+		PendingResult<String> second = executor.submit(() -> "second");
+		assertEquals("first", executor.getRequired(first));
+		assertEquals("second", executor.getOptional(second, "second", "fallback"));
+	}
+
+	/**
+	 * Tests that tasks run on the calling thread when the pool size is 0
+	 * @throws Exception
+	 */
+	@Test
+	public void testRunsInlineWhenNoThreads() throws Exception {
+		executor = new DisplayTaskExecutor(0, 0, 5000);
+		Thread caller = Thread.currentThread();
+		PendingResult<Thread> pending = executor.submit(() -> Thread.currentThread());
+		assertEquals(caller, executor.getRequired(pending));
+	}
+	
+	/**
+	 * Tests that the original exception is thrown for a required result, so that the usual error pages are shown
+	 * @throws Exception
+	 */
+	@Test(expected=RMapDiSCONotFoundException.class)
+	public void testRequiredRethrowsOriginalException() throws Exception {
+		executor = new DisplayTaskExecutor(2, 10, 5000);
+		PendingResult<String> pending = executor.submit(() -> {
+			throw new RMapDiSCONotFoundException("not found");
+		});
+		executor.getRequired(pending);
+	}
+	
+	/**
+	 * Tests that the other pending results for a page are cancelled when a required result fails
+	 * @throws Exception
+	 */
+	@Test
+	public void testRequiredFailureCancelsOthers() throws Exception {
+		executor = new DisplayTaskExecutor(2, 10, 5000);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+		PendingResult<String> other = executor.submit(() -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException ex) {
+				interrupted.countDown();
+				throw ex;
+			}
+			return "other";
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		PendingResult<String> pending = executor.submit(() -> {
+			throw new RMapDiSCONotFoundException("not found");
+		});
+		try {
+			executor.getRequired(pending, other);
+			fail("Expected not found");
+		} catch (RMapDiSCONotFoundException ex) {
+			assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+			assertEquals("fallback", executor.getOptional(other, "other", "fallback"));
+		}
+	}
+	
+	/**
+	 * Tests that a required result that times out produces an RMapWebException with the timeout error code
+	 * @throws Exception
+	 */
+	@Test
+	public void testRequiredTimesOut() throws Exception {
+		executor = new DisplayTaskExecutor(2, 10, 50);
+		PendingResult<String> pending = executor.submit(() -> {
+			release.await();
+			return "late";
+		});
+		try {
+			executor.getRequired(pending);
+			fail("Expected timeout");
+		} catch (RMapWebException ex) {
+			assertEquals(ErrorCode.ER_DATA_RETRIEVAL_TIMED_OUT, ex.getErrorCode());
+		}
+	}
+	
+	/**
+	 * Tests that the fallback is returned for an optional result that fails or times out
+	 * @throws Exception
+	 */
+	@Test
+	public void testOptionalReturnsFallback() throws Exception {
+		executor = new DisplayTaskExecutor(2, 10, 50);
+		PendingResult<String> failed = executor.submit(() -> {
+			throw new IllegalStateException("failed");
+		});
+		PendingResult<String> slow = executor.submit(() -> {
+			release.await();
+			return "late";
+		});
+		assertEquals("fallback", executor.getOptional(failed, "failed", "fallback"));
+		long start = System.currentTimeMillis();
+		assertEquals("fallback", executor.getOptional(slow, "slow", "fallback"));
+		assertTrue(System.currentTimeMillis() - start < 5000);
+	}
+	
+}